@@ -8,6 +8,12 @@ public final class ActivityPubContext {
             "https://w3id.org/security/v1"
     );
 
+    public static final List<Object> ACTOR = List.of(
+            "https://www.w3.org/ns/activitystreams",
+            "https://w3id.org/security/v1",
+            "https://w3id.org/security/multikey/v1"
+    );
+
     private ActivityPubContext() {
     }
 }
@@ -23,6 +23,7 @@ public class Actor {
     private MediaLink icon;
     private MediaLink image;
     private PublicKey publicKey;
+    private List<Map<String, Object>> assertionMethod;
     private Map<String, Object> endpoints;
     private List<String> to;
     private List<String> cc;
@@ -139,6 +140,14 @@ public class Actor {
         this.publicKey = publicKey;
     }
 
+    public List<Map<String, Object>> getAssertionMethod() {
+        return assertionMethod;
+    }
+
+    public void setAssertionMethod(List<Map<String, Object>> assertionMethod) {
+        this.assertionMethod = assertionMethod;
+    }
+
     public Map<String, Object> getEndpoints() {
         return endpoints;
     }
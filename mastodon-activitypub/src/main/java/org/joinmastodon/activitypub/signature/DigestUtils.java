@@ -1,5 +1,7 @@
 package org.joinmastodon.activitypub.signature;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -23,10 +25,17 @@ public final class DigestUtils {
      * @return the base64-encoded digest value
      */
     public static String sha256Digest(byte[] content) {
+        return Base64.getEncoder().encodeToString(newSha256().digest(content));
+    }
+
+    /**
+     * Create a SHA-256 message digest, e.g. to hash a body while it is being read.
+     *
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest newSha256() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content);
-            return Base64.getEncoder().encodeToString(hash);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
@@ -53,6 +62,17 @@ public final class DigestUtils {
         return "SHA-256=" + sha256Digest(content);
     }
 
+    /**
+     * Build an RFC 9530 Content-Digest header value for SHA-256.
+     * Format: sha-256=:<base64-encoded-hash>:
+     *
+     * @param content the content to digest
+     * @return the Content-Digest header value
+     */
+    public static String buildContentDigestHeader(byte[] content) {
+        return "sha-256=:" + sha256Digest(content) + ":";
+    }
+
     /**
      * Build a Digest header value for SHA-256 from string content.
      *
@@ -71,26 +91,67 @@ public final class DigestUtils {
      * @return true if the digest matches
      */
     public static boolean verifyDigest(String digestHeader, byte[] content) {
-        if (digestHeader == null || digestHeader.isEmpty()) {
-            return false;
-        }
+        byte[] expected = expectedSha256(digestHeader);
+        return expected != null && MessageDigest.isEqual(expected, newSha256().digest(content));
+    }
 
-        // Parse the digest header
-        String[] parts = digestHeader.split("=", 2);
-        if (parts.length != 2) {
+    /**
+     * Verify that the given digest header matches the content of a stream, hashing it in
+     * chunks as it is read. The stream is read to the end but not closed.
+     *
+     * @param digestHeader the Digest header value (format: SHA-256=<hash>)
+     * @param content the content to verify
+     * @return true if the digest matches
+     * @throws IOException if the stream cannot be read
+     */
+    public static boolean verifyDigest(String digestHeader, InputStream content) throws IOException {
+        byte[] expected = expectedSha256(digestHeader);
+        if (expected == null) {
             return false;
         }
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return MessageDigest.isEqual(expected, digest.digest());
+    }
 
-        String algorithm = parts[0].trim();
-        String expectedHash = parts[1].trim();
+    /**
+     * Check a SHA-256 hash that has already been computed, e.g. with a
+     * {@link java.security.DigestInputStream} while the body was read, against a Digest header.
+     *
+     * @param digestHeader the Digest header value (format: SHA-256=<hash>)
+     * @param sha256 the raw SHA-256 hash of the content
+     * @return true if the digest matches
+     */
+    public static boolean matchesDigest(String digestHeader, byte[] sha256) {
+        byte[] expected = expectedSha256(digestHeader);
+        return expected != null && MessageDigest.isEqual(expected, sha256);
+    }
 
-        if ("SHA-256".equalsIgnoreCase(algorithm)) {
-            String actualHash = sha256Digest(content);
-            return expectedHash.equals(actualHash);
+    /**
+     * Decode the SHA-256 value of a Digest header, which may list several algorithms.
+     *
+     * @return the expected hash, or null if the header has no valid SHA-256 value
+     */
+    private static byte[] expectedSha256(String digestHeader) {
+        if (digestHeader == null || digestHeader.isEmpty()) {
+            return null;
+        }
+        for (String part : digestHeader.split(",")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length == 2 && "SHA-256".equalsIgnoreCase(pair[0].trim())) {
+                try {
+                    return Base64.getDecoder().decode(pair[1].trim());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
         }
-
         // Unsupported algorithm
-        return false;
+        return null;
     }
 
     /**
@@ -0,0 +1,68 @@
+package org.joinmastodon.activitypub.signature;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Signs requests with RFC 9421 HTTP message signatures using Ed25519. The signature covers
+ * the method, the target URI and the {@code Content-Digest} header of the body.
+ *
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc9421">RFC 9421 - HTTP Message Signatures</a>
+ */
+public class HttpMessageSigner {
+    public static final String ALGORITHM = "ed25519";
+    private static final String LABEL = "sig1";
+    private static final String COMPONENTS = "(\"@method\" \"@target-uri\" \"content-digest\")";
+
+    /**
+     * Sign a request.
+     *
+     * @param keyId the URI of the signing key
+     * @param privateKey an Ed25519 private key
+     * @param method the HTTP method
+     * @param targetUri the full request URI
+     * @param contentDigest the request's {@code Content-Digest} header value
+     * @param created the signature creation time, in epoch seconds
+     * @return the {@code Signature-Input} and {@code Signature} header values
+     */
+    public SignatureHeaders sign(String keyId, PrivateKey privateKey, String method, URI targetUri,
+                                 String contentDigest, long created) {
+        String params = signatureParams(keyId, created);
+        String base = buildSignatureBase(method, targetUri, contentDigest, params);
+        try {
+            Signature signature = SignatureInstances.signer("Ed25519", privateKey);
+            signature.update(base.getBytes(StandardCharsets.UTF_8));
+            String encoded = Base64.getEncoder().encodeToString(signature.sign());
+            return new SignatureHeaders(LABEL + "=" + params, LABEL + "=:" + encoded + ":");
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to sign request", ex);
+        }
+    }
+
+    /**
+     * Build the signature base of RFC 9421 section 2.5 for the covered components.
+     */
+    public String buildSignatureBase(String method, URI targetUri, String contentDigest, String signatureParams) {
+        return "\"@method\": " + method.toUpperCase(Locale.ROOT) + "\n"
+                + "\"@target-uri\": " + targetUri + "\n"
+                + "\"content-digest\": " + contentDigest + "\n"
+                + "\"@signature-params\": " + signatureParams;
+    }
+
+    private static String signatureParams(String keyId, long created) {
+        return COMPONENTS + ";created=" + created + ";keyid=\"" + keyId + "\";alg=\"" + ALGORITHM + "\"";
+    }
+
+    /**
+     * Header values to add to a signed request.
+     *
+     * @param signatureInput the {@code Signature-Input} header value
+     * @param signature the {@code Signature} header value
+     */
+    public record SignatureHeaders(String signatureInput, String signature) {
+    }
+}
@@ -14,8 +14,7 @@ public class HttpSignatureSigner {
                        Map<String, String> headers, List<String> signedHeaders) {
         try {
             String signingString = buildSigningString(method, path, headers, signedHeaders);
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(privateKey);
+            Signature signature = SignatureInstances.signer("SHA256withRSA", privateKey);
             signature.update(signingString.getBytes(StandardCharsets.UTF_8));
             String encoded = Base64.getEncoder().encodeToString(signature.sign());
             StringJoiner joiner = new StringJoiner(" ");
@@ -1,26 +1,61 @@
 package org.joinmastodon.activitypub.signature;
 
 import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.util.Base64;
-import java.util.List;
 import java.util.Map;
 
 public class HttpSignatureVerifier {
+    // Signature instances are not thread-safe but are fully reset by initVerify,
+    // so each thread keeps one instead of looking up the provider per request.
+    private static final ThreadLocal<Signature> RSA_SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA256withRSA algorithm not available", ex);
+        }
+    });
+
+    private final HttpSignatureSigner signer = new HttpSignatureSigner();
+
     public boolean verify(HttpSignature signature, PublicKey publicKey, String method, String path,
                           Map<String, String> headers) {
         if (signature == null || publicKey == null) {
             return false;
         }
+        try {
+            return verify(signature, publicKey, signingString(signature, method, path, headers));
+        } catch (IllegalArgumentException ex) {
+            // A signed header is missing from the request
+            return false;
+        }
+    }
+
+    /**
+     * Build the string covered by a signature, so callers can cache verification results
+     * for it without verifying again.
+     *
+     * @throws IllegalArgumentException if a signed header is missing from {@code headers}
+     */
+    public String signingString(HttpSignature signature, String method, String path,
+                                Map<String, String> headers) {
+        return signer.buildSigningString(method, path, headers, signature.getHeaders());
+    }
+
+    /**
+     * Verify a signature over a signing string built with {@link #signingString}.
+     */
+    public boolean verify(HttpSignature signature, PublicKey publicKey, String signingString) {
+        if (signature == null || publicKey == null || signingString == null) {
+            return false;
+        }
         if (signature.getSignature() == null) {
             return false;
         }
-        List<String> signedHeaders = signature.getHeaders();
         try {
-            HttpSignatureSigner signer = new HttpSignatureSigner();
-            String signingString = signer.buildSigningString(method, path, headers, signedHeaders);
-            Signature verifier = Signature.getInstance("SHA256withRSA");
+            Signature verifier = RSA_SHA256.get();
             verifier.initVerify(publicKey);
             verifier.update(signingString.getBytes(StandardCharsets.UTF_8));
             byte[] decoded = Base64.getDecoder().decode(signature.getSignature());
@@ -0,0 +1,47 @@
+package org.joinmastodon.activitypub.signature;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.util.Arrays;
+
+/**
+ * Encodes Ed25519 public keys as Multikey {@code publicKeyMultibase} values (base58btc with
+ * the {@code ed25519-pub} multicodec prefix), the form used by FEP-521a actor keys.
+ */
+public final class MultikeyUtils {
+    private static final String BASE58_ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final byte[] ED25519_PUB_PREFIX = {(byte) 0xed, 0x01};
+    private static final int ED25519_KEY_LENGTH = 32;
+
+    private MultikeyUtils() {
+    }
+
+    /**
+     * @param publicKey an Ed25519 public key
+     * @return the multibase-encoded key, starting with {@code z6Mk}
+     */
+    public static String toEd25519Multibase(PublicKey publicKey) {
+        byte[] encoded = publicKey.getEncoded();
+        // The X.509 encoding ends with the raw 32-byte key
+        byte[] raw = Arrays.copyOfRange(encoded, encoded.length - ED25519_KEY_LENGTH, encoded.length);
+        byte[] prefixed = new byte[ED25519_PUB_PREFIX.length + raw.length];
+        System.arraycopy(ED25519_PUB_PREFIX, 0, prefixed, 0, ED25519_PUB_PREFIX.length);
+        System.arraycopy(raw, 0, prefixed, ED25519_PUB_PREFIX.length, raw.length);
+        return "z" + base58(prefixed);
+    }
+
+    private static String base58(byte[] input) {
+        StringBuilder builder = new StringBuilder();
+        BigInteger value = new BigInteger(1, input);
+        BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            BigInteger[] divided = value.divideAndRemainder(base);
+            builder.append(BASE58_ALPHABET.charAt(divided[1].intValue()));
+            value = divided[0];
+        }
+        for (int i = 0; i < input.length && input[i] == 0; i++) {
+            builder.append(BASE58_ALPHABET.charAt(0));
+        }
+        return builder.reverse().toString();
+    }
+}
@@ -20,10 +20,17 @@ public final class PemUtils {
     }
 
     public static PublicKey parsePublicKey(String pem) {
+        return parsePublicKey(pem, "RSA");
+    }
+
+    /**
+     * Parse a public key PEM for a key algorithm other than RSA, e.g. {@code Ed25519}.
+     */
+    public static PublicKey parsePublicKey(String pem, String algorithm) {
         try {
             byte[] decoded = parsePem(pem);
             X509EncodedKeySpec spec = new X509EncodedKeySpec(decoded);
-            KeyFactory factory = KeyFactory.getInstance("RSA");
+            KeyFactory factory = KeyFactory.getInstance(algorithm);
             return factory.generatePublic(spec);
         } catch (Exception ex) {
             throw new IllegalArgumentException("Invalid public key PEM", ex);
@@ -31,10 +38,17 @@ public final class PemUtils {
     }
 
     public static PrivateKey parsePrivateKey(String pem) {
+        return parsePrivateKey(pem, "RSA");
+    }
+
+    /**
+     * Parse a private key PEM for a key algorithm other than RSA, e.g. {@code Ed25519}.
+     */
+    public static PrivateKey parsePrivateKey(String pem, String algorithm) {
         try {
             byte[] decoded = parsePem(pem);
             PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(decoded);
-            KeyFactory factory = KeyFactory.getInstance("RSA");
+            KeyFactory factory = KeyFactory.getInstance(algorithm);
             return factory.generatePrivate(spec);
         } catch (Exception ex) {
             throw new IllegalArgumentException("Invalid private key PEM", ex);
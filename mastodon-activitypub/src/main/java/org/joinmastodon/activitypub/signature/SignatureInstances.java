@@ -0,0 +1,53 @@
+package org.joinmastodon.activitypub.signature;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-thread {@link Signature} instances already initialized for signing with a given key.
+ * A {@link Signature} returns to its initialized state after {@code sign()}, so a thread that
+ * signs repeatedly with the same key skips both the provider lookup and {@code initSign}.
+ * <p>
+ * Keys are matched by identity, so callers should reuse their parsed key objects.
+ */
+final class SignatureInstances {
+    private static final int MAX_KEYS_PER_THREAD = 32;
+
+    private static final ThreadLocal<Map<KeyRef, Signature>> SIGNERS = ThreadLocal.withInitial(() ->
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<KeyRef, Signature> eldest) {
+                    return size() > MAX_KEYS_PER_THREAD;
+                }
+            });
+
+    private SignatureInstances() {
+    }
+
+    static Signature signer(String algorithm, PrivateKey key) throws GeneralSecurityException {
+        Map<KeyRef, Signature> signers = SIGNERS.get();
+        KeyRef ref = new KeyRef(algorithm, key);
+        Signature signature = signers.get(ref);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm);
+            signature.initSign(key);
+            signers.put(ref, signature);
+        }
+        return signature;
+    }
+
+    private record KeyRef(String algorithm, PrivateKey key) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof KeyRef ref && ref.key == key && ref.algorithm.equals(algorithm);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * algorithm.hashCode() + System.identityHashCode(key);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.joinmastodon.activitypub.signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for HttpMessageSigner and the Ed25519 key encodings it relies on.
+ */
+class HttpMessageSignerTest {
+    private static final String KEY_ID = "https://example.com/users/alice#ed25519-key";
+    private static final URI INBOX = URI.create("https://remote.example/users/bob/inbox");
+
+    private HttpMessageSigner signer;
+    private KeyPair keyPair;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signer = new HttpMessageSigner();
+        keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+    }
+
+    @Nested
+    @DisplayName("Signing")
+    class SigningTests {
+
+        @Test
+        @DisplayName("Signature verifies against the signature base")
+        void signatureVerifiesAgainstBase() throws Exception {
+            String contentDigest = DigestUtils.buildContentDigestHeader("{}".getBytes(StandardCharsets.UTF_8));
+
+            HttpMessageSigner.SignatureHeaders headers = signer.sign(KEY_ID, keyPair.getPrivate(), "post",
+                    INBOX, contentDigest, 1708430400L);
+
+            assertThat(headers.signatureInput()).startsWith("sig1=(\"@method\" \"@target-uri\" \"content-digest\")")
+                    .contains(";created=1708430400", ";keyid=\"" + KEY_ID + "\"", ";alg=\"ed25519\"");
+            assertThat(headers.signature()).startsWith("sig1=:").endsWith(":");
+
+            String params = headers.signatureInput().substring("sig1=".length());
+            String base = signer.buildSignatureBase("POST", INBOX, contentDigest, params);
+            String encoded = headers.signature().substring("sig1=:".length(), headers.signature().length() - 1);
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(keyPair.getPublic());
+            verifier.update(base.getBytes(StandardCharsets.UTF_8));
+            assertThat(verifier.verify(Base64.getDecoder().decode(encoded))).isTrue();
+        }
+
+        @Test
+        @DisplayName("Signature base lists components in order with the method upper-cased")
+        void signatureBaseFormat() {
+            String base = signer.buildSignatureBase("post", INBOX, "sha-256=:abc=:", "(\"@method\");created=1");
+
+            assertThat(base).isEqualTo("\"@method\": POST\n"
+                    + "\"@target-uri\": https://remote.example/users/bob/inbox\n"
+                    + "\"content-digest\": sha-256=:abc=:\n"
+                    + "\"@signature-params\": (\"@method\");created=1");
+        }
+
+        @Test
+        @DisplayName("Repeated signing with a cached instance stays valid")
+        void repeatedSigningStaysValid() throws Exception {
+            String contentDigest = DigestUtils.buildContentDigestHeader(new byte[0]);
+
+            for (int i = 0; i < 3; i++) {
+                HttpMessageSigner.SignatureHeaders headers = signer.sign(KEY_ID, keyPair.getPrivate(), "POST",
+                        INBOX, contentDigest, 1708430400L + i);
+                String params = headers.signatureInput().substring("sig1=".length());
+                String encoded = headers.signature().substring(6, headers.signature().length() - 1);
+                Signature verifier = Signature.getInstance("Ed25519");
+                verifier.initVerify(keyPair.getPublic());
+                verifier.update(signer.buildSignatureBase("POST", INBOX, contentDigest, params)
+                        .getBytes(StandardCharsets.UTF_8));
+                assertThat(verifier.verify(Base64.getDecoder().decode(encoded))).isTrue();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Key encodings")
+    class KeyEncodingTests {
+
+        @Test
+        @DisplayName("Ed25519 Multikey values use the z6Mk prefix")
+        void multibasePrefix() {
+            String multibase = MultikeyUtils.toEd25519Multibase(keyPair.getPublic());
+
+            assertThat(multibase).startsWith("z6Mk").hasSize(48);
+        }
+
+        @Test
+        @DisplayName("Ed25519 keys round-trip through PEM")
+        void pemRoundTrip() {
+            String publicPem = PemUtils.toPublicKeyPem(keyPair.getPublic());
+            String privatePem = PemUtils.toPrivateKeyPem(keyPair.getPrivate());
+
+            assertThat(PemUtils.parsePublicKey(publicPem, "Ed25519").getEncoded())
+                    .isEqualTo(keyPair.getPublic().getEncoded());
+            assertThat(PemUtils.parsePrivateKey(privatePem, "Ed25519").getEncoded())
+                    .isEqualTo(keyPair.getPrivate().getEncoded());
+        }
+
+        @Test
+        @DisplayName("Content-Digest uses the RFC 9530 structured format")
+        void contentDigestFormat() {
+            assertThat(DigestUtils.buildContentDigestHeader("{}".getBytes(StandardCharsets.UTF_8)))
+                    .isEqualTo("sha-256=:RBNvo1WzZ4oRRq0W9+hknpT7T8If536DEMBg9hyq/4o=:");
+        }
+    }
+}
@@ -222,6 +222,28 @@ class HttpSignatureInteropTest {
             boolean valid = DigestUtils.verifyDigest(digest, content);
             assertThat(valid).isTrue();
         }
+
+        @Test
+        @DisplayName("Verifies digest over a streamed body")
+        void verifiesStreamedDigest() throws Exception {
+            byte[] content = new byte[20_000];
+            java.util.Arrays.fill(content, (byte) 'a');
+            String digest = DigestUtils.buildDigestHeader(content);
+
+            assertThat(DigestUtils.verifyDigest(digest, new java.io.ByteArrayInputStream(content))).isTrue();
+            content[content.length - 1] = 'b';
+            assertThat(DigestUtils.verifyDigest(digest, new java.io.ByteArrayInputStream(content))).isFalse();
+        }
+
+        @Test
+        @DisplayName("Picks the SHA-256 value from a multi-algorithm Digest header")
+        void picksSha256FromMultipleDigests() {
+            byte[] content = "{}".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            String digest = "SHA-512=bm90LWNoZWNrZWQ=, " + DigestUtils.buildDigestHeader(content);
+
+            assertThat(DigestUtils.verifyDigest(digest, content)).isTrue();
+            assertThat(DigestUtils.verifyDigest("SHA-256=not base64!", content)).isFalse();
+        }
     }
 
     @Nested
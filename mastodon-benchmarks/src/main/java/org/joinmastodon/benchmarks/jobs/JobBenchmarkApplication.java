@@ -0,0 +1,169 @@
+package org.joinmastodon.benchmarks.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.flywaydb.core.Flyway;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobHandler;
+import org.joinmastodon.jobs.JobQueueSettings;
+import org.joinmastodon.jobs.JobType;
+import org.joinmastodon.jobs.JobsApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The job runtime on its own, without the web application: {@code JobService}, its
+ * repositories and the worker runtime, against H2, against a scratch PostgreSQL database or
+ * on the in-memory backend with a log file in a temporary directory. On PostgreSQL the job
+ * tables are re-created in their own schema by the web application's job migrations, so
+ * claims run against the same indexes and partitions as in production.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(basePackages = "org.joinmastodon.jobs",
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JobsApplication.class))
+@EntityScan(basePackages = "org.joinmastodon.jobs")
+@EnableJpaRepositories(basePackages = "org.joinmastodon.jobs")
+public class JobBenchmarkApplication {
+    static final String H2 = "h2";
+    static final String POSTGRESQL = "postgresql";
+    static final String MEMORY = "memory";
+    static final String SCHEMA = "jobs_bench";
+
+    static String postgresUrl() {
+        return System.getProperty("jobs.jdbc-url", "jdbc:postgresql://localhost:5432/mastodon_bench");
+    }
+
+    static String postgresUser() {
+        return System.getProperty("jobs.jdbc-user", "mastodon");
+    }
+
+    static String postgresPassword() {
+        return System.getProperty("jobs.jdbc-password", "mastodon");
+    }
+
+    /**
+     * Start the job runtime on {@code database} with empty job tables.
+     */
+    static ConfigurableApplicationContext start(String database, int poolSize) {
+        Map<String, Object> properties = new HashMap<>();
+        if (POSTGRESQL.equals(database)) {
+            migrateJobTables();
+            properties.put("spring.datasource.url", postgresUrl());
+            properties.put("spring.datasource.username", postgresUser());
+            properties.put("spring.datasource.password", postgresPassword());
+            properties.put("spring.datasource.hikari.schema", SCHEMA);
+        } else if (H2.equals(database) || MEMORY.equals(database)) {
+            properties.put("spring.datasource.url", "jdbc:h2:mem:jobs_bench;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+            properties.put("spring.datasource.username", "sa");
+            properties.put("spring.datasource.password", "");
+        } else {
+            throw new IllegalArgumentException("Unknown database " + database);
+        }
+        if (MEMORY.equals(database)) {
+            properties.put("mastodon.jobs.backend", MEMORY);
+            properties.put("mastodon.jobs.memory.log-file", temporaryLogFile());
+        }
+        properties.put("spring.datasource.hikari.maximum-pool-size", poolSize);
+        properties.put("spring.jpa.hibernate.ddl-auto", POSTGRESQL.equals(database) ? "none" : "create-drop");
+        properties.put("spring.jpa.open-in-view", false);
+        properties.put("spring.jpa.properties.hibernate.jdbc.time_zone", "UTC");
+        properties.put("mastodon.jobs.recurring.enabled", false);
+        properties.put("logging.level.root", "WARN");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JobBenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .logStartupInfo(false)
+                .run();
+        if (!POSTGRESQL.equals(database)) {
+            // The migrations are PostgreSQL only; give H2 the indexes claims depend on
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            jdbc.execute("create index idx_jobs_ready on jobs (queue, priority desc, fair_at)");
+            jdbc.execute("create index idx_jobs_locked_at on jobs (locked_at)");
+        }
+        return context;
+    }
+
+    /**
+     * Drop the benchmark schema of the scratch database and run the job migrations into it.
+     * Nothing outside that schema is touched.
+     */
+    private static void migrateJobTables() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(postgresUrl(), postgresUser(), postgresPassword())
+                .schemas(SCHEMA)
+                .locations("classpath:db/jobs-migration")
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+    }
+
+    private static String temporaryLogFile() {
+        try {
+            return Files.createTempDirectory("jobs-bench").resolve("jobs.log").toString();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Bean
+    public ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
+
+    @Bean
+    public LatencyProbe latencyProbe() {
+        return new LatencyProbe();
+    }
+
+    /**
+     * Completes a future as soon as the job carrying its key starts running.
+     */
+    public static class LatencyProbe implements JobHandler<String> {
+        static final JobType<String> TYPE = JobType.of("bench-latency", String.class);
+
+        private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+        CompletableFuture<Void> expect(String key) {
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            pending.put(key, started);
+            return started;
+        }
+
+        @Override
+        public JobType<String> type() {
+            return TYPE;
+        }
+
+        @Override
+        public void handle(String key, Job job) {
+            CompletableFuture<Void> started = pending.remove(key);
+            if (started != null) {
+                started.complete(null);
+            }
+        }
+
+        @Override
+        public JobQueueSettings settings() {
+            return new JobQueueSettings(4, 10, Duration.ofSeconds(30), Duration.ofMinutes(5));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.joinmastodon.benchmarks.jobs;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+/**
+ * Runs {@link JobServiceBenchmark} on H2 and the in-memory backend, and on PostgreSQL too:
+ * the database at {@code -Djobs.jdbc-url} if it accepts a connection, otherwise a throwaway
+ * PostgreSQL container if Docker is available. JMH's JSON results are written to
+ * {@code -Djobs.result} (default {@code jobs-benchmark.json}) for comparison between commits.
+ *
+ * <pre>java -Djobs.result=jobs-$(git rev-parse --short HEAD).json \
+ *     -cp mastodon-benchmarks/target/benchmarks.jar org.joinmastodon.benchmarks.jobs.JobBenchmarks</pre>
+ */
+public final class JobBenchmarks {
+
+    private JobBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        List<String> databases = new ArrayList<>(List.of(JobBenchmarkApplication.H2, JobBenchmarkApplication.MEMORY));
+        List<String> forkArgs = new ArrayList<>();
+        PostgreSQLContainer container = null;
+        if (postgresAvailable()) {
+            databases.add(JobBenchmarkApplication.POSTGRESQL);
+        } else if (DockerClientFactory.instance().isDockerAvailable()) {
+            System.out.println("PostgreSQL at " + JobBenchmarkApplication.postgresUrl()
+                    + " is not reachable; starting a PostgreSQL container");
+            container = new PostgreSQLContainer("postgres:16-alpine")
+                    .withDatabaseName("mastodon_bench")
+                    .withUsername("mastodon")
+                    .withPassword("mastodon");
+            container.start();
+            // The benchmarks run in forked JVMs, which only see the database through their arguments
+            forkArgs.add("-Djobs.jdbc-url=" + container.getJdbcUrl());
+            forkArgs.add("-Djobs.jdbc-user=" + container.getUsername());
+            forkArgs.add("-Djobs.jdbc-password=" + container.getPassword());
+            databases.add(JobBenchmarkApplication.POSTGRESQL);
+        } else {
+            System.out.println("PostgreSQL at " + JobBenchmarkApplication.postgresUrl()
+                    + " is not reachable and Docker is not available; benchmarking H2 and the in-memory backend only");
+        }
+        try {
+            Options options = new OptionsBuilder()
+                    .include(JobServiceBenchmark.class.getName())
+                    .param("database", databases.toArray(String[]::new))
+                    .jvmArgsAppend(forkArgs.toArray(String[]::new))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(System.getProperty("jobs.result", "jobs-benchmark.json"))
+                    .build();
+            new Runner(options).run();
+        } finally {
+            if (container != null) {
+                container.stop();
+            }
+        }
+    }
+
+    private static boolean postgresAvailable() {
+        DriverManager.setLoginTimeout(3);
+        try (Connection ignored = DriverManager.getConnection(JobBenchmarkApplication.postgresUrl(),
+                JobBenchmarkApplication.postgresUser(), JobBenchmarkApplication.postgresPassword())) {
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.joinmastodon.benchmarks.jobs;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joinmastodon.jobs.JobRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Job claims per second on a single worker against a PostgreSQL queue holding
+ * {@code queuedJobs} ready jobs. {@code selectThenUpdate} reproduces the old claim, a
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED} followed by one {@code UPDATE} per job;
+ * {@code setBased} runs the statements {@link JobRepository} uses now.
+ * <p>
+ * Needs a scratch database; its {@code jobs} table is dropped and re-created.
+ *
+ * <pre>java -Djobs.jdbc-url=jdbc:postgresql://localhost:5432/mastodon_bench -Djobs.jdbc-user=mastodon \
+ *     -Djobs.jdbc-password=mastodon -jar mastodon-benchmarks/target/benchmarks.jar JobClaimBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobClaimBenchmark {
+    private static final String QUEUE = "bench";
+    private static final String WORKER = "bench-worker";
+
+    private static final String OLD_SELECT_SQL = """
+            select id, attempts from jobs
+            where queue = ?
+              and run_at <= ?
+              and (locked_at is null or locked_at < ?)
+              and attempts < max_attempts
+            order by run_at asc
+            limit ?
+            for update skip locked
+            """;
+    private static final String OLD_UPDATE_SQL =
+            "update jobs set locked_at = ?, locked_by = ?, attempts = ?, updated_at = ? where id = ?";
+
+    @Param({"1000000"})
+    public int queuedJobs;
+
+    @Param({"10", "100"})
+    public int batchSize;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private NamedParameterJdbcTemplate namedJdbc;
+    private TransactionTemplate transactions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("jobs.jdbc-url", "jdbc:postgresql://localhost:5432/mastodon_bench"),
+                System.getProperty("jobs.jdbc-user", "mastodon"),
+                System.getProperty("jobs.jdbc-password", "mastodon"),
+                true);
+        jdbc = new JdbcTemplate(dataSource);
+        namedJdbc = new NamedParameterJdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbc.execute("drop table if exists jobs");
+        jdbc.execute("""
+                create table jobs (
+                    id bigserial primary key,
+                    queue varchar(64) not null,
+                    payload text,
+                    run_at timestamptz not null,
+                    priority integer not null default 0,
+                    unique_key text,
+                    fairness_key text,
+                    fair_at timestamptz not null,
+                    attempts integer not null default 0,
+                    max_attempts integer not null default 5,
+                    last_error text,
+                    locked_at timestamptz,
+                    locked_by varchar(64),
+                    created_at timestamptz not null,
+                    updated_at timestamptz not null
+                )
+                """);
+        jdbc.update("""
+                insert into jobs (queue, payload, run_at, fair_at, created_at, updated_at)
+                select ?, '{"id":' || g || '}', now() - interval '1 day' + g * interval '1 millisecond',
+                       now() - interval '1 day' + g * interval '1 millisecond', now(), now()
+                from generate_series(1, ?) g
+                """, QUEUE, queuedJobs);
+        jdbc.execute("create index idx_jobs_queue_run_at on jobs (queue, run_at)");
+        jdbc.execute("create index idx_jobs_locked_at on jobs (locked_at)");
+        jdbc.execute("""
+                create index idx_jobs_ready on jobs (queue, priority desc, fair_at) include (run_at)
+                where locked_at is null and attempts < max_attempts
+                """);
+        jdbc.execute("analyze jobs");
+    }
+
+    @Setup(Level.Iteration)
+    public void unlockClaimed() {
+        jdbc.update("update jobs set locked_at = null, locked_by = null, attempts = 0 where locked_at is not null");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbc.execute("drop table if exists jobs");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public int selectThenUpdate() {
+        return transactions.execute(status -> {
+            Timestamp now = Timestamp.from(Instant.now());
+            Timestamp staleBefore = Timestamp.from(Instant.now().minusSeconds(300));
+            List<Map<String, Object>> rows = jdbc.queryForList(OLD_SELECT_SQL, QUEUE, now, staleBefore, batchSize);
+            for (Map<String, Object> row : rows) {
+                jdbc.update(OLD_UPDATE_SQL, now, WORKER, ((Number) row.get("attempts")).intValue() + 1, now,
+                        row.get("id"));
+            }
+            return rows.size();
+        });
+    }
+
+    @Benchmark
+    public int setBased() {
+        return transactions.execute(status -> {
+            Timestamp now = Timestamp.from(Instant.now());
+            namedJdbc.update(JobRepository.RELEASE_STALE_SQL, new MapSqlParameterSource()
+                    .addValue("queue", QUEUE)
+                    .addValue("staleBefore", Timestamp.from(Instant.now().minusSeconds(300))));
+            return namedJdbc.queryForList(JobRepository.CLAIM_SQL, new MapSqlParameterSource()
+                    .addValue("queue", QUEUE)
+                    .addValue("workerId", WORKER)
+                    .addValue("now", now)
+                    .addValue("limit", batchSize)).size();
+        });
+    }
+}
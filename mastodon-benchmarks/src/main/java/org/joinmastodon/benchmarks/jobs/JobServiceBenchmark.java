@@ -0,0 +1,168 @@
+package org.joinmastodon.benchmarks.jobs;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobOptions;
+import org.joinmastodon.jobs.JobService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@link JobService} end to end, through JPA on H2 and, when run through {@link JobBenchmarks}
+ * with a reachable database or Docker, PostgreSQL, or on the in-memory backend:
+ * <ul>
+ *   <li>{@code enqueue} and {@code enqueueAll}: jobs enqueued per second, one per transaction
+ *       and 100 per transaction.</li>
+ *   <li>{@code claim1}, {@code claim8}, {@code claim64}: 1, 8 and 64 workers each claiming
+ *       {@code batchSize} jobs and deleting them. The {@code jobs} secondary result is the
+ *       claim rate in jobs per second; the queue is topped up to {@code queuedJobs} before
+ *       every iteration.</li>
+ *   <li>{@code endToEnd}: time from enqueue until a handler starts the job, through the
+ *       commit notification and the worker runtime's claim.</li>
+ * </ul>
+ *
+ * <pre>java -cp mastodon-benchmarks/target/benchmarks.jar org.joinmastodon.benchmarks.jobs.JobBenchmarks</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobServiceBenchmark {
+    private static final String ENQUEUE_QUEUE = "bench-enqueue";
+    private static final String CLAIM_QUEUE = "bench-claim";
+    private static final String PAYLOAD = "{\"status_id\":\"109876543210\",\"account_id\":\"1234567\"}";
+    private static final List<String> PAYLOADS = Collections.nCopies(100, PAYLOAD);
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(5);
+    private static final int TOP_UP_CHUNK = 10_000;
+
+    @Param({JobBenchmarkApplication.H2})
+    public String database;
+
+    @Param({"100000"})
+    public int queuedJobs;
+
+    @Param({"10"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private JobService jobService;
+    private JobBenchmarkApplication.LatencyProbe probe;
+    private final AtomicLong keys = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JobBenchmarkApplication.start(database, 80);
+        jobService = context.getBean(JobService.class);
+        probe = context.getBean(JobBenchmarkApplication.LatencyProbe.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void topUpClaimQueue(BenchmarkParams params) {
+        if (!params.getBenchmark().contains(".claim")) {
+            return;
+        }
+        long missing = queuedJobs - jobService.countPendingJobs(CLAIM_QUEUE);
+        while (missing > 0) {
+            int chunk = (int) Math.min(missing, TOP_UP_CHUNK);
+            jobService.enqueueAll(CLAIM_QUEUE, Collections.nCopies(chunk, PAYLOAD),
+                    JobOptions.at(Instant.now().minusSeconds(1)));
+            missing -= chunk;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Job enqueue() {
+        return jobService.enqueue(ENQUEUE_QUEUE, PAYLOAD, (Instant) null);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(100)
+    public int enqueueAll() {
+        return jobService.enqueueAll(ENQUEUE_QUEUE, PAYLOADS, JobOptions.DEFAULT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int claim1(Worker worker) {
+        return claim(worker);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int claim8(Worker worker) {
+        return claim(worker);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int claim64(Worker worker) {
+        return claim(worker);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void endToEnd() throws Exception {
+        String key = Long.toString(keys.incrementAndGet());
+        var started = probe.expect(key);
+        jobService.enqueue(JobBenchmarkApplication.LatencyProbe.TYPE.queue(), key, (Instant) null);
+        started.get(10, TimeUnit.SECONDS);
+    }
+
+    private int claim(Worker worker) {
+        List<Job> jobs = jobService.claimNextJobs(CLAIM_QUEUE, worker.id, batchSize, LOCK_TIMEOUT);
+        if (!jobs.isEmpty()) {
+            jobService.markSuccess(new ArrayList<>(jobs));
+        }
+        worker.jobs += jobs.size();
+        return jobs.size();
+    }
+
+    /**
+     * One claiming worker; {@code jobs} is reported as a rate next to the claim rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Worker {
+        public long jobs;
+        private final String id = "bench-" + UUID.randomUUID();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            jobs = 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.joinmastodon.benchmarks.signature;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joinmastodon.activitypub.signature.DigestUtils;
+import org.joinmastodon.activitypub.signature.HttpMessageSigner;
+import org.joinmastodon.activitypub.signature.HttpSignatureSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Outbound requests signed per second on a single thread (one core), including the body digest.
+ * {@code perRequestInstance} reproduces the old delivery path, which looked up and initialized a
+ * new {@link Signature} for every request; {@code cachedRsa} is the current draft-cavage path with
+ * the signer's thread-local {@link Signature}; {@code ed25519} is the RFC 9421 path used for hosts
+ * that accept it.
+ *
+ * <pre>java -jar mastodon-benchmarks/target/benchmarks.jar HttpSignatureSignerBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpSignatureSignerBenchmark {
+    private static final String KEY_ID = "https://local.example/users/alice#main-key";
+    private static final String PATH = "/users/bob/inbox";
+    private static final URI INBOX = URI.create("https://remote.example" + PATH);
+    private static final String DATE = "Tue, 20 Feb 2024 12:00:00 GMT";
+    private static final List<String> SIGNED_HEADERS = List.of("(request-target)", "host", "date", "digest");
+
+    private final HttpSignatureSigner signer = new HttpSignatureSigner();
+    private final HttpMessageSigner messageSigner = new HttpMessageSigner();
+
+    private byte[] body;
+    private PrivateKey rsaKey;
+    private PrivateKey ed25519Key;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(2048);
+        rsaKey = rsa.generateKeyPair().getPrivate();
+        KeyPair ed25519 = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        ed25519Key = ed25519.getPrivate();
+        body = ("{\"@context\":\"https://www.w3.org/ns/activitystreams\",\"type\":\"Create\","
+                + "\"actor\":\"https://local.example/users/alice\",\"object\":{\"type\":\"Note\","
+                + "\"content\":\"Hello, world\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String perRequestInstance() throws Exception {
+        String digest = DigestUtils.buildDigestHeader(body);
+        Map<String, String> headers = Map.of("host", INBOX.getHost(), "date", DATE, "digest", digest);
+        String signingString = signer.buildSigningString("post", PATH, headers, SIGNED_HEADERS);
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(rsaKey);
+        signature.update(signingString.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+
+    @Benchmark
+    public String cachedRsa() {
+        String digest = DigestUtils.buildDigestHeader(body);
+        Map<String, String> headers = Map.of("host", INBOX.getHost(), "date", DATE, "digest", digest);
+        return signer.sign(KEY_ID, rsaKey, "post", PATH, headers, SIGNED_HEADERS);
+    }
+
+    @Benchmark
+    public HttpMessageSigner.SignatureHeaders ed25519() {
+        String contentDigest = DigestUtils.buildContentDigestHeader(body);
+        return messageSigner.sign(KEY_ID, ed25519Key, "POST", INBOX, contentDigest, 1708430400L);
+    }
+}
@@ -0,0 +1,84 @@
+package org.joinmastodon.benchmarks.signature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.joinmastodon.activitypub.signature.HttpSignature;
+import org.joinmastodon.activitypub.signature.HttpSignatureSigner;
+import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
+import org.joinmastodon.activitypub.signature.PemUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inbound HTTP signature verifications per second on a single thread (one core).
+ * {@code perRequestParse} reproduces the old inbox path, which parsed the actor's PEM and
+ * looked up a new {@link Signature} for every request; {@code cachedKey} is the current path
+ * with a cached {@link PublicKey} and the verifier's thread-local {@link Signature}.
+ *
+ * <pre>java -jar mastodon-benchmarks/target/benchmarks.jar HttpSignatureVerifierBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpSignatureVerifierBenchmark {
+    private static final String KEY_ID = "https://remote.example/users/bob#main-key";
+    private static final String PATH = "/users/alice/inbox";
+    private static final List<String> SIGNED_HEADERS = List.of("(request-target)", "host", "date", "digest");
+
+    private final HttpSignatureSigner signer = new HttpSignatureSigner();
+    private final HttpSignatureVerifier verifier = new HttpSignatureVerifier();
+
+    private Map<String, String> headers;
+    private HttpSignature signature;
+    private String publicKeyPem;
+    private PublicKey cachedKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        headers = Map.of(
+                "host", "local.example",
+                "date", "Tue, 20 Feb 2024 12:00:00 GMT",
+                "digest", "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=",
+                "content-type", "application/activity+json");
+        String header = signer.sign(KEY_ID, keyPair.getPrivate(), "post", PATH, headers, SIGNED_HEADERS);
+        signature = HttpSignature.parse(header);
+        publicKeyPem = PemUtils.toPublicKeyPem(keyPair.getPublic());
+        cachedKey = PemUtils.parsePublicKey(publicKeyPem);
+    }
+
+    @Benchmark
+    public boolean perRequestParse() throws Exception {
+        PublicKey publicKey = PemUtils.parsePublicKey(publicKeyPem);
+        String signingString = signer.buildSigningString("post", PATH, headers, signature.getHeaders());
+        Signature rsa = Signature.getInstance("SHA256withRSA");
+        rsa.initVerify(publicKey);
+        rsa.update(signingString.getBytes(StandardCharsets.UTF_8));
+        return rsa.verify(Base64.getDecoder().decode(signature.getSignature()));
+    }
+
+    @Benchmark
+    public boolean cachedKey() {
+        return verifier.verify(signature, cachedKey, "post", PATH, headers);
+    }
+}
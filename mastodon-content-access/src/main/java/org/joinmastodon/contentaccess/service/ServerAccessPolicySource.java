@@ -0,0 +1,40 @@
+package org.joinmastodon.contentaccess.service;
+
+import org.joinmastodon.contentaccess.entity.ServerAccessPolicy;
+import org.joinmastodon.contentaccess.entity.ServerAccessPolicy.AccessPolicy;
+import org.joinmastodon.contentaccess.repository.ServerAccessPolicyRepository;
+import org.joinmastodon.core.model.DomainPolicy;
+import org.joinmastodon.core.model.DomainPolicyRule;
+import org.joinmastodon.core.service.DomainPolicySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feeds blocked and restricted server access policies, with their expiry, into the
+ * domain policy index.
+ */
+@Component
+public class ServerAccessPolicySource implements DomainPolicySource {
+
+    private final ServerAccessPolicyRepository serverAccessPolicyRepository;
+
+    public ServerAccessPolicySource(ServerAccessPolicyRepository serverAccessPolicyRepository) {
+        this.serverAccessPolicyRepository = serverAccessPolicyRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DomainPolicyRule> rules() {
+        List<DomainPolicyRule> rules = new ArrayList<>();
+        for (ServerAccessPolicy policy : serverAccessPolicyRepository.findByPolicy(AccessPolicy.BLOCKED)) {
+            rules.add(new DomainPolicyRule(policy.getTargetDomain(), DomainPolicy.BLOCK, policy.getExpiresAt()));
+        }
+        for (ServerAccessPolicy policy : serverAccessPolicyRepository.findByPolicy(AccessPolicy.RESTRICTED)) {
+            rules.add(new DomainPolicyRule(policy.getTargetDomain(), DomainPolicy.RESTRICT, policy.getExpiresAt()));
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,110 @@
+package org.joinmastodon.core.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * An ActivityPub relay the instance actor subscribes to for federated timeline content.
+ */
+@Entity
+@Table(name = "relays")
+public class Relay {
+
+    public enum State {
+        IDLE,
+        PENDING,
+        ACCEPTED,
+        REJECTED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "inbox_url", nullable = false, unique = true, columnDefinition = "TEXT")
+    private String inboxUrl;
+
+    @Column(name = "follow_activity_id", columnDefinition = "TEXT")
+    private String followActivityId;
+
+    @Column(nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private State state = State.IDLE;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        Instant now = Instant.now();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        updatedAt = now;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getInboxUrl() {
+        return inboxUrl;
+    }
+
+    public void setInboxUrl(String inboxUrl) {
+        this.inboxUrl = inboxUrl;
+    }
+
+    public String getFollowActivityId() {
+        return followActivityId;
+    }
+
+    public void setFollowActivityId(String followActivityId) {
+        this.followActivityId = followActivityId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -26,7 +26,8 @@ import org.joinmastodon.core.model.Visibility;
 @Table(name = "statuses", indexes = {
         @Index(name = "idx_statuses_account_id", columnList = "account_id"),
         @Index(name = "idx_statuses_created_at", columnList = "created_at"),
-        @Index(name = "idx_statuses_in_reply_to_id", columnList = "in_reply_to_id")
+        @Index(name = "idx_statuses_in_reply_to_id", columnList = "in_reply_to_id"),
+        @Index(name = "idx_statuses_thread", columnList = "thread_root_id, thread_path")
 })
 public class Status {
     @Id
@@ -46,6 +47,12 @@ public class Status {
     @Column(name = "in_reply_to_account_id")
     private Long inReplyToAccountId;
 
+    @Column(name = "thread_root_id")
+    private Long threadRootId;
+
+    @Column(name = "thread_path", columnDefinition = "TEXT")
+    private String threadPath;
+
     @Column(nullable = false)
     private boolean sensitive = false;
 
@@ -138,6 +145,22 @@ public class Status {
         this.inReplyToAccountId = inReplyToAccountId;
     }
 
+    public Long getThreadRootId() {
+        return threadRootId;
+    }
+
+    public void setThreadRootId(Long threadRootId) {
+        this.threadRootId = threadRootId;
+    }
+
+    public String getThreadPath() {
+        return threadPath;
+    }
+
+    public void setThreadPath(String threadPath) {
+        this.threadPath = threadPath;
+    }
+
     public boolean isSensitive() {
         return sensitive;
     }
@@ -0,0 +1,12 @@
+package org.joinmastodon.core.event;
+
+/**
+ * Published by {@link org.joinmastodon.core.service.AccountService} when an account is saved,
+ * so cached profile documents can be rebuilt.
+ *
+ * @param accountId the account id
+ * @param username the account's username
+ * @param localAccount true if the account is local
+ */
+public record AccountChangedEvent(Long accountId, String username, boolean localAccount) {
+}
@@ -0,0 +1,10 @@
+package org.joinmastodon.core.event;
+
+/**
+ * Published when a domain block or server access policy is created, changed or removed, so
+ * the {@link org.joinmastodon.core.service.DomainPolicyIndex} is recompiled.
+ *
+ * @param domain the affected domain pattern
+ */
+public record DomainPolicyChangedEvent(String domain) {
+}
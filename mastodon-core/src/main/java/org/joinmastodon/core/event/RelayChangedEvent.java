@@ -0,0 +1,17 @@
+package org.joinmastodon.core.event;
+
+import org.joinmastodon.core.entity.Relay;
+
+/**
+ * Published by {@link org.joinmastodon.core.service.RelayService} when a relay subscription
+ * changes, so federation can send the Follow or Undo and refresh its relay routing.
+ *
+ * @param relayId the relay id
+ * @param inboxUrl the relay's inbox
+ * @param followActivityId the id of the Follow sent to the relay
+ * @param state the new subscription state
+ * @param removed true if the relay was deleted
+ */
+public record RelayChangedEvent(Long relayId, String inboxUrl, String followActivityId,
+                                Relay.State state, boolean removed) {
+}
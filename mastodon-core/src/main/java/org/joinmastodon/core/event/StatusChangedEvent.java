@@ -0,0 +1,12 @@
+package org.joinmastodon.core.event;
+
+/**
+ * Published by {@link org.joinmastodon.core.service.StatusService} when a status is saved or deleted,
+ * so derived caches can drop their copies.
+ *
+ * @param statusId the status id
+ * @param accountId the id of the account that owns the status
+ * @param deleted true if the status was deleted
+ */
+public record StatusChangedEvent(Long statusId, Long accountId, boolean deleted) {
+}
@@ -0,0 +1,21 @@
+package org.joinmastodon.core.model;
+
+/**
+ * Federation policy applied to a remote domain, in increasing order of severity.
+ */
+public enum DomainPolicy {
+    /** No policy; the domain federates normally. */
+    NONE,
+    /** Content is accepted but limited, e.g. silenced domain blocks. */
+    RESTRICT,
+    /** Nothing is accepted from or delivered to the domain. */
+    BLOCK;
+
+    public boolean isBlocked() {
+        return this == BLOCK;
+    }
+
+    public DomainPolicy max(DomainPolicy other) {
+        return other.ordinal() > ordinal() ? other : this;
+    }
+}
@@ -0,0 +1,150 @@
+package org.joinmastodon.core.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable index of {@link DomainPolicyRule}s, stored as a trie keyed by domain labels
+ * from right to left ({@code com -> example -> social}). A lookup walks at most one node per
+ * label of the host, so its cost does not depend on the number of rules.
+ * <p>
+ * When several rules match a host, the most severe one that has not expired wins.
+ */
+public final class DomainPolicyMatcher {
+    public static final DomainPolicyMatcher EMPTY = new DomainPolicyMatcher(new Node(), 0);
+
+    private final Node root;
+    private final int size;
+
+    private DomainPolicyMatcher(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Compile rules into a matcher. Blank or malformed patterns are skipped.
+     */
+    public static DomainPolicyMatcher compile(Iterable<DomainPolicyRule> rules) {
+        Node root = new Node();
+        int size = 0;
+        for (DomainPolicyRule rule : rules) {
+            if (rule == null || rule.policy() == null || rule.policy() == DomainPolicy.NONE) {
+                continue;
+            }
+            String pattern = normalize(rule.pattern());
+            if (pattern == null) {
+                continue;
+            }
+            boolean wildcard = pattern.startsWith("*.");
+            String domain = wildcard ? pattern.substring(2) : pattern;
+            if (domain.isEmpty() || domain.contains("*")) {
+                continue;
+            }
+
+            Node node = root;
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                node = node.children.computeIfAbsent(domain.substring(start, end), label -> new Node());
+                end = start - 1;
+            }
+            long expiresAt = rule.expiresAt() != null ? rule.expiresAt().toEpochMilli() : Long.MAX_VALUE;
+            if (wildcard) {
+                node.subdomains = node.subdomains.add(rule.policy(), expiresAt);
+            } else {
+                node.exact = node.exact.add(rule.policy(), expiresAt);
+            }
+            size++;
+        }
+        return size == 0 ? EMPTY : new DomainPolicyMatcher(root, size);
+    }
+
+    /**
+     * The policy that applies to {@code host} at the current time.
+     */
+    public DomainPolicy policyFor(String host) {
+        return policyFor(host, System.currentTimeMillis());
+    }
+
+    /**
+     * The policy that applies to {@code host} at {@code nowMillis}.
+     */
+    public DomainPolicy policyFor(String host, long nowMillis) {
+        if (size == 0 || host == null) {
+            return DomainPolicy.NONE;
+        }
+        String domain = normalize(host);
+        if (domain == null) {
+            return DomainPolicy.NONE;
+        }
+
+        DomainPolicy result = DomainPolicy.NONE;
+        Node node = root;
+        int end = domain.length();
+        while (end > 0) {
+            int start = domain.lastIndexOf('.', end - 1) + 1;
+            node = node.children.get(domain.substring(start, end));
+            if (node == null) {
+                return result;
+            }
+            end = start - 1;
+            if (end > 0) {
+                // More labels remain, so the host is a subdomain of this node
+                result = result.max(node.subdomains.policyAt(nowMillis));
+            }
+        }
+        return result.max(node.exact.policyAt(nowMillis));
+    }
+
+    /**
+     * Number of rules in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    private static String normalize(String host) {
+        if (host == null) {
+            return null;
+        }
+        String domain = host.trim().toLowerCase(Locale.ROOT);
+        if (domain.endsWith(".")) {
+            domain = domain.substring(0, domain.length() - 1);
+        }
+        return domain.isEmpty() ? null : domain;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>(4);
+        private Policies exact = Policies.NONE;
+        private Policies subdomains = Policies.NONE;
+    }
+
+    /**
+     * Policies attached to one node with their expiry times; usually a single entry.
+     */
+    private record Policies(DomainPolicy[] policies, long[] expiresAt) {
+        static final Policies NONE = new Policies(new DomainPolicy[0], new long[0]);
+
+        Policies add(DomainPolicy policy, long expiry) {
+            int length = policies.length;
+            DomainPolicy[] nextPolicies = Arrays.copyOf(policies, length + 1);
+            long[] nextExpiry = Arrays.copyOf(expiresAt, length + 1);
+            nextPolicies[length] = policy;
+            nextExpiry[length] = expiry;
+            return new Policies(nextPolicies, nextExpiry);
+        }
+
+        DomainPolicy policyAt(long nowMillis) {
+            DomainPolicy result = DomainPolicy.NONE;
+            for (int i = 0; i < policies.length; i++) {
+                if (expiresAt[i] > nowMillis) {
+                    result = result.max(policies[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.joinmastodon.core.model;
+
+import java.time.Instant;
+
+/**
+ * A policy for one domain pattern. The pattern is either a host name, which matches only
+ * that host, or {@code *.example.com}, which matches every subdomain of {@code example.com}.
+ *
+ * @param pattern the domain or wildcard pattern
+ * @param policy the policy to apply
+ * @param expiresAt when the rule stops applying, or {@code null} if it never expires
+ */
+public record DomainPolicyRule(String pattern, DomainPolicy policy, Instant expiresAt) {
+}
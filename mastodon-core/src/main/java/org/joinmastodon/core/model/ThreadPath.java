@@ -0,0 +1,65 @@
+package org.joinmastodon.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Materialized paths of statuses within a reply thread. A path lists the ids from the thread
+ * root down to the status itself, each zero-padded to 19 digits and followed by {@code /}, so
+ * that sorting paths as strings lists a thread depth-first with siblings in id order, and the
+ * descendants of a status are exactly the paths that start with its own.
+ */
+public final class ThreadPath {
+    private static final int ID_WIDTH = 19;
+    private static final int SEGMENT_LENGTH = ID_WIDTH + 1;
+
+    private ThreadPath() {
+    }
+
+    /**
+     * Path of a status that starts a thread.
+     */
+    public static String root(long statusId) {
+        return segment(statusId);
+    }
+
+    /**
+     * Path of a reply, given the path of the status it replies to.
+     */
+    public static String child(String parentPath, long statusId) {
+        return parentPath + segment(statusId);
+    }
+
+    /**
+     * Ids of the ancestors encoded in a path, root first, excluding the status itself.
+     */
+    public static List<Long> ancestorIds(String path) {
+        int depth = depth(path);
+        List<Long> ids = new ArrayList<>(Math.max(0, depth - 1));
+        for (int i = 0; i < depth - 1; i++) {
+            int start = i * SEGMENT_LENGTH;
+            ids.add(Long.parseLong(path, start, start + ID_WIDTH, 10));
+        }
+        return ids;
+    }
+
+    /**
+     * Number of statuses on the path, including the status itself.
+     */
+    public static int depth(String path) {
+        if (path == null || path.isEmpty() || path.length() % SEGMENT_LENGTH != 0) {
+            return 0;
+        }
+        return path.length() / SEGMENT_LENGTH;
+    }
+
+    private static String segment(long statusId) {
+        if (statusId < 0) {
+            throw new IllegalArgumentException("Status id must not be negative: " + statusId);
+        }
+        StringBuilder builder = new StringBuilder(SEGMENT_LENGTH);
+        String digits = Long.toString(statusId);
+        builder.repeat('0', ID_WIDTH - digits.length());
+        return builder.append(digits).append('/').toString();
+    }
+}
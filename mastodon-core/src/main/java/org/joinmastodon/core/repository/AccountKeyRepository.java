@@ -0,0 +1,12 @@
+package org.joinmastodon.core.repository;
+
+import java.util.Optional;
+import org.joinmastodon.core.entity.AccountKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AccountKeyRepository extends JpaRepository<AccountKey, Long> {
+
+    Optional<AccountKey> findByAccountIdAndAlgorithm(Long accountId, AccountKey.Algorithm algorithm);
+}
@@ -6,6 +6,8 @@ import org.joinmastodon.core.entity.Account;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAcct(String acct);
@@ -13,6 +15,10 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByActorUri(String actorUri);
     Optional<Account> findByUsernameAndLocalAccountTrue(String username);
 
+    // Backed by idx_accounts_local_username_lower
+    @Query("select a from Account a where lower(a.username) = lower(:username) and a.localAccount = true")
+    Optional<Account> findLocalByUsernameIgnoreCase(@Param("username") String username);
+
     List<Account> findByUsernameContainingIgnoreCaseOrAcctContainingIgnoreCase(String username, String acct);
     
     // Admin queries
@@ -1,5 +1,6 @@
 package org.joinmastodon.core.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.joinmastodon.core.entity.Account;
@@ -42,6 +43,15 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
             @Param("sinceId") Long sinceId,
             Pageable pageable);
 
+    @Query("""
+            select f.targetAccount.id from Follow f
+            where f.account = :account
+              and f.targetAccount.id in :targetIds
+            """)
+    List<Long> findTargetAccountIdsIn(
+            @Param("account") Account account,
+            @Param("targetIds") Collection<Long> targetIds);
+
     List<Follow> findByTargetAccountAndPendingTrue(Account targetAccount);
 
     Optional<Follow> findByAccountAndTargetAccountAndPendingTrue(Account account, Account targetAccount);
@@ -19,4 +19,7 @@ public interface MediaAttachmentRepository extends JpaRepository<MediaAttachment
             limit :limit
             """, nativeQuery = true)
     List<MediaAttachment> findOrphanedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Query("select m from MediaAttachment m where m.remoteUrl is not null and m.storageKey is not null order by m.processedAt asc")
+    List<MediaAttachment> findCachedRemote();
 }
@@ -1,7 +1,23 @@
 package org.joinmastodon.core.repository;
 
+import java.util.Collection;
+import java.util.List;
+import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Mention;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface MentionRepository extends JpaRepository<Mention, Long> {
+    @Query("""
+            select m.status.id from Mention m
+            where m.account = :account
+              and m.status.id in :statusIds
+            """)
+    List<Long> findStatusIdsMentioning(
+            @Param("account") Account account,
+            @Param("statusIds") Collection<Long> statusIds);
+
+    @Query("select m from Mention m join fetch m.account where m.status.id in :statusIds")
+    List<Mention> findByStatusIdInWithAccount(@Param("statusIds") Collection<Long> statusIds);
 }
@@ -0,0 +1,19 @@
+package org.joinmastodon.core.repository;
+
+import java.util.List;
+import java.util.Optional;
+import org.joinmastodon.core.entity.Relay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RelayRepository extends JpaRepository<Relay, Long> {
+
+    Optional<Relay> findByInboxUrl(String inboxUrl);
+
+    Optional<Relay> findByFollowActivityId(String followActivityId);
+
+    List<Relay> findByState(Relay.State state);
+
+    List<Relay> findAllByOrderByIdAsc();
+}
@@ -1,5 +1,6 @@
 package org.joinmastodon.core.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.joinmastodon.core.entity.Account;
@@ -93,8 +94,42 @@ public interface StatusRepository extends JpaRepository<Status, Long> {
 
     List<Status> findByInReplyToIdOrderByIdAsc(Long inReplyToId);
 
+    @Query("SELECT s FROM Status s JOIN FETCH s.account WHERE s.id IN :ids")
+    List<Status> findByIdInWithAccount(@Param("ids") Collection<Long> ids);
+
+    // Served by idx_statuses_thread: a prefix match on the path within one thread
+    @Query("""
+            SELECT s FROM Status s JOIN FETCH s.account
+            WHERE s.threadRootId = :rootId
+              AND s.threadPath LIKE CONCAT(:path, '%')
+              AND s.threadPath <> :path
+            ORDER BY s.threadPath
+            """)
+    List<Status> findThreadDescendants(@Param("rootId") Long rootId, @Param("path") String path);
+
+    @Query("""
+            SELECT s FROM Status s JOIN FETCH s.account
+            WHERE s.id IN (
+                SELECT MAX(d.id) FROM Status d
+                WHERE d.visibility = org.joinmastodon.core.model.Visibility.DIRECT
+                  AND (d.account = :account
+                    OR d.id IN (SELECT m.status.id FROM Mention m WHERE m.account = :account))
+                GROUP BY d.threadRootId)
+              AND (:maxId IS NULL OR s.id < :maxId)
+              AND (:sinceId IS NULL OR s.id > :sinceId)
+            ORDER BY s.id DESC
+            """)
+    List<Status> findLatestDirectPerThread(
+            @Param("account") Account account,
+            @Param("maxId") Long maxId,
+            @Param("sinceId") Long sinceId,
+            Pageable pageable);
+
     Optional<Status> findByUri(String uri);
 
+    @Query("SELECT s.uri FROM Status s WHERE s.uri IN :uris")
+    List<String> findUrisIn(@Param("uris") Collection<String> uris);
+
     // Full-text search using PostgreSQL tsvector
     @Query(value = """
             SELECT s.* FROM statuses s
@@ -2,7 +2,9 @@ package org.joinmastodon.core.service;
 
 import java.util.Optional;
 import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.event.AccountChangedEvent;
 import org.joinmastodon.core.repository.AccountRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -11,9 +13,11 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class AccountService {
     private final AccountRepository accountRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AccountService(AccountRepository accountRepository) {
+    public AccountService(AccountRepository accountRepository, ApplicationEventPublisher eventPublisher) {
         this.accountRepository = accountRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -41,6 +45,11 @@ public class AccountService {
         return accountRepository.findByUsernameAndLocalAccountTrue(username);
     }
 
+    @Transactional(readOnly = true)
+    public Optional<Account> findLocalAccountByUsernameIgnoreCase(String username) {
+        return accountRepository.findLocalByUsernameIgnoreCase(username);
+    }
+
     @Transactional(readOnly = true)
     public java.util.List<Account> searchByUsernameOrAcct(String query) {
         return accountRepository.findByUsernameContainingIgnoreCaseOrAcctContainingIgnoreCase(query, query);
@@ -48,7 +57,9 @@ public class AccountService {
 
     @Transactional
     public Account save(Account account) {
-        return accountRepository.save(account);
+        Account saved = accountRepository.save(account);
+        eventPublisher.publishEvent(new AccountChangedEvent(saved.getId(), saved.getUsername(), saved.isLocalAccount()));
+        return saved;
     }
 
     // Admin queries
@@ -0,0 +1,35 @@
+package org.joinmastodon.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.joinmastodon.core.entity.DomainBlock;
+import org.joinmastodon.core.model.DomainPolicy;
+import org.joinmastodon.core.model.DomainPolicyRule;
+import org.joinmastodon.core.repository.DomainBlockRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Admin domain blocks: suspended domains are blocked, silenced domains are restricted.
+ */
+@Component
+public class DomainBlockPolicySource implements DomainPolicySource {
+    private final DomainBlockRepository domainBlockRepository;
+
+    public DomainBlockPolicySource(DomainBlockRepository domainBlockRepository) {
+        this.domainBlockRepository = domainBlockRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DomainPolicyRule> rules() {
+        List<DomainPolicyRule> rules = new ArrayList<>();
+        for (DomainBlock block : domainBlockRepository.findAll()) {
+            DomainPolicy policy = block.getSeverity() == DomainBlock.Severity.SUSPEND
+                    ? DomainPolicy.BLOCK
+                    : DomainPolicy.RESTRICT;
+            rules.add(new DomainPolicyRule(block.getDomain(), policy, null));
+        }
+        return rules;
+    }
+}
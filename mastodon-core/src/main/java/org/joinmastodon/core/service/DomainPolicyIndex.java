@@ -0,0 +1,77 @@
+package org.joinmastodon.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.joinmastodon.core.event.DomainPolicyChangedEvent;
+import org.joinmastodon.core.model.DomainPolicy;
+import org.joinmastodon.core.model.DomainPolicyMatcher;
+import org.joinmastodon.core.model.DomainPolicyRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory index of every domain policy: domain blocks plus the rules of any other
+ * {@link DomainPolicySource}. Checks are served from a compiled {@link DomainPolicyMatcher}
+ * without touching the database.
+ * <p>
+ * The matcher is recompiled when a {@link DomainPolicyChangedEvent} is published and on a
+ * fixed interval, which picks up changes made by other nodes. Expired rules stop matching
+ * as soon as they expire, without waiting for a rebuild.
+ */
+@Service
+public class DomainPolicyIndex {
+    private static final Logger log = LoggerFactory.getLogger(DomainPolicyIndex.class);
+
+    private final ObjectProvider<DomainPolicySource> sources;
+    private volatile DomainPolicyMatcher matcher = DomainPolicyMatcher.EMPTY;
+
+    public DomainPolicyIndex(ObjectProvider<DomainPolicySource> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * The policy that currently applies to {@code host}.
+     */
+    public DomainPolicy policyFor(String host) {
+        return matcher.policyFor(host);
+    }
+
+    /**
+     * Whether federation with {@code host} is blocked.
+     */
+    public boolean isBlocked(String host) {
+        return matcher.policyFor(host).isBlocked();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDomainPolicyChanged(DomainPolicyChangedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Recompile the matcher from all sources. If a source cannot be read the previous
+     * matcher is kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${mastodon.domain-policy.refresh-interval-ms:300000}",
+            initialDelayString = "${mastodon.domain-policy.refresh-interval-ms:300000}")
+    public void rebuild() {
+        List<DomainPolicyRule> rules = new ArrayList<>();
+        try {
+            sources.orderedStream().forEach(source -> rules.addAll(source.rules()));
+        } catch (DataAccessException ex) {
+            log.warn("Failed to load domain policies, keeping previous index: {}", ex.getMessage());
+            return;
+        }
+        DomainPolicyMatcher compiled = DomainPolicyMatcher.compile(rules);
+        matcher = compiled;
+        log.debug("Compiled {} domain policy rules", compiled.size());
+    }
+}
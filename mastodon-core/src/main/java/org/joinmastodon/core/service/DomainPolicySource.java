@@ -0,0 +1,17 @@
+package org.joinmastodon.core.service;
+
+import java.util.List;
+import org.joinmastodon.core.model.DomainPolicyRule;
+
+/**
+ * Supplies domain policy rules to the {@link DomainPolicyIndex}. Modules that store their own
+ * per-domain policies register an implementation as a bean.
+ */
+public interface DomainPolicySource {
+
+    /**
+     * All rules currently stored by this source. Expired rules may be included; the index
+     * ignores them at lookup time.
+     */
+    List<DomainPolicyRule> rules();
+}
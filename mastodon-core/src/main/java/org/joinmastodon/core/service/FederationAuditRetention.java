@@ -0,0 +1,33 @@
+package org.joinmastodon.core.service;
+
+import org.joinmastodon.partitions.DailyPartitionMaintainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Maintains the daily partitions of {@code federation_audit_logs}: creates partitions a
+ * few days ahead and drops whole partitions once they are older than the retention period.
+ * Does nothing when the table is not partitioned (e.g. on H2).
+ */
+@Service
+public class FederationAuditRetention {
+    private final DailyPartitionMaintainer partitions;
+
+    public FederationAuditRetention(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${mastodon.federation.audit.retention-days:30}") int retentionDays) {
+        this.partitions = new DailyPartitionMaintainer(jdbcTemplate, transactionManager,
+                "federation_audit_logs", "created_at", retentionDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${mastodon.federation.audit.retention-cron:0 15 3 * * *}")
+    public void maintainPartitions() {
+        partitions.maintain();
+    }
+}
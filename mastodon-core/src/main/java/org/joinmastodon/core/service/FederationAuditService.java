@@ -1,29 +1,29 @@
 package org.joinmastodon.core.service;
 
 import org.joinmastodon.core.entity.FederationAuditLog;
-import org.joinmastodon.core.repository.FederationAuditLogRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Records federation audit entries. Entries are written asynchronously in batches by
+ * {@link FederationAuditWriter}, so recording never adds a database round trip to the caller.
+ */
 @Service
 public class FederationAuditService {
-    private final FederationAuditLogRepository repository;
+    private final FederationAuditWriter writer;
 
-    public FederationAuditService(FederationAuditLogRepository repository) {
-        this.repository = repository;
+    public FederationAuditService(FederationAuditWriter writer) {
+        this.writer = writer;
     }
 
-    @Transactional
-    public FederationAuditLog recordInbound(String eventType, String actorUri, String targetUri, String status, String error) {
-        return save("INBOUND", eventType, actorUri, targetUri, status, error);
+    public void recordInbound(String eventType, String actorUri, String targetUri, String status, String error) {
+        record("INBOUND", eventType, actorUri, targetUri, status, error);
     }
 
-    @Transactional
-    public FederationAuditLog recordOutbound(String eventType, String actorUri, String targetUri, String status, String error) {
-        return save("OUTBOUND", eventType, actorUri, targetUri, status, error);
+    public void recordOutbound(String eventType, String actorUri, String targetUri, String status, String error) {
+        record("OUTBOUND", eventType, actorUri, targetUri, status, error);
     }
 
-    private FederationAuditLog save(String direction, String eventType, String actorUri, String targetUri, String status, String error) {
+    private void record(String direction, String eventType, String actorUri, String targetUri, String status, String error) {
         FederationAuditLog log = new FederationAuditLog();
         log.setDirection(direction);
         log.setEventType(eventType);
@@ -31,6 +31,6 @@ public class FederationAuditService {
         log.setTargetUri(targetUri);
         log.setStatus(status);
         log.setError(error);
-        return repository.save(log);
+        writer.append(log);
     }
 }
@@ -0,0 +1,166 @@
+package org.joinmastodon.core.service;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joinmastodon.core.entity.FederationAuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Buffers federation audit entries in a lock-free queue and writes them with JDBC batch
+ * inserts, either every flush interval or as soon as a full batch is queued.
+ * <p>
+ * When the database falls behind and the queue passes half its capacity, successful
+ * entries are sampled; failures are always kept. Once the queue is full, new entries
+ * are dropped and counted. After a failed write only the scheduled flush retries for a
+ * while, rather than every append starting another attempt against the failing database.
+ */
+@Service
+public class FederationAuditWriter {
+    private static final Logger log = LoggerFactory.getLogger(FederationAuditWriter.class);
+
+    static final String INSERT_SQL = """
+            INSERT INTO federation_audit_logs
+                (created_at, direction, event_type, actor_uri, target_uri, status, error)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+    static final Duration RETRY_DELAY = Duration.ofSeconds(10);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int capacity;
+    private final double sampleRate;
+    private final ConcurrentLinkedQueue<FederationAuditLog> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private volatile Instant retryAfter = Instant.MIN;
+
+    public FederationAuditWriter(JdbcTemplate jdbcTemplate,
+                                 @Value("${mastodon.federation.audit.batch-size:500}") int batchSize,
+                                 @Value("${mastodon.federation.audit.queue-capacity:50000}") int capacity,
+                                 @Value("${mastodon.federation.audit.sample-rate:0.1}") double sampleRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.capacity = Math.max(1, capacity);
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Queue an entry for the next batch.
+     *
+     * @param entry the audit entry
+     * @return true if the entry was queued, false if it was sampled out or dropped
+     */
+    public boolean append(FederationAuditLog entry) {
+        if (entry.getCreatedAt() == null) {
+            entry.setCreatedAt(Instant.now());
+        }
+        int depth = queued.get();
+        if (depth >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (depth >= capacity / 2 && !"failed".equalsIgnoreCase(entry.getStatus())
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+        queue.offer(entry);
+        if (queued.incrementAndGet() >= batchSize && !flushing.get() && !Instant.now().isBefore(retryAfter)) {
+            Thread.ofVirtual().name("federation-audit-flush").start(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Write all queued entries. Only one flush runs at a time; concurrent calls return immediately.
+     */
+    @Scheduled(fixedDelayString = "${mastodon.federation.audit.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<FederationAuditLog> batch = new ArrayList<>(batchSize);
+            while (true) {
+                batch.clear();
+                FederationAuditLog entry;
+                while (batch.size() < batchSize && (entry = queue.poll()) != null) {
+                    batch.add(entry);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                queued.addAndGet(-batch.size());
+                if (!write(batch)) {
+                    break;
+                }
+            }
+            reportLosses();
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private boolean write(List<FederationAuditLog> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), FederationAuditWriter::bind);
+            retryAfter = Instant.MIN;
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Failed to write {} federation audit entries, retrying later: {}", batch.size(), e.getMessage());
+            // Put the batch back; the capacity check turns a stuck database into sampling and drops
+            for (FederationAuditLog entry : batch) {
+                queue.offer(entry);
+            }
+            queued.addAndGet(batch.size());
+            retryAfter = Instant.now().plus(RETRY_DELAY);
+            return false;
+        }
+    }
+
+    private void reportLosses() {
+        long lost = dropped.getAndSet(0);
+        long sampled = sampledOut.getAndSet(0);
+        if (lost > 0 || sampled > 0) {
+            log.warn("Federation audit log behind: {} entries dropped, {} sampled out", lost, sampled);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, FederationAuditLog entry) throws SQLException {
+        ps.setTimestamp(1, Timestamp.from(entry.getCreatedAt()));
+        ps.setString(2, entry.getDirection());
+        ps.setString(3, entry.getEventType());
+        ps.setString(4, entry.getActorUri());
+        ps.setString(5, entry.getTargetUri());
+        ps.setString(6, entry.getStatus());
+        ps.setString(7, entry.getError());
+    }
+}
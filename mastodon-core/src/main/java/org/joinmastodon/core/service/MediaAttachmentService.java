@@ -35,4 +35,29 @@ public class MediaAttachmentService {
     public List<MediaAttachment> findOrphanedBefore(Instant cutoff, int limit) {
         return mediaAttachmentRepository.findOrphanedBefore(cutoff, limit);
     }
+
+    /**
+     * Remote attachments whose file is currently cached locally, least recently processed first.
+     */
+    @Transactional(readOnly = true)
+    public List<MediaAttachment> findCachedRemote() {
+        return mediaAttachmentRepository.findCachedRemote();
+    }
+
+    /**
+     * Store metadata for remote attachments without fetching them. Their URLs point at the
+     * media proxy, which downloads the file on first view.
+     *
+     * @param attachments unsaved attachments with {@code remoteUrl} set
+     * @param proxyBaseUrl the base URL of the media proxy, e.g. {@code https://example.com/media_proxy}
+     */
+    @Transactional
+    public List<MediaAttachment> registerRemote(List<MediaAttachment> attachments, String proxyBaseUrl) {
+        List<MediaAttachment> saved = mediaAttachmentRepository.saveAll(attachments);
+        for (MediaAttachment attachment : saved) {
+            attachment.setUrl(proxyBaseUrl + "/" + attachment.getId() + "/original");
+            attachment.setPreviewUrl(proxyBaseUrl + "/" + attachment.getId() + "/small");
+        }
+        return saved;
+    }
 }
@@ -7,10 +7,12 @@ import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.AccountAction;
 import org.joinmastodon.core.entity.DomainBlock;
 import org.joinmastodon.core.entity.Report;
+import org.joinmastodon.core.event.DomainPolicyChangedEvent;
 import org.joinmastodon.core.repository.AccountActionRepository;
 import org.joinmastodon.core.repository.AccountRepository;
 import org.joinmastodon.core.repository.DomainBlockRepository;
 import org.joinmastodon.core.repository.ReportRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -23,16 +25,19 @@ public class ModerationService {
     private final AccountActionRepository accountActionRepository;
     private final DomainBlockRepository domainBlockRepository;
     private final ReportRepository reportRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ModerationService(
             AccountRepository accountRepository,
             AccountActionRepository accountActionRepository,
             DomainBlockRepository domainBlockRepository,
-            ReportRepository reportRepository) {
+            ReportRepository reportRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.accountRepository = accountRepository;
         this.accountActionRepository = accountActionRepository;
         this.domainBlockRepository = domainBlockRepository;
         this.reportRepository = reportRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // Account moderation actions
@@ -130,12 +135,17 @@ public class ModerationService {
         block.setPublicComment(publicComment);
         block.setObfuscate(obfuscate);
         
-        return domainBlockRepository.save(block);
+        DomainBlock saved = domainBlockRepository.save(block);
+        eventPublisher.publishEvent(new DomainPolicyChangedEvent(domain));
+        return saved;
     }
 
     @Transactional
     public void unblockDomain(Long domainBlockId) {
-        domainBlockRepository.deleteById(domainBlockId);
+        domainBlockRepository.findById(domainBlockId).ifPresent(block -> {
+            domainBlockRepository.delete(block);
+            eventPublisher.publishEvent(new DomainPolicyChangedEvent(block.getDomain()));
+        });
     }
 
     public Optional<DomainBlock> getDomainBlock(Long id) {
@@ -0,0 +1,100 @@
+package org.joinmastodon.core.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.joinmastodon.core.entity.Relay;
+import org.joinmastodon.core.event.RelayChangedEvent;
+import org.joinmastodon.core.repository.RelayRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Manages relay subscriptions. Enabling a relay moves it to {@link Relay.State#PENDING}
+ * until the relay answers the instance actor's Follow with an Accept or Reject.
+ */
+@Service
+public class RelayService {
+    private final RelayRepository relayRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String baseUrl;
+
+    public RelayService(RelayRepository relayRepository,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${mastodon.federation.base-url:http://localhost:8080}") String baseUrl) {
+        this.relayRepository = relayRepository;
+        this.eventPublisher = eventPublisher;
+        this.baseUrl = baseUrl.replaceAll("/$", "");
+    }
+
+    @Transactional(readOnly = true)
+    public List<Relay> findAll() {
+        return relayRepository.findAllByOrderByIdAsc();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Relay> findById(Long id) {
+        return relayRepository.findById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Relay> findAccepted() {
+        return relayRepository.findByState(Relay.State.ACCEPTED);
+    }
+
+    @Transactional
+    public Relay create(String inboxUrl) {
+        Relay relay = relayRepository.findByInboxUrl(inboxUrl).orElseGet(() -> {
+            Relay created = new Relay();
+            created.setInboxUrl(inboxUrl);
+            return created;
+        });
+        return enable(relayRepository.save(relay));
+    }
+
+    /**
+     * Subscribe to a relay. A fresh Follow id is used for every subscription attempt.
+     */
+    @Transactional
+    public Relay enable(Relay relay) {
+        relay.setFollowActivityId(baseUrl + "/activities/relay-follow/" + UUID.randomUUID());
+        relay.setState(Relay.State.PENDING);
+        return publish(relayRepository.save(relay), false);
+    }
+
+    @Transactional
+    public Relay disable(Relay relay) {
+        relay.setState(Relay.State.IDLE);
+        return publish(relayRepository.save(relay), false);
+    }
+
+    @Transactional
+    public void delete(Relay relay) {
+        relayRepository.delete(relay);
+        publish(relay, true);
+    }
+
+    /**
+     * Record the relay's answer to a Follow.
+     *
+     * @return the relay, or empty if the Follow id is unknown
+     */
+    @Transactional
+    public Optional<Relay> recordResponse(String followActivityId, boolean accepted) {
+        return relayRepository.findByFollowActivityId(followActivityId)
+                .filter(relay -> relay.getState() == Relay.State.PENDING
+                        || relay.getState() == Relay.State.ACCEPTED)
+                .map(relay -> {
+                    relay.setState(accepted ? Relay.State.ACCEPTED : Relay.State.REJECTED);
+                    return publish(relayRepository.save(relay), false);
+                });
+    }
+
+    private Relay publish(Relay relay, boolean removed) {
+        eventPublisher.publishEvent(new RelayChangedEvent(relay.getId(), relay.getInboxUrl(),
+                relay.getFollowActivityId(), relay.getState(), removed));
+        return relay;
+    }
+}
@@ -0,0 +1,18 @@
+package org.joinmastodon.core.service;
+
+import java.util.Optional;
+import org.joinmastodon.core.entity.Account;
+
+/**
+ * Resolves {@code user@domain} handles of accounts that may not be stored yet. The federation
+ * module registers an implementation as a bean; without it, handles only match stored accounts.
+ */
+public interface RemoteAccountLookup {
+
+    /**
+     * Resolve a handle such as {@code @alice@remote.example} or {@code alice@remote.example}.
+     *
+     * @return the stored account, or empty if it does not exist or could not be resolved
+     */
+    Optional<Account> resolve(String handle);
+}
@@ -1,12 +1,15 @@
 package org.joinmastodon.core.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.core.entity.Tag;
 import org.joinmastodon.core.repository.AccountRepository;
 import org.joinmastodon.core.repository.StatusRepository;
 import org.joinmastodon.core.repository.TagRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,14 +20,17 @@ public class SearchService {
     private final AccountRepository accountRepository;
     private final StatusRepository statusRepository;
     private final TagRepository tagRepository;
+    private final ObjectProvider<RemoteAccountLookup> remoteAccountLookup;
 
     public SearchService(
             AccountRepository accountRepository,
             StatusRepository statusRepository,
-            TagRepository tagRepository) {
+            TagRepository tagRepository,
+            ObjectProvider<RemoteAccountLookup> remoteAccountLookup) {
         this.accountRepository = accountRepository;
         this.statusRepository = statusRepository;
         this.tagRepository = tagRepository;
+        this.remoteAccountLookup = remoteAccountLookup;
     }
 
     /**
@@ -40,6 +46,29 @@ public class SearchService {
         return accountRepository.findByUsernameContainingIgnoreCaseOrAcctContainingIgnoreCase(query, query);
     }
 
+    /**
+     * Search accounts, first resolving the query as a {@code user@domain} handle if asked to.
+     * The resolved account, which may have just been fetched from its server, comes first.
+     * Not transactional, so that no transaction is held open during the remote lookup.
+     */
+    public List<Account> searchAccounts(String query, boolean resolve, Pageable pageable) {
+        List<Account> accounts = searchAccounts(query, pageable);
+        RemoteAccountLookup lookup = resolve ? remoteAccountLookup.getIfAvailable() : null;
+        if (lookup == null || query == null || query.strip().indexOf('@', 1) < 0) {
+            return accounts;
+        }
+        Optional<Account> resolved = lookup.resolve(query);
+        if (resolved.isEmpty()) {
+            return accounts;
+        }
+        List<Account> result = new ArrayList<>(accounts.size() + 1);
+        result.add(resolved.get());
+        accounts.stream()
+                .filter(account -> !account.getId().equals(resolved.get().getId()))
+                .forEach(result::add);
+        return result;
+    }
+
     /**
      * Search statuses using PostgreSQL full-text search.
      */
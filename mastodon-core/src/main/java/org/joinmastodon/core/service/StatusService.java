@@ -1,12 +1,25 @@
 package org.joinmastodon.core.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.ListEntity;
+import org.joinmastodon.core.entity.Mention;
 import org.joinmastodon.core.entity.Status;
+import org.joinmastodon.core.event.StatusChangedEvent;
+import org.joinmastodon.core.model.ThreadPath;
 import org.joinmastodon.core.model.Visibility;
+import org.joinmastodon.core.repository.MentionRepository;
 import org.joinmastodon.core.repository.StatusRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,9 +27,15 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class StatusService {
     private final StatusRepository statusRepository;
+    private final MentionRepository mentionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public StatusService(StatusRepository statusRepository) {
+    public StatusService(StatusRepository statusRepository,
+                         MentionRepository mentionRepository,
+                         ApplicationEventPublisher eventPublisher) {
         this.statusRepository = statusRepository;
+        this.mentionRepository = mentionRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -74,6 +93,59 @@ public class StatusService {
         return statusRepository.findByInReplyToIdOrderByIdAsc(statusId);
     }
 
+    /**
+     * Ancestors of a status, root first, read in one query from the ids on its thread path.
+     * Deleted ancestors are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<Status> findAncestors(Status status) {
+        List<Long> ids = ThreadPath.ancestorIds(status.getThreadPath());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Status> ancestors = new ArrayList<>(statusRepository.findByIdInWithAccount(ids));
+        ancestors.sort(Comparator.comparing(Status::getThreadPath));
+        return ancestors;
+    }
+
+    /**
+     * All replies below a status at any depth, depth-first with siblings in id order, read in
+     * one range query on the thread index. Replies to deleted statuses keep their place.
+     */
+    @Transactional(readOnly = true)
+    public List<Status> findDescendants(Status status) {
+        if (status.getThreadPath() == null) {
+            return findReplies(status.getId());
+        }
+        return statusRepository.findThreadDescendants(status.getThreadRootId(), status.getThreadPath());
+    }
+
+    /**
+     * The most recent direct status of each thread the account wrote or was mentioned in,
+     * newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<Status> findConversations(Account account, Long maxId, Long sinceId, Pageable pageable) {
+        return statusRepository.findLatestDirectPerThread(account, maxId, sinceId, pageable);
+    }
+
+    /**
+     * Mentioned accounts of several statuses, in one query.
+     *
+     * @return status id to mentioned accounts; statuses without mentions are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Account>> findMentionedAccounts(Collection<Long> statusIds) {
+        if (statusIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<Account>> accounts = new HashMap<>();
+        for (Mention mention : mentionRepository.findByStatusIdInWithAccount(statusIds)) {
+            accounts.computeIfAbsent(mention.getStatus().getId(), id -> new ArrayList<>()).add(mention.getAccount());
+        }
+        return accounts;
+    }
+
     @Transactional(readOnly = true)
     public List<Status> findReblogs(Status status) {
         return statusRepository.findByReblogWithAccount(status);
@@ -95,12 +167,45 @@ public class StatusService {
 
     @Transactional
     public Status save(Status status) {
-        return statusRepository.save(status);
+        Status saved = statusRepository.save(status);
+        if (saved.getThreadPath() == null) {
+            Status parent = saved.getInReplyToId() == null
+                    ? null
+                    : statusRepository.findById(saved.getInReplyToId()).orElse(null);
+            assignThread(saved, parent);
+        }
+        eventPublisher.publishEvent(changedEvent(saved, false));
+        return saved;
+    }
+
+    /**
+     * Save several statuses in one transaction, e.g. a batch of relayed posts.
+     */
+    @Transactional
+    public List<Status> saveAll(List<Status> statuses) {
+        List<Status> saved = statusRepository.saveAll(statuses);
+        assignThreads(saved);
+        for (Status status : saved) {
+            eventPublisher.publishEvent(changedEvent(status, false));
+        }
+        return saved;
+    }
+
+    /**
+     * Return which of the given URIs are already stored, in a single query.
+     */
+    @Transactional(readOnly = true)
+    public Set<String> findExistingUris(Collection<String> uris) {
+        if (uris.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(statusRepository.findUrisIn(uris));
     }
 
     @Transactional
     public void delete(Status status) {
         statusRepository.delete(status);
+        eventPublisher.publishEvent(changedEvent(status, true));
     }
 
     @Transactional(readOnly = true)
@@ -112,4 +217,48 @@ public class StatusService {
     public long countReplies(Long statusId) {
         return statusRepository.countByInReplyToId(statusId);
     }
+
+    private void assignThreads(List<Status> statuses) {
+        Map<Long, Status> parents = new LinkedHashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Status status : statuses) {
+            parents.put(status.getId(), status);
+        }
+        for (Status status : statuses) {
+            if (status.getThreadPath() == null && status.getInReplyToId() != null
+                    && !parents.containsKey(status.getInReplyToId())) {
+                missing.add(status.getInReplyToId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Status parent : statusRepository.findAllById(missing)) {
+                parents.putIfAbsent(parent.getId(), parent);
+            }
+        }
+        // A reply is built from a stored parent, so parent paths are already set
+        for (Status status : statuses) {
+            if (status.getThreadPath() == null) {
+                assignThread(status, status.getInReplyToId() == null ? null : parents.get(status.getInReplyToId()));
+            }
+        }
+    }
+
+    /**
+     * Place a newly stored status in the thread index. The entity is managed, so the path is
+     * written when the transaction commits.
+     */
+    private static void assignThread(Status status, Status parent) {
+        if (parent != null && parent.getThreadPath() != null) {
+            status.setThreadRootId(parent.getThreadRootId());
+            status.setThreadPath(ThreadPath.child(parent.getThreadPath(), status.getId()));
+        } else {
+            status.setThreadRootId(status.getId());
+            status.setThreadPath(ThreadPath.root(status.getId()));
+        }
+    }
+
+    private StatusChangedEvent changedEvent(Status status, boolean deleted) {
+        Long accountId = status.getAccount() == null ? null : status.getAccount().getId();
+        return new StatusChangedEvent(status.getId(), accountId, deleted);
+    }
 }
@@ -1,19 +1,26 @@
 package org.joinmastodon.core.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Mention;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.core.model.Visibility;
 import org.joinmastodon.core.repository.FollowRepository;
+import org.joinmastodon.core.repository.MentionRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class StatusVisibilityService {
     private final FollowRepository followRepository;
+    private final MentionRepository mentionRepository;
 
-    public StatusVisibilityService(FollowRepository followRepository) {
+    public StatusVisibilityService(FollowRepository followRepository, MentionRepository mentionRepository) {
         this.followRepository = followRepository;
+        this.mentionRepository = mentionRepository;
     }
 
     @Transactional(readOnly = true)
@@ -45,4 +52,64 @@ public class StatusVisibilityService {
         }
         return false;
     }
+
+    /**
+     * Keep the statuses the viewer may see, with the same rules as {@link #canView}, using at
+     * most one follow query and one mention query for the whole list.
+     *
+     * @param statuses the statuses to filter
+     * @param viewer the viewing account, or null for anonymous viewers
+     * @return the visible statuses, in their original order
+     */
+    @Transactional(readOnly = true)
+    public List<Status> filterVisible(List<Status> statuses, Account viewer) {
+        Set<Long> privateAuthors = new HashSet<>();
+        Set<Long> directStatuses = new HashSet<>();
+        for (Status status : statuses) {
+            Visibility visibility = status.getVisibility();
+            if (viewer == null || isPublic(visibility) || isOwn(status, viewer)) {
+                continue;
+            }
+            if (visibility == Visibility.PRIVATE && status.getAccount() != null) {
+                privateAuthors.add(status.getAccount().getId());
+            } else if (visibility == Visibility.DIRECT) {
+                directStatuses.add(status.getId());
+            }
+        }
+        Set<Long> followed = privateAuthors.isEmpty()
+                ? Set.of()
+                : new HashSet<>(followRepository.findTargetAccountIdsIn(viewer, privateAuthors));
+        Set<Long> mentioned = directStatuses.isEmpty()
+                ? Set.of()
+                : new HashSet<>(mentionRepository.findStatusIdsMentioning(viewer, directStatuses));
+
+        List<Status> visible = new ArrayList<>(statuses.size());
+        for (Status status : statuses) {
+            Visibility visibility = status.getVisibility();
+            boolean canView;
+            if (isPublic(visibility)) {
+                canView = true;
+            } else if (viewer == null) {
+                canView = false;
+            } else if (isOwn(status, viewer)) {
+                canView = true;
+            } else if (visibility == Visibility.PRIVATE) {
+                canView = status.getAccount() != null && followed.contains(status.getAccount().getId());
+            } else {
+                canView = visibility == Visibility.DIRECT && mentioned.contains(status.getId());
+            }
+            if (canView) {
+                visible.add(status);
+            }
+        }
+        return visible;
+    }
+
+    private static boolean isPublic(Visibility visibility) {
+        return visibility == null || visibility == Visibility.PUBLIC || visibility == Visibility.UNLISTED;
+    }
+
+    private static boolean isOwn(Status status, Account viewer) {
+        return status.getAccount() != null && status.getAccount().getId().equals(viewer.getId());
+    }
 }
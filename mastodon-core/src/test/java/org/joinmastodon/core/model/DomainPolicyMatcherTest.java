@@ -0,0 +1,110 @@
+package org.joinmastodon.core.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for DomainPolicyMatcher.
+ */
+class DomainPolicyMatcherTest {
+
+    @Nested
+    @DisplayName("Matching")
+    class MatchingTests {
+
+        @Test
+        @DisplayName("Exact rules match only their own host")
+        void exactRulesMatchOnlyTheirHost() {
+            DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                    new DomainPolicyRule("example.com", DomainPolicy.BLOCK, null)));
+
+            assertThat(matcher.policyFor("example.com")).isEqualTo(DomainPolicy.BLOCK);
+            assertThat(matcher.policyFor("EXAMPLE.com.")).isEqualTo(DomainPolicy.BLOCK);
+            assertThat(matcher.policyFor("social.example.com")).isEqualTo(DomainPolicy.NONE);
+            assertThat(matcher.policyFor("notexample.com")).isEqualTo(DomainPolicy.NONE);
+            assertThat(matcher.policyFor("com")).isEqualTo(DomainPolicy.NONE);
+        }
+
+        @Test
+        @DisplayName("Wildcard rules match every subdomain but not the domain itself")
+        void wildcardRulesMatchSubdomains() {
+            DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                    new DomainPolicyRule("*.example.com", DomainPolicy.RESTRICT, null)));
+
+            assertThat(matcher.policyFor("social.example.com")).isEqualTo(DomainPolicy.RESTRICT);
+            assertThat(matcher.policyFor("a.b.example.com")).isEqualTo(DomainPolicy.RESTRICT);
+            assertThat(matcher.policyFor("example.com")).isEqualTo(DomainPolicy.NONE);
+        }
+
+        @Test
+        @DisplayName("The most severe matching rule wins")
+        void mostSevereRuleWins() {
+            DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                    new DomainPolicyRule("*.example.com", DomainPolicy.RESTRICT, null),
+                    new DomainPolicyRule("bad.example.com", DomainPolicy.BLOCK, null),
+                    new DomainPolicyRule("good.example.com", DomainPolicy.RESTRICT, null)));
+
+            assertThat(matcher.policyFor("bad.example.com")).isEqualTo(DomainPolicy.BLOCK);
+            assertThat(matcher.policyFor("good.example.com")).isEqualTo(DomainPolicy.RESTRICT);
+            assertThat(matcher.policyFor("other.example.com")).isEqualTo(DomainPolicy.RESTRICT);
+        }
+
+        @Test
+        @DisplayName("Null and blank hosts have no policy")
+        void nullHostsHaveNoPolicy() {
+            DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                    new DomainPolicyRule("example.com", DomainPolicy.BLOCK, null)));
+
+            assertThat(matcher.policyFor(null)).isEqualTo(DomainPolicy.NONE);
+            assertThat(matcher.policyFor(" ")).isEqualTo(DomainPolicy.NONE);
+        }
+    }
+
+    @Nested
+    @DisplayName("Expiry")
+    class ExpiryTests {
+
+        @Test
+        @DisplayName("Rules stop matching once they expire")
+        void rulesStopMatchingOnceExpired() {
+            Instant expiresAt = Instant.parse("2026-01-01T00:00:00Z");
+            DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                    new DomainPolicyRule("example.com", DomainPolicy.BLOCK, expiresAt)));
+
+            long before = expiresAt.toEpochMilli() - 1;
+            long after = expiresAt.toEpochMilli() + 1;
+            assertThat(matcher.policyFor("example.com", before)).isEqualTo(DomainPolicy.BLOCK);
+            assertThat(matcher.policyFor("example.com", after)).isEqualTo(DomainPolicy.NONE);
+        }
+
+        @Test
+        @DisplayName("An expired rule does not hide a permanent one")
+        void expiredRuleDoesNotHidePermanentRule() {
+            Instant expiresAt = Instant.parse("2026-01-01T00:00:00Z");
+            DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                    new DomainPolicyRule("example.com", DomainPolicy.BLOCK, expiresAt),
+                    new DomainPolicyRule("example.com", DomainPolicy.RESTRICT, null)));
+
+            assertThat(matcher.policyFor("example.com", expiresAt.toEpochMilli() + 1))
+                    .isEqualTo(DomainPolicy.RESTRICT);
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed patterns are skipped")
+    void malformedPatternsAreSkipped() {
+        DomainPolicyMatcher matcher = DomainPolicyMatcher.compile(List.of(
+                new DomainPolicyRule("", DomainPolicy.BLOCK, null),
+                new DomainPolicyRule("a.*.com", DomainPolicy.BLOCK, null),
+                new DomainPolicyRule("example.com", DomainPolicy.NONE, null)));
+
+        assertThat(matcher.size()).isZero();
+        assertThat(matcher).isSameAs(DomainPolicyMatcher.EMPTY);
+    }
+}
@@ -0,0 +1,52 @@
+package org.joinmastodon.core.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for ThreadPath.
+ */
+class ThreadPathTest {
+
+    @Test
+    @DisplayName("Paths list the ids from the root, excluding the status itself")
+    void ancestorIdsFromPath() {
+        String root = ThreadPath.root(5L);
+        String reply = ThreadPath.child(root, 42L);
+        String nested = ThreadPath.child(reply, 1234567L);
+
+        assertThat(ThreadPath.ancestorIds(root)).isEmpty();
+        assertThat(ThreadPath.ancestorIds(nested)).containsExactly(5L, 42L);
+        assertThat(ThreadPath.depth(nested)).isEqualTo(3);
+        assertThat(nested).startsWith(reply).startsWith(root);
+    }
+
+    @Test
+    @DisplayName("Sorting paths lists a thread depth-first with siblings in id order")
+    void sortsDepthFirst() {
+        String root = ThreadPath.root(1L);
+        String first = ThreadPath.child(root, 9L);
+        String firstReply = ThreadPath.child(first, 100L);
+        String second = ThreadPath.child(root, 10L);
+        List<String> paths = new ArrayList<>(List.of(second, firstReply, root, first));
+
+        Collections.sort(paths);
+
+        assertThat(paths).containsExactly(root, first, firstReply, second);
+    }
+
+    @Test
+    @DisplayName("Malformed or missing paths have no ancestors")
+    void malformedPaths() {
+        assertThat(ThreadPath.ancestorIds(null)).isEmpty();
+        assertThat(ThreadPath.ancestorIds("12/")).isEmpty();
+        assertThatThrownBy(() -> ThreadPath.root(-1L)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
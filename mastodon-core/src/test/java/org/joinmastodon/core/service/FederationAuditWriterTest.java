@@ -0,0 +1,153 @@
+package org.joinmastodon.core.service;
+
+import org.joinmastodon.core.entity.FederationAuditLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for FederationAuditWriter.
+ * Tests batching, back-pressure and retry of failed writes.
+ */
+@ExtendWith(MockitoExtension.class)
+class FederationAuditWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private static FederationAuditLog entry(String status) {
+        FederationAuditLog log = new FederationAuditLog();
+        log.setDirection("INBOUND");
+        log.setEventType("Create");
+        log.setStatus(status);
+        return log;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> recordBatchSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    sizes.add(invocation.<Collection<?>>getArgument(1).size());
+                    return new int[0][];
+                });
+        return sizes;
+    }
+
+    @Nested
+    @DisplayName("flush")
+    class Flush {
+
+        @Test
+        @DisplayName("writes queued entries in batches")
+        void writesInBatches() {
+            List<Integer> sizes = recordBatchSizes();
+            FederationAuditWriter writer = new FederationAuditWriter(jdbcTemplate, 4, 100, 1.0);
+            // Stay below the batch size so no early flush starts in the background
+            for (int i = 0; i < 3; i++) {
+                writer.append(entry("success"));
+            }
+            writer.flush();
+
+            assertThat(sizes).containsExactly(3);
+            assertThat(writer.getQueuedCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("does nothing when the queue is empty")
+        @SuppressWarnings("unchecked")
+        void emptyQueue() {
+            FederationAuditWriter writer = new FederationAuditWriter(jdbcTemplate, 10, 100, 1.0);
+            writer.flush();
+
+            verify(jdbcTemplate, never()).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                    any(ParameterizedPreparedStatementSetter.class));
+        }
+
+        @Test
+        @DisplayName("keeps entries queued when the write fails")
+        @SuppressWarnings("unchecked")
+        void requeuesOnFailure() {
+            when(jdbcTemplate.batchUpdate(eq(FederationAuditWriter.INSERT_SQL), any(Collection.class), anyInt(),
+                    any(ParameterizedPreparedStatementSetter.class)))
+                    .thenThrow(new DataAccessResourceFailureException("down"));
+            FederationAuditWriter writer = new FederationAuditWriter(jdbcTemplate, 10, 100, 1.0);
+            writer.append(entry("success"));
+            writer.append(entry("success"));
+            writer.flush();
+
+            assertThat(writer.getQueuedCount()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("leaves retries after a failed write to the scheduled flush")
+        @SuppressWarnings("unchecked")
+        void backsOffAfterFailure() {
+            when(jdbcTemplate.batchUpdate(eq(FederationAuditWriter.INSERT_SQL), any(Collection.class), anyInt(),
+                    any(ParameterizedPreparedStatementSetter.class)))
+                    .thenThrow(new DataAccessResourceFailureException("down"));
+            FederationAuditWriter writer = new FederationAuditWriter(jdbcTemplate, 2, 100, 1.0);
+            writer.append(entry("success"));
+            writer.flush();
+
+            // Each of these fills a batch, which would otherwise start a flush right away
+            writer.append(entry("success"));
+            writer.append(entry("success"));
+
+            verify(jdbcTemplate, after(200).times(1)).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                    any(ParameterizedPreparedStatementSetter.class));
+            assertThat(writer.getQueuedCount()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("append")
+    class Append {
+
+        @Test
+        @DisplayName("drops entries once the queue is full")
+        void dropsWhenFull() {
+            FederationAuditWriter writer = new FederationAuditWriter(jdbcTemplate, 100, 10, 1.0);
+            for (int i = 0; i < 9; i++) {
+                assertThat(writer.append(entry("success"))).isTrue();
+            }
+
+            assertThat(writer.append(entry("failed"))).isTrue();
+            assertThat(writer.append(entry("failed"))).isFalse();
+        }
+
+        @Test
+        @DisplayName("samples successful entries but keeps failures under pressure")
+        void samplesUnderPressure() {
+            FederationAuditWriter writer = new FederationAuditWriter(jdbcTemplate, 100, 10, 0.0);
+            for (int i = 0; i < 5; i++) {
+                assertThat(writer.append(entry("success"))).isTrue();
+            }
+
+            assertThat(writer.append(entry("success"))).isFalse();
+            assertThat(writer.append(entry("failed"))).isTrue();
+            assertThat(writer.getQueuedCount()).isEqualTo(6);
+        }
+    }
+}
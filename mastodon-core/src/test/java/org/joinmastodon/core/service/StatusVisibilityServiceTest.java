@@ -5,6 +5,7 @@ import org.joinmastodon.core.entity.Mention;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.core.model.Visibility;
 import org.joinmastodon.core.repository.FollowRepository;
+import org.joinmastodon.core.repository.MentionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -20,6 +21,9 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -32,6 +36,9 @@ class StatusVisibilityServiceTest {
     @Mock
     private FollowRepository followRepository;
 
+    @Mock
+    private MentionRepository mentionRepository;
+
     @InjectMocks
     private StatusVisibilityService statusVisibilityService;
 
@@ -344,8 +351,54 @@ class StatusVisibilityServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Bulk filtering")
+    class BulkFilterTests {
+
+        @Test
+        @DisplayName("Applies the same rules as canView with one query per visibility")
+        void filtersWithOneQueryPerVisibility() {
+            Status publicStatus = statusOf(10L, author, Visibility.PUBLIC);
+            Status followedPrivate = statusOf(11L, author, Visibility.PRIVATE);
+            Status strangerPrivate = statusOf(12L, stranger, Visibility.PRIVATE);
+            Status mentionedDirect = statusOf(13L, author, Visibility.DIRECT);
+            Status otherDirect = statusOf(14L, author, Visibility.DIRECT);
+            Status ownDirect = statusOf(15L, viewer, Visibility.DIRECT);
+            when(followRepository.findTargetAccountIdsIn(eq(viewer), anyCollection())).thenReturn(List.of(1L));
+            when(mentionRepository.findStatusIdsMentioning(eq(viewer), anyCollection())).thenReturn(List.of(13L));
+
+            List<Status> visible = statusVisibilityService.filterVisible(List.of(publicStatus, followedPrivate,
+                    strangerPrivate, mentionedDirect, otherDirect, ownDirect), viewer);
+
+            assertThat(visible).containsExactly(publicStatus, followedPrivate, mentionedDirect, ownDirect);
+        }
+
+        @Test
+        @DisplayName("Anonymous viewers see only public and unlisted statuses without queries")
+        void anonymousViewerNeedsNoQueries() {
+            Status publicStatus = statusOf(10L, author, Visibility.PUBLIC);
+            Status unlisted = statusOf(11L, author, Visibility.UNLISTED);
+            Status privateStatus = statusOf(12L, author, Visibility.PRIVATE);
+
+            List<Status> visible = statusVisibilityService.filterVisible(
+                    List.of(publicStatus, unlisted, privateStatus), null);
+
+            assertThat(visible).containsExactly(publicStatus, unlisted);
+            verifyNoInteractions(followRepository, mentionRepository);
+        }
+    }
+
     // Helper methods
 
+    private Status statusOf(Long id, Account account, Visibility visibility) {
+        Status result = new Status();
+        result.setId(id);
+        result.setAccount(account);
+        result.setVisibility(visibility);
+        result.setContent("Test content");
+        return result;
+    }
+
     private Account createAccount(Long id, String username, String domain) {
         Account account = new Account();
         account.setId(id);
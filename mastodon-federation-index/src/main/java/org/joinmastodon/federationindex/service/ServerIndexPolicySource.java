@@ -0,0 +1,39 @@
+package org.joinmastodon.federationindex.service;
+
+import org.joinmastodon.core.model.DomainPolicy;
+import org.joinmastodon.core.model.DomainPolicyRule;
+import org.joinmastodon.core.service.DomainPolicySource;
+import org.joinmastodon.federationindex.entity.ServerIndex;
+import org.joinmastodon.federationindex.entity.ServerIndex.AccessPolicy;
+import org.joinmastodon.federationindex.repository.ServerIndexRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feeds the access policy of indexed servers into the domain policy index.
+ */
+@Component
+public class ServerIndexPolicySource implements DomainPolicySource {
+
+    private final ServerIndexRepository serverIndexRepository;
+
+    public ServerIndexPolicySource(ServerIndexRepository serverIndexRepository) {
+        this.serverIndexRepository = serverIndexRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DomainPolicyRule> rules() {
+        List<DomainPolicyRule> rules = new ArrayList<>();
+        for (ServerIndex server : serverIndexRepository.findByAccessPolicy(AccessPolicy.BLOCKED)) {
+            rules.add(new DomainPolicyRule(server.getDomain(), DomainPolicy.BLOCK, null));
+        }
+        for (ServerIndex server : serverIndexRepository.findByAccessPolicy(AccessPolicy.RESTRICTED)) {
+            rules.add(new DomainPolicyRule(server.getDomain(), DomainPolicy.RESTRICT, null));
+        }
+        return rules;
+    }
+}
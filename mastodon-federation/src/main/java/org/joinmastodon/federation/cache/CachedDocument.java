@@ -0,0 +1,42 @@
+package org.joinmastodon.federation.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A pre-serialized response body with a strong entity tag derived from its content.
+ *
+ * @param body the serialized document
+ * @param etag strong entity tag, already quoted
+ */
+public record CachedDocument(byte[] body, String etag) {
+
+    public static CachedDocument of(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new CachedDocument(body, "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Check an If-None-Match header against this document's entity tag.
+     *
+     * @param ifNoneMatch the header value, may be null
+     * @return true if the client already holds this representation
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
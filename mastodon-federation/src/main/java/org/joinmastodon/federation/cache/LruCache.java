@@ -0,0 +1,123 @@
+package org.joinmastodon.federation.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Small bounded, access-ordered cache with optional time-to-live.
+ * Used for federation lookups that are hot but cheap to recompute on a miss.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Clock clock;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    public LruCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    public LruCache(int maxEntries, Duration ttl, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttl = ttl == null || ttl.isZero() || ttl.isNegative() ? null : ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > LruCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a cached value.
+     *
+     * @param key the cache key
+     * @return the value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() != null && !clock.instant().isBefore(entry.expiresAt())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Get a cached value, or compute and cache it if absent or expired.
+     * The value is computed while holding the cache's lock, so keep it cheap.
+     */
+    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> compute) {
+        V value = get(key);
+        if (value == null) {
+            value = compute.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Cache a value unless a live one is already cached, as one atomic step.
+     *
+     * @return the value already cached, or null if {@code value} was stored
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (value == null) {
+            entries.remove(key);
+            return;
+        }
+        Instant expiresAt = ttl == null ? null : clock.instant().plus(ttl);
+        entries.put(key, new CacheEntry<>(value, expiresAt));
+    }
+
+    /**
+     * Cache a value until {@code expiresAt}, or until the cache-wide TTL if that is sooner.
+     */
+    public synchronized void put(K key, V value, Instant expiresAt) {
+        if (value == null) {
+            entries.remove(key);
+            return;
+        }
+        Instant limit = ttl == null ? null : clock.instant().plus(ttl);
+        Instant effective = limit != null && limit.isBefore(expiresAt) ? limit : expiresAt;
+        entries.put(key, new CacheEntry<>(value, effective));
+    }
+
+    public synchronized V invalidate(K key) {
+        CacheEntry<V> removed = entries.remove(key);
+        return removed == null ? null : removed.value();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record CacheEntry<V>(V value, Instant expiresAt) {
+    }
+}
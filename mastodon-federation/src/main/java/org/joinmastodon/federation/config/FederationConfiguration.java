@@ -1,6 +1,7 @@
 package org.joinmastodon.federation.config;
 
 import java.net.http.HttpClient;
+import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,4 +13,9 @@ public class FederationConfiguration {
     public HttpClient federationHttpClient() {
         return HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
     }
+
+    @Bean
+    public HttpSignatureVerifier httpSignatureVerifier() {
+        return new HttpSignatureVerifier();
+    }
 }
@@ -2,6 +2,7 @@ package org.joinmastodon.federation.config;
 
 import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties(prefix = "mastodon.federation")
 public class FederationProperties {
@@ -14,6 +15,41 @@ public class FederationProperties {
     private Duration deliveryPollInterval = Duration.ofSeconds(5);
     private Duration deliveryLockTimeout = Duration.ofMinutes(5);
     private int deliveryBatchSize = 5;
+    private int publicKeyCacheSize = 10_000;
+    private Duration publicKeyCacheTtl = Duration.ofHours(6);
+    private Duration signatureMaxSkew = Duration.ofHours(1);
+    private int signatureCacheSize = 10_000;
+    private int signingKeyCacheSize = 10_000;
+    private int signatureSupportCacheSize = 10_000;
+    private Duration inboxPollInterval = Duration.ofSeconds(30);
+    private DataSize inboxMaxBodySize = DataSize.ofMegabytes(1);
+    private int inboxQueueCapacity = 10_000;
+    private int inboxBatchSize = 50;
+    private int inboxWorkerThreads = 8;
+    private Duration inboxLockTimeout = Duration.ofMinutes(5);
+    private int inboxDedupCapacity = 100_000;
+    private Duration inboxDedupTtl = Duration.ofHours(1);
+    private Duration inboxFairnessInterval = Duration.ofMillis(100);
+    private int outboxPageCacheSize = 1_000;
+    private int outboxActivityCacheSize = 10_000;
+    private Duration outboxCacheTtl = Duration.ofMinutes(1);
+    private int actorCacheSize = 10_000;
+    private Duration actorCacheTtl = Duration.ofMinutes(10);
+    private int resolverConcurrency = 16;
+    private double resolverRequestsPerSecond = 5.0;
+    private int resolverBurst = 10;
+    private Duration resolverMaxWait = Duration.ofSeconds(5);
+    private int resolverNegativeCacheSize = 10_000;
+    private Duration resolverNegativeCacheTtl = Duration.ofHours(1);
+    private Duration resolverRefreshInterval = Duration.ofDays(1);
+    private int dispatchPartitions = 64;
+    private int dispatchQueueCapacity = 1_000;
+    private int relayQueueCapacity = 50_000;
+    private RelayOverflowPolicy relayOverflowPolicy = RelayOverflowPolicy.DROP;
+    private int relayBatchSize = 200;
+    private int relayYieldThreshold = 100;
+    private Duration relayActorRetryDelay = Duration.ofMinutes(1);
+    private Duration relayActorMaxWait = Duration.ofHours(1);
 
     public String getBaseUrl() {
         return baseUrl;
@@ -86,4 +122,294 @@ public class FederationProperties {
     public void setDeliveryBatchSize(int deliveryBatchSize) {
         this.deliveryBatchSize = deliveryBatchSize;
     }
+
+    public int getPublicKeyCacheSize() {
+        return publicKeyCacheSize;
+    }
+
+    public void setPublicKeyCacheSize(int publicKeyCacheSize) {
+        this.publicKeyCacheSize = publicKeyCacheSize;
+    }
+
+    public Duration getPublicKeyCacheTtl() {
+        return publicKeyCacheTtl;
+    }
+
+    public void setPublicKeyCacheTtl(Duration publicKeyCacheTtl) {
+        this.publicKeyCacheTtl = publicKeyCacheTtl;
+    }
+
+    public DataSize getInboxMaxBodySize() {
+        return inboxMaxBodySize;
+    }
+
+    public void setInboxMaxBodySize(DataSize inboxMaxBodySize) {
+        this.inboxMaxBodySize = inboxMaxBodySize;
+    }
+
+    public int getInboxQueueCapacity() {
+        return inboxQueueCapacity;
+    }
+
+    public void setInboxQueueCapacity(int inboxQueueCapacity) {
+        this.inboxQueueCapacity = inboxQueueCapacity;
+    }
+
+    public int getInboxBatchSize() {
+        return inboxBatchSize;
+    }
+
+    public void setInboxBatchSize(int inboxBatchSize) {
+        this.inboxBatchSize = inboxBatchSize;
+    }
+
+    public int getInboxWorkerThreads() {
+        return inboxWorkerThreads;
+    }
+
+    public void setInboxWorkerThreads(int inboxWorkerThreads) {
+        this.inboxWorkerThreads = inboxWorkerThreads;
+    }
+
+    public Duration getInboxLockTimeout() {
+        return inboxLockTimeout;
+    }
+
+    public void setInboxLockTimeout(Duration inboxLockTimeout) {
+        this.inboxLockTimeout = inboxLockTimeout;
+    }
+
+    public int getInboxDedupCapacity() {
+        return inboxDedupCapacity;
+    }
+
+    public void setInboxDedupCapacity(int inboxDedupCapacity) {
+        this.inboxDedupCapacity = inboxDedupCapacity;
+    }
+
+    public Duration getInboxDedupTtl() {
+        return inboxDedupTtl;
+    }
+
+    public void setInboxDedupTtl(Duration inboxDedupTtl) {
+        this.inboxDedupTtl = inboxDedupTtl;
+    }
+
+    public Duration getInboxFairnessInterval() {
+        return inboxFairnessInterval;
+    }
+
+    public void setInboxFairnessInterval(Duration inboxFairnessInterval) {
+        this.inboxFairnessInterval = inboxFairnessInterval;
+    }
+
+    public int getOutboxPageCacheSize() {
+        return outboxPageCacheSize;
+    }
+
+    public void setOutboxPageCacheSize(int outboxPageCacheSize) {
+        this.outboxPageCacheSize = outboxPageCacheSize;
+    }
+
+    public int getOutboxActivityCacheSize() {
+        return outboxActivityCacheSize;
+    }
+
+    public void setOutboxActivityCacheSize(int outboxActivityCacheSize) {
+        this.outboxActivityCacheSize = outboxActivityCacheSize;
+    }
+
+    public Duration getOutboxCacheTtl() {
+        return outboxCacheTtl;
+    }
+
+    public void setOutboxCacheTtl(Duration outboxCacheTtl) {
+        this.outboxCacheTtl = outboxCacheTtl;
+    }
+
+    public int getActorCacheSize() {
+        return actorCacheSize;
+    }
+
+    public void setActorCacheSize(int actorCacheSize) {
+        this.actorCacheSize = actorCacheSize;
+    }
+
+    public Duration getActorCacheTtl() {
+        return actorCacheTtl;
+    }
+
+    public void setActorCacheTtl(Duration actorCacheTtl) {
+        this.actorCacheTtl = actorCacheTtl;
+    }
+
+    public int getResolverConcurrency() {
+        return resolverConcurrency;
+    }
+
+    public void setResolverConcurrency(int resolverConcurrency) {
+        this.resolverConcurrency = resolverConcurrency;
+    }
+
+    public double getResolverRequestsPerSecond() {
+        return resolverRequestsPerSecond;
+    }
+
+    public void setResolverRequestsPerSecond(double resolverRequestsPerSecond) {
+        this.resolverRequestsPerSecond = resolverRequestsPerSecond;
+    }
+
+    public int getResolverBurst() {
+        return resolverBurst;
+    }
+
+    public void setResolverBurst(int resolverBurst) {
+        this.resolverBurst = resolverBurst;
+    }
+
+    public Duration getResolverMaxWait() {
+        return resolverMaxWait;
+    }
+
+    public void setResolverMaxWait(Duration resolverMaxWait) {
+        this.resolverMaxWait = resolverMaxWait;
+    }
+
+    public int getResolverNegativeCacheSize() {
+        return resolverNegativeCacheSize;
+    }
+
+    public void setResolverNegativeCacheSize(int resolverNegativeCacheSize) {
+        this.resolverNegativeCacheSize = resolverNegativeCacheSize;
+    }
+
+    public Duration getResolverNegativeCacheTtl() {
+        return resolverNegativeCacheTtl;
+    }
+
+    public void setResolverNegativeCacheTtl(Duration resolverNegativeCacheTtl) {
+        this.resolverNegativeCacheTtl = resolverNegativeCacheTtl;
+    }
+
+    public Duration getResolverRefreshInterval() {
+        return resolverRefreshInterval;
+    }
+
+    public void setResolverRefreshInterval(Duration resolverRefreshInterval) {
+        this.resolverRefreshInterval = resolverRefreshInterval;
+    }
+
+    public int getDispatchPartitions() {
+        return dispatchPartitions;
+    }
+
+    public void setDispatchPartitions(int dispatchPartitions) {
+        this.dispatchPartitions = dispatchPartitions;
+    }
+
+    public int getDispatchQueueCapacity() {
+        return dispatchQueueCapacity;
+    }
+
+    public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
+        this.dispatchQueueCapacity = dispatchQueueCapacity;
+    }
+
+    public int getRelayQueueCapacity() {
+        return relayQueueCapacity;
+    }
+
+    public void setRelayQueueCapacity(int relayQueueCapacity) {
+        this.relayQueueCapacity = relayQueueCapacity;
+    }
+
+    public RelayOverflowPolicy getRelayOverflowPolicy() {
+        return relayOverflowPolicy;
+    }
+
+    public void setRelayOverflowPolicy(RelayOverflowPolicy relayOverflowPolicy) {
+        this.relayOverflowPolicy = relayOverflowPolicy;
+    }
+
+    public int getRelayBatchSize() {
+        return relayBatchSize;
+    }
+
+    public void setRelayBatchSize(int relayBatchSize) {
+        this.relayBatchSize = relayBatchSize;
+    }
+
+    public int getRelayYieldThreshold() {
+        return relayYieldThreshold;
+    }
+
+    public void setRelayYieldThreshold(int relayYieldThreshold) {
+        this.relayYieldThreshold = relayYieldThreshold;
+    }
+
+    public Duration getRelayActorRetryDelay() {
+        return relayActorRetryDelay;
+    }
+
+    public void setRelayActorRetryDelay(Duration relayActorRetryDelay) {
+        this.relayActorRetryDelay = relayActorRetryDelay;
+    }
+
+    public Duration getRelayActorMaxWait() {
+        return relayActorMaxWait;
+    }
+
+    public void setRelayActorMaxWait(Duration relayActorMaxWait) {
+        this.relayActorMaxWait = relayActorMaxWait;
+    }
+
+    /**
+     * What the inbox does with relay traffic once the relay queue is full.
+     */
+    public enum RelayOverflowPolicy {
+        /** Accept and discard the activity; the relay does not retry. */
+        DROP,
+        /** Answer 503 so the relay retries later. */
+        REJECT
+    }
+
+    public Duration getSignatureMaxSkew() {
+        return signatureMaxSkew;
+    }
+
+    public void setSignatureMaxSkew(Duration signatureMaxSkew) {
+        this.signatureMaxSkew = signatureMaxSkew;
+    }
+
+    public int getSignatureCacheSize() {
+        return signatureCacheSize;
+    }
+
+    public void setSignatureCacheSize(int signatureCacheSize) {
+        this.signatureCacheSize = signatureCacheSize;
+    }
+
+    public int getSigningKeyCacheSize() {
+        return signingKeyCacheSize;
+    }
+
+    public void setSigningKeyCacheSize(int signingKeyCacheSize) {
+        this.signingKeyCacheSize = signingKeyCacheSize;
+    }
+
+    public int getSignatureSupportCacheSize() {
+        return signatureSupportCacheSize;
+    }
+
+    public void setSignatureSupportCacheSize(int signatureSupportCacheSize) {
+        this.signatureSupportCacheSize = signatureSupportCacheSize;
+    }
+
+    public Duration getInboxPollInterval() {
+        return inboxPollInterval;
+    }
+
+    public void setInboxPollInterval(Duration inboxPollInterval) {
+        this.inboxPollInterval = inboxPollInterval;
+    }
 }
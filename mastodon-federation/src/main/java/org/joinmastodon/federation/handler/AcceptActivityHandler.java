@@ -5,6 +5,7 @@ import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Follow;
 import org.joinmastodon.core.service.AccountService;
 import org.joinmastodon.core.service.FollowService;
+import org.joinmastodon.core.service.RelayService;
 import org.joinmastodon.federation.config.FederationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,18 +23,25 @@ public class AcceptActivityHandler implements ActivityHandler {
 
     private final AccountService accountService;
     private final FollowService followService;
+    private final RelayService relayService;
     private final FederationProperties properties;
 
     public AcceptActivityHandler(AccountService accountService,
                                  FollowService followService,
+                                 RelayService relayService,
                                  FederationProperties properties) {
         this.accountService = accountService;
         this.followService = followService;
+        this.relayService = relayService;
         this.properties = properties;
     }
 
     @Override
     public void handle(JsonNode activityJson, Account actor, Account localRecipient) {
+        if (handleRelayResponse(activityJson)) {
+            return;
+        }
+
         if (actor == null) {
             log.warn("Cannot process Accept activity without actor");
             return;
@@ -97,4 +105,26 @@ public class AcceptActivityHandler implements ActivityHandler {
         followService.follow(localAccount, actor);
         log.info("Created follow relationship: {} -> {}", localAccount.getAcct(), actor.getAcct());
     }
+
+    /**
+     * Accepts of the instance actor's relay Follow update the relay subscription.
+     * Relays may send the Follow either embedded or by id.
+     */
+    private boolean handleRelayResponse(JsonNode activityJson) {
+        JsonNode objectNode = activityJson.get("object");
+        if (objectNode == null) {
+            return false;
+        }
+        JsonNode idNode = objectNode.isObject() ? objectNode.get("id") : objectNode;
+        String followId = idNode != null && idNode.isTextual() ? idNode.asText() : null;
+        String relayFollowPrefix = properties.getBaseUrl().replaceAll("/$", "") + "/activities/relay-follow/";
+        if (followId == null || !followId.startsWith(relayFollowPrefix)) {
+            return false;
+        }
+        relayService.recordResponse(followId, true)
+                .ifPresentOrElse(
+                        relay -> log.info("Relay {} accepted the subscription", relay.getInboxUrl()),
+                        () -> log.debug("Accept for unknown relay Follow: {}", followId));
+        return true;
+    }
 }
@@ -28,16 +28,35 @@ public class AnnounceActivityHandler implements ActivityHandler {
 
     @Override
     public void handle(JsonNode activityJson, Account actor, Account localRecipient) {
+        Status boost = toBoost(activityJson, actor);
+        if (boost == null) {
+            return;
+        }
+
+        // Save the boost
+        statusService.save(boost);
+        log.info("Created boost: {} -> {}", actor.getAcct(), boost.getReblog().getUri());
+    }
+
+    /**
+     * Build the boost described by an Announce activity without saving it.
+     * Used directly by relay ingest, which stores statuses in batches.
+     *
+     * @param activityJson the Announce activity
+     * @param actor the activity's actor
+     * @return the unsaved boost, or null if the original is unknown or already boosted
+     */
+    public Status toBoost(JsonNode activityJson, Account actor) {
         if (actor == null) {
             log.warn("Cannot process Announce activity without actor");
-            return;
+            return null;
         }
 
         // Get the object being announced
         String objectUrl = activityJson.has("object") ? activityJson.get("object").asText() : null;
         if (objectUrl == null) {
             log.warn("Announce activity missing object");
-            return;
+            return null;
         }
 
         String activityId = activityJson.has("id") ? activityJson.get("id").asText() : null;
@@ -51,7 +70,7 @@ public class AnnounceActivityHandler implements ActivityHandler {
         if (originalStatusOpt.isEmpty()) {
             log.debug("Original status not found for Announce: {}", objectUrl);
             // Could fetch the status from remote, but for now we'll skip
-            return;
+            return null;
         }
 
         Status originalStatus = originalStatusOpt.get();
@@ -60,7 +79,7 @@ public class AnnounceActivityHandler implements ActivityHandler {
         Optional<Status> existingBoost = statusService.findByAccountAndReblog(actor, originalStatus);
         if (existingBoost.isPresent()) {
             log.debug("Boost already exists: {} -> {}", actor.getAcct(), objectUrl);
-            return;
+            return null;
         }
 
         // Create the boost status
@@ -72,9 +91,6 @@ public class AnnounceActivityHandler implements ActivityHandler {
         boost.setCreatedAt(published);
         boost.setVisibility(Visibility.PUBLIC); // Boosts are always public
         boost.setContent(""); // Boosts have no content
-
-        // Save the boost
-        statusService.save(boost);
-        log.info("Created boost: {} -> {}", actor.getAcct(), objectUrl);
+        return boost;
     }
 }
@@ -2,14 +2,19 @@ package org.joinmastodon.federation.handler;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.MediaAttachment;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.core.model.Visibility;
+import org.joinmastodon.core.service.MediaAttachmentService;
 import org.joinmastodon.core.service.StatusService;
+import org.joinmastodon.federation.config.FederationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,49 +25,77 @@ import java.util.Optional;
 public class CreateActivityHandler implements ActivityHandler {
     private static final Logger log = LoggerFactory.getLogger(CreateActivityHandler.class);
 
+    private static final int MAX_ATTACHMENTS = 4;
+
     private final StatusService statusService;
+    private final MediaAttachmentService mediaAttachmentService;
+    private final FederationProperties properties;
 
-    public CreateActivityHandler(StatusService statusService) {
+    public CreateActivityHandler(StatusService statusService,
+                                 MediaAttachmentService mediaAttachmentService,
+                                 FederationProperties properties) {
         this.statusService = statusService;
+        this.mediaAttachmentService = mediaAttachmentService;
+        this.properties = properties;
     }
 
     @Override
     public void handle(JsonNode activityJson, Account actor, Account localRecipient) {
+        Status status = toStatus(activityJson, actor);
+        if (status == null) {
+            return;
+        }
+
+        // Check if we already have this status
+        Optional<Status> existingStatus = statusService.findByUri(status.getUri());
+        if (existingStatus.isPresent()) {
+            log.debug("Status already exists: {}", status.getUri());
+            return;
+        }
+
+        log.info("Processing Create Note from {}: {}", actor.getAcct(), status.getUri());
+
+        // Save the status
+        registerAttachments(List.of(status));
+        statusService.save(status);
+        log.info("Created remote status: {} from {}", status.getUri(), actor.getAcct());
+    }
+
+    /**
+     * Build the status described by a Create Note activity without saving it.
+     * Used directly by relay ingest, which stores statuses in batches.
+     *
+     * @param activityJson the Create activity
+     * @param actor the activity's actor
+     * @return the unsaved status, or null if the activity does not create one
+     */
+    public Status toStatus(JsonNode activityJson, Account actor) {
         if (actor == null) {
             log.warn("Cannot process Create activity without actor");
-            return;
+            return null;
         }
 
         // Get the object being created
         JsonNode objectNode = activityJson.get("object");
         if (objectNode == null || !objectNode.isObject()) {
             log.warn("Create activity missing object");
-            return;
+            return null;
         }
 
         String objectType = objectNode.has("type") ? objectNode.get("type").asText() : null;
         if (!"Note".equals(objectType)) {
             log.debug("Create activity for non-Note type: {}", objectType);
             // Could be other types like Article, Question, etc.
-            return;
+            return null;
         }
 
         // Parse the Note
         String noteId = objectNode.has("id") ? objectNode.get("id").asText() : null;
         if (noteId == null) {
             log.warn("Create Note activity missing id");
-            return;
+            return null;
         }
 
-        // Check if we already have this status
-        Optional<Status> existingStatus = statusService.findByUri(noteId);
-        if (existingStatus.isPresent()) {
-            log.debug("Status already exists: {}", noteId);
-            return;
-        }
-
-        log.info("Processing Create Note from {}: {}", actor.getAcct(), noteId);
-
         // Extract Note fields
         String content = objectNode.has("content") ? objectNode.get("content").asText() : "";
         String attributedTo = objectNode.has("attributedTo") ? objectNode.get("attributedTo").asText() : null;
@@ -73,7 +106,7 @@ public class CreateActivityHandler implements ActivityHandler {
         // Verify the actor matches the attributedTo
         if (attributedTo != null && !attributedTo.equals(actor.getActorUri())) {
             log.warn("Create Note attributedTo {} does not match actor {}", attributedTo, actor.getActorUri());
-            return;
+            return null;
         }
 
         // Determine visibility from to/cc fields
@@ -97,9 +130,92 @@ public class CreateActivityHandler implements ActivityHandler {
             }
         }
 
-        // Save the status
-        statusService.save(status);
-        log.info("Created remote status: {} from {}", noteId, actor.getAcct());
+        // Attachments are only described here; the media proxy fetches them on first view
+        status.setMediaAttachments(remoteAttachments(objectNode, actor));
+        return status;
+    }
+
+    /**
+     * Store the attachment metadata of statuses built by {@link #toStatus} so the statuses
+     * can be saved. Must be called before the statuses are saved.
+     */
+    public void registerAttachments(List<Status> statuses) {
+        List<MediaAttachment> attachments = new ArrayList<>();
+        for (Status status : statuses) {
+            attachments.addAll(status.getMediaAttachments());
+        }
+        if (!attachments.isEmpty()) {
+            String proxyBaseUrl = properties.getBaseUrl().replaceAll("/$", "") + "/media_proxy";
+            mediaAttachmentService.registerRemote(attachments, proxyBaseUrl);
+        }
+    }
+
+    private List<MediaAttachment> remoteAttachments(JsonNode objectNode, Account actor) {
+        JsonNode attachmentNode = objectNode.get("attachment");
+        if (attachmentNode == null || attachmentNode.isNull()) {
+            return new ArrayList<>();
+        }
+        List<JsonNode> nodes = new ArrayList<>();
+        if (attachmentNode.isArray()) {
+            attachmentNode.forEach(nodes::add);
+        } else {
+            nodes.add(attachmentNode);
+        }
+
+        List<MediaAttachment> attachments = new ArrayList<>();
+        for (JsonNode node : nodes) {
+            if (attachments.size() >= MAX_ATTACHMENTS) {
+                break;
+            }
+            String url = remoteUrl(node.get("url"));
+            if (url == null || !(url.startsWith("https://") || url.startsWith("http://"))) {
+                continue;
+            }
+            String mediaType = node.hasNonNull("mediaType") ? node.get("mediaType").asText() : null;
+            MediaAttachment attachment = new MediaAttachment();
+            attachment.setAccountId(actor.getId());
+            attachment.setType(attachmentType(mediaType));
+            attachment.setRemoteUrl(url);
+            attachment.setContentType(mediaType);
+            attachment.setDescription(node.hasNonNull("name") ? node.get("name").asText() : null);
+            attachment.setBlurhash(node.hasNonNull("blurhash") ? node.get("blurhash").asText() : null);
+            attachments.add(attachment);
+        }
+        return attachments;
+    }
+
+    /**
+     * The attachment {@code url} may be a plain string, a Link object or a list of either.
+     */
+    private static String remoteUrl(JsonNode urlNode) {
+        if (urlNode == null || urlNode.isNull()) {
+            return null;
+        }
+        if (urlNode.isTextual()) {
+            return urlNode.asText();
+        }
+        if (urlNode.isArray()) {
+            return urlNode.isEmpty() ? null : remoteUrl(urlNode.get(0));
+        }
+        JsonNode href = urlNode.get("href");
+        return href != null && href.isTextual() ? href.asText() : null;
+    }
+
+    private static String attachmentType(String mediaType) {
+        if (mediaType == null) {
+            return "unknown";
+        }
+        String lower = mediaType.toLowerCase();
+        if (lower.startsWith("image/")) {
+            return "image";
+        }
+        if (lower.startsWith("video/")) {
+            return "video";
+        }
+        if (lower.startsWith("audio/")) {
+            return "audio";
+        }
+        return "unknown";
     }
 
     private Visibility determineVisibility(JsonNode objectNode) {
@@ -5,6 +5,7 @@ import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Follow;
 import org.joinmastodon.core.service.AccountService;
 import org.joinmastodon.core.service.FollowService;
+import org.joinmastodon.core.service.RelayService;
 import org.joinmastodon.federation.config.FederationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,18 +23,25 @@ public class RejectActivityHandler implements ActivityHandler {
 
     private final AccountService accountService;
     private final FollowService followService;
+    private final RelayService relayService;
     private final FederationProperties properties;
 
     public RejectActivityHandler(AccountService accountService,
                                  FollowService followService,
+                                 RelayService relayService,
                                  FederationProperties properties) {
         this.accountService = accountService;
         this.followService = followService;
+        this.relayService = relayService;
         this.properties = properties;
     }
 
     @Override
     public void handle(JsonNode activityJson, Account actor, Account localRecipient) {
+        if (handleRelayResponse(activityJson)) {
+            return;
+        }
+
         if (actor == null) {
             log.warn("Cannot process Reject activity without actor");
             return;
@@ -95,4 +103,26 @@ public class RejectActivityHandler implements ActivityHandler {
                     localAccount.getAcct(), actor.getAcct());
         }
     }
+
+    /**
+     * Rejects of the instance actor's relay Follow update the relay subscription.
+     * Relays may send the Follow either embedded or by id.
+     */
+    private boolean handleRelayResponse(JsonNode activityJson) {
+        JsonNode objectNode = activityJson.get("object");
+        if (objectNode == null) {
+            return false;
+        }
+        JsonNode idNode = objectNode.isObject() ? objectNode.get("id") : objectNode;
+        String followId = idNode != null && idNode.isTextual() ? idNode.asText() : null;
+        String relayFollowPrefix = properties.getBaseUrl().replaceAll("/$", "") + "/activities/relay-follow/";
+        if (followId == null || !followId.startsWith(relayFollowPrefix)) {
+            return false;
+        }
+        relayService.recordResponse(followId, false)
+                .ifPresentOrElse(
+                        relay -> log.info("Relay {} rejected the subscription", relay.getInboxUrl()),
+                        () -> log.debug("Reject for unknown relay Follow: {}", followId));
+        return true;
+    }
 }
@@ -5,6 +5,7 @@ import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.core.service.AccountService;
 import org.joinmastodon.core.service.StatusService;
+import org.joinmastodon.federation.service.PublicKeyResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -21,10 +22,13 @@ public class UpdateActivityHandler implements ActivityHandler {
 
     private final AccountService accountService;
     private final StatusService statusService;
+    private final PublicKeyResolver publicKeyResolver;
 
-    public UpdateActivityHandler(AccountService accountService, StatusService statusService) {
+    public UpdateActivityHandler(AccountService accountService, StatusService statusService,
+                                 PublicKeyResolver publicKeyResolver) {
         this.accountService = accountService;
         this.statusService = statusService;
+        this.publicKeyResolver = publicKeyResolver;
     }
 
     @Override
@@ -119,6 +123,10 @@ public class UpdateActivityHandler implements ActivityHandler {
             JsonNode publicKey = actorNode.get("publicKey");
             if (publicKey.has("publicKeyPem")) {
                 actor.setPublicKeyPem(publicKey.get("publicKeyPem").asText());
+                // Drop the parsed key so the next signature check uses the rotated one
+                if (publicKey.has("id")) {
+                    publicKeyResolver.invalidate(publicKey.get("id").asText(), actorId);
+                }
             }
         }
 
@@ -0,0 +1,12 @@
+package org.joinmastodon.federation.model;
+
+/**
+ * The routing fields of an inbound activity, read without building a JSON tree.
+ *
+ * @param type the activity {@code type}
+ * @param id the activity {@code id}, may be null
+ * @param actor the activity {@code actor} (or the actor object's {@code id})
+ * @param objectId the {@code object} reference (or the embedded object's {@code id}), may be null
+ */
+public record ActivityHeader(String type, String id, String actor, String objectId) {
+}
@@ -0,0 +1,28 @@
+package org.joinmastodon.federation.model;
+
+import java.util.Map;
+
+/**
+ * A received inbox request as stored in the ingestion queue.
+ * Holds everything needed to verify and dispatch the activity later.
+ *
+ * @param body the raw request body (UTF-8)
+ * @param headers request headers with lower-cased names
+ * @param method the HTTP method
+ * @param path the request path, used as the signature request-target
+ * @param recipientUsername the local recipient for user inboxes, null for the shared inbox
+ * @param actorUrl the activity actor, used for per-actor ordering
+ * @param activityType the activity {@code type}
+ * @param activityId the activity {@code id}, used for deduplication
+ * @param receivedAt when the request was accepted, in epoch milliseconds
+ */
+public record InboxEnvelope(String body,
+                            Map<String, String> headers,
+                            String method,
+                            String path,
+                            String recipientUsername,
+                            String actorUrl,
+                            String activityType,
+                            String activityId,
+                            long receivedAt) {
+}
@@ -0,0 +1,117 @@
+package org.joinmastodon.federation.service;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import org.joinmastodon.activitypub.signature.PemUtils;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.AccountKey;
+import org.joinmastodon.core.repository.AccountKeyRepository;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Signing keys of local accounts. Each account gets an RSA key for draft-cavage signatures
+ * and an Ed25519 key for RFC 9421 signatures, generated on first use and stored in
+ * {@code account_keys}. Parsed keys are cached, so repeated deliveries reuse the same key
+ * objects and with them the signer's per-thread {@link java.security.Signature} instances.
+ */
+@Service
+public class AccountKeyService {
+    private final AccountKeyRepository accountKeyRepository;
+    private final FederationProperties properties;
+    private final LruCache<String, SigningKey> keys;
+    private final SigningKey instanceKey;
+
+    public AccountKeyService(AccountKeyRepository accountKeyRepository,
+                             FederationKeyService federationKeyService,
+                             FederationProperties properties) {
+        this.accountKeyRepository = accountKeyRepository;
+        this.properties = properties;
+        this.keys = new LruCache<>(properties.getSigningKeyCacheSize(), null);
+        FederationKeys federationKeys = federationKeyService.getFederationKeys();
+        this.instanceKey = new SigningKey(federationKeys.getKeyId(), federationKeys.getPrivateKey(),
+                federationKeys.getPublicKey(), federationKeyService.getPublicKeyPem());
+    }
+
+    /**
+     * The instance actor's key, used when there is no sending account.
+     */
+    public SigningKey instanceKey() {
+        return instanceKey;
+    }
+
+    /**
+     * The account's RSA key, published as the actor's {@code publicKey}.
+     */
+    public SigningKey rsaKey(Account account) {
+        return key(account, AccountKey.Algorithm.RSA);
+    }
+
+    /**
+     * The account's Ed25519 key, published as a Multikey {@code assertionMethod}.
+     */
+    public SigningKey ed25519Key(Account account) {
+        return key(account, AccountKey.Algorithm.ED25519);
+    }
+
+    private SigningKey key(Account account, AccountKey.Algorithm algorithm) {
+        String cacheKey = account.getId() + ":" + algorithm;
+        SigningKey cached = keys.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        AccountKey stored = accountKeyRepository.findByAccountIdAndAlgorithm(account.getId(), algorithm)
+                .orElseGet(() -> generate(account, algorithm));
+        SigningKey key = parse(account, stored);
+        keys.put(cacheKey, key);
+        return key;
+    }
+
+    private AccountKey generate(Account account, AccountKey.Algorithm algorithm) {
+        KeyPair keyPair = generateKeyPair(algorithm);
+        AccountKey accountKey = new AccountKey();
+        accountKey.setAccountId(account.getId());
+        accountKey.setAlgorithm(algorithm);
+        accountKey.setPublicKeyPem(PemUtils.toPublicKeyPem(keyPair.getPublic()));
+        accountKey.setPrivateKeyPem(PemUtils.toPrivateKeyPem(keyPair.getPrivate()));
+        try {
+            return accountKeyRepository.save(accountKey);
+        } catch (DataIntegrityViolationException e) {
+            // Another node generated the key first
+            return accountKeyRepository.findByAccountIdAndAlgorithm(account.getId(), algorithm)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private SigningKey parse(Account account, AccountKey accountKey) {
+        String jcaAlgorithm = jcaAlgorithm(accountKey.getAlgorithm());
+        PrivateKey privateKey = PemUtils.parsePrivateKey(accountKey.getPrivateKeyPem(), jcaAlgorithm);
+        PublicKey publicKey = PemUtils.parsePublicKey(accountKey.getPublicKeyPem(), jcaAlgorithm);
+        String fragment = accountKey.getAlgorithm() == AccountKey.Algorithm.RSA ? "#main-key" : "#ed25519-key";
+        return new SigningKey(actorId(account) + fragment, privateKey, publicKey, accountKey.getPublicKeyPem());
+    }
+
+    private String actorId(Account account) {
+        return properties.getBaseUrl().replaceAll("/$", "") + "/users/" + account.getUsername();
+    }
+
+    private static KeyPair generateKeyPair(AccountKey.Algorithm algorithm) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(jcaAlgorithm(algorithm));
+            if (algorithm == AccountKey.Algorithm.RSA) {
+                generator.initialize(2048);
+            }
+            return generator.generateKeyPair();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to generate " + algorithm + " key pair", ex);
+        }
+    }
+
+    private static String jcaAlgorithm(AccountKey.Algorithm algorithm) {
+        return algorithm == AccountKey.Algorithm.RSA ? "RSA" : "Ed25519";
+    }
+}
@@ -0,0 +1,116 @@
+package org.joinmastodon.federation.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joinmastodon.federation.cache.BloomFilter;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers recently processed activity ids so re-deliveries (shared inbox plus user
+ * inboxes, relays) are dropped before signature verification and database work.
+ * <p>
+ * A Bloom filter answers the common "never seen" case without taking a lock; hits are
+ * confirmed against an exact LRU. The filter cannot forget, so it is rebuilt once it
+ * has absorbed as many ids as the LRU holds, keeping the previous generation for lookups.
+ * <p>
+ * Workers claim an id with {@link #tryMark} before verifying it, so two deliveries of one
+ * activity processed at the same time cannot both get through; the claim is released if
+ * the delivery turns out to be forged or fails, so the genuine one is still accepted later.
+ */
+@Service
+public class ActivityDeduplicator {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final int capacity;
+    private final LruCache<String, Boolean> recent;
+    private final AtomicInteger insertions = new AtomicInteger();
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    public ActivityDeduplicator(FederationProperties properties) {
+        this.capacity = properties.getInboxDedupCapacity();
+        this.recent = new LruCache<>(capacity, properties.getInboxDedupTtl());
+        this.current = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        this.previous = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Check whether an activity id has already been processed.
+     *
+     * @param activityId the activity {@code id}, may be null
+     * @return true if the activity was seen recently
+     */
+    public boolean isDuplicate(String activityId) {
+        if (activityId == null || activityId.isBlank()) {
+            return false;
+        }
+        if (!current.mightContain(activityId) && !previous.mightContain(activityId)) {
+            return false;
+        }
+        return recent.get(activityId) != null;
+    }
+
+    /**
+     * Record an activity id once it has been verified and dispatched.
+     * Ids are only recorded after verification so a forged delivery cannot
+     * suppress the genuine one.
+     *
+     * @param activityId the activity {@code id}, may be null
+     */
+    public void markProcessed(String activityId) {
+        if (activityId == null || activityId.isBlank()) {
+            return;
+        }
+        recent.put(activityId, Boolean.TRUE);
+        remember(activityId);
+    }
+
+    /**
+     * Claim an activity id for processing. Only one caller gets the claim until it is
+     * released or expires; it must be released with {@link #release} if the activity
+     * is not processed after all.
+     *
+     * @param activityId the activity {@code id}, may be null
+     * @return false if the id was already claimed or processed; true for activities without an id
+     */
+    public boolean tryMark(String activityId) {
+        if (activityId == null || activityId.isBlank()) {
+            return true;
+        }
+        if (recent.putIfAbsent(activityId, Boolean.TRUE) != null) {
+            return false;
+        }
+        remember(activityId);
+        return true;
+    }
+
+    /**
+     * Give up a claim taken with {@link #tryMark}, so a later delivery of the activity is processed.
+     *
+     * @param activityId the activity {@code id}, may be null
+     */
+    public void release(String activityId) {
+        if (activityId == null || activityId.isBlank()) {
+            return;
+        }
+        // The Bloom filters keep the id, but every hit is confirmed against the LRU
+        recent.invalidate(activityId);
+    }
+
+    private void remember(String activityId) {
+        if (insertions.incrementAndGet() >= capacity) {
+            rotate();
+        }
+        current.put(activityId);
+    }
+
+    private synchronized void rotate() {
+        if (insertions.get() < capacity) {
+            return;
+        }
+        previous = current;
+        current = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        insertions.set(0);
+    }
+}
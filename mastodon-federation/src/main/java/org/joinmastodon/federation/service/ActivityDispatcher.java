@@ -1,8 +1,22 @@
 package org.joinmastodon.federation.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.joinmastodon.activitypub.model.ActivityType;
 import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.federation.config.FederationProperties;
 import org.joinmastodon.federation.handler.AcceptActivityHandler;
 import org.joinmastodon.federation.handler.AnnounceActivityHandler;
 import org.joinmastodon.federation.handler.CreateActivityHandler;
@@ -14,11 +28,18 @@ import org.joinmastodon.federation.handler.UndoActivityHandler;
 import org.joinmastodon.federation.handler.UpdateActivityHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 /**
  * Dispatches incoming ActivityPub activities to appropriate handlers.
  * Central routing service for all incoming federation activities.
+ * <p>
+ * {@link #submit} spreads activities over a fixed set of partitions keyed by the URI of
+ * the activity's object. Each partition runs its activities one at a time, in submission
+ * order, on a virtual thread, so a Create, Update, Delete or Undo for the same object is
+ * never reordered while unrelated objects are handled concurrently. Each partition has a
+ * bounded queue; a full partition rejects new work so the caller can retry later.
  */
 @Service
 public class ActivityDispatcher {
@@ -33,6 +54,11 @@ public class ActivityDispatcher {
     private final LikeActivityHandler likeActivityHandler;
     private final DeleteActivityHandler deleteActivityHandler;
     private final UpdateActivityHandler updateActivityHandler;
+    private final ThreadPoolExecutor[] partitions;
+    private final MeterRegistry meterRegistry;
+    private final Map<ActivityType, Timer> successTimers = new EnumMap<>(ActivityType.class);
+    private final Map<ActivityType, Timer> errorTimers = new EnumMap<>(ActivityType.class);
+    private final Map<ActivityType, Counter> rejectedCounters = new EnumMap<>(ActivityType.class);
 
     public ActivityDispatcher(FollowActivityHandler followActivityHandler,
                               AcceptActivityHandler acceptActivityHandler,
@@ -42,7 +68,9 @@ public class ActivityDispatcher {
                               AnnounceActivityHandler announceActivityHandler,
                               LikeActivityHandler likeActivityHandler,
                               DeleteActivityHandler deleteActivityHandler,
-                              UpdateActivityHandler updateActivityHandler) {
+                              UpdateActivityHandler updateActivityHandler,
+                              FederationProperties properties,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
         this.followActivityHandler = followActivityHandler;
         this.acceptActivityHandler = acceptActivityHandler;
         this.rejectActivityHandler = rejectActivityHandler;
@@ -52,6 +80,52 @@ public class ActivityDispatcher {
         this.likeActivityHandler = likeActivityHandler;
         this.deleteActivityHandler = deleteActivityHandler;
         this.updateActivityHandler = updateActivityHandler;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+
+        int partitionCount = Math.max(1, properties.getDispatchPartitions());
+        int queueCapacity = Math.max(1, properties.getDispatchQueueCapacity());
+        this.partitions = new ThreadPoolExecutor[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    Thread.ofVirtual().name("activity-dispatch-" + i + "-", 0).factory());
+        }
+        // Meters are registered up front so the dispatch path only does map lookups
+        for (ActivityType type : ActivityType.values()) {
+            successTimers.put(type, dispatchTimer(type, "success"));
+            errorTimers.put(type, dispatchTimer(type, "error"));
+            rejectedCounters.put(type, Counter.builder("federation.activities.rejected")
+                    .description("Inbound activities rejected because their dispatch partition was full")
+                    .tag("type", type.name())
+                    .register(this.meterRegistry));
+        }
+        Gauge.builder("federation.dispatch.queued", this, ActivityDispatcher::queuedCount)
+                .description("Activities waiting in dispatch partitions")
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Queue an activity on the partition for its ordering key.
+     *
+     * @param orderingKey the object URI the activity applies to; activities with the same key
+     *                    are dispatched in submission order (null falls back to the first partition)
+     * @param activityJson the raw activity JSON
+     * @param activityType the parsed activity type
+     * @param actor the remote actor who sent the activity (may be null if fetch failed)
+     * @param localRecipient the local recipient (for user-specific inbox, null for shared inbox)
+     * @return a future completed once the activity has been dispatched, or failed with
+     *         {@link RejectedExecutionException} if the partition is full
+     */
+    public CompletableFuture<Void> submit(String orderingKey, JsonNode activityJson, ActivityType activityType,
+                                          Account actor, Account localRecipient) {
+        try {
+            return CompletableFuture.runAsync(
+                    () -> dispatch(activityJson, activityType, actor, localRecipient),
+                    partitionFor(orderingKey));
+        } catch (RejectedExecutionException e) {
+            rejectedCounters.get(activityType).increment();
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     /**
@@ -66,6 +140,8 @@ public class ActivityDispatcher {
         log.debug("Dispatching activity type: {} from actor: {}", activityType, 
                 actor != null ? actor.getAcct() : "unknown");
 
+        long start = System.nanoTime();
+        boolean failed = false;
         try {
             switch (activityType) {
                 case FOLLOW -> followActivityHandler.handle(activityJson, actor, localRecipient);
@@ -84,8 +160,39 @@ public class ActivityDispatcher {
                 default -> log.warn("Unhandled activity type: {}", activityType);
             }
         } catch (Exception e) {
+            failed = true;
             log.error("Error handling activity type {}: {}", activityType, e.getMessage(), e);
             // Don't rethrow - we've already accepted the activity
+        } finally {
+            (failed ? errorTimers : successTimers).get(activityType).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ThreadPoolExecutor partitionFor(String orderingKey) {
+        int hash = orderingKey == null ? 0 : orderingKey.hashCode();
+        return partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)];
+    }
+
+    private Timer dispatchTimer(ActivityType type, String outcome) {
+        return Timer.builder("federation.activities.dispatched")
+                .description("Time spent handling inbound activities")
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private double queuedCount() {
+        long queued = 0;
+        for (ThreadPoolExecutor partition : partitions) {
+            queued += partition.getQueue().size();
+        }
+        return queued;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
         }
     }
 }
@@ -0,0 +1,104 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import org.joinmastodon.federation.model.ActivityHeader;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads {@code type}, {@code id}, {@code actor} and {@code object.id} from an inbound
+ * activity with the streaming parser. Everything else is skipped token by token, so the
+ * whole document is still checked for well-formedness without allocating a tree.
+ */
+@Component
+public class ActivityHeaderParser {
+    private final JsonFactory jsonFactory;
+
+    public ActivityHeaderParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Parse the routing fields of an activity.
+     *
+     * @param body the raw request body
+     * @return the header, or null if the body is not a single JSON object
+     * @throws IOException if the body is not well-formed JSON
+     */
+    public ActivityHeader parse(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String type = null;
+            String id = null;
+            String actor = null;
+            String objectId = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type" -> type = firstString(parser, value);
+                    case "id" -> id = scalar(parser, value);
+                    case "actor" -> actor = reference(parser, value);
+                    case "object" -> objectId = reference(parser, value);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                return null;
+            }
+            return new ActivityHeader(type, id, actor, objectId);
+        }
+    }
+
+    private static String scalar(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * {@code type} may be a string or an array of strings; the first string wins.
+     */
+    private static String firstString(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            return scalar(parser, value);
+        }
+        String first = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (first == null && token == JsonToken.VALUE_STRING) {
+                first = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return first;
+    }
+
+    /**
+     * A reference is either a URI string or an embedded object carrying an {@code id}.
+     */
+    private static String reference(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            return scalar(parser, value);
+        }
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken nested = parser.nextToken();
+            if (id == null && "id".equals(field)) {
+                id = scalar(parser, nested);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+}
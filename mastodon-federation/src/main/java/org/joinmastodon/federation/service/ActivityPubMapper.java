@@ -3,12 +3,14 @@ package org.joinmastodon.federation.service;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import org.joinmastodon.activitypub.model.ActivityPubContext;
 import org.joinmastodon.activitypub.model.Actor;
 import org.joinmastodon.activitypub.model.Create;
 import org.joinmastodon.activitypub.model.MediaLink;
 import org.joinmastodon.activitypub.model.Note;
 import org.joinmastodon.activitypub.model.OrderedCollection;
 import org.joinmastodon.activitypub.model.PublicKey;
+import org.joinmastodon.activitypub.signature.MultikeyUtils;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.federation.config.FederationProperties;
@@ -19,15 +21,16 @@ public class ActivityPubMapper {
     private static final List<String> PUBLIC_TO = List.of("https://www.w3.org/ns/activitystreams#Public");
 
     private final FederationProperties properties;
-    private final FederationKeyService keyService;
+    private final AccountKeyService accountKeyService;
 
-    public ActivityPubMapper(FederationProperties properties, FederationKeyService keyService) {
+    public ActivityPubMapper(FederationProperties properties, AccountKeyService accountKeyService) {
         this.properties = properties;
-        this.keyService = keyService;
+        this.accountKeyService = accountKeyService;
     }
 
     public Actor toActor(Account account) {
         Actor actor = new Actor();
+        actor.setContext(ActivityPubContext.ACTOR);
         String baseUrl = properties.getBaseUrl().replaceAll("/$", "");
         String actorId = baseUrl + "/users/" + account.getUsername();
         actor.setId(actorId);
@@ -45,8 +48,14 @@ public class ActivityPubMapper {
         if (account.getHeaderUrl() != null) {
             actor.setImage(new MediaLink("Image", null, account.getHeaderUrl()));
         }
-        String keyId = keyService.getFederationKeys().getKeyId();
-        actor.setPublicKey(new PublicKey(keyId, actorId, keyService.getPublicKeyPem()));
+        SigningKey rsaKey = accountKeyService.rsaKey(account);
+        actor.setPublicKey(new PublicKey(rsaKey.keyId(), actorId, rsaKey.publicKeyPem()));
+        SigningKey ed25519Key = accountKeyService.ed25519Key(account);
+        actor.setAssertionMethod(List.of(Map.of(
+                "id", ed25519Key.keyId(),
+                "type", "Multikey",
+                "controller", actorId,
+                "publicKeyMultibase", MultikeyUtils.toEd25519Multibase(ed25519Key.publicKey()))));
         actor.setEndpoints(Map.of("sharedInbox", baseUrl + "/inbox"));
         return actor;
     }
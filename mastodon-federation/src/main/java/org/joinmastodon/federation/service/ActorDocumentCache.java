@@ -0,0 +1,107 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.util.Locale;
+import java.util.Optional;
+import org.joinmastodon.core.event.AccountChangedEvent;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.cache.CachedDocument;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pre-serialized actor documents and WebFinger JRDs for local accounts.
+ * Entries are dropped when the account is saved; the TTL bounds how long a document
+ * rendered concurrently with an update can outlive it. The instance key pair is
+ * loaded once at startup, so a key rotation starts with an empty cache.
+ */
+@Service
+public class ActorDocumentCache {
+    private final AccountService accountService;
+    private final ActivityPubMapper activityPubMapper;
+    private final WebFingerService webFingerService;
+    private final ObjectMapper objectMapper;
+    private final FederationProperties properties;
+    private final LruCache<String, CachedDocument> actors;
+    private final LruCache<String, CachedDocument> webFingers;
+
+    public ActorDocumentCache(AccountService accountService,
+                              ActivityPubMapper activityPubMapper,
+                              WebFingerService webFingerService,
+                              ObjectMapper objectMapper,
+                              FederationProperties properties) {
+        this.accountService = accountService;
+        this.activityPubMapper = activityPubMapper;
+        this.webFingerService = webFingerService;
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.properties = properties;
+        this.actors = new LruCache<>(properties.getActorCacheSize(), properties.getActorCacheTtl());
+        this.webFingers = new LruCache<>(properties.getActorCacheSize(), properties.getActorCacheTtl());
+    }
+
+    /**
+     * Get the serialized actor document for a local username.
+     *
+     * @param username the local username
+     * @return the document, or empty if there is no such local account
+     */
+    public Optional<CachedDocument> actor(String username) {
+        CachedDocument cached = actors.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return accountService.findLocalAccountByUsername(username)
+                .map(account -> {
+                    CachedDocument document = serialize(activityPubMapper.toActor(account));
+                    actors.put(username, document);
+                    return document;
+                });
+    }
+
+    /**
+     * Get the serialized WebFinger JRD for a resource.
+     *
+     * @param resource the WebFinger resource, {@code acct:user@domain} or an actor URL
+     * @return the document, or empty if the resource does not resolve
+     */
+    public Optional<CachedDocument> webFinger(String resource) {
+        if (resource == null) {
+            return Optional.empty();
+        }
+        String key = resource.toLowerCase(Locale.ROOT);
+        CachedDocument cached = webFingers.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return webFingerService.resolve(resource)
+                .map(response -> {
+                    CachedDocument document = serialize(response);
+                    webFingers.put(key, document);
+                    return document;
+                });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        if (!event.localAccount() || event.username() == null) {
+            return;
+        }
+        actors.invalidate(event.username());
+        // A JRD is cached under each resource form it was requested by
+        webFingers.invalidate(("acct:" + event.username() + "@" + properties.getDomain()).toLowerCase(Locale.ROOT));
+        webFingers.invalidate((properties.getBaseUrl().replaceAll("/$", "") + "/users/" + event.username())
+                .toLowerCase(Locale.ROOT));
+    }
+
+    private CachedDocument serialize(Object document) {
+        try {
+            return CachedDocument.of(objectMapper.writeValueAsBytes(document));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize " + document.getClass().getSimpleName(), e);
+        }
+    }
+}
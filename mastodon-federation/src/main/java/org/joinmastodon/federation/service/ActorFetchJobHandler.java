@@ -0,0 +1,45 @@
+package org.joinmastodon.federation.service;
+
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobHandler;
+import org.joinmastodon.jobs.JobQueueSettings;
+import org.joinmastodon.jobs.JobType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fetches remote actors requested through {@link DeferredActorFetcher}. Fetches are network
+ * bound, so many run at once on the job runtime's virtual threads.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.federation.relay.workers.enabled", havingValue = "true", matchIfMissing = true)
+public class ActorFetchJobHandler implements JobHandler<String> {
+    private static final int CONCURRENCY = 20;
+
+    private final RemoteActorService remoteActorService;
+    private final FederationProperties properties;
+
+    public ActorFetchJobHandler(RemoteActorService remoteActorService, FederationProperties properties) {
+        this.remoteActorService = remoteActorService;
+        this.properties = properties;
+    }
+
+    @Override
+    public JobType<String> type() {
+        return FederationJobQueues.ACTOR_FETCH_JOB;
+    }
+
+    @Override
+    public void handle(String actorUrl, Job job) {
+        if (remoteActorService.fetchAndStore(actorUrl).isEmpty()) {
+            throw new IllegalStateException("Actor could not be fetched");
+        }
+    }
+
+    @Override
+    public JobQueueSettings settings() {
+        return new JobQueueSettings(CONCURRENCY, CONCURRENCY, properties.getInboxPollInterval(),
+                properties.getInboxLockTimeout());
+    }
+}
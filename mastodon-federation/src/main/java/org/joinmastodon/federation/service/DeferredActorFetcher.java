@@ -0,0 +1,42 @@
+package org.joinmastodon.federation.service;
+
+import java.time.Duration;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.jobs.JobClient;
+import org.joinmastodon.jobs.JobOptions;
+import org.springframework.stereotype.Service;
+
+/**
+ * Schedules remote actor fetches as background jobs instead of fetching inline.
+ * Relay ingest uses this so one unknown author never stalls a whole batch; the activity
+ * is retried once {@link ActorFetchJobHandler} has stored the actor. The actor URL is the
+ * job's unique key, so nodes requesting the same actor share one fetch.
+ */
+@Service
+public class DeferredActorFetcher {
+    private final JobClient jobClient;
+    private final LruCache<String, Boolean> requested;
+
+    public DeferredActorFetcher(JobClient jobClient, FederationProperties properties) {
+        this.jobClient = jobClient;
+        // Remember requests for as long as the activities waiting on them are parked
+        Duration window = properties.getRelayActorRetryDelay();
+        this.requested = new LruCache<>(10_000, window.isZero() ? Duration.ofMinutes(1) : window);
+    }
+
+    /**
+     * Request a fetch of the actor unless one was requested recently.
+     *
+     * @return true if a fetch job was enqueued; false if one was requested recently by this
+     *         node or is already pending
+     */
+    public boolean request(String actorUrl) {
+        if (actorUrl == null || requested.get(actorUrl) != null) {
+            return false;
+        }
+        requested.put(actorUrl, Boolean.TRUE);
+        return jobClient.enqueue(FederationJobQueues.ACTOR_FETCH_JOB, actorUrl,
+                JobOptions.DEFAULT.withUniqueKey(actorUrl)).isPresent();
+    }
+}
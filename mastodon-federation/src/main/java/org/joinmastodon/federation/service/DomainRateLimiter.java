@@ -0,0 +1,71 @@
+package org.joinmastodon.federation.service;
+
+import java.time.Duration;
+import java.util.Locale;
+import org.joinmastodon.federation.cache.LruCache;
+
+/**
+ * Spaces outbound requests to each remote domain evenly, allowing a small burst.
+ * Callers reserve the next free slot and sleep until it, so waiting requests are
+ * served in arrival order; a caller that would wait longer than the limit gives up.
+ * Only the most recently used domains keep their slot; a domain that was dropped
+ * starts over with a full burst.
+ */
+public class DomainRateLimiter {
+    private static final int MAX_DOMAINS = 10_000;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long maxWaitNanos;
+    private final LruCache<String, Slot> slots = new LruCache<>(MAX_DOMAINS, null);
+
+    /**
+     * @param requestsPerSecond sustained requests per domain
+     * @param burst requests allowed back to back after an idle period
+     * @param maxWait longest a caller will wait for a slot
+     */
+    public DomainRateLimiter(double requestsPerSecond, int burst, Duration maxWait) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive");
+        }
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Wait for a request slot for a domain.
+     *
+     * @param domain the remote domain
+     * @return true once a slot is available, false if it would take longer than the maximum wait
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean acquire(String domain) throws InterruptedException {
+        long wait = slots.computeIfAbsent(domain.toLowerCase(Locale.ROOT), d -> new Slot()).reserve();
+        if (wait < 0) {
+            return false;
+        }
+        if (wait > 0) {
+            Thread.sleep(Duration.ofNanos(wait));
+        }
+        return true;
+    }
+
+    private final class Slot {
+        private long nextFree = System.nanoTime();
+
+        /**
+         * @return nanoseconds to wait for the reserved slot, or -1 if over the limit
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            long start = Math.max(nextFree, now - burstNanos);
+            long wait = start - now;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            nextFree = start + intervalNanos;
+            return Math.max(0, wait);
+        }
+    }
+}
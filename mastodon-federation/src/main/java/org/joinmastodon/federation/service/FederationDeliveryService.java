@@ -2,8 +2,10 @@ package org.joinmastodon.federation.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.joinmastodon.activitypub.signature.DigestUtils;
+import org.joinmastodon.activitypub.signature.HttpMessageSigner;
 import org.joinmastodon.activitypub.signature.HttpSignatureSigner;
 import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.DomainPolicyIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Async;
@@ -13,31 +15,48 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Service for delivering ActivityPub activities to remote inboxes.
  * Handles HTTP signing, retries, and delivery queue management.
+ * <p>
+ * Requests are signed with the sending account's own key. Hosts that have advertised RFC 9421
+ * Ed25519 signatures get those; all others get draft-cavage RSA signatures.
  */
 @Service
 public class FederationDeliveryService {
     private static final Logger log = LoggerFactory.getLogger(FederationDeliveryService.class);
 
+    private static final List<String> SIGNED_HEADERS = List.of("(request-target)", "host", "date", "digest");
+
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
-    private final FederationKeyService keyService;
+    private final AccountKeyService accountKeyService;
+    private final RemoteSignatureSupport signatureSupport;
     private final HttpSignatureSigner signatureSigner;
+    private final HttpMessageSigner messageSigner;
+    private final DomainPolicyIndex domainPolicyIndex;
 
     public FederationDeliveryService(HttpClient httpClient,
                                      ObjectMapper objectMapper,
-                                     FederationKeyService keyService) {
+                                     AccountKeyService accountKeyService,
+                                     RemoteSignatureSupport signatureSupport,
+                                     DomainPolicyIndex domainPolicyIndex) {
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
-        this.keyService = keyService;
+        this.accountKeyService = accountKeyService;
+        this.signatureSupport = signatureSupport;
+        this.domainPolicyIndex = domainPolicyIndex;
         this.signatureSigner = new HttpSignatureSigner();
+        this.messageSigner = new HttpMessageSigner();
     }
 
     /**
@@ -50,6 +69,10 @@ public class FederationDeliveryService {
      */
     @Async
     public void deliver(Object activity, String inboxUrl, Account sender) {
+        if (isBlocked(inboxUrl)) {
+            log.debug("Skipping delivery to blocked domain: {}", inboxUrl);
+            return;
+        }
         try {
             String json = objectMapper.writeValueAsString(activity);
             deliverWithRetry(json, inboxUrl, sender, 0);
@@ -68,21 +91,56 @@ public class FederationDeliveryService {
      */
     @Async
     public void deliverToMany(Object activity, List<String> inboxUrls, Account sender) {
-        for (String inboxUrl : inboxUrls) {
+        for (String inboxUrl : deliverableInboxes(inboxUrls)) {
             deliver(activity, inboxUrl, sender);
         }
     }
 
+    /**
+     * Drop inboxes on blocked domains from a delivery plan.
+     *
+     * @param inboxUrls candidate inbox URLs
+     * @return the inboxes that may receive deliveries, in their original order
+     */
+    public List<String> deliverableInboxes(List<String> inboxUrls) {
+        List<String> deliverable = new ArrayList<>(inboxUrls.size());
+        for (String inboxUrl : inboxUrls) {
+            if (isBlocked(inboxUrl)) {
+                log.debug("Skipping delivery to blocked domain: {}", inboxUrl);
+            } else {
+                deliverable.add(inboxUrl);
+            }
+        }
+        return deliverable;
+    }
+
+    private boolean isBlocked(String inboxUrl) {
+        try {
+            return domainPolicyIndex.isBlocked(URI.create(inboxUrl).getHost());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     /**
      * Deliver a pre-serialized activity JSON with retry logic.
      */
     private void deliverWithRetry(String json, String inboxUrl, Account sender, int attempt) {
         try {
-            // Build the HTTP request
-            HttpRequest request = buildSignedRequest(json, inboxUrl, sender);
-
-            // Send the request
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            URI inbox = URI.create(inboxUrl);
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            boolean ed25519 = signatureSupport.supportsEd25519(inbox.getHost());
+
+            // Build and send the signed request
+            HttpResponse<String> response = send(buildSignedRequest(body, inbox, sender, ed25519));
+            boolean changed = signatureSupport.record(inbox.getHost(),
+                    response.headers().firstValue("Accept-Signature").orElse(null));
+
+            // A rejection that advertises a scheme we did not use gets one immediate retry with it
+            if (response.statusCode() == 401 && changed && sender != null
+                    && signatureSupport.supportsEd25519(inbox.getHost()) != ed25519) {
+                response = send(buildSignedRequest(body, inbox, sender, !ed25519));
+            }
 
             if (response.statusCode() >= 200 && response.statusCode() < 300) {
                 log.debug("Successfully delivered activity to {} (status {})", inboxUrl, response.statusCode());
@@ -130,45 +188,43 @@ public class FederationDeliveryService {
         }
     }
 
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
     /**
      * Build a signed HTTP POST request for ActivityPub delivery.
      */
-    private HttpRequest buildSignedRequest(String json, String inboxUrl, Account sender) throws Exception {
-        // Calculate digest
-        String digest = DigestUtils.sha256Digest(json);
-
-        // Build headers map for signing
-        String date = Instant.now().toString();
-        String host = URI.create(inboxUrl).getHost();
-
-        Map<String, String> headers = Map.of(
-                "host", host,
-                "date", date,
-                "digest", digest,
-                "content-type", "application/activity+json"
-        );
-
-        // Sign the request
-        String keyId = keyService.getFederationKeys().getKeyId();
-        var keys = keyService.getFederationKeys();
-        String signature = signatureSigner.sign(
-                keyId,
-                keys.getPrivateKey(),
-                "post",
-                URI.create(inboxUrl).getPath(),
-                headers,
-                List.of("(request-target)", "host", "date", "digest")
-        );
-
-        // Build the HTTP request
-        return HttpRequest.newBuilder()
-                .uri(URI.create(inboxUrl))
+    private HttpRequest buildSignedRequest(byte[] body, URI inbox, Account sender, boolean ed25519) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(inbox)
                 .header("Content-Type", "application/activity+json")
                 .header("Accept", "application/activity+json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+
+        if (ed25519 && sender != null) {
+            SigningKey key = accountKeyService.ed25519Key(sender);
+            String contentDigest = DigestUtils.buildContentDigestHeader(body);
+            HttpMessageSigner.SignatureHeaders signature = messageSigner.sign(key.keyId(), key.privateKey(),
+                    "POST", inbox, contentDigest, Instant.now().getEpochSecond());
+            return builder
+                    .header("Content-Digest", contentDigest)
+                    .header("Signature-Input", signature.signatureInput())
+                    .header("Signature", signature.signature())
+                    .build();
+        }
+
+        SigningKey key = sender != null ? accountKeyService.rsaKey(sender) : accountKeyService.instanceKey();
+        String digest = DigestUtils.buildDigestHeader(body);
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.now().atOffset(ZoneOffset.UTC));
+        String host = inbox.getPort() == -1 ? inbox.getHost() : inbox.getHost() + ":" + inbox.getPort();
+        String path = inbox.getRawQuery() == null ? inbox.getRawPath() : inbox.getRawPath() + "?" + inbox.getRawQuery();
+        String signature = signatureSigner.sign(key.keyId(), key.privateKey(), "post", path,
+                Map.of("host", host, "date", date, "digest", digest), SIGNED_HEADERS);
+        return builder
                 .header("Date", date)
                 .header("Digest", digest)
                 .header("Signature", signature)
-                .POST(HttpRequest.BodyPublishers.ofString(json))
                 .build();
     }
 
@@ -181,6 +237,10 @@ public class FederationDeliveryService {
      * @param senderId the local account ID sending the activity
      */
     public void queueDelivery(Object activity, String inboxUrl, Long senderId) {
+        if (isBlocked(inboxUrl)) {
+            log.debug("Not queuing delivery to blocked domain: {}", inboxUrl);
+            return;
+        }
         // This would integrate with the mastodon-jobs module
         // For now, we deliver immediately
         log.debug("Queuing delivery to {} for sender {}", inboxUrl, senderId);
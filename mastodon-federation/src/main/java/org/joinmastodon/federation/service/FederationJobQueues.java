@@ -0,0 +1,17 @@
+package org.joinmastodon.federation.service;
+
+import org.joinmastodon.jobs.JobType;
+
+public final class FederationJobQueues {
+    public static final String INBOX = "federation-inbox";
+    public static final String RELAY = "federation-relay";
+    public static final String ACTOR_FETCH = "federation-actor-fetch";
+
+    /**
+     * Payload is the actor URL.
+     */
+    public static final JobType<String> ACTOR_FETCH_JOB = JobType.of(ACTOR_FETCH, String.class);
+
+    private FederationJobQueues() {
+    }
+}
@@ -0,0 +1,226 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.joinmastodon.activitypub.model.ActivityType;
+import org.joinmastodon.activitypub.signature.HttpSignature;
+import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Processes queued inbox requests: verifies the HTTP signature, resolves the actor
+ * and dispatches the activity. Runs on inbox worker threads, never on request threads.
+ */
+@Service
+public class InboxProcessor {
+    private static final Logger log = LoggerFactory.getLogger(InboxProcessor.class);
+
+    private final AccountService accountService;
+    private final RemoteActorService remoteActorService;
+    private final ActivityDispatcher activityDispatcher;
+    private final HttpSignatureVerifier signatureVerifier;
+    private final PublicKeyResolver publicKeyResolver;
+    private final SignatureVerificationCache verificationCache;
+    private final ActivityDeduplicator deduplicator;
+    private final FederationProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public InboxProcessor(AccountService accountService,
+                          RemoteActorService remoteActorService,
+                          ActivityDispatcher activityDispatcher,
+                          HttpSignatureVerifier signatureVerifier,
+                          PublicKeyResolver publicKeyResolver,
+                          SignatureVerificationCache verificationCache,
+                          ActivityDeduplicator deduplicator,
+                          FederationProperties properties,
+                          ObjectMapper objectMapper) {
+        this.accountService = accountService;
+        this.remoteActorService = remoteActorService;
+        this.activityDispatcher = activityDispatcher;
+        this.signatureVerifier = signatureVerifier;
+        this.publicKeyResolver = publicKeyResolver;
+        this.verificationCache = verificationCache;
+        this.deduplicator = deduplicator;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Verify a queued inbox request and hand it to the dispatcher.
+     * Requests that fail verification are dropped rather than retried.
+     * <p>
+     * Verification and actor resolution happen on the calling thread, so callers that
+     * process one actor's requests in order also submit them to the dispatcher in order.
+     *
+     * @param envelope the queued request
+     * @return a future completed once the activity has been dispatched or dropped
+     * @throws Exception if the body cannot be parsed
+     */
+    public CompletableFuture<Void> process(InboxEnvelope envelope) throws Exception {
+        ActivityType activityType = ActivityType.fromString(envelope.activityType());
+        if (activityType == null) {
+            log.warn("Dropping queued activity with unknown type: {}", envelope.activityType());
+            return CompletableFuture.completedFuture(null);
+        }
+        String actorUrl = envelope.actorUrl();
+
+        // The same activity may have been queued through several inboxes; the first to claim it wins
+        String activityId = envelope.activityId();
+        if (!deduplicator.tryMark(activityId)) {
+            log.debug("Dropping duplicate activity: {}", activityId);
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return verifyAndDispatch(envelope, activityType, actorUrl)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            deduplicator.release(activityId);
+                        }
+                    });
+        } catch (Exception e) {
+            deduplicator.release(activityId);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> verifyAndDispatch(InboxEnvelope envelope, ActivityType activityType,
+                                                      String actorUrl) throws Exception {
+        // Verify HTTP signature if required
+        if (properties.isRequireSignatures() && !verifySignature(envelope, actorUrl)) {
+            log.warn("HTTP signature verification failed for actor: {}", actorUrl);
+            deduplicator.release(envelope.activityId());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Only verified activities are bound to a tree for the handlers
+        JsonNode activityJson = objectMapper.readTree(envelope.body());
+
+        // Fetch or get the remote actor
+        Account actor = remoteActorService.fetchAndStore(actorUrl).orElse(null);
+        if (actor == null) {
+            log.warn("Could not fetch remote actor: {}", actorUrl);
+            // Still process the activity - some instances may not have accessible actor profiles
+        }
+
+        Account localRecipient = null;
+        if (envelope.recipientUsername() != null) {
+            localRecipient = accountService.findLocalAccountByUsername(envelope.recipientUsername()).orElse(null);
+        }
+
+        return activityDispatcher.submit(orderingKey(activityJson, envelope), activityJson, activityType,
+                actor, localRecipient);
+    }
+
+    /**
+     * The URI of the object an activity acts on. For an Undo this is the object of the
+     * undone activity, so e.g. a Like and its Undo are dispatched in order.
+     */
+    static String orderingKey(JsonNode activity, InboxEnvelope envelope) {
+        JsonNode object = activity.get("object");
+        if (object != null && object.isObject() && object.has("object")
+                && "Undo".equals(envelope.activityType())) {
+            object = object.get("object");
+        }
+        String key = idOf(object);
+        if (key == null) {
+            key = envelope.activityId() != null ? envelope.activityId() : envelope.actorUrl();
+        }
+        return key;
+    }
+
+    private static String idOf(JsonNode node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.isTextual()) {
+            return node.asText();
+        }
+        JsonNode id = node.get("id");
+        return id != null && id.isTextual() ? id.asText() : null;
+    }
+
+    /**
+     * Verify the HTTP signature captured with a queued request.
+     * <p>
+     * Requests whose {@code Date} is outside the allowed skew are rejected as replays.
+     * Results for signatures covering the {@code Date} header are cached, so identical
+     * retries are answered without verifying the signature again.
+     *
+     * @param actorUrl the actor expected to own the signing key
+     */
+    boolean verifySignature(InboxEnvelope envelope, String actorUrl) {
+        try {
+            Map<String, String> headers = envelope.headers();
+            String signatureHeader = headers.get("signature");
+            if (signatureHeader == null || signatureHeader.isBlank()) {
+                log.debug("No Signature header present");
+                return false;
+            }
+
+            HttpSignature signature = HttpSignature.parse(signatureHeader);
+            if (signature == null) {
+                log.debug("Could not parse signature header");
+                return false;
+            }
+
+            Instant date = SignatureVerificationCache.parseDate(headers.get("date"));
+            if (date != null && !verificationCache.isWithinWindow(date, envelope.receivedAt())) {
+                log.debug("Rejecting signature with stale Date {} from {}", date, actorUrl);
+                return false;
+            }
+
+            String method = envelope.method().toLowerCase();
+            String signingString = signatureVerifier.signingString(signature, method, envelope.path(), headers);
+            boolean cacheable = SignatureVerificationCache.isCacheable(signature, date);
+            if (cacheable) {
+                Boolean cached = verificationCache.get(signatureHeader, signingString);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            // Resolve the actor's public key (cached by keyId); an unresolved key is not cached
+            Optional<PublicKey> publicKey = publicKeyResolver.resolve(signature.getKeyId(), actorUrl);
+            if (publicKey.isEmpty()) {
+                return false;
+            }
+            boolean verified = verifyWithKey(signature, publicKey.get(), actorUrl, signingString);
+            if (cacheable) {
+                verificationCache.put(signatureHeader, signingString, verified, date);
+            }
+            return verified;
+
+        } catch (IllegalArgumentException e) {
+            log.debug("Signed header missing from request: {}", e.getMessage());
+            return false;
+        } catch (Exception e) {
+            log.error("Error verifying HTTP signature", e);
+            return false;
+        }
+    }
+
+    private boolean verifyWithKey(HttpSignature signature, PublicKey publicKey, String actorUrl,
+                                  String signingString) {
+        if (signatureVerifier.verify(signature, publicKey, signingString)) {
+            return true;
+        }
+
+        // The actor may have rotated its key; re-fetch once and retry
+        Optional<PublicKey> refreshed = publicKeyResolver.refresh(signature.getKeyId(), actorUrl);
+        if (refreshed.isEmpty() || refreshed.get().equals(publicKey)) {
+            return false;
+        }
+        return signatureVerifier.verify(signature, refreshed.get(), signingString);
+    }
+}
@@ -0,0 +1,72 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobOptions;
+import org.joinmastodon.jobs.JobService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded, persistent queue of accepted inbox requests backed by the jobs table.
+ * The depth is tracked in memory and re-synchronised by the inbox worker after each
+ * batch, so the capacity check on the request path never touches the database.
+ * Deliveries are keyed by the sending actor's host, so a busy remote server takes turns
+ * with the others instead of holding up their deliveries.
+ */
+@Service
+public class InboxQueue {
+    private final JobService jobService;
+    private final ObjectMapper objectMapper;
+    private final FederationProperties properties;
+    private final AtomicLong depth = new AtomicLong();
+
+    public InboxQueue(JobService jobService, ObjectMapper objectMapper, FederationProperties properties) {
+        this.jobService = jobService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    public boolean isFull() {
+        return depth.get() >= properties.getInboxQueueCapacity();
+    }
+
+    public long depth() {
+        return depth.get();
+    }
+
+    public void enqueue(InboxEnvelope envelope) throws JsonProcessingException {
+        String payload = objectMapper.writeValueAsString(envelope);
+        jobService.enqueue(FederationJobQueues.INBOX, payload, JobOptions.DEFAULT
+                .withFairnessKey(host(envelope.actorUrl()))
+                .withFairnessInterval(properties.getInboxFairnessInterval()));
+        depth.incrementAndGet();
+    }
+
+    public InboxEnvelope decode(Job job) throws JsonProcessingException {
+        return objectMapper.readValue(job.getPayload(), InboxEnvelope.class);
+    }
+
+    public long refreshDepth() {
+        long current = jobService.countPendingJobs(FederationJobQueues.INBOX);
+        depth.set(current);
+        return current;
+    }
+
+    private static String host(String actorUrl) {
+        if (actorUrl == null) {
+            return null;
+        }
+        try {
+            String host = URI.create(actorUrl).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.joinmastodon.federation.service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobPollingLoop;
+import org.joinmastodon.jobs.JobService;
+import org.joinmastodon.jobs.JobSignals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the inbox queue. Each batch is grouped by actor; groups are verified in parallel
+ * while activities from the same actor are verified and submitted to the
+ * {@link ActivityDispatcher} in the order they arrived. The dispatcher then keeps
+ * activities for the same object in that order.
+ * <p>
+ * The worker sleeps until a delivery is enqueued, falling back to polling every
+ * {@code mastodon.federation.inbox-poll-interval}.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.federation.inbox.workers.enabled", havingValue = "true", matchIfMissing = true)
+public class InboxWorker {
+    private static final Logger log = LoggerFactory.getLogger(InboxWorker.class);
+
+    private final JobService jobService;
+    private final JobSignals jobSignals;
+    private final InboxQueue inboxQueue;
+    private final InboxProcessor inboxProcessor;
+    private final FederationProperties properties;
+    private final ExecutorService executor;
+    private final String workerId = "inbox-worker-" + UUID.randomUUID();
+    private volatile JobPollingLoop pollingLoop;
+
+    public InboxWorker(JobService jobService,
+                       JobSignals jobSignals,
+                       InboxQueue inboxQueue,
+                       InboxProcessor inboxProcessor,
+                       FederationProperties properties) {
+        this.jobService = jobService;
+        this.jobSignals = jobSignals;
+        this.inboxQueue = inboxQueue;
+        this.inboxProcessor = inboxProcessor;
+        this.properties = properties;
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(1, properties.getInboxWorkerThreads()),
+                Thread.ofPlatform().name("inbox-worker-", 0).daemon(true).factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        pollingLoop = JobPollingLoop.start("inbox-poller", FederationJobQueues.INBOX, jobSignals,
+                properties.getInboxPollInterval(), this::processInbox);
+    }
+
+    /**
+     * Process one batch of inbox jobs.
+     *
+     * @return true if the batch was full, so more jobs are likely waiting
+     */
+    public boolean processInbox() {
+        List<Job> jobs = jobService.claimNextJobs(
+                FederationJobQueues.INBOX,
+                workerId,
+                properties.getInboxBatchSize(),
+                properties.getInboxLockTimeout());
+        if (!jobs.isEmpty()) {
+            List<CompletableFuture<Void>> groups = new ArrayList<>();
+            List<CompletableFuture<Void>> dispatched = new CopyOnWriteArrayList<>();
+            for (List<Job> group : groupByActor(jobs).values()) {
+                groups.add(CompletableFuture.runAsync(
+                        () -> group.forEach(job -> dispatched.add(processJob(job))), executor));
+            }
+            CompletableFuture.allOf(groups.toArray(CompletableFuture[]::new)).join();
+            CompletableFuture.allOf(dispatched.toArray(CompletableFuture[]::new)).join();
+        }
+        inboxQueue.refreshDepth();
+        return jobs.size() >= properties.getInboxBatchSize();
+    }
+
+    private Map<String, List<Job>> groupByActor(List<Job> jobs) {
+        Map<String, List<Job>> groups = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            String key;
+            try {
+                key = inboxQueue.decode(job).actorUrl();
+            } catch (Exception ex) {
+                key = "job-" + job.getId();
+            }
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(job);
+        }
+        return groups;
+    }
+
+    private CompletableFuture<Void> processJob(Job job) {
+        CompletableFuture<Void> dispatched;
+        try {
+            InboxEnvelope envelope = inboxQueue.decode(job);
+            dispatched = inboxProcessor.process(envelope);
+        } catch (Exception ex) {
+            dispatched = CompletableFuture.failedFuture(ex);
+        }
+        return dispatched.handle((ignored, error) -> {
+            if (error == null) {
+                jobService.markSuccess(job);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.warn("Inbox job {} failed: {}", job.getId(), cause.getMessage());
+                jobService.markFailure(job, cause.getMessage(), backoff(job.getAttempts()));
+            }
+            return null;
+        });
+    }
+
+    private Duration backoff(int attempts) {
+        int capped = Math.max(1, Math.min(attempts, 6));
+        long seconds = (long) Math.pow(2, capped);
+        return Duration.ofSeconds(Math.min(seconds, 300));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        JobPollingLoop loop = pollingLoop;
+        if (loop != null) {
+            loop.stop();
+        }
+        executor.shutdown();
+    }
+}
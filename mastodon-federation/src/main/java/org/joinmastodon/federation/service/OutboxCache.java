@@ -0,0 +1,125 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.joinmastodon.activitypub.model.ActivityPubContext;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.Status;
+import org.joinmastodon.core.event.StatusChangedEvent;
+import org.joinmastodon.federation.cache.CachedDocument;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pre-serialized outbox pages and per-status {@code Create} activity JSON.
+ * <p>
+ * Pages are keyed by account, cursor and a per-account generation. A status change drops
+ * the account's generation after commit and the next page gets a new one, so a page rendered
+ * from an older snapshot is never served again even if it lands in the cache after the
+ * invalidation. Generations are drawn from one counter, so an account whose generation was
+ * evicted never gets an old one back.
+ * <p>
+ * Invalidation only reaches the node that made the change; the TTL bounds how long other
+ * nodes keep serving what they cached before it.
+ */
+@Service
+public class OutboxCache {
+    private final ActivityPubMapper activityPubMapper;
+    private final ObjectMapper objectMapper;
+    private final FederationProperties properties;
+    private final LruCache<Long, String> activities;
+    private final LruCache<String, CachedDocument> pages;
+    private final LruCache<Long, Long> generations;
+    private final AtomicLong nextGeneration = new AtomicLong();
+
+    public OutboxCache(ActivityPubMapper activityPubMapper,
+                       ObjectMapper objectMapper,
+                       FederationProperties properties) {
+        this.activityPubMapper = activityPubMapper;
+        // Published dates go out as ISO-8601 strings, as the ActivityPub JSON-LD context expects
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.properties = properties;
+        this.activities = new LruCache<>(properties.getOutboxActivityCacheSize(), properties.getOutboxCacheTtl());
+        this.pages = new LruCache<>(properties.getOutboxPageCacheSize(), properties.getOutboxCacheTtl());
+        // An account without a cached page has no use for its generation
+        this.generations = new LruCache<>(properties.getOutboxPageCacheSize(), null);
+    }
+
+    /**
+     * Get a rendered outbox page, loading and serializing it on a miss.
+     *
+     * @param account the local account that owns the outbox
+     * @param minId the min_id cursor, may be null
+     * @param maxId the max_id cursor, may be null
+     * @param loader loads the visible statuses for the page
+     * @return the serialized page
+     */
+    public CachedDocument page(Account account, Long minId, Long maxId, Supplier<List<Status>> loader) {
+        long generation = generations.computeIfAbsent(account.getId(), id -> nextGeneration.incrementAndGet());
+        String key = account.getId() + ":" + generation + ":" + minId + ":" + maxId;
+        CachedDocument cached = pages.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CachedDocument page = CachedDocument.of(renderPage(account, loader.get()));
+        pages.put(key, page);
+        return page;
+    }
+
+    /**
+     * Get the serialized {@code Create} activity for a status.
+     */
+    public String activityJson(Status status) {
+        String cached = activities.get(status.getId());
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(activityPubMapper.toCreateActivity(status));
+            activities.put(status.getId(), json);
+            return json;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(StatusChangedEvent event) {
+        if (event.statusId() != null) {
+            activities.invalidate(event.statusId());
+        }
+        if (event.accountId() != null) {
+            generations.invalidate(event.accountId());
+        }
+    }
+
+    private byte[] renderPage(Account account, List<Status> statuses) {
+        String baseUrl = properties.getBaseUrl().replaceAll("/$", "");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeObjectField("@context", ActivityPubContext.DEFAULT);
+            generator.writeStringField("id", baseUrl + "/users/" + account.getUsername() + "/outbox");
+            generator.writeStringField("type", "OrderedCollection");
+            generator.writeNumberField("totalItems", statuses.size());
+            generator.writeArrayFieldStart("orderedItems");
+            for (Status status : statuses) {
+                generator.writeRawValue(activityJson(status));
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
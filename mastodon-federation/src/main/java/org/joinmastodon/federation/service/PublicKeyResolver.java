@@ -0,0 +1,157 @@
+package org.joinmastodon.federation.service;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Optional;
+import org.joinmastodon.activitypub.model.Actor;
+import org.joinmastodon.activitypub.signature.PemUtils;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolves and caches parsed public keys for HTTP signature verification.
+ * Keys are cached by keyId together with the actor that owns them, and a cached key is only
+ * handed out for that actor. They are populated from the stored {@link Account#getPublicKeyPem()}
+ * when the keyId lies in the actor's own document, and otherwise from the fetched actor, whose
+ * {@code publicKey} must carry that keyId and name the actor as its owner.
+ */
+@Service
+public class PublicKeyResolver {
+    private static final Logger log = LoggerFactory.getLogger(PublicKeyResolver.class);
+    private static final Duration MIN_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+    private final AccountService accountService;
+    private final RemoteActorService remoteActorService;
+    private final LruCache<String, OwnedKey> keys;
+    private final LruCache<String, Boolean> recentlyRefreshed;
+
+    public PublicKeyResolver(AccountService accountService,
+                             RemoteActorService remoteActorService,
+                             FederationProperties properties) {
+        this.accountService = accountService;
+        this.remoteActorService = remoteActorService;
+        this.keys = new LruCache<>(properties.getPublicKeyCacheSize(), properties.getPublicKeyCacheTtl());
+        this.recentlyRefreshed = new LruCache<>(properties.getPublicKeyCacheSize(), MIN_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Resolve the public key for a keyId, using the cache when possible.
+     *
+     * @param keyId the keyId from the Signature header
+     * @param actorUrl the actor that owns the key
+     * @return the parsed public key, or empty if it could not be resolved or belongs to
+     *         another actor
+     */
+    public Optional<PublicKey> resolve(String keyId, String actorUrl) {
+        if (keyId == null || keyId.isBlank() || actorUrl == null) {
+            return Optional.empty();
+        }
+        OwnedKey cached = keys.get(keyId);
+        if (cached != null) {
+            return ownedBy(cached, keyId, actorUrl);
+        }
+        if (actorUrl.equals(documentOf(keyId))) {
+            Optional<Account> stored = accountService.findByActorUri(actorUrl);
+            if (stored.isPresent() && stored.get().getPublicKeyPem() != null) {
+                return parseAndCache(keyId, actorUrl, stored.get().getPublicKeyPem());
+            }
+        }
+        return fetch(keyId, actorUrl);
+    }
+
+    /**
+     * Drop the cached key and re-fetch the actor document.
+     * Used once after a verification failure to pick up rotated keys. Refreshes are
+     * limited to one per key per minute so forged signatures cannot force remote fetches,
+     * and a key cached for another actor is left alone.
+     *
+     * @param keyId the keyId from the Signature header
+     * @param actorUrl the actor that owns the key
+     * @return the freshly fetched public key, or empty if it could not be resolved
+     */
+    public Optional<PublicKey> refresh(String keyId, String actorUrl) {
+        if (keyId == null || keyId.isBlank() || actorUrl == null) {
+            return Optional.empty();
+        }
+        OwnedKey cached = keys.get(keyId);
+        if (cached != null && !cached.owner().equals(actorUrl)) {
+            return ownedBy(cached, keyId, actorUrl);
+        }
+        if (recentlyRefreshed.get(keyId) != null) {
+            return cached == null ? Optional.empty() : Optional.of(cached.key());
+        }
+        recentlyRefreshed.put(keyId, Boolean.TRUE);
+        keys.invalidate(keyId);
+        return fetch(keyId, actorUrl);
+    }
+
+    /**
+     * Drop a cached key after its owner published a new one.
+     *
+     * @param keyId the id of the replaced key
+     * @param actorUrl the actor that published the update; keys of other actors are kept
+     */
+    public void invalidate(String keyId, String actorUrl) {
+        if (keyId == null) {
+            return;
+        }
+        OwnedKey cached = keys.get(keyId);
+        if (cached != null && cached.owner().equals(actorUrl)) {
+            keys.invalidate(keyId);
+        }
+    }
+
+    private Optional<PublicKey> fetch(String keyId, String actorUrl) {
+        Actor actor = remoteActorService.fetchActor(actorUrl).orElse(null);
+        if (actor == null || actor.getPublicKey() == null || actor.getPublicKey().getPublicKeyPem() == null) {
+            log.debug("Could not fetch actor or public key for: {}", actorUrl);
+            return Optional.empty();
+        }
+        org.joinmastodon.activitypub.model.PublicKey published = actor.getPublicKey();
+        String owner = published.getOwner() != null ? published.getOwner() : documentOf(published.getId());
+        if (!actorUrl.equals(actor.getId()) || !keyId.equals(published.getId()) || !actorUrl.equals(owner)) {
+            log.debug("Actor {} does not publish key {}", actorUrl, keyId);
+            return Optional.empty();
+        }
+        remoteActorService.upsertActor(actor);
+        return parseAndCache(keyId, actorUrl, published.getPublicKeyPem());
+    }
+
+    private Optional<PublicKey> parseAndCache(String keyId, String actorUrl, String pem) {
+        try {
+            PublicKey publicKey = PemUtils.parsePublicKey(pem);
+            keys.put(keyId, new OwnedKey(actorUrl, publicKey));
+            return Optional.of(publicKey);
+        } catch (IllegalArgumentException ex) {
+            log.debug("Invalid public key PEM for {}", keyId);
+            return Optional.empty();
+        }
+    }
+
+    private Optional<PublicKey> ownedBy(OwnedKey cached, String keyId, String actorUrl) {
+        if (!cached.owner().equals(actorUrl)) {
+            log.debug("Key {} belongs to {}, not {}", keyId, cached.owner(), actorUrl);
+            return Optional.empty();
+        }
+        return Optional.of(cached.key());
+    }
+
+    /**
+     * @return the keyId without its fragment, i.e. the document it is published in
+     */
+    private static String documentOf(String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        int fragment = keyId.indexOf('#');
+        return fragment < 0 ? keyId : keyId.substring(0, fragment);
+    }
+
+    private record OwnedKey(String owner, PublicKey key) {
+    }
+}
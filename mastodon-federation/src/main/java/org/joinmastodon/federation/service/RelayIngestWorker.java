@@ -0,0 +1,314 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.joinmastodon.activitypub.model.ActivityType;
+import org.joinmastodon.activitypub.signature.HttpSignature;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.Status;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.core.service.StatusService;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.handler.AnnounceActivityHandler;
+import org.joinmastodon.federation.handler.CreateActivityHandler;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the relay queue in high-volume ingest mode.
+ * <ul>
+ *   <li>Runs only while the direct inbox queue is below the yield threshold, so relay
+ *       traffic never delays deliveries addressed to local users.</li>
+ *   <li>Create and Announce activities are turned into statuses and stored per batch in
+ *       one transaction, after a single query filters out statuses already known.</li>
+ *   <li>Authors are never fetched inline: activities from unknown actors schedule a
+ *       {@link DeferredActorFetcher deferred fetch} and are retried later.</li>
+ *   <li>A relay's own Announce of an object id, the usual relay format, is taken as a pointer
+ *       only: the object is fetched from its origin and stored as its author's status.</li>
+ * </ul>
+ * Other relayed activity types go through the regular {@link ActivityDispatcher}.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.federation.relay.workers.enabled", havingValue = "true", matchIfMissing = true)
+public class RelayIngestWorker {
+    private static final Logger log = LoggerFactory.getLogger(RelayIngestWorker.class);
+
+    private final JobService jobService;
+    private final RelayQueue relayQueue;
+    private final InboxQueue inboxQueue;
+    private final InboxProcessor inboxProcessor;
+    private final RelayRegistry relayRegistry;
+    private final DeferredActorFetcher deferredActorFetcher;
+    private final RemoteObjectFetcher remoteObjectFetcher;
+    private final ActivityDeduplicator deduplicator;
+    private final ActivityDispatcher activityDispatcher;
+    private final AccountService accountService;
+    private final StatusService statusService;
+    private final CreateActivityHandler createActivityHandler;
+    private final AnnounceActivityHandler announceActivityHandler;
+    private final ObjectMapper objectMapper;
+    private final FederationProperties properties;
+    private final String workerId = "relay-worker-" + UUID.randomUUID();
+
+    public RelayIngestWorker(JobService jobService,
+                             RelayQueue relayQueue,
+                             InboxQueue inboxQueue,
+                             InboxProcessor inboxProcessor,
+                             RelayRegistry relayRegistry,
+                             DeferredActorFetcher deferredActorFetcher,
+                             RemoteObjectFetcher remoteObjectFetcher,
+                             ActivityDeduplicator deduplicator,
+                             ActivityDispatcher activityDispatcher,
+                             AccountService accountService,
+                             StatusService statusService,
+                             CreateActivityHandler createActivityHandler,
+                             AnnounceActivityHandler announceActivityHandler,
+                             ObjectMapper objectMapper,
+                             FederationProperties properties) {
+        this.jobService = jobService;
+        this.relayQueue = relayQueue;
+        this.inboxQueue = inboxQueue;
+        this.inboxProcessor = inboxProcessor;
+        this.relayRegistry = relayRegistry;
+        this.deferredActorFetcher = deferredActorFetcher;
+        this.remoteObjectFetcher = remoteObjectFetcher;
+        this.deduplicator = deduplicator;
+        this.activityDispatcher = activityDispatcher;
+        this.accountService = accountService;
+        this.statusService = statusService;
+        this.createActivityHandler = createActivityHandler;
+        this.announceActivityHandler = announceActivityHandler;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${mastodon.federation.relay-poll-interval-ms:2000}")
+    public void ingestRelayed() {
+        // Direct deliveries come first; relay traffic waits while the inbox is backed up
+        if (inboxQueue.depth() > properties.getRelayYieldThreshold()) {
+            return;
+        }
+        List<Job> jobs = jobService.claimNextJobs(
+                FederationJobQueues.RELAY,
+                workerId,
+                properties.getRelayBatchSize(),
+                properties.getInboxLockTimeout());
+        if (!jobs.isEmpty()) {
+            List<PendingStatus> pending = new ArrayList<>();
+            List<CompletableFuture<Void>> dispatched = new ArrayList<>();
+            for (Job job : jobs) {
+                try {
+                    ingest(job, pending, dispatched);
+                } catch (Exception ex) {
+                    log.warn("Relay job {} failed: {}", job.getId(), ex.getMessage());
+                    jobService.markFailure(job, ex.getMessage(), backoff(job.getAttempts()));
+                }
+            }
+            store(pending);
+            CompletableFuture.allOf(dispatched.toArray(CompletableFuture[]::new)).join();
+        }
+        relayQueue.refreshDepth();
+    }
+
+    private void ingest(Job job, List<PendingStatus> pending, List<CompletableFuture<Void>> dispatched)
+            throws Exception {
+        InboxEnvelope envelope = relayQueue.decode(job);
+        ActivityType activityType = ActivityType.fromString(envelope.activityType());
+        if (activityType == null || deduplicator.isDuplicate(envelope.activityId())) {
+            jobService.markSuccess(job);
+            return;
+        }
+
+        JsonNode activity = objectMapper.readTree(envelope.body());
+        String announcedId = activityType == ActivityType.ANNOUNCE && relayRegistry.isRelayUrl(envelope.actorUrl())
+                ? announcedObjectId(activity)
+                : null;
+        if (properties.isRequireSignatures() && !verifyRelaySignature(envelope, announcedId != null)) {
+            log.warn("Relay signature verification failed for activity: {}", envelope.activityId());
+            jobService.markSuccess(job);
+            return;
+        }
+        if (announcedId != null) {
+            ingestAnnounced(job, envelope, announcedId, pending);
+            return;
+        }
+
+        Account actor = accountService.findByActorUri(envelope.actorUrl()).orElse(null);
+        if (actor == null) {
+            waitForActor(job, envelope.actorUrl());
+            return;
+        }
+
+        switch (activityType) {
+            case CREATE -> addPending(job, envelope, createActivityHandler.toStatus(activity, actor), pending);
+            case ANNOUNCE -> addPending(job, envelope, announceActivityHandler.toBoost(activity, actor), pending);
+            default -> dispatched.add(activityDispatcher
+                    .submit(InboxProcessor.orderingKey(activity, envelope), activity, activityType, actor, null)
+                    .handle((ignored, error) -> {
+                        if (error == null) {
+                            complete(job, envelope.activityId());
+                        } else {
+                            jobService.markFailure(job, error.getMessage(), backoff(job.getAttempts()));
+                        }
+                        return null;
+                    }));
+        }
+    }
+
+    /**
+     * Check who vouches for a relayed activity. An activity signed by its own actor is verified
+     * like a direct delivery. A relay's key only proves that the relay sent it, so it is accepted
+     * just for the relay's own Announce of an object id, whose object is then fetched from its
+     * origin; anything else the relay signs could attribute arbitrary content to anyone.
+     *
+     * @param relayAnnounce whether the activity is the relay's Announce of an object id
+     */
+    private boolean verifyRelaySignature(InboxEnvelope envelope, boolean relayAnnounce) {
+        String header = envelope.headers().get("signature");
+        HttpSignature signature = header == null ? null : HttpSignature.parse(header);
+        if (signature == null || signature.getKeyId() == null) {
+            return false;
+        }
+        if (!relayRegistry.isRelayUrl(signature.getKeyId())) {
+            return inboxProcessor.verifySignature(envelope, envelope.actorUrl());
+        }
+        String relayActor = RelayRegistry.keyOwner(signature.getKeyId());
+        return relayAnnounce && relayActor.equals(envelope.actorUrl())
+                && inboxProcessor.verifySignature(envelope, relayActor);
+    }
+
+    /**
+     * Store the object a relay announced, as fetched from its origin and attributed to the
+     * author its origin names. The relay itself does not boost anything.
+     */
+    private void ingestAnnounced(Job job, InboxEnvelope envelope, String objectId, List<PendingStatus> pending) {
+        if (!statusService.findExistingUris(Set.of(objectId)).isEmpty()) {
+            complete(job, envelope.activityId());
+            return;
+        }
+        JsonNode object = remoteObjectFetcher.fetch(objectId).orElse(null);
+        if (object == null) {
+            jobService.markFailure(job, "Could not fetch " + objectId, backoff(job.getAttempts()));
+            return;
+        }
+        String authorUrl = RemoteObjectFetcher.attributedTo(object);
+        Account author = accountService.findByActorUri(authorUrl).orElse(null);
+        if (author == null) {
+            waitForActor(job, authorUrl);
+            return;
+        }
+        ObjectNode create = objectMapper.createObjectNode();
+        create.put("type", "Create");
+        create.put("actor", authorUrl);
+        create.set("object", object);
+        addPending(job, envelope, createActivityHandler.toStatus(create, author), pending);
+    }
+
+    /**
+     * Park an activity until its actor has been fetched. Waiting is not a failed attempt, so
+     * a slow fetch cannot make the job dead; an actor that does not show up within
+     * {@code relay-actor-max-wait} gets the activity dropped instead.
+     */
+    private void waitForActor(Job job, String actorUrl) {
+        if (job.getCreatedAt() != null
+                && job.getCreatedAt().plus(properties.getRelayActorMaxWait()).isBefore(Instant.now())) {
+            log.debug("Dropping relayed activity {}: actor {} did not resolve", job.getId(), actorUrl);
+            jobService.markSuccess(job);
+            return;
+        }
+        deferredActorFetcher.request(actorUrl);
+        jobService.postpone(job, "Waiting for actor " + actorUrl, properties.getRelayActorRetryDelay());
+    }
+
+    /**
+     * @return the id of the object an Announce refers to, or null if it embeds anything else
+     */
+    private static String announcedObjectId(JsonNode activity) {
+        JsonNode object = activity.get("object");
+        if (object != null && object.isObject()) {
+            object = object.get("id");
+        }
+        return object != null && object.isTextual() ? object.asText() : null;
+    }
+
+    private void addPending(Job job, InboxEnvelope envelope, Status status, List<PendingStatus> pending) {
+        if (status == null) {
+            complete(job, envelope.activityId());
+        } else {
+            pending.add(new PendingStatus(job, envelope.activityId(), status));
+        }
+    }
+
+    /**
+     * Store a batch of relayed statuses in one transaction, skipping any already known.
+     */
+    private void store(List<PendingStatus> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Set<String> uris = new HashSet<>();
+        for (PendingStatus entry : pending) {
+            if (entry.status().getUri() != null) {
+                uris.add(entry.status().getUri());
+            }
+        }
+        Set<String> seen = new HashSet<>(statusService.findExistingUris(uris));
+        List<Status> statuses = new ArrayList<>();
+        for (PendingStatus entry : pending) {
+            String uri = entry.status().getUri();
+            if (uri == null || seen.add(uri)) {
+                statuses.add(entry.status());
+            }
+        }
+        try {
+            createActivityHandler.registerAttachments(statuses);
+            statusService.saveAll(statuses);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to store {} relayed statuses: {}", statuses.size(), ex.getMessage());
+            List<Job> failed = new ArrayList<>(pending.size());
+            int attempts = 0;
+            for (PendingStatus entry : pending) {
+                failed.add(entry.job());
+                attempts = Math.max(attempts, entry.job().getAttempts());
+            }
+            jobService.markFailure(failed, ex.getMessage(), backoff(attempts));
+            return;
+        }
+        log.debug("Stored {} relayed statuses", statuses.size());
+        List<Job> stored = new ArrayList<>(pending.size());
+        for (PendingStatus entry : pending) {
+            deduplicator.markProcessed(entry.activityId());
+            stored.add(entry.job());
+        }
+        jobService.markSuccess(stored);
+    }
+
+    private void complete(Job job, String activityId) {
+        deduplicator.markProcessed(activityId);
+        jobService.markSuccess(job);
+    }
+
+    private Duration backoff(int attempts) {
+        int capped = Math.max(1, Math.min(attempts, 6));
+        long seconds = (long) Math.pow(2, capped);
+        return Duration.ofSeconds(Math.min(seconds, 300));
+    }
+
+    private record PendingStatus(Job job, String activityId, Status status) {
+    }
+}
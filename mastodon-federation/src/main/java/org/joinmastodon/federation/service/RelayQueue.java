@@ -0,0 +1,65 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded queue for relay traffic, kept apart from {@link InboxQueue} so a busy relay
+ * can never fill the queue used by direct deliveries. Like the inbox queue, the depth
+ * is tracked in memory and re-synchronised by the relay ingest worker.
+ */
+@Service
+public class RelayQueue {
+    private final JobService jobService;
+    private final ObjectMapper objectMapper;
+    private final FederationProperties properties;
+    private final AtomicLong depth = new AtomicLong();
+    private final Counter dropped;
+
+    public RelayQueue(JobService jobService,
+                      ObjectMapper objectMapper,
+                      FederationProperties properties,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jobService = jobService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.dropped = Counter.builder("federation.relay.dropped")
+                .description("Relayed activities discarded because the relay queue was full")
+                .register(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public boolean isFull() {
+        return depth.get() >= properties.getRelayQueueCapacity();
+    }
+
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    public void enqueue(InboxEnvelope envelope) throws JsonProcessingException {
+        String payload = objectMapper.writeValueAsString(envelope);
+        jobService.enqueue(FederationJobQueues.RELAY, payload, Instant.now());
+        depth.incrementAndGet();
+    }
+
+    public InboxEnvelope decode(Job job) throws JsonProcessingException {
+        return objectMapper.readValue(job.getPayload(), InboxEnvelope.class);
+    }
+
+    public long refreshDepth() {
+        long current = jobService.countPendingJobs(FederationJobQueues.RELAY);
+        depth.set(current);
+        return current;
+    }
+}
@@ -0,0 +1,84 @@
+package org.joinmastodon.federation.service;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+import org.joinmastodon.activitypub.signature.HttpSignature;
+import org.joinmastodon.core.entity.Relay;
+import org.joinmastodon.core.event.RelayChangedEvent;
+import org.joinmastodon.core.service.RelayService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Knows which hosts are accepted relays, so relay traffic can be recognised from the
+ * signature's keyId before the request body is read. The host set is loaded lazily and
+ * reloaded whenever a relay subscription changes.
+ */
+@Service
+public class RelayRegistry {
+    private final RelayService relayService;
+    private volatile Set<String> acceptedHosts;
+
+    public RelayRegistry(RelayService relayService) {
+        this.relayService = relayService;
+    }
+
+    /**
+     * @param signatureHeader the raw {@code Signature} header, may be null
+     * @return true if the request was signed by an accepted relay
+     */
+    public boolean isRelaySignature(String signatureHeader) {
+        if (signatureHeader == null || signatureHeader.isBlank()) {
+            return false;
+        }
+        HttpSignature signature = HttpSignature.parse(signatureHeader);
+        return signature != null && isRelayUrl(signature.getKeyId());
+    }
+
+    public boolean isRelayUrl(String url) {
+        String host = hostOf(url);
+        return host != null && hosts().contains(host);
+    }
+
+    /**
+     * The actor owning a signature key, i.e. the keyId without its fragment.
+     */
+    public static String keyOwner(String keyId) {
+        int hash = keyId.indexOf('#');
+        return hash < 0 ? keyId : keyId.substring(0, hash);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRelayChanged(RelayChangedEvent event) {
+        acceptedHosts = null;
+    }
+
+    private Set<String> hosts() {
+        Set<String> hosts = acceptedHosts;
+        if (hosts == null) {
+            hosts = new HashSet<>();
+            for (Relay relay : relayService.findAccepted()) {
+                String host = hostOf(relay.getInboxUrl());
+                if (host != null) {
+                    hosts.add(host);
+                }
+            }
+            hosts = Set.copyOf(hosts);
+            acceptedHosts = hosts;
+        }
+        return hosts;
+    }
+
+    private static String hostOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? null : host.toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.joinmastodon.federation.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.joinmastodon.core.entity.Relay;
+import org.joinmastodon.core.event.RelayChangedEvent;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Sends the instance actor's Follow when a relay is enabled and an Undo when it is
+ * disabled or removed. The relay answers with an Accept or Reject, handled by
+ * {@link org.joinmastodon.federation.handler.AcceptActivityHandler} and
+ * {@link org.joinmastodon.federation.handler.RejectActivityHandler}.
+ */
+@Component
+public class RelaySubscriptionListener {
+    private static final Logger log = LoggerFactory.getLogger(RelaySubscriptionListener.class);
+    private static final String PUBLIC = "https://www.w3.org/ns/activitystreams#Public";
+    private static final String CONTEXT = "https://www.w3.org/ns/activitystreams";
+
+    private final FederationDeliveryService deliveryService;
+    private final FederationProperties properties;
+
+    public RelaySubscriptionListener(FederationDeliveryService deliveryService, FederationProperties properties) {
+        this.deliveryService = deliveryService;
+        this.properties = properties;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRelayChanged(RelayChangedEvent event) {
+        if (event.followActivityId() == null) {
+            return;
+        }
+        if (!event.removed() && event.state() == Relay.State.PENDING) {
+            log.info("Subscribing to relay {}", event.inboxUrl());
+            deliveryService.deliver(follow(event.followActivityId()), event.inboxUrl(), null);
+        } else if (event.removed() || event.state() == Relay.State.IDLE) {
+            log.info("Unsubscribing from relay {}", event.inboxUrl());
+            Map<String, Object> undo = new LinkedHashMap<>();
+            undo.put("@context", CONTEXT);
+            undo.put("id", event.followActivityId() + "/undo");
+            undo.put("type", "Undo");
+            undo.put("actor", instanceActor());
+            undo.put("object", follow(event.followActivityId()));
+            deliveryService.deliver(undo, event.inboxUrl(), null);
+        }
+    }
+
+    private Map<String, Object> follow(String followActivityId) {
+        Map<String, Object> follow = new LinkedHashMap<>();
+        follow.put("@context", CONTEXT);
+        follow.put("id", followActivityId);
+        follow.put("type", "Follow");
+        follow.put("actor", instanceActor());
+        follow.put("object", PUBLIC);
+        return follow;
+    }
+
+    private String instanceActor() {
+        return properties.getBaseUrl().replaceAll("/$", "") + "/actor";
+    }
+}
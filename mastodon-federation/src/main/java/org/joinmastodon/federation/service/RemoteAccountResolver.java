@@ -0,0 +1,258 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import org.joinmastodon.activitypub.model.Actor;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.core.service.RemoteAccountLookup;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolves {@code user@domain} handles to accounts: WebFinger on the remote domain,
+ * then the actor document, then {@link RemoteActorService#upsertActor}. The actor is only
+ * stored if its {@code preferredUsername} and host give back the handle that was looked up,
+ * so a domain cannot claim an actor of another server as one of its own handles.
+ * <p>
+ * Concurrent lookups of the same handle share one in-flight request, handles the remote
+ * server reports as missing are remembered for a while, and requests to each domain
+ * are rate limited.
+ */
+@Service
+public class RemoteAccountResolver implements RemoteAccountLookup {
+    private static final Logger log = LoggerFactory.getLogger(RemoteAccountResolver.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Pattern ACCT = Pattern.compile("([A-Za-z0-9_.-]+)@([a-z0-9.-]+(?::\\d+)?)");
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final AccountService accountService;
+    private final RemoteActorService remoteActorService;
+    private final FederationProperties properties;
+    private final LruCache<String, Boolean> missing;
+    private final DomainRateLimiter rateLimiter;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Account>>> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore bulkPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RemoteAccountResolver(HttpClient httpClient,
+                                 ObjectMapper objectMapper,
+                                 AccountService accountService,
+                                 RemoteActorService remoteActorService,
+                                 FederationProperties properties) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.accountService = accountService;
+        this.remoteActorService = remoteActorService;
+        this.properties = properties;
+        this.missing = new LruCache<>(properties.getResolverNegativeCacheSize(), properties.getResolverNegativeCacheTtl());
+        this.rateLimiter = new DomainRateLimiter(
+                properties.getResolverRequestsPerSecond(),
+                properties.getResolverBurst(),
+                properties.getResolverMaxWait());
+        this.bulkPermits = new Semaphore(Math.max(1, properties.getResolverConcurrency()));
+    }
+
+    /**
+     * Resolve a handle such as {@code @alice@remote.example} or {@code alice@remote.example}.
+     *
+     * @param handle the account handle
+     * @return the stored account, or empty if it does not exist or could not be resolved
+     */
+    @Override
+    public Optional<Account> resolve(String handle) {
+        String acct = normalize(handle);
+        if (acct == null) {
+            return Optional.empty();
+        }
+        int at = acct.indexOf('@');
+        String username = acct.substring(0, at);
+        String domain = acct.substring(at + 1);
+        if (domain.equalsIgnoreCase(properties.getDomain())) {
+            return accountService.findLocalAccountByUsernameIgnoreCase(username);
+        }
+
+        Optional<Account> stored = accountService.findByAcct(acct);
+        if (stored.isPresent() && isFresh(stored.get())) {
+            return stored;
+        }
+        if (missing.get(acct) != null) {
+            return Optional.empty();
+        }
+
+        // Singleflight: the first caller performs the lookup, the rest wait on its result
+        CompletableFuture<Optional<Account>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Account>> existing = inFlight.putIfAbsent(acct, mine);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            Optional<Account> result = lookup(acct, username, domain).or(() -> stored);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(acct, mine);
+        }
+    }
+
+    /**
+     * Resolve many handles in parallel, e.g. all mentions in a post.
+     *
+     * @param handles the account handles
+     * @return the resolved accounts keyed by the handle as given; unresolved handles are absent
+     */
+    public Map<String, Account> resolveAll(Collection<String> handles) {
+        Map<String, CompletableFuture<Optional<Account>>> futures = new LinkedHashMap<>();
+        for (String handle : new LinkedHashSet<>(handles)) {
+            futures.put(handle, CompletableFuture.supplyAsync(() -> resolveWithPermit(handle), executor));
+        }
+        Map<String, Account> resolved = new LinkedHashMap<>();
+        futures.forEach((handle, future) -> future.join().ifPresent(account -> resolved.put(handle, account)));
+        return resolved;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private Optional<Account> resolveWithPermit(String handle) {
+        try {
+            bulkPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+        try {
+            return resolve(handle);
+        } catch (RuntimeException e) {
+            log.warn("Failed to resolve {}: {}", handle, e.getMessage());
+            return Optional.empty();
+        } finally {
+            bulkPermits.release();
+        }
+    }
+
+    private Optional<Account> lookup(String acct, String username, String domain) {
+        try {
+            Optional<String> actorUrl = webFinger(acct, domain);
+            if (actorUrl.isEmpty()) {
+                return Optional.empty();
+            }
+            String actorDomain = URI.create(actorUrl.get()).getHost();
+            if (actorDomain == null || !rateLimiter.acquire(actorDomain)) {
+                log.debug("Rate limited fetching actor for {}", acct);
+                return Optional.empty();
+            }
+            Actor actor = remoteActorService.fetchActor(actorUrl.get()).orElse(null);
+            if (actor == null) {
+                return Optional.empty();
+            }
+            String actorAcct = actor.getPreferredUsername() + "@" + actorDomain.toLowerCase(Locale.ROOT);
+            if (!actorUrl.get().equals(actor.getId()) || !acct.equalsIgnoreCase(actorAcct)) {
+                log.warn("WebFinger for {} points to {}, which is {}", acct, actorUrl.get(), actorAcct);
+                return Optional.empty();
+            }
+            return Optional.of(remoteActorService.upsertActor(actor));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            log.warn("Failed to resolve {}@{}: {}", username, domain, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Query WebFinger for the actor URL of an account.
+     * A 404 or 410, or a JRD without an ActivityPub link, is remembered as missing.
+     */
+    private Optional<String> webFinger(String acct, String domain) throws Exception {
+        if (!rateLimiter.acquire(domain)) {
+            log.debug("Rate limited WebFinger lookup for {}", acct);
+            return Optional.empty();
+        }
+        String resource = URLEncoder.encode("acct:" + acct, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("https://" + domain + "/.well-known/webfinger?resource=" + resource))
+                .header("Accept", "application/jrd+json, application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404 || response.statusCode() == 410) {
+            missing.put(acct, Boolean.TRUE);
+            return Optional.empty();
+        }
+        if (response.statusCode() >= 400) {
+            log.warn("WebFinger lookup for {} failed: status {}", acct, response.statusCode());
+            return Optional.empty();
+        }
+        JsonNode links = objectMapper.readTree(response.body()).path("links");
+        for (JsonNode link : links) {
+            String type = link.path("type").asText("");
+            if ("self".equals(link.path("rel").asText())
+                    && (type.startsWith("application/activity+json") || type.startsWith("application/ld+json"))
+                    && link.hasNonNull("href")) {
+                return Optional.of(link.get("href").asText());
+            }
+        }
+        missing.put(acct, Boolean.TRUE);
+        return Optional.empty();
+    }
+
+    private boolean isFresh(Account account) {
+        Instant fetchedAt = account.getLastFetchedAt();
+        return fetchedAt != null && fetchedAt.isAfter(Instant.now().minus(properties.getResolverRefreshInterval()));
+    }
+
+    /**
+     * Normalize a handle to lower-case domain, {@code user@domain} form.
+     */
+    private static String normalize(String handle) {
+        if (handle == null) {
+            return null;
+        }
+        String acct = handle.strip();
+        if (acct.startsWith("acct:")) {
+            acct = acct.substring("acct:".length());
+        }
+        if (acct.startsWith("@")) {
+            acct = acct.substring(1);
+        }
+        int at = acct.indexOf('@');
+        if (at <= 0) {
+            return null;
+        }
+        acct = acct.substring(0, at) + "@" + acct.substring(at + 1).toLowerCase(Locale.ROOT);
+        return ACCT.matcher(acct).matches() ? acct : null;
+    }
+}
@@ -29,6 +29,15 @@ public class RemoteActorService {
     }
 
     public Optional<Account> fetchAndStore(String actorUrl) {
+        return fetchActor(actorUrl).map(this::upsertActor);
+    }
+
+    /**
+     * Fetch an actor document without storing it.
+     *
+     * @return the actor, or empty if it could not be fetched or parsed
+     */
+    public Optional<Actor> fetchActor(String actorUrl) {
         try {
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(actorUrl))
@@ -40,8 +49,7 @@ public class RemoteActorService {
                 log.warn("Failed to fetch actor {}: status {}", actorUrl, response.statusCode());
                 return Optional.empty();
             }
-            Actor actor = objectMapper.readValue(response.body(), Actor.class);
-            return Optional.of(upsertActor(actor));
+            return Optional.of(objectMapper.readValue(response.body(), Actor.class));
         } catch (Exception ex) {
             log.warn("Failed to fetch actor {}", actorUrl, ex);
             return Optional.empty();
@@ -0,0 +1,104 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fetches ActivityPub objects from the server that hosts them.
+ * <p>
+ * A fetched object is only returned if its {@code id} is the URL it was fetched from and its
+ * author lives on the same host, so whatever it says about itself is vouched for by its origin
+ * rather than by whoever passed the URL along.
+ */
+@Service
+public class RemoteObjectFetcher {
+    private static final Logger log = LoggerFactory.getLogger(RemoteObjectFetcher.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    public RemoteObjectFetcher(HttpClient httpClient, ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Fetch an object by its id.
+     *
+     * @param objectId the object's id, an http(s) URL
+     * @return the object, or empty if it could not be fetched or does not come from its origin
+     */
+    public Optional<JsonNode> fetch(String objectId) {
+        String host = hostOf(objectId);
+        if (host == null) {
+            return Optional.empty();
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(objectId))
+                    .header("Accept", "application/activity+json, application/ld+json")
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 400) {
+                log.debug("Failed to fetch object {}: status {}", objectId, response.statusCode());
+                return Optional.empty();
+            }
+            JsonNode object = objectMapper.readTree(response.body());
+            String author = attributedTo(object);
+            if (!objectId.equals(object.path("id").asText(null)) || !host.equals(hostOf(author))) {
+                log.warn("Object fetched from {} is {} by {}", objectId, object.path("id").asText(null), author);
+                return Optional.empty();
+            }
+            return Optional.of(object);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            log.debug("Failed to fetch object {}: {}", objectId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the id of the object's author, whether given as a URL or as an embedded actor
+     */
+    public static String attributedTo(JsonNode object) {
+        JsonNode author = object.path("attributedTo");
+        if (author.isArray()) {
+            author = author.path(0);
+        }
+        if (author.isObject()) {
+            author = author.path("id");
+        }
+        return author.isTextual() ? author.asText() : null;
+    }
+
+    private static String hostOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(url);
+            boolean web = "https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme());
+            if (!web || uri.getHost() == null) {
+                return null;
+            }
+            return uri.getHost().toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.joinmastodon.federation.service;
+
+import java.util.Locale;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers which remote hosts accept RFC 9421 Ed25519 signatures. Servers advertise this
+ * in an {@code Accept-Signature} response header; until a host has done so, deliveries to it
+ * keep using draft-cavage RSA signatures, which every Mastodon-compatible server verifies.
+ */
+@Component
+public class RemoteSignatureSupport {
+    private final LruCache<String, Boolean> ed25519Hosts;
+
+    public RemoteSignatureSupport(FederationProperties properties) {
+        this.ed25519Hosts = new LruCache<>(properties.getSignatureSupportCacheSize(), null);
+    }
+
+    /**
+     * Record the {@code Accept-Signature} header a host sent back.
+     *
+     * @param host the remote host
+     * @param acceptSignature the header value, or null if the response had none, which
+     *                        leaves what is known about the host unchanged
+     * @return true if this changed what is known about the host
+     */
+    public boolean record(String host, String acceptSignature) {
+        if (host == null || acceptSignature == null) {
+            return false;
+        }
+        String key = host.toLowerCase(Locale.ROOT);
+        boolean supported = acceptsEd25519(acceptSignature);
+        Boolean previous = ed25519Hosts.get(key);
+        ed25519Hosts.put(key, supported);
+        return previous == null || previous != supported;
+    }
+
+    /**
+     * Whether the host has advertised Ed25519 RFC 9421 signatures.
+     */
+    public boolean supportsEd25519(String host) {
+        return host != null && Boolean.TRUE.equals(ed25519Hosts.get(host.toLowerCase(Locale.ROOT)));
+    }
+
+    static boolean acceptsEd25519(String acceptSignature) {
+        if (acceptSignature == null) {
+            return false;
+        }
+        String normalized = acceptSignature.toLowerCase(Locale.ROOT).replace(" ", "");
+        return normalized.contains("alg=\"ed25519\"");
+    }
+}
@@ -0,0 +1,104 @@
+package org.joinmastodon.federation.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+import org.joinmastodon.activitypub.signature.HttpSignature;
+import org.joinmastodon.activitypub.signature.DigestUtils;
+import org.joinmastodon.federation.cache.LruCache;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers recent HTTP signature verification results, keyed by a hash of the whole
+ * {@code Signature} header and the signing string, so a retried request with an identical
+ * signature costs no second RSA verification while any other signature value over the same
+ * headers is verified on its own.
+ * <p>
+ * Only signatures that cover the {@code Date} header are cached, and only until that date
+ * leaves the allowed clock skew: after that the request is rejected as stale anyway.
+ */
+@Service
+public class SignatureVerificationCache {
+    private final LruCache<String, Boolean> results;
+    private final Duration maxSkew;
+
+    public SignatureVerificationCache(FederationProperties properties) {
+        this.maxSkew = properties.getSignatureMaxSkew();
+        this.results = new LruCache<>(properties.getSignatureCacheSize(), maxSkew.multipliedBy(2));
+    }
+
+    /**
+     * Whether a request's {@code Date} is close enough to when it was received. Requests
+     * outside the window are treated as replays.
+     *
+     * @param date the parsed {@code Date} header
+     * @param receivedAtMillis when the request was received, in epoch milliseconds
+     */
+    public boolean isWithinWindow(Instant date, long receivedAtMillis) {
+        return Math.abs(receivedAtMillis - date.toEpochMilli()) <= maxSkew.toMillis();
+    }
+
+    /**
+     * Whether a verification result may be cached: the request must carry a {@code Date} and
+     * the signature must cover it, otherwise nothing bounds how long the result stays valid.
+     *
+     * @param date the parsed {@code Date} header, or null if there is none
+     */
+    public static boolean isCacheable(HttpSignature signature, Instant date) {
+        return date != null && signature.getHeaders().contains("date");
+    }
+
+    /**
+     * @param signatureHeader the raw {@code Signature} header, signature value included
+     * @return the cached result for this signature, or null if it has not been verified recently
+     */
+    public Boolean get(String signatureHeader, String signingString) {
+        return results.get(key(signatureHeader, signingString));
+    }
+
+    /**
+     * Cache a verification result until the request's {@code Date} leaves the skew window.
+     *
+     * @param signatureHeader the raw {@code Signature} header, signature value included
+     * @param date the signed {@code Date} header; see {@link #isCacheable}
+     */
+    public void put(String signatureHeader, String signingString, boolean verified, Instant date) {
+        Objects.requireNonNull(date, "Only signatures over a Date header can be cached");
+        results.put(key(signatureHeader, signingString), verified, date.plus(maxSkew));
+    }
+
+    /**
+     * Parse an HTTP {@code Date} header. ISO-8601 instants are accepted as well, as some
+     * implementations send them.
+     *
+     * @return the date, or null if the value is missing or malformed
+     */
+    public static Instant parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return Instant.parse(value.trim());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static String key(String signatureHeader, String signingString) {
+        MessageDigest digest = DigestUtils.newSha256();
+        digest.update(signatureHeader.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+        return Base64.getEncoder().encodeToString(digest.digest(signingString.getBytes(StandardCharsets.UTF_8)));
+    }
+}
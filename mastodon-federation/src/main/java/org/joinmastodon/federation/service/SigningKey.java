@@ -0,0 +1,15 @@
+package org.joinmastodon.federation.service;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * A parsed key pair used to sign outgoing requests.
+ *
+ * @param keyId the URI under which the public key is published
+ * @param privateKey the private key
+ * @param publicKey the public key
+ * @param publicKeyPem the public key as published in the actor document
+ */
+public record SigningKey(String keyId, PrivateKey privateKey, PublicKey publicKey, String publicKeyPem) {
+}
@@ -20,30 +20,46 @@ public class WebFingerService {
         this.properties = properties;
     }
 
+    /**
+     * Resolve a WebFinger resource for a local account.
+     *
+     * @param resource {@code acct:user@domain} or the account's actor URL
+     * @return the JRD, or empty if the resource does not name a local account
+     */
     public Optional<WebFingerResponse> resolve(String resource) {
-        if (resource == null || !resource.startsWith("acct:")) {
+        if (resource == null) {
             return Optional.empty();
         }
-        String acct = resource.substring("acct:".length());
-        String[] parts = acct.split("@", 2);
-        if (parts.length != 2) {
+        String username;
+        String actorPrefix = actorUrl("");
+        if (resource.regionMatches(true, 0, actorPrefix, 0, actorPrefix.length())) {
+            username = resource.substring(actorPrefix.length());
+        } else if (resource.startsWith("acct:")) {
+            String acct = resource.substring("acct:".length());
+            String[] parts = acct.split("@", 2);
+            if (parts.length != 2 || !parts[1].equalsIgnoreCase(properties.getDomain())) {
+                return Optional.empty();
+            }
+            username = parts[0];
+        } else {
             return Optional.empty();
         }
-        String username = parts[0];
-        String domain = parts[1];
-        if (!domain.equalsIgnoreCase(properties.getDomain())) {
+        if (username.isEmpty() || username.contains("/")) {
             return Optional.empty();
         }
-        Optional<Account> account = accountService.findByUsernameAndDomain(username, null);
+        Optional<Account> account = accountService.findLocalAccountByUsernameIgnoreCase(username);
         if (account.isEmpty()) {
             return Optional.empty();
         }
-        String baseUrl = properties.getBaseUrl().replaceAll("/$", "");
-        String actorUrl = baseUrl + "/users/" + account.get().getUsername();
+        String actorUrl = actorUrl(account.get().getUsername());
         WebFingerResponse response = new WebFingerResponse();
         response.setSubject("acct:" + account.get().getUsername() + "@" + properties.getDomain().toLowerCase(Locale.ROOT));
         response.setAliases(List.of(actorUrl));
         response.setLinks(List.of(new WebFingerLink("self", "application/activity+json", actorUrl)));
         return Optional.of(response);
     }
+
+    private String actorUrl(String username) {
+        return properties.getBaseUrl().replaceAll("/$", "") + "/users/" + username;
+    }
 }
@@ -1,17 +1,22 @@
 package org.joinmastodon.federation.web;
 
-import org.joinmastodon.activitypub.model.Actor;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.service.AccountService;
-import org.joinmastodon.federation.service.ActivityPubMapper;
+import org.joinmastodon.federation.cache.CachedDocument;
+import org.joinmastodon.federation.service.ActorDocumentCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+
 /**
  * Controller for serving ActivityPub Actor profiles.
  * Handles requests to /users/:username for actor discovery.
@@ -20,12 +25,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/users")
 public class ActorController {
 
+    private static final CacheControl ACTOR_CACHE_CONTROL = CacheControl.maxAge(Duration.ofMinutes(3)).cachePublic();
+
     private final AccountService accountService;
-    private final ActivityPubMapper activityPubMapper;
+    private final ActorDocumentCache actorDocumentCache;
 
-    public ActorController(AccountService accountService, ActivityPubMapper activityPubMapper) {
+    public ActorController(AccountService accountService, ActorDocumentCache actorDocumentCache) {
         this.accountService = accountService;
-        this.activityPubMapper = activityPubMapper;
+        this.actorDocumentCache = actorDocumentCache;
     }
 
     /**
@@ -33,6 +40,7 @@ public class ActorController {
      * This endpoint is called by remote instances to discover local users.
      *
      * @param username the local username
+     * @param ifNoneMatch entity tags the client already holds
      * @return the Actor profile in ActivityPub format
      */
     @GetMapping(value = "/{username}", produces = {
@@ -40,19 +48,27 @@ public class ActorController {
             "application/ld+json",
             "application/json"
     })
-    public ResponseEntity<Actor> getActor(@PathVariable String username) {
+    public ResponseEntity<byte[]> getActor(@PathVariable String username,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         // Only serve local accounts
-        Account account = accountService.findLocalAccountByUsername(username)
-                .orElse(null);
+        CachedDocument actor = actorDocumentCache.actor(username).orElse(null);
 
-        if (account == null) {
+        if (actor == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        Actor actor = activityPubMapper.toActor(account);
+        if (actor.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(actor.etag())
+                    .cacheControl(ACTOR_CACHE_CONTROL)
+                    .build();
+        }
+
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType("application/activity+json"))
-                .body(actor);
+                .eTag(actor.etag())
+                .cacheControl(ACTOR_CACHE_CONTROL)
+                .body(actor.body());
     }
 
     /**
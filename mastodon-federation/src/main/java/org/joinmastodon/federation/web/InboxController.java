@@ -1,56 +1,80 @@
 package org.joinmastodon.federation.web;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.joinmastodon.activitypub.model.ActivityType;
+import org.joinmastodon.activitypub.signature.DigestUtils;
 import org.joinmastodon.activitypub.signature.HttpSignature;
-import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
-import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.service.AccountService;
-import org.joinmastodon.federation.service.ActivityDispatcher;
-import org.joinmastodon.federation.service.RemoteActorService;
+import org.joinmastodon.core.service.DomainPolicyIndex;
 import org.joinmastodon.federation.config.FederationProperties;
-import org.joinmastodon.activitypub.signature.PemUtils;
+import org.joinmastodon.federation.model.ActivityHeader;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.joinmastodon.federation.service.ActivityDeduplicator;
+import org.joinmastodon.federation.service.ActivityHeaderParser;
+import org.joinmastodon.federation.service.InboxQueue;
+import org.joinmastodon.federation.service.RelayQueue;
+import org.joinmastodon.federation.service.RelayRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.security.PublicKey;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Controller for receiving ActivityPub activities.
  * Handles both user-specific inboxes and the shared inbox.
+ * <p>
+ * Requests are only checked for shape here and then queued; signature verification,
+ * actor resolution and dispatch happen on the inbox workers. Requests signed by an
+ * accepted relay go to the separate relay queue, which is drained at lower priority.
+ * Requests from blocked domains are refused from the signature's keyId before the body
+ * is read.
  */
 @RestController
 @RequestMapping
 public class InboxController {
     private static final Logger log = LoggerFactory.getLogger(InboxController.class);
+    private static final String RETRY_AFTER_SECONDS = "30";
 
     private final AccountService accountService;
-    private final RemoteActorService remoteActorService;
-    private final ActivityDispatcher activityDispatcher;
-    private final HttpSignatureVerifier signatureVerifier;
+    private final InboxQueue inboxQueue;
+    private final RelayQueue relayQueue;
+    private final RelayRegistry relayRegistry;
+    private final ActivityDeduplicator deduplicator;
+    private final ActivityHeaderParser headerParser;
+    private final DomainPolicyIndex domainPolicyIndex;
     private final FederationProperties properties;
 
     public InboxController(AccountService accountService,
-                          RemoteActorService remoteActorService,
-                          ActivityDispatcher activityDispatcher,
-                          HttpSignatureVerifier signatureVerifier,
+                          InboxQueue inboxQueue,
+                          RelayQueue relayQueue,
+                          RelayRegistry relayRegistry,
+                          ActivityDeduplicator deduplicator,
+                          ActivityHeaderParser headerParser,
+                          DomainPolicyIndex domainPolicyIndex,
                           FederationProperties properties) {
         this.accountService = accountService;
-        this.remoteActorService = remoteActorService;
-        this.activityDispatcher = activityDispatcher;
-        this.signatureVerifier = signatureVerifier;
+        this.inboxQueue = inboxQueue;
+        this.relayQueue = relayQueue;
+        this.relayRegistry = relayRegistry;
+        this.deduplicator = deduplicator;
+        this.headerParser = headerParser;
+        this.domainPolicyIndex = domainPolicyIndex;
         this.properties = properties;
     }
 
@@ -58,27 +82,27 @@ public class InboxController {
      * Shared inbox endpoint for receiving activities addressed to any local user.
      * More efficient for delivery of activities to multiple local recipients.
      *
-     * @param requestBody the raw activity JSON
-     * @param request the HTTP request (for signature verification)
-     * @return 202 Accepted on success
+     * @param request the HTTP request carrying the raw activity JSON
+     * @return 202 Accepted once the activity is queued
      */
     @PostMapping(value = "/inbox", consumes = {
             "application/activity+json",
             "application/ld+json",
             "application/json"
     })
-    public ResponseEntity<Void> sharedInbox(@RequestBody JsonNode requestBody,
-                                            HttpServletRequest request) {
-        return processInboxRequest(requestBody, request, null);
+    public ResponseEntity<Void> sharedInbox(HttpServletRequest request) {
+        if (isFromBlockedDomain(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return acceptInboxRequest(request, null);
     }
 
     /**
      * User-specific inbox endpoint for receiving activities addressed to a specific user.
      *
      * @param username the local username
-     * @param requestBody the raw activity JSON
-     * @param request the HTTP request (for signature verification)
-     * @return 202 Accepted on success
+     * @param request the HTTP request carrying the raw activity JSON
+     * @return 202 Accepted once the activity is queued
      */
     @PostMapping(value = "/users/{username}/inbox", consumes = {
             "application/activity+json",
@@ -86,122 +110,181 @@ public class InboxController {
             "application/json"
     })
     public ResponseEntity<Void> userInbox(@PathVariable String username,
-                                          @RequestBody JsonNode requestBody,
                                           HttpServletRequest request) {
+        if (isFromBlockedDomain(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
         // Verify the local user exists
-        Optional<Account> localAccount = accountService.findLocalAccountByUsername(username);
-        if (localAccount.isEmpty()) {
+        if (accountService.findLocalAccountByUsername(username).isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        return processInboxRequest(requestBody, request, localAccount.get());
+        return acceptInboxRequest(request, username);
     }
 
     /**
-     * Process an incoming activity.
-     * Verifies the HTTP signature and dispatches to the appropriate handler.
+     * Validate the shape of an incoming activity and queue it for processing.
      */
-    private ResponseEntity<Void> processInboxRequest(JsonNode requestBody,
-                                                     HttpServletRequest request,
-                                                     Account localRecipient) {
+    private ResponseEntity<Void> acceptInboxRequest(HttpServletRequest request, String recipientUsername) {
         try {
-            // Extract activity type
-            String typeStr = requestBody.has("type") ? requestBody.get("type").asText() : null;
-            ActivityType activityType = ActivityType.fromString(typeStr);
+            boolean relayed = relayRegistry.isRelaySignature(request.getHeader("Signature"));
+            if (relayed && relayQueue.isFull()) {
+                if (properties.getRelayOverflowPolicy() == FederationProperties.RelayOverflowPolicy.DROP) {
+                    relayQueue.recordDropped();
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+                }
+                log.warn("Relay queue is full, deferring relay delivery");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .build();
+            }
+            if (!relayed && inboxQueue.isFull()) {
+                log.warn("Inbox queue is full, deferring delivery");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .build();
+            }
 
-            if (activityType == null) {
-                log.warn("Received unknown activity type: {}", typeStr);
+            long maxBytes = properties.getInboxMaxBodySize().toBytes();
+            if (request.getContentLengthLong() > maxBytes) {
+                return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+            }
+            // The Digest header is checked against the raw bytes as they are read
+            String digestHeader = request.getHeader("Digest");
+            MessageDigest digest = digestHeader != null ? DigestUtils.newSha256() : null;
+            byte[] body = readBody(request.getInputStream(), maxBytes, digest);
+            if (body == null) {
+                return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+            }
+            if (body.length == 0) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
+            if (digest != null && !DigestUtils.matchesDigest(digestHeader, digest.digest())) {
+                log.debug("Digest header does not match request body");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
 
-            // Get the actor URL
-            String actorUrl = requestBody.has("actor") ? requestBody.get("actor").asText() : null;
-            if (actorUrl == null) {
+            // Read only the routing fields; the full document is bound by the inbox worker
+            ActivityHeader header;
+            try {
+                header = headerParser.parse(body);
+            } catch (JsonProcessingException e) {
+                log.debug("Received malformed activity JSON: {}", e.getOriginalMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+            if (header == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+
+            if (ActivityType.fromString(header.type()) == null) {
+                log.warn("Received unknown activity type: {}", header.type());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+
+            if (header.actor() == null) {
                 log.warn("Received activity without actor");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
 
-            // Verify HTTP signature if required
-            if (properties.isRequireSignatures()) {
-                if (!verifySignature(request, actorUrl)) {
-                    log.warn("HTTP signature verification failed for actor: {}", actorUrl);
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-                }
+            // Unsigned requests carry no keyId, so the actor's domain is checked as well
+            if (domainPolicyIndex.isBlocked(hostOf(header.actor()))) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            // Fetch or get the remote actor
-            Account actor = remoteActorService.fetchAndStore(actorUrl)
-                    .orElse(null);
+            // Already processed through another inbox; nothing left to do
+            if (deduplicator.isDuplicate(header.id())) {
+                log.debug("Skipping duplicate activity: {}", header.id());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+            }
 
-            if (actor == null) {
-                log.warn("Could not fetch remote actor: {}", actorUrl);
-                // Still process the activity - some instances may not have accessible actor profiles
+            // Unsigned requests can be rejected up front; the signature itself is verified later
+            if (properties.isRequireSignatures() && request.getHeader("Signature") == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
 
-            // Dispatch to appropriate handler
-            activityDispatcher.dispatch(requestBody, activityType, actor, localRecipient);
+            InboxEnvelope envelope = new InboxEnvelope(
+                    new String(body, StandardCharsets.UTF_8),
+                    copyHeaders(request),
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    recipientUsername,
+                    header.actor(),
+                    header.type(),
+                    header.id(),
+                    System.currentTimeMillis());
+            if (relayed) {
+                relayQueue.enqueue(envelope);
+            } else {
+                inboxQueue.enqueue(envelope);
+            }
 
             // Return 202 Accepted (ActivityPub spec)
             return ResponseEntity.status(HttpStatus.ACCEPTED).build();
 
         } catch (Exception e) {
-            log.error("Error processing inbox activity", e);
+            log.error("Error accepting inbox activity", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     /**
-     * Verify the HTTP signature on an incoming request.
+     * Whether the request is signed with a key from a blocked domain.
      */
-    private boolean verifySignature(HttpServletRequest request, String actorUrl) {
-        try {
-            // Extract the Signature header
-            String signatureHeader = request.getHeader("Signature");
-            if (signatureHeader == null || signatureHeader.isBlank()) {
-                log.debug("No Signature header present");
-                return false;
-            }
-
-            // Parse the signature
-            HttpSignature signature = HttpSignature.parse(signatureHeader);
-            if (signature == null) {
-                log.debug("Could not parse signature header");
-                return false;
-            }
-
-            // Get the actor's public key
-            Account actor = remoteActorService.fetchAndStore(actorUrl).orElse(null);
-            if (actor == null || actor.getPublicKeyPem() == null) {
-                log.debug("Could not fetch actor or public key for: {}", actorUrl);
-                return false;
-            }
+    private boolean isFromBlockedDomain(HttpServletRequest request) {
+        String signatureHeader = request.getHeader("Signature");
+        if (signatureHeader == null || signatureHeader.isBlank()) {
+            return false;
+        }
+        HttpSignature signature = HttpSignature.parse(signatureHeader);
+        return signature != null && domainPolicyIndex.isBlocked(hostOf(signature.getKeyId()));
+    }
 
-            // Parse the public key
-            PublicKey publicKey = PemUtils.parsePublicKey(actor.getPublicKeyPem());
+    private static String hostOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-            // Build headers map from request
-            Map<String, String> headers = new HashMap<>();
-            Enumeration<String> headerNames = request.getHeaderNames();
-            while (headerNames.hasMoreElements()) {
-                String name = headerNames.nextElement();
-                headers.put(name.toLowerCase(), request.getHeader(name));
+    /**
+     * Read the request body, giving up once it exceeds {@code maxBytes}.
+     *
+     * @param digest updated with the body bytes if not null
+     * @return the body, or {@code null} if it is too large
+     */
+    private static byte[] readBody(InputStream in, long maxBytes, MessageDigest digest) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                return null;
             }
-
-            // Add digest header if present
-            String digest = request.getHeader("Digest");
+            out.write(buffer, 0, read);
             if (digest != null) {
-                headers.put("digest", digest);
+                digest.update(buffer, 0, read);
             }
+        }
+        return out.toByteArray();
+    }
 
-            // Verify the signature
-            String method = request.getMethod().toLowerCase();
-            String path = request.getRequestURI();
-
-            return signatureVerifier.verify(signature, publicKey, method, path, headers);
-
-        } catch (Exception e) {
-            log.error("Error verifying HTTP signature", e);
-            return false;
+    /**
+     * Capture the request headers, lower-cased, for signature verification by the worker.
+     */
+    private static Map<String, String> copyHeaders(HttpServletRequest request) {
+        Map<String, String> headers = new HashMap<>();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String name = headerNames.nextElement();
+            headers.put(name.toLowerCase(), request.getHeader(name));
         }
+        return headers;
     }
 }
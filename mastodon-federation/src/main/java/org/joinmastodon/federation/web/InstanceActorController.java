@@ -0,0 +1,87 @@
+package org.joinmastodon.federation.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.federation.cache.CachedDocument;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.service.FederationKeyService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the instance actor at /actor. It owns the server key and is the actor that
+ * follows relays; its document never changes while the server runs, so it is built once.
+ */
+@RestController
+public class InstanceActorController {
+
+    private static final CacheControl ACTOR_CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+    private final CachedDocument document;
+
+    public InstanceActorController(FederationKeyService keyService,
+                                   FederationProperties properties,
+                                   ObjectMapper objectMapper) {
+        String baseUrl = properties.getBaseUrl().replaceAll("/$", "");
+        String actorUrl = baseUrl + "/actor";
+
+        Map<String, Object> publicKey = new LinkedHashMap<>();
+        publicKey.put("id", keyService.getFederationKeys().getKeyId());
+        publicKey.put("owner", actorUrl);
+        publicKey.put("publicKeyPem", keyService.getPublicKeyPem());
+
+        Map<String, Object> actor = new LinkedHashMap<>();
+        actor.put("@context", List.of("https://www.w3.org/ns/activitystreams", "https://w3id.org/security/v1"));
+        actor.put("id", actorUrl);
+        actor.put("type", "Application");
+        actor.put("preferredUsername", properties.getDomain());
+        actor.put("inbox", baseUrl + "/inbox");
+        actor.put("outbox", actorUrl + "/outbox");
+        actor.put("endpoints", Map.of("sharedInbox", baseUrl + "/inbox"));
+        actor.put("manuallyApprovesFollowers", true);
+        actor.put("publicKey", publicKey);
+
+        try {
+            this.document = CachedDocument.of(objectMapper.writeValueAsBytes(actor));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize instance actor", e);
+        }
+    }
+
+    /**
+     * Serve the instance actor.
+     *
+     * @param ifNoneMatch entity tags the client already holds
+     * @return the instance actor in ActivityPub format
+     */
+    @GetMapping(value = "/actor", produces = {
+            "application/activity+json",
+            "application/ld+json",
+            "application/json"
+    })
+    public ResponseEntity<byte[]> getInstanceActor(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (document.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(document.etag())
+                    .cacheControl(ACTOR_CACHE_CONTROL)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/activity+json"))
+                .eTag(document.etag())
+                .cacheControl(ACTOR_CACHE_CONTROL)
+                .body(document.body());
+    }
+}
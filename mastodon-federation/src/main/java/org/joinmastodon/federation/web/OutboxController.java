@@ -1,13 +1,13 @@
 package org.joinmastodon.federation.web;
 
-import org.joinmastodon.activitypub.model.Create;
-import org.joinmastodon.activitypub.model.OrderedCollection;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.Status;
 import org.joinmastodon.core.service.AccountService;
 import org.joinmastodon.core.service.StatusService;
-import org.joinmastodon.federation.service.ActivityPubMapper;
+import org.joinmastodon.federation.cache.CachedDocument;
+import org.joinmastodon.federation.service.OutboxCache;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -32,14 +33,14 @@ public class OutboxController {
 
     private final AccountService accountService;
     private final StatusService statusService;
-    private final ActivityPubMapper activityPubMapper;
+    private final OutboxCache outboxCache;
 
     public OutboxController(AccountService accountService,
                            StatusService statusService,
-                           ActivityPubMapper activityPubMapper) {
+                           OutboxCache outboxCache) {
         this.accountService = accountService;
         this.statusService = statusService;
-        this.activityPubMapper = activityPubMapper;
+        this.outboxCache = outboxCache;
     }
 
     /**
@@ -50,6 +51,7 @@ public class OutboxController {
      * @param page whether to return a specific page
      * @param minId minimum ID for pagination
      * @param maxId maximum ID for pagination
+     * @param ifNoneMatch entity tags the client already holds
      * @return the outbox collection or page
      */
     @GetMapping(value = "/{username}/outbox", produces = {
@@ -60,7 +62,8 @@ public class OutboxController {
     public ResponseEntity<?> getOutbox(@PathVariable String username,
                                        @RequestParam(required = false) Boolean page,
                                        @RequestParam(required = false) Long minId,
-                                       @RequestParam(required = false) Long maxId) {
+                                       @RequestParam(required = false) Long maxId,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         // Only serve local accounts
         Account account = accountService.findLocalAccountByUsername(username)
                 .orElse(null);
@@ -71,7 +74,7 @@ public class OutboxController {
 
         // If page is requested, return a page of activities
         if (Boolean.TRUE.equals(page)) {
-            return getOutboxPage(account, minId, maxId);
+            return getOutboxPage(account, minId, maxId, ifNoneMatch);
         }
 
         // Return the collection metadata
@@ -94,28 +97,34 @@ public class OutboxController {
 
     /**
      * Return a page of outbox activities.
+     * Pages are served pre-serialized from {@link OutboxCache}; a matching
+     * If-None-Match gets 304 Not Modified.
      */
-    private ResponseEntity<?> getOutboxPage(Account account, Long minId, Long maxId) {
-        // Get the user's public statuses
-        List<Status> statuses = statusService.findByAccountWithCursor(
-                account,
-                maxId,
-                minId,
-                PageRequest.of(0, 20)
-        );
-
-        // Filter to only public/unlisted statuses
-        List<Status> publicStatuses = statuses.stream()
-                .filter(s -> s.getVisibility() == org.joinmastodon.core.model.Visibility.PUBLIC ||
-                            s.getVisibility() == org.joinmastodon.core.model.Visibility.UNLISTED)
-                .toList();
-
-        // Convert to Create activities
-        OrderedCollection<Create> collection = activityPubMapper.toOutbox(account, publicStatuses);
+    private ResponseEntity<?> getOutboxPage(Account account, Long minId, Long maxId, String ifNoneMatch) {
+        CachedDocument page = outboxCache.page(account, minId, maxId, () -> {
+            // Get the user's public statuses
+            List<Status> statuses = statusService.findByAccountWithCursor(
+                    account,
+                    maxId,
+                    minId,
+                    PageRequest.of(0, 20)
+            );
+
+            // Filter to only public/unlisted statuses
+            return statuses.stream()
+                    .filter(s -> s.getVisibility() == org.joinmastodon.core.model.Visibility.PUBLIC ||
+                                s.getVisibility() == org.joinmastodon.core.model.Visibility.UNLISTED)
+                    .toList();
+        });
+
+        if (page.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(page.etag()).build();
+        }
 
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType("application/activity+json"))
-                .body(collection);
+                .eTag(page.etag())
+                .body(page.body());
     }
 
     /**
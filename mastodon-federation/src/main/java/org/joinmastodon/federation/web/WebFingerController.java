@@ -1,12 +1,14 @@
 package org.joinmastodon.federation.web;
 
-import org.joinmastodon.federation.model.WebFingerResponse;
-import org.joinmastodon.federation.service.WebFingerService;
+import org.joinmastodon.federation.cache.CachedDocument;
+import org.joinmastodon.federation.service.ActorDocumentCache;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -24,10 +26,12 @@ import java.util.Optional;
 @RequestMapping("/.well-known")
 public class WebFingerController {
 
-    private final WebFingerService webFingerService;
+    private static final CacheControl WEBFINGER_CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
 
-    public WebFingerController(WebFingerService webFingerService) {
-        this.webFingerService = webFingerService;
+    private final ActorDocumentCache actorDocumentCache;
+
+    public WebFingerController(ActorDocumentCache actorDocumentCache) {
+        this.actorDocumentCache = actorDocumentCache;
     }
 
     /**
@@ -35,19 +39,30 @@ public class WebFingerController {
      * Returns a JRD (JSON Resource Descriptor) for the requested resource.
      *
      * @param resource the resource to resolve (e.g., acct:user@domain)
+     * @param ifNoneMatch entity tags the client already holds
      * @return the WebFinger response or 404 if not found
      */
     @GetMapping(value = "/webfinger", produces = "application/jrd+json")
-    public ResponseEntity<WebFingerResponse> webfinger(@RequestParam("resource") String resource) {
-        Optional<WebFingerResponse> response = webFingerService.resolve(resource);
+    public ResponseEntity<byte[]> webfinger(@RequestParam("resource") String resource,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<CachedDocument> response = actorDocumentCache.webFinger(resource);
         
         if (response.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
+        CachedDocument document = response.get();
+        if (document.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(document.etag())
+                    .cacheControl(WEBFINGER_CACHE_CONTROL)
+                    .build();
+        }
+
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType("application/jrd+json"))
-                .cacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePublic())
-                .body(response.get());
+                .eTag(document.etag())
+                .cacheControl(WEBFINGER_CACHE_CONTROL)
+                .body(document.body());
     }
 }
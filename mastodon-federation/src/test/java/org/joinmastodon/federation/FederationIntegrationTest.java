@@ -3,16 +3,24 @@ package org.joinmastodon.federation;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.joinmastodon.activitypub.model.Actor;
-import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
+import org.joinmastodon.activitypub.model.Create;
 import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.Status;
+import org.joinmastodon.core.model.Visibility;
 import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.core.service.DomainPolicyIndex;
 import org.joinmastodon.core.service.StatusService;
 import org.joinmastodon.federation.config.FederationProperties;
 import org.joinmastodon.federation.model.WebFingerLink;
 import org.joinmastodon.federation.model.WebFingerResponse;
-import org.joinmastodon.federation.service.ActivityDispatcher;
 import org.joinmastodon.federation.service.ActivityPubMapper;
-import org.joinmastodon.federation.service.RemoteActorService;
+import org.joinmastodon.federation.service.ActorDocumentCache;
+import org.joinmastodon.federation.service.ActivityDeduplicator;
+import org.joinmastodon.federation.service.ActivityHeaderParser;
+import org.joinmastodon.federation.service.InboxQueue;
+import org.joinmastodon.federation.service.RelayQueue;
+import org.joinmastodon.federation.service.RelayRegistry;
+import org.joinmastodon.federation.service.OutboxCache;
 import org.joinmastodon.federation.service.WebFingerService;
 import org.joinmastodon.federation.web.ActorController;
 import org.joinmastodon.federation.web.InboxController;
@@ -23,18 +31,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -54,16 +68,22 @@ class FederationIntegrationTest {
     private ActivityPubMapper activityPubMapper;
 
     @Mock
-    private RemoteActorService remoteActorService;
+    private FederationProperties federationProperties;
 
     @Mock
-    private FederationProperties federationProperties;
+    private InboxQueue inboxQueue;
+
+    @Mock
+    private RelayQueue relayQueue;
 
     @Mock
-    private ActivityDispatcher activityDispatcher;
+    private RelayRegistry relayRegistry;
 
     @Mock
-    private HttpSignatureVerifier signatureVerifier;
+    private ActivityDeduplicator activityDeduplicator;
+
+    @Mock
+    private DomainPolicyIndex domainPolicyIndex;
 
     @Mock
     private WebFingerService webFingerService;
@@ -83,15 +103,22 @@ class FederationIntegrationTest {
         objectMapper.registerModule(new JavaTimeModule());
 
         // Create controllers with proper constructor injection
-        actorController = new ActorController(accountService, activityPubMapper);
-        inboxController = new InboxController(accountService, remoteActorService, activityDispatcher, signatureVerifier, federationProperties);
-        outboxController = new OutboxController(accountService, statusService, activityPubMapper);
-        webFingerController = new WebFingerController(webFingerService);
+        lenient().when(federationProperties.getActorCacheSize()).thenReturn(100);
+        lenient().when(federationProperties.getActorCacheTtl()).thenReturn(Duration.ofMinutes(10));
+        ActorDocumentCache actorDocumentCache = new ActorDocumentCache(
+                accountService, activityPubMapper, webFingerService, objectMapper, federationProperties);
+        actorController = new ActorController(accountService, actorDocumentCache);
+        inboxController = new InboxController(accountService, inboxQueue, relayQueue, relayRegistry, activityDeduplicator, new ActivityHeaderParser(objectMapper), domainPolicyIndex, federationProperties);
+        lenient().when(federationProperties.getOutboxPageCacheSize()).thenReturn(100);
+        lenient().when(federationProperties.getOutboxActivityCacheSize()).thenReturn(100);
+        outboxController = new OutboxController(accountService, statusService,
+                new OutboxCache(activityPubMapper, objectMapper, federationProperties));
+        webFingerController = new WebFingerController(actorDocumentCache);
 
         // Setup MockMvc for all controllers with proper message converter
         JacksonJsonHttpMessageConverter converter = new JacksonJsonHttpMessageConverter();
         mockMvc = MockMvcBuilders.standaloneSetup(actorController, inboxController, outboxController, webFingerController)
-                .setMessageConverters(converter)
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), converter)
                 .build();
 
         testAccount = new Account();
@@ -105,6 +132,7 @@ class FederationIntegrationTest {
 
         lenient().when(federationProperties.getBaseUrl()).thenReturn("https://example.com");
         lenient().when(federationProperties.getDomain()).thenReturn("example.com");
+        lenient().when(federationProperties.getInboxMaxBodySize()).thenReturn(DataSize.ofMegabytes(1));
     }
 
     @Test
@@ -124,6 +152,28 @@ class FederationIntegrationTest {
                 .andExpect(jsonPath("$.preferredUsername").value("testuser"));
     }
 
+    @Test
+    void getActor_shouldServeCachedDocumentWithEtag() throws Exception {
+        when(accountService.findLocalAccountByUsername("testuser"))
+                .thenReturn(Optional.of(testAccount));
+        Actor actor = new Actor();
+        actor.setId("https://example.com/users/testuser");
+        when(activityPubMapper.toActor(any(Account.class))).thenReturn(actor);
+
+        String etag = mockMvc.perform(get("/users/testuser")
+                        .accept("application/activity+json"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Cache-Control"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/users/testuser")
+                        .header("If-None-Match", etag)
+                        .accept("application/activity+json"))
+                .andExpect(status().isNotModified());
+
+        verify(accountService, times(1)).findLocalAccountByUsername("testuser");
+    }
+
     @Test
     void getActor_shouldReturn404ForNonExistentUser() throws Exception {
         when(accountService.findLocalAccountByUsername("nonexistent"))
@@ -169,6 +219,36 @@ class FederationIntegrationTest {
                 .andExpect(jsonPath("$.type").value("OrderedCollection"));
     }
 
+    @Test
+    void getOutboxPage_shouldServeCachedPageWithEtag() throws Exception {
+        testAccount.setUsername("testuser");
+        when(accountService.findLocalAccountByUsername("testuser"))
+                .thenReturn(Optional.of(testAccount));
+        Status status = new Status();
+        status.setId(7L);
+        status.setAccount(testAccount);
+        status.setVisibility(Visibility.PUBLIC);
+        when(statusService.findByAccountWithCursor(any(Account.class), any(), any(), any()))
+                .thenReturn(List.of(status));
+        Create create = new Create();
+        create.setId("https://example.com/activities/7");
+        when(activityPubMapper.toCreateActivity(status)).thenReturn(create);
+
+        String etag = mockMvc.perform(get("/users/testuser/outbox").param("page", "true")
+                        .accept("application/activity+json"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.orderedItems[0].id").value("https://example.com/activities/7"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/users/testuser/outbox").param("page", "true")
+                        .header("If-None-Match", etag)
+                        .accept("application/activity+json"))
+                .andExpect(status().isNotModified());
+
+        verify(statusService, times(1)).findByAccountWithCursor(any(Account.class), any(), any(), any());
+    }
+
     @Test
     void sharedInbox_shouldReturn202() throws Exception {
         String activity = """
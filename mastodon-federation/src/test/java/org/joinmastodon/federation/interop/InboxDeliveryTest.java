@@ -6,12 +6,15 @@ import org.joinmastodon.activitypub.model.Create;
 import org.joinmastodon.activitypub.model.Follow;
 import org.joinmastodon.activitypub.model.LikeActivity;
 import org.joinmastodon.activitypub.model.Note;
-import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.core.service.DomainPolicyIndex;
 import org.joinmastodon.federation.config.FederationProperties;
-import org.joinmastodon.federation.service.ActivityDispatcher;
-import org.joinmastodon.federation.service.RemoteActorService;
+import org.joinmastodon.federation.service.ActivityDeduplicator;
+import org.joinmastodon.federation.service.ActivityHeaderParser;
+import org.joinmastodon.federation.service.InboxQueue;
+import org.joinmastodon.federation.service.RelayQueue;
+import org.joinmastodon.federation.service.RelayRegistry;
 import org.joinmastodon.federation.web.InboxController;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -23,14 +26,19 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -50,13 +58,19 @@ class InboxDeliveryTest {
     private FederationProperties federationProperties;
 
     @Mock
-    private ActivityDispatcher activityDispatcher;
+    private InboxQueue inboxQueue;
 
     @Mock
-    private RemoteActorService remoteActorService;
+    private RelayQueue relayQueue;
 
     @Mock
-    private HttpSignatureVerifier signatureVerifier;
+    private RelayRegistry relayRegistry;
+
+    @Mock
+    private ActivityDeduplicator activityDeduplicator;
+
+    @Mock
+    private DomainPolicyIndex domainPolicyIndex;
 
     private InboxController inboxController;
 
@@ -69,7 +83,7 @@ class InboxDeliveryTest {
         objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         
-        inboxController = new InboxController(accountService, remoteActorService, activityDispatcher, signatureVerifier, federationProperties);
+        inboxController = new InboxController(accountService, inboxQueue, relayQueue, relayRegistry, activityDeduplicator, new ActivityHeaderParser(objectMapper), domainPolicyIndex, federationProperties);
         
         JacksonJsonHttpMessageConverter converter = new JacksonJsonHttpMessageConverter();
         mockMvc = MockMvcBuilders.standaloneSetup(inboxController)
@@ -83,6 +97,7 @@ class InboxDeliveryTest {
         localAccount.setLocalAccount(true);
 
         lenient().when(federationProperties.getDomain()).thenReturn("example.com");
+        lenient().when(federationProperties.getInboxMaxBodySize()).thenReturn(DataSize.ofMegabytes(1));
         lenient().when(federationProperties.getBaseUrl()).thenReturn("https://example.com");
         lenient().when(federationProperties.isRequireSignatures()).thenReturn(false);
     }
@@ -275,5 +290,93 @@ class InboxDeliveryTest {
                             .content(""))
                     .andExpect(status().isBadRequest());
         }
+
+        @Test
+        @DisplayName("Rejects oversized body")
+        void rejectsOversizedBody() throws Exception {
+            when(federationProperties.getInboxMaxBodySize()).thenReturn(DataSize.ofBytes(16));
+            String json = "{\"type\":\"Follow\",\"actor\":\"https://remote.example/users/bob\"}";
+
+            mockMvc.perform(post("/inbox")
+                            .contentType("application/activity+json")
+                            .content(json))
+                    .andExpect(status().isContentTooLarge());
+        }
+
+        @Test
+        @DisplayName("Defers delivery when the inbox queue is full")
+        void defersWhenQueueFull() throws Exception {
+            when(inboxQueue.isFull()).thenReturn(true);
+            String json = "{\"type\":\"Follow\",\"actor\":\"https://remote.example/users/bob\"}";
+
+            mockMvc.perform(post("/inbox")
+                            .contentType("application/activity+json")
+                            .content(json))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+        }
+
+        @Test
+        @DisplayName("Queues relay traffic on the relay queue")
+        void routesRelayTraffic() throws Exception {
+            when(relayRegistry.isRelaySignature(any())).thenReturn(true);
+            String json = "{\"type\":\"Create\",\"actor\":\"https://remote.example/users/bob\"}";
+
+            mockMvc.perform(post("/inbox")
+                            .contentType("application/activity+json")
+                            .header("Signature", "keyId=\"https://relay.example/actor#main-key\"")
+                            .content(json))
+                    .andExpect(status().isAccepted());
+
+            verify(relayQueue).enqueue(any());
+            verify(inboxQueue, never()).enqueue(any());
+        }
+
+        @Test
+        @DisplayName("Drops relay traffic when the relay queue is full")
+        void dropsRelayTrafficWhenFull() throws Exception {
+            when(relayRegistry.isRelaySignature(any())).thenReturn(true);
+            when(relayQueue.isFull()).thenReturn(true);
+            when(federationProperties.getRelayOverflowPolicy()).thenReturn(FederationProperties.RelayOverflowPolicy.DROP);
+            String json = "{\"type\":\"Create\",\"actor\":\"https://remote.example/users/bob\"}";
+
+            mockMvc.perform(post("/inbox")
+                            .contentType("application/activity+json")
+                            .content(json))
+                    .andExpect(status().isAccepted());
+
+            verify(relayQueue).recordDropped();
+            verify(relayQueue, never()).enqueue(any());
+        }
+
+        @Test
+        @DisplayName("Refuses requests signed by a blocked domain before reading the body")
+        void refusesBlockedSigner() throws Exception {
+            when(domainPolicyIndex.isBlocked("blocked.example")).thenReturn(true);
+            String json = "{\"type\":\"Create\",\"actor\":\"https://blocked.example/users/bob\"}";
+
+            mockMvc.perform(post("/inbox")
+                            .contentType("application/activity+json")
+                            .header("Signature", "keyId=\"https://blocked.example/users/bob#main-key\"")
+                            .content(json))
+                    .andExpect(status().isForbidden());
+
+            verify(inboxQueue, never()).isFull();
+            verify(inboxQueue, never()).enqueue(any());
+        }
+
+        @Test
+        @DisplayName("Refuses unsigned activities from a blocked actor domain")
+        void refusesBlockedActor() throws Exception {
+            when(domainPolicyIndex.isBlocked("blocked.example")).thenReturn(true);
+            String json = "{\"type\":\"Create\",\"actor\":\"https://blocked.example/users/bob\"}";
+
+            mockMvc.perform(post("/inbox")
+                            .contentType("application/activity+json")
+                            .content(json))
+                    .andExpect(status().isForbidden());
+
+            verify(inboxQueue, never()).enqueue(any());
+        }
     }
 }
@@ -2,8 +2,13 @@ package org.joinmastodon.federation.interop;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.core.event.AccountChangedEvent;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.config.FederationProperties;
 import org.joinmastodon.federation.model.WebFingerLink;
 import org.joinmastodon.federation.model.WebFingerResponse;
+import org.joinmastodon.federation.service.ActivityPubMapper;
+import org.joinmastodon.federation.service.ActorDocumentCache;
 import org.joinmastodon.federation.service.WebFingerService;
 import org.joinmastodon.federation.web.WebFingerController;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +16,6 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,6 +27,8 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -42,7 +48,13 @@ class WebFingerInteropTest {
     @Mock
     private WebFingerService webFingerService;
 
-    @InjectMocks
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private ActivityPubMapper activityPubMapper;
+
+    private ActorDocumentCache actorDocumentCache;
     private WebFingerController webFingerController;
 
     private MockMvc mockMvc;
@@ -51,6 +63,9 @@ class WebFingerInteropTest {
 
     @BeforeEach
     void setUp() {
+        actorDocumentCache = new ActorDocumentCache(
+                accountService, activityPubMapper, webFingerService, new ObjectMapper(), new FederationProperties());
+        webFingerController = new WebFingerController(actorDocumentCache);
         mockMvc = MockMvcBuilders.standaloneSetup(webFingerController).build();
         objectMapper = new ObjectMapper();
 
@@ -257,6 +272,25 @@ class WebFingerInteropTest {
                         assertThat(contentType).contains("application/jrd+json");
                     });
         }
+
+        @Test
+        @DisplayName("Drops both the acct: and the actor URL form when the account changes")
+        void invalidatesBothResourceForms() throws Exception {
+            String acct = "acct:alice@localhost";
+            String actorUrl = "http://localhost:8080/users/alice";
+            when(webFingerService.resolve(anyString())).thenReturn(Optional.of(testResponse));
+
+            for (int round = 0; round < 2; round++) {
+                mockMvc.perform(get("/.well-known/webfinger").param("resource", acct))
+                        .andExpect(status().isOk());
+                mockMvc.perform(get("/.well-known/webfinger").param("resource", actorUrl))
+                        .andExpect(status().isOk());
+                actorDocumentCache.onAccountChanged(new AccountChangedEvent(1L, "alice", true));
+            }
+
+            verify(webFingerService, times(2)).resolve(acct);
+            verify(webFingerService, times(2)).resolve(actorUrl);
+        }
     }
 
     @Nested
@@ -0,0 +1,128 @@
+package org.joinmastodon.federation.service;
+
+import org.joinmastodon.activitypub.signature.PemUtils;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.AccountKey;
+import org.joinmastodon.core.repository.AccountKeyRepository;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for AccountKeyService key creation and caching.
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountKeyServiceTest {
+    private static final String ACTOR = "https://local.example/users/alice";
+
+    @Mock
+    private AccountKeyRepository accountKeyRepository;
+
+    private FederationKeyService federationKeyService;
+    private AccountKeyService service;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        FederationProperties properties = new FederationProperties();
+        properties.setBaseUrl("https://local.example/");
+        federationKeyService = new FederationKeyService(properties);
+        service = new AccountKeyService(accountKeyRepository, federationKeyService, properties);
+        account = new Account();
+        account.setId(1L);
+        account.setUsername("alice");
+    }
+
+    @Test
+    @DisplayName("Generates and stores an RSA key on first use and caches it")
+    void generatesRsaKeyOnFirstUse() {
+        when(accountKeyRepository.findByAccountIdAndAlgorithm(1L, AccountKey.Algorithm.RSA))
+                .thenReturn(Optional.empty());
+        when(accountKeyRepository.save(any(AccountKey.class))).then(returnsFirstArg());
+
+        SigningKey first = service.rsaKey(account);
+        SigningKey second = service.rsaKey(account);
+
+        ArgumentCaptor<AccountKey> saved = ArgumentCaptor.forClass(AccountKey.class);
+        verify(accountKeyRepository).save(saved.capture());
+        assertThat(saved.getValue().getAccountId()).isEqualTo(1L);
+        assertThat(saved.getValue().getAlgorithm()).isEqualTo(AccountKey.Algorithm.RSA);
+        assertThat(first.keyId()).isEqualTo(ACTOR + "#main-key");
+        assertThat(first.privateKey().getAlgorithm()).isEqualTo("RSA");
+        assertThat(first.publicKeyPem()).isEqualTo(saved.getValue().getPublicKeyPem());
+        assertThat(second).isSameAs(first);
+        verify(accountKeyRepository, times(1)).findByAccountIdAndAlgorithm(1L, AccountKey.Algorithm.RSA);
+    }
+
+    @Test
+    @DisplayName("Loads a stored Ed25519 key without generating a new one")
+    void loadsStoredEd25519Key() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        when(accountKeyRepository.findByAccountIdAndAlgorithm(1L, AccountKey.Algorithm.ED25519))
+                .thenReturn(Optional.of(stored(keyPair, AccountKey.Algorithm.ED25519)));
+
+        SigningKey key = service.ed25519Key(account);
+
+        assertThat(key.keyId()).isEqualTo(ACTOR + "#ed25519-key");
+        assertThat(key.publicKey()).isEqualTo(keyPair.getPublic());
+        assertThat(key.privateKey().getEncoded()).isEqualTo(keyPair.getPrivate().getEncoded());
+        verify(accountKeyRepository, never()).save(any(AccountKey.class));
+    }
+
+    @Test
+    @DisplayName("Uses the key another node stored first when both generate one")
+    void usesConcurrentlyStoredKey() throws Exception {
+        KeyPair winner = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        when(accountKeyRepository.findByAccountIdAndAlgorithm(1L, AccountKey.Algorithm.ED25519))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(stored(winner, AccountKey.Algorithm.ED25519)));
+        when(accountKeyRepository.save(any(AccountKey.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        SigningKey key = service.ed25519Key(account);
+
+        assertThat(key.publicKey()).isEqualTo(winner.getPublic());
+    }
+
+    @Test
+    @DisplayName("Keeps separate keys per algorithm and signs without an account with the instance key")
+    void separatesAlgorithmsAndInstanceKey() {
+        when(accountKeyRepository.findByAccountIdAndAlgorithm(any(), any())).thenReturn(Optional.empty());
+        when(accountKeyRepository.save(any(AccountKey.class))).then(returnsFirstArg());
+
+        SigningKey rsa = service.rsaKey(account);
+        SigningKey ed25519 = service.ed25519Key(account);
+
+        assertThat(rsa.publicKey()).isNotEqualTo(ed25519.publicKey());
+        assertThat(ed25519.privateKey().getAlgorithm()).isIn("Ed25519", "EdDSA");
+        assertThat(service.instanceKey().keyId()).isEqualTo(federationKeyService.getFederationKeys().getKeyId());
+        assertThat(service.instanceKey().publicKeyPem()).isEqualTo(federationKeyService.getPublicKeyPem());
+    }
+
+    private static AccountKey stored(KeyPair keyPair, AccountKey.Algorithm algorithm) {
+        AccountKey accountKey = new AccountKey();
+        accountKey.setAccountId(1L);
+        accountKey.setAlgorithm(algorithm);
+        accountKey.setPublicKeyPem(PemUtils.toPublicKeyPem(keyPair.getPublic()));
+        accountKey.setPrivateKeyPem(PemUtils.toPrivateKeyPem(keyPair.getPrivate()));
+        return accountKey;
+    }
+}
@@ -0,0 +1,99 @@
+package org.joinmastodon.federation.service;
+
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for ActivityDeduplicator.
+ */
+class ActivityDeduplicatorTest {
+
+    @Test
+    @DisplayName("Reports an activity as duplicate only after it was processed")
+    void detectsProcessedActivity() {
+        ActivityDeduplicator deduplicator = new ActivityDeduplicator(new FederationProperties());
+        String id = "https://remote.example/activities/1";
+
+        assertThat(deduplicator.isDuplicate(id)).isFalse();
+        deduplicator.markProcessed(id);
+        assertThat(deduplicator.isDuplicate(id)).isTrue();
+        assertThat(deduplicator.isDuplicate("https://remote.example/activities/2")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Ignores activities without an id")
+    void ignoresMissingId() {
+        ActivityDeduplicator deduplicator = new ActivityDeduplicator(new FederationProperties());
+
+        deduplicator.markProcessed(null);
+        assertThat(deduplicator.isDuplicate(null)).isFalse();
+        assertThat(deduplicator.isDuplicate("")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Forgets the oldest ids once capacity is exceeded")
+    void boundedByCapacity() {
+        FederationProperties properties = new FederationProperties();
+        properties.setInboxDedupCapacity(100);
+        ActivityDeduplicator deduplicator = new ActivityDeduplicator(properties);
+
+        for (int i = 0; i < 250; i++) {
+            deduplicator.markProcessed("https://remote.example/activities/" + i);
+        }
+
+        assertThat(deduplicator.isDuplicate("https://remote.example/activities/0")).isFalse();
+        assertThat(deduplicator.isDuplicate("https://remote.example/activities/249")).isTrue();
+        assertThat(deduplicator.isDuplicate("https://remote.example/activities/150")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Lets only one of several concurrent deliveries claim an activity")
+    void claimsOnce() throws Exception {
+        ActivityDeduplicator deduplicator = new ActivityDeduplicator(new FederationProperties());
+        String id = "https://remote.example/activities/1";
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> claims = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                claims.add(executor.submit(() -> {
+                    start.await();
+                    return deduplicator.tryMark(id);
+                }));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> claim : claims) {
+                won += claim.get() ? 1 : 0;
+            }
+            assertThat(won).isEqualTo(1);
+        }
+        assertThat(deduplicator.isDuplicate(id)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Lets a released claim be taken again")
+    void releasesClaim() {
+        ActivityDeduplicator deduplicator = new ActivityDeduplicator(new FederationProperties());
+        String id = "https://remote.example/activities/1";
+
+        assertThat(deduplicator.tryMark(id)).isTrue();
+        assertThat(deduplicator.tryMark(id)).isFalse();
+        deduplicator.release(id);
+
+        assertThat(deduplicator.isDuplicate(id)).isFalse();
+        assertThat(deduplicator.tryMark(id)).isTrue();
+        assertThat(deduplicator.tryMark(null)).isTrue();
+    }
+}
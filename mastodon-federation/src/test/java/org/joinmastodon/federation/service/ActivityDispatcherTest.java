@@ -0,0 +1,146 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joinmastodon.activitypub.model.ActivityType;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.handler.AcceptActivityHandler;
+import org.joinmastodon.federation.handler.AnnounceActivityHandler;
+import org.joinmastodon.federation.handler.CreateActivityHandler;
+import org.joinmastodon.federation.handler.DeleteActivityHandler;
+import org.joinmastodon.federation.handler.FollowActivityHandler;
+import org.joinmastodon.federation.handler.LikeActivityHandler;
+import org.joinmastodon.federation.handler.RejectActivityHandler;
+import org.joinmastodon.federation.handler.UndoActivityHandler;
+import org.joinmastodon.federation.handler.UpdateActivityHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for ActivityDispatcher.
+ * Tests per-object ordering, back-pressure and metrics of the partitioned dispatch.
+ */
+class ActivityDispatcherTest {
+
+    private final CreateActivityHandler createHandler = mock(CreateActivityHandler.class);
+    private final DeleteActivityHandler deleteHandler = mock(DeleteActivityHandler.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ActivityDispatcher dispatcher;
+
+    private ActivityDispatcher dispatcher(int partitions, int queueCapacity) {
+        FederationProperties properties = new FederationProperties();
+        properties.setDispatchPartitions(partitions);
+        properties.setDispatchQueueCapacity(queueCapacity);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        dispatcher = new ActivityDispatcher(
+                mock(FollowActivityHandler.class),
+                mock(AcceptActivityHandler.class),
+                mock(RejectActivityHandler.class),
+                mock(UndoActivityHandler.class),
+                createHandler,
+                mock(AnnounceActivityHandler.class),
+                mock(LikeActivityHandler.class),
+                deleteHandler,
+                mock(UpdateActivityHandler.class),
+                properties,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+        return dispatcher;
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    private static JsonNode activity(String id) {
+        return JsonNodeFactory.instance.objectNode().put("id", id);
+    }
+
+    @Test
+    @DisplayName("Dispatches activities for the same object in submission order")
+    void keepsOrderPerObject() {
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> handled.add(invocation.<JsonNode>getArgument(0).get("id").asText()))
+                .when(createHandler).handle(any(), any(), any());
+        doAnswer(invocation -> handled.add(invocation.<JsonNode>getArgument(0).get("id").asText()))
+                .when(deleteHandler).handle(any(), any(), any());
+        ActivityDispatcher dispatcher = dispatcher(8, 100);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ActivityType type = i % 2 == 0 ? ActivityType.CREATE : ActivityType.DELETE;
+            futures.add(dispatcher.submit("https://remote.example/notes/1", activity(String.valueOf(i)),
+                    type, null, null));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(handled).hasSize(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(handled.get(i)).isEqualTo(String.valueOf(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects new work once a partition queue is full")
+    void rejectsWhenPartitionFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(createHandler).handle(any(), any(), any());
+        ActivityDispatcher dispatcher = dispatcher(1, 1);
+
+        CompletableFuture<Void> running = dispatcher.submit("a", activity("1"), ActivityType.CREATE, null, null);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = dispatcher.submit("a", activity("2"), ActivityType.CREATE, null, null);
+        CompletableFuture<Void> rejected = dispatcher.submit("a", activity("3"), ActivityType.CREATE, null, null);
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(rejected.handle((ignored, error) -> error).join())
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get("federation.activities.rejected").tag("type", "CREATE").counter().count())
+                .isEqualTo(1.0);
+
+        release.countDown();
+        CompletableFuture.allOf(running, queued).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Records handling time per activity type and outcome")
+    void recordsMetricsPerType() {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("boom");
+        }).when(deleteHandler).handle(any(), any(), any());
+        ActivityDispatcher dispatcher = dispatcher(4, 10);
+
+        dispatcher.submit("a", activity("1"), ActivityType.CREATE, null, null).join();
+        dispatcher.submit("b", activity("2"), ActivityType.DELETE, null, null).join();
+
+        assertThat(meterRegistry.get("federation.activities.dispatched")
+                .tags("type", "CREATE", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("federation.activities.dispatched")
+                .tags("type", "DELETE", "outcome", "error").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,70 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.federation.model.ActivityHeader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for ActivityHeaderParser.
+ */
+class ActivityHeaderParserTest {
+    private final ActivityHeaderParser parser = new ActivityHeaderParser(new ObjectMapper());
+
+    @Test
+    @DisplayName("Extracts routing fields and skips everything else")
+    void extractsRoutingFields() throws Exception {
+        ActivityHeader header = parse("""
+                {
+                    "@context": ["https://www.w3.org/ns/activitystreams", {"sensitive": "as:sensitive"}],
+                    "type": "Create",
+                    "id": "https://remote.example/activities/1",
+                    "actor": "https://remote.example/users/bob",
+                    "object": {
+                        "type": "Note",
+                        "tag": [{"id": "https://remote.example/tags/x"}],
+                        "id": "https://remote.example/notes/1"
+                    },
+                    "to": ["https://www.w3.org/ns/activitystreams#Public"]
+                }
+                """);
+
+        assertThat(header.type()).isEqualTo("Create");
+        assertThat(header.id()).isEqualTo("https://remote.example/activities/1");
+        assertThat(header.actor()).isEqualTo("https://remote.example/users/bob");
+        assertThat(header.objectId()).isEqualTo("https://remote.example/notes/1");
+    }
+
+    @Test
+    @DisplayName("Accepts embedded actor objects and type arrays")
+    void acceptsEmbeddedActorAndTypeArray() throws Exception {
+        ActivityHeader header = parse("""
+                {"type": ["Follow"], "actor": {"id": "https://remote.example/users/bob"},
+                 "object": "https://example.com/users/alice"}
+                """);
+
+        assertThat(header.type()).isEqualTo("Follow");
+        assertThat(header.actor()).isEqualTo("https://remote.example/users/bob");
+        assertThat(header.objectId()).isEqualTo("https://example.com/users/alice");
+        assertThat(header.id()).isNull();
+    }
+
+    @Test
+    @DisplayName("Rejects bodies that are not a single JSON object")
+    void rejectsNonObjects() throws Exception {
+        assertThat(parse("[1, 2]")).isNull();
+        assertThat(parse("{\"type\": \"Like\"} {}")).isNull();
+        assertThatThrownBy(() -> parse("{\"type\": \"Like\", \"object\": {"))
+                .isInstanceOf(JsonProcessingException.class);
+    }
+
+    private ActivityHeader parse(String json) throws Exception {
+        return parser.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
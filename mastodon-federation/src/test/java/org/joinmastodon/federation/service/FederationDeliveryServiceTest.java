@@ -0,0 +1,159 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.DomainPolicyIndex;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the choice between RSA and Ed25519 signatures on delivery.
+ */
+@ExtendWith(MockitoExtension.class)
+class FederationDeliveryServiceTest {
+    private static final String INBOX = "https://remote.example/inbox";
+    private static final String ED25519 = "sig1=(\"@method\" \"@target-uri\" \"content-digest\");alg=\"ed25519\"";
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Mock
+    private AccountKeyService accountKeyService;
+
+    @Mock
+    private DomainPolicyIndex domainPolicyIndex;
+
+    private RemoteSignatureSupport signatureSupport;
+    private FederationDeliveryService deliveryService;
+    private Account sender;
+
+    @BeforeEach
+    void setUp() {
+        signatureSupport = new RemoteSignatureSupport(new FederationProperties());
+        deliveryService = new FederationDeliveryService(httpClient, new ObjectMapper(), accountKeyService,
+                signatureSupport, domainPolicyIndex);
+        sender = new Account();
+        sender.setId(1L);
+        sender.setUsername("alice");
+    }
+
+    @Test
+    @DisplayName("Signs with the account's RSA key for hosts that have not advertised Ed25519")
+    void signsWithRsaByDefault() throws Exception {
+        when(accountKeyService.rsaKey(sender)).thenReturn(key("RSA", "#main-key"));
+        respond(202, null);
+
+        deliveryService.deliver(Map.of("type", "Create"), INBOX, sender);
+
+        HttpRequest request = sentRequests(1).get(0);
+        assertThat(request.headers().firstValue("Signature")).hasValueSatisfying(value ->
+                assertThat(value).contains("keyId=\"https://local.example/users/alice#main-key\""));
+        assertThat(request.headers().firstValue("Digest")).isPresent();
+        assertThat(request.headers().firstValue("Signature-Input")).isEmpty();
+        verify(accountKeyService, never()).ed25519Key(any());
+    }
+
+    @Test
+    @DisplayName("Signs with the account's Ed25519 key once the host has advertised it")
+    void signsWithEd25519WhenAdvertised() throws Exception {
+        signatureSupport.record("remote.example", ED25519);
+        when(accountKeyService.ed25519Key(sender)).thenReturn(key("Ed25519", "#ed25519-key"));
+        respond(202, null);
+
+        deliveryService.deliver(Map.of("type", "Create"), INBOX, sender);
+
+        HttpRequest request = sentRequests(1).get(0);
+        assertThat(request.headers().firstValue("Signature-Input")).hasValueSatisfying(value ->
+                assertThat(value).contains("keyid=\"https://local.example/users/alice#ed25519-key\""));
+        assertThat(request.headers().firstValue("Content-Digest")).isPresent();
+        verify(accountKeyService, never()).rsaKey(any());
+    }
+
+    @Test
+    @DisplayName("Retries once with Ed25519 when a rejection advertises it")
+    void retriesWithAdvertisedScheme() throws Exception {
+        when(accountKeyService.rsaKey(sender)).thenReturn(key("RSA", "#main-key"));
+        when(accountKeyService.ed25519Key(sender)).thenReturn(key("Ed25519", "#ed25519-key"));
+        HttpResponse<String> rejected = response(401, ED25519);
+        // Only the first response's Accept-Signature is recorded
+        HttpResponse<?> accepted = mock(HttpResponse.class);
+        when(accepted.statusCode()).thenReturn(202);
+        doReturn(rejected, accepted).when(httpClient).send(any(), any());
+
+        deliveryService.deliver(Map.of("type", "Create"), INBOX, sender);
+
+        List<HttpRequest> requests = sentRequests(2);
+        assertThat(requests.get(0).headers().firstValue("Signature-Input")).isEmpty();
+        assertThat(requests.get(1).headers().firstValue("Signature-Input")).isPresent();
+        assertThat(signatureSupport.supportsEd25519("remote.example")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Signs with the instance key when there is no sending account")
+    void signsWithInstanceKeyWithoutSender() throws Exception {
+        signatureSupport.record("remote.example", ED25519);
+        when(accountKeyService.instanceKey()).thenReturn(key("RSA", "#instance-key"));
+        respond(202, null);
+
+        deliveryService.deliver(Map.of("type", "Create"), INBOX, null);
+
+        HttpRequest request = sentRequests(1).get(0);
+        assertThat(request.headers().firstValue("Signature")).hasValueSatisfying(value ->
+                assertThat(value).contains("#instance-key"));
+        assertThat(request.headers().firstValue("Signature-Input")).isEmpty();
+    }
+
+    private static SigningKey key(String algorithm, String fragment) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        if ("RSA".equals(algorithm)) {
+            generator.initialize(2048);
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+        return new SigningKey("https://local.example/users/alice" + fragment, keyPair.getPrivate(),
+                keyPair.getPublic(), null);
+    }
+
+    private void respond(int status, String acceptSignature) throws Exception {
+        HttpResponse<String> response = response(status, acceptSignature);
+        doReturn(response).when(httpClient).send(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> response(int status, String acceptSignature) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.headers()).thenReturn(HttpHeaders.of(acceptSignature == null
+                ? Map.of() : Map.of("Accept-Signature", List.of(acceptSignature)), (name, value) -> true));
+        return response;
+    }
+
+    private List<HttpRequest> sentRequests(int count) throws Exception {
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(count)).send(requests.capture(), any());
+        return requests.getAllValues();
+    }
+}
@@ -0,0 +1,211 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.activitypub.signature.HttpSignatureSigner;
+import org.joinmastodon.activitypub.signature.HttpSignatureVerifier;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for InboxProcessor signature verification, its result cache and the
+ * claim on an activity id.
+ */
+@ExtendWith(MockitoExtension.class)
+class InboxProcessorSignatureTest {
+    private static final String ACTOR = "https://remote.example/users/bob";
+    private static final String KEY_ID = ACTOR + "#main-key";
+    private static final List<String> SIGNED_HEADERS = List.of("(request-target)", "host", "date", "digest");
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private RemoteActorService remoteActorService;
+
+    @Mock
+    private ActivityDispatcher activityDispatcher;
+
+    @Mock
+    private PublicKeyResolver publicKeyResolver;
+
+    @Mock
+    private ActivityDeduplicator deduplicator;
+
+    private HttpSignatureVerifier verifier;
+    private KeyPair keyPair;
+    private FederationProperties properties;
+    private InboxProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        properties = new FederationProperties();
+        properties.setSignatureMaxSkew(Duration.ofHours(1));
+        verifier = spy(new HttpSignatureVerifier());
+        processor = new InboxProcessor(accountService, remoteActorService, activityDispatcher, verifier,
+                publicKeyResolver, new SignatureVerificationCache(properties), deduplicator, properties,
+                new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Verifies an identical retried request only once")
+    void verifiesRetryOnce() {
+        when(publicKeyResolver.resolve(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        InboxEnvelope envelope = signedEnvelope(Instant.now());
+
+        assertThat(processor.verifySignature(envelope, ACTOR)).isTrue();
+        assertThat(processor.verifySignature(envelope, ACTOR)).isTrue();
+
+        verify(verifier, times(1)).verify(any(), any(PublicKey.class), anyString());
+    }
+
+    @Test
+    @DisplayName("Rejects requests whose Date is outside the skew window")
+    void rejectsStaleDate() {
+        InboxEnvelope envelope = signedEnvelope(Instant.now().minus(Duration.ofHours(2)));
+
+        assertThat(processor.verifySignature(envelope, ACTOR)).isFalse();
+
+        verify(publicKeyResolver, never()).resolve(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Caches failed verifications as well")
+    void cachesFailures() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PublicKey otherKey = generator.generateKeyPair().getPublic();
+        when(publicKeyResolver.resolve(KEY_ID, ACTOR)).thenReturn(Optional.of(otherKey));
+        when(publicKeyResolver.refresh(KEY_ID, ACTOR)).thenReturn(Optional.of(otherKey));
+        InboxEnvelope envelope = signedEnvelope(Instant.now());
+
+        assertThat(processor.verifySignature(envelope, ACTOR)).isFalse();
+        assertThat(processor.verifySignature(envelope, ACTOR)).isFalse();
+
+        verify(verifier, times(1)).verify(any(), any(PublicKey.class), anyString());
+    }
+
+    @Test
+    @DisplayName("Verifies a different signature value over the same headers again")
+    void changedSignatureMissesCache() throws Exception {
+        when(publicKeyResolver.resolve(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        when(publicKeyResolver.refresh(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        Instant date = Instant.now();
+        InboxEnvelope envelope = signedEnvelope(date);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        InboxEnvelope forged = signedEnvelope(date, generator.generateKeyPair(), SIGNED_HEADERS);
+
+        assertThat(processor.verifySignature(envelope, ACTOR)).isTrue();
+        assertThat(processor.verifySignature(forged, ACTOR)).isFalse();
+
+        verify(verifier, times(2)).verify(any(), any(PublicKey.class), anyString());
+    }
+
+    @Test
+    @DisplayName("Does not cache signatures that do not cover the Date header")
+    void doesNotCacheUndatedSignatures() {
+        when(publicKeyResolver.resolve(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        InboxEnvelope envelope = signedEnvelope(Instant.now(), keyPair, List.of("(request-target)", "host", "digest"));
+
+        assertThat(processor.verifySignature(envelope, ACTOR)).isTrue();
+        assertThat(processor.verifySignature(envelope, ACTOR)).isTrue();
+
+        verify(verifier, times(2)).verify(any(), any(PublicKey.class), anyString());
+    }
+
+    @Test
+    @DisplayName("Drops a second delivery of an activity while the first is still being dispatched")
+    void claimsActivityBeforeDispatch() throws Exception {
+        InboxProcessor claiming = withRealDeduplicator();
+        when(publicKeyResolver.resolve(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        CompletableFuture<Void> dispatched = new CompletableFuture<>();
+        when(activityDispatcher.submit(anyString(), any(), any(), any(), any())).thenReturn(dispatched);
+        InboxEnvelope envelope = signedEnvelope(Instant.now());
+
+        claiming.process(envelope);
+        claiming.process(envelope);
+        dispatched.complete(null);
+
+        verify(activityDispatcher, times(1)).submit(anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Releases the claim when a delivery fails verification or dispatch")
+    void releasesClaimOnFailure() throws Exception {
+        InboxProcessor claiming = withRealDeduplicator();
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        InboxEnvelope forged = signedEnvelope(Instant.now(), generator.generateKeyPair(), SIGNED_HEADERS);
+        InboxEnvelope genuine = signedEnvelope(Instant.now().plusSeconds(1));
+        when(publicKeyResolver.resolve(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        when(publicKeyResolver.refresh(KEY_ID, ACTOR)).thenReturn(Optional.of(keyPair.getPublic()));
+        when(activityDispatcher.submit(anyString(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        claiming.process(forged);
+        claiming.process(genuine);
+        claiming.process(genuine);
+        claiming.process(genuine);
+
+        verify(activityDispatcher, times(2)).submit(eq("https://remote.example/activities/1"), any(), any(),
+                any(), any());
+    }
+
+    private InboxProcessor withRealDeduplicator() {
+        properties.setRequireSignatures(true);
+        return new InboxProcessor(accountService, remoteActorService, activityDispatcher, verifier,
+                publicKeyResolver, new SignatureVerificationCache(properties), new ActivityDeduplicator(properties),
+                properties, new ObjectMapper());
+    }
+
+    private InboxEnvelope signedEnvelope(Instant date) {
+        return signedEnvelope(date, keyPair, SIGNED_HEADERS);
+    }
+
+    private InboxEnvelope signedEnvelope(Instant date, KeyPair signingKey, List<String> signedHeaders) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("host", "local.example");
+        headers.put("date", DateTimeFormatter.RFC_1123_DATE_TIME.format(date.atOffset(ZoneOffset.UTC)));
+        headers.put("digest", "SHA-256=RBNvo1WzZ4oRRq0W9+hknpT7T8If536DEMBg9hyq/4o=");
+        String signature = new HttpSignatureSigner().sign(KEY_ID, signingKey.getPrivate(), "post", "/inbox",
+                headers, signedHeaders);
+        headers.put("signature", signature);
+        return new InboxEnvelope("{}", headers, "POST", "/inbox", null, ACTOR, "Create",
+                "https://remote.example/activities/1", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,77 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.Status;
+import org.joinmastodon.core.event.StatusChangedEvent;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for invalidation of cached outbox pages.
+ */
+class OutboxCacheTest {
+    private FederationProperties properties;
+    private OutboxCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FederationProperties();
+        properties.setOutboxPageCacheSize(2);
+        cache = new OutboxCache(mock(ActivityPubMapper.class), new ObjectMapper(), properties);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Serves a page from the cache until a status of the account changes")
+    void invalidatesOnStatusChange() {
+        Account account = account(1L);
+
+        cache.page(account, null, null, loader());
+        cache.page(account, null, null, loader());
+        assertThat(loads).hasValue(1);
+
+        cache.onStatusChanged(new StatusChangedEvent(10L, 1L, false));
+        cache.page(account, null, null, loader());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Does not serve a page rendered while a status change committed")
+    void dropsPageRenderedBeforeInvalidation() {
+        Account account = account(1L);
+
+        cache.page(account, null, null, () -> {
+            loads.incrementAndGet();
+            cache.onStatusChanged(new StatusChangedEvent(10L, 1L, false));
+            return List.of();
+        });
+        cache.page(account, null, null, loader());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private Supplier<List<Status>> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+    }
+
+    private static Account account(long id) {
+        Account account = new Account();
+        account.setId(id);
+        account.setUsername("user" + id);
+        return account;
+    }
+}
@@ -0,0 +1,138 @@
+package org.joinmastodon.federation.service;
+
+import org.joinmastodon.activitypub.model.Actor;
+import org.joinmastodon.activitypub.signature.PemUtils;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PublicKeyResolver caching and key rotation handling.
+ */
+@ExtendWith(MockitoExtension.class)
+class PublicKeyResolverTest {
+    private static final String ACTOR = "https://remote.example/users/bob";
+    private static final String KEY_ID = ACTOR + "#main-key";
+    private static final String OTHER_ACTOR = "https://evil.example/users/mallory";
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private RemoteActorService remoteActorService;
+
+    private PublicKeyResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new PublicKeyResolver(accountService, remoteActorService, new FederationProperties());
+    }
+
+    @Test
+    @DisplayName("Parses the stored PEM once and serves later lookups from the cache")
+    void cachesStoredKey() throws Exception {
+        PublicKey key = generateKey();
+        when(accountService.findByActorUri(ACTOR)).thenReturn(Optional.of(account(key)));
+
+        Optional<PublicKey> first = resolver.resolve(KEY_ID, ACTOR);
+        Optional<PublicKey> second = resolver.resolve(KEY_ID, ACTOR);
+
+        assertThat(first).contains(key);
+        assertThat(second).contains(key);
+        verify(accountService, times(1)).findByActorUri(ACTOR);
+        verifyNoInteractions(remoteActorService);
+    }
+
+    @Test
+    @DisplayName("Fetches the remote actor when the account is unknown")
+    void fetchesUnknownActor() throws Exception {
+        PublicKey key = generateKey();
+        when(accountService.findByActorUri(ACTOR)).thenReturn(Optional.empty());
+        when(remoteActorService.fetchActor(ACTOR)).thenReturn(Optional.of(actor(ACTOR, KEY_ID, key)));
+
+        assertThat(resolver.resolve(KEY_ID, ACTOR)).contains(key);
+        verify(remoteActorService).upsertActor(any(Actor.class));
+    }
+
+    @Test
+    @DisplayName("Does not hand out a cached key for a different actor")
+    void rejectsCachedKeyOfAnotherActor() throws Exception {
+        when(accountService.findByActorUri(ACTOR)).thenReturn(Optional.of(account(generateKey())));
+        resolver.resolve(KEY_ID, ACTOR);
+
+        assertThat(resolver.resolve(KEY_ID, OTHER_ACTOR)).isEmpty();
+        assertThat(resolver.refresh(KEY_ID, OTHER_ACTOR)).isEmpty();
+        verifyNoInteractions(remoteActorService);
+    }
+
+    @Test
+    @DisplayName("Rejects a keyId that the signing actor does not publish, without caching it")
+    void rejectsKeyIdOfAnotherActor() throws Exception {
+        PublicKey malloryKey = generateKey();
+        PublicKey bobKey = generateKey();
+        when(remoteActorService.fetchActor(OTHER_ACTOR))
+                .thenReturn(Optional.of(actor(OTHER_ACTOR, OTHER_ACTOR + "#main-key", malloryKey)));
+        when(accountService.findByActorUri(ACTOR)).thenReturn(Optional.of(account(bobKey)));
+
+        assertThat(resolver.resolve(KEY_ID, OTHER_ACTOR)).isEmpty();
+        assertThat(resolver.resolve(KEY_ID, ACTOR)).contains(bobKey);
+        verify(accountService, never()).findByActorUri(OTHER_ACTOR);
+        verify(remoteActorService, never()).upsertActor(any(Actor.class));
+    }
+
+    @Test
+    @DisplayName("Refresh re-fetches a rotated key at most once per interval")
+    void refreshesRotatedKeyOnce() throws Exception {
+        PublicKey oldKey = generateKey();
+        PublicKey newKey = generateKey();
+        when(accountService.findByActorUri(ACTOR)).thenReturn(Optional.of(account(oldKey)));
+        when(remoteActorService.fetchActor(ACTOR)).thenReturn(Optional.of(actor(ACTOR, KEY_ID, newKey)));
+
+        resolver.resolve(KEY_ID, ACTOR);
+        Optional<PublicKey> refreshed = resolver.refresh(KEY_ID, ACTOR);
+        Optional<PublicKey> again = resolver.refresh(KEY_ID, ACTOR);
+
+        assertThat(refreshed).contains(newKey);
+        assertThat(again).contains(newKey);
+        assertThat(resolver.resolve(KEY_ID, ACTOR)).contains(newKey);
+        verify(remoteActorService, times(1)).fetchActor(ACTOR);
+    }
+
+    private Account account(PublicKey key) {
+        Account account = new Account();
+        account.setActorUri(ACTOR);
+        account.setPublicKeyPem(PemUtils.toPublicKeyPem(key));
+        return account;
+    }
+
+    private Actor actor(String id, String keyId, PublicKey key) {
+        Actor actor = new Actor();
+        actor.setId(id);
+        actor.setPublicKey(new org.joinmastodon.activitypub.model.PublicKey(keyId, id, PemUtils.toPublicKeyPem(key)));
+        return actor;
+    }
+
+    private PublicKey generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair().getPublic();
+    }
+}
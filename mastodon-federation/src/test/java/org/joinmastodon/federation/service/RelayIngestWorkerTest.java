@@ -0,0 +1,251 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.entity.Status;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.core.service.StatusService;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.joinmastodon.federation.handler.AnnounceActivityHandler;
+import org.joinmastodon.federation.handler.CreateActivityHandler;
+import org.joinmastodon.federation.model.InboxEnvelope;
+import org.joinmastodon.jobs.InMemoryJobService;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobOptions;
+import org.joinmastodon.jobs.JobService;
+import org.joinmastodon.jobs.JobSignals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RelayIngestWorker.
+ * Tests priority yielding, batched status inserts and deferred actor fetches.
+ */
+@ExtendWith(MockitoExtension.class)
+class RelayIngestWorkerTest {
+
+    private static final String AUTHOR = "https://remote.example/users/bob";
+    private static final String RELAY = "https://relay.example/actor";
+
+    @Mock private JobService jobService;
+    @Mock private RelayQueue relayQueue;
+    @Mock private InboxQueue inboxQueue;
+    @Mock private InboxProcessor inboxProcessor;
+    @Mock private RelayRegistry relayRegistry;
+    @Mock private DeferredActorFetcher deferredActorFetcher;
+    @Mock private RemoteObjectFetcher remoteObjectFetcher;
+    @Mock private ActivityDeduplicator deduplicator;
+    @Mock private ActivityDispatcher activityDispatcher;
+    @Mock private AccountService accountService;
+    @Mock private StatusService statusService;
+    @Mock private CreateActivityHandler createActivityHandler;
+    @Mock private AnnounceActivityHandler announceActivityHandler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FederationProperties properties = new FederationProperties();
+    private RelayIngestWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new RelayIngestWorker(jobService, relayQueue, inboxQueue, inboxProcessor, relayRegistry,
+                deferredActorFetcher, remoteObjectFetcher, deduplicator, activityDispatcher, accountService, statusService,
+                createActivityHandler, announceActivityHandler, objectMapper, properties);
+    }
+
+    private Job createJob(long id, String noteId) throws Exception {
+        String body = "{\"id\":\"" + noteId + "/activity\",\"type\":\"Create\",\"actor\":\"" + AUTHOR + "\","
+                + "\"object\":{\"id\":\"" + noteId + "\",\"type\":\"Note\"}}";
+        InboxEnvelope envelope = new InboxEnvelope(body, Map.of(), "POST", "/inbox", null,
+                AUTHOR, "Create", noteId + "/activity", 0L);
+        Job job = new Job();
+        job.setId(id);
+        job.setPayload(objectMapper.writeValueAsString(envelope));
+        when(relayQueue.decode(job)).thenReturn(envelope);
+        return job;
+    }
+
+    private Job relayedJob(String type, String actor, String object, String keyId) throws Exception {
+        String body = "{\"id\":\"" + RELAY + "/activities/1\",\"type\":\"" + type + "\",\"actor\":\"" + actor
+                + "\",\"object\":" + object + "}";
+        InboxEnvelope envelope = new InboxEnvelope(body, Map.of("signature", "keyId=\"" + keyId
+                + "\",algorithm=\"rsa-sha256\",headers=\"(request-target) host date\",signature=\"c2ln\""),
+                "POST", "/inbox", null, actor, type, RELAY + "/activities/1", 0L);
+        Job job = new Job();
+        job.setId(1L);
+        when(relayQueue.decode(job)).thenReturn(envelope);
+        when(jobService.claimNextJobs(eq(FederationJobQueues.RELAY), anyString(), anyInt(), any()))
+                .thenReturn(List.of(job));
+        return job;
+    }
+
+    private static Status status(String uri) {
+        Status status = new Status();
+        status.setUri(uri);
+        return status;
+    }
+
+    @Test
+    @DisplayName("Leaves relay traffic queued while direct deliveries are backed up")
+    void yieldsToDirectDeliveries() {
+        when(inboxQueue.depth()).thenReturn((long) properties.getRelayYieldThreshold() + 1);
+
+        worker.ingestRelayed();
+
+        verifyNoInteractions(jobService);
+    }
+
+    @Test
+    @DisplayName("Stores relayed statuses in one batch, skipping known ones")
+    @SuppressWarnings("unchecked")
+    void storesStatusesInBatch() throws Exception {
+        Account author = new Account();
+        Job first = createJob(1L, "https://remote.example/notes/1");
+        Job second = createJob(2L, "https://remote.example/notes/2");
+        Job known = createJob(3L, "https://remote.example/notes/3");
+        when(jobService.claimNextJobs(eq(FederationJobQueues.RELAY), anyString(), anyInt(), any()))
+                .thenReturn(List.of(first, second, known));
+        when(accountService.findByActorUri(AUTHOR)).thenReturn(Optional.of(author));
+        when(createActivityHandler.toStatus(any(), eq(author))).thenReturn(
+                status("https://remote.example/notes/1"),
+                status("https://remote.example/notes/2"),
+                status("https://remote.example/notes/3"));
+        when(statusService.findExistingUris(any())).thenReturn(Set.of("https://remote.example/notes/3"));
+
+        worker.ingestRelayed();
+
+        ArgumentCaptor<List<Status>> saved = ArgumentCaptor.forClass(List.class);
+        verify(statusService).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Status::getUri)
+                .containsExactly("https://remote.example/notes/1", "https://remote.example/notes/2");
+        verify(jobService).markSuccess(List.of(first, second, known));
+        verify(statusService, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Defers activities from unknown actors instead of fetching inline")
+    void defersUnknownActors() throws Exception {
+        properties.setRelayActorRetryDelay(Duration.ofSeconds(45));
+        Job job = createJob(1L, "https://remote.example/notes/1");
+        when(jobService.claimNextJobs(eq(FederationJobQueues.RELAY), anyString(), anyInt(), any()))
+                .thenReturn(List.of(job));
+        when(accountService.findByActorUri(AUTHOR)).thenReturn(Optional.empty());
+
+        worker.ingestRelayed();
+
+        verify(deferredActorFetcher).request(AUTHOR);
+        verify(jobService).postpone(eq(job), anyString(), eq(Duration.ofSeconds(45)));
+        verify(jobService, never()).markFailure(any(Job.class), any(), any());
+        verify(jobService, never()).markSuccess(any(Job.class));
+        verify(jobService, never()).markSuccess(anyCollection());
+        verifyNoInteractions(createActivityHandler);
+    }
+
+    @Test
+    @DisplayName("Keeps waiting for an actor for more polls than the job has attempts")
+    @SuppressWarnings("unchecked")
+    void waitsForActorLongerThanMaxAttempts() throws Exception {
+        properties.setRelayActorRetryDelay(Duration.ZERO);
+        JobService jobs = new InMemoryJobService(new JobSignals(), "", false, 30);
+        worker = new RelayIngestWorker(jobs, relayQueue, inboxQueue, inboxProcessor, relayRegistry,
+                deferredActorFetcher, remoteObjectFetcher, deduplicator, activityDispatcher, accountService, statusService,
+                createActivityHandler, announceActivityHandler, objectMapper, properties);
+        Job queued = jobs.enqueue(FederationJobQueues.RELAY, "{}", JobOptions.DEFAULT.withMaxAttempts(3))
+                .orElseThrow();
+        Job job = createJob(queued.getId(), "https://remote.example/notes/1");
+        InboxEnvelope envelope = relayQueue.decode(job);
+        when(relayQueue.decode(any(Job.class))).thenReturn(envelope);
+        Account author = new Account();
+        when(accountService.findByActorUri(AUTHOR)).thenReturn(Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(author));
+        when(createActivityHandler.toStatus(any(), eq(author))).thenReturn(status("https://remote.example/notes/1"));
+
+        for (int poll = 0; poll < 6; poll++) {
+            worker.ingestRelayed();
+        }
+
+        ArgumentCaptor<List<Status>> saved = ArgumentCaptor.forClass(List.class);
+        verify(statusService).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Status::getUri).containsExactly("https://remote.example/notes/1");
+        assertThat(jobs.findJob(queued.getId())).isEmpty();
+        assertThat(jobs.findDeadJobs(FederationJobQueues.RELAY, null, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Stores the object of a relay Announce as fetched from its origin")
+    @SuppressWarnings("unchecked")
+    void fetchesRelayAnnouncedObject() throws Exception {
+        properties.setRequireSignatures(true);
+        String noteId = "https://remote.example/notes/1";
+        Account author = new Account();
+        Job job = relayedJob("Announce", RELAY, "\"" + noteId + "\"", RELAY + "#main-key");
+        when(relayRegistry.isRelayUrl(anyString())).thenReturn(true);
+        when(inboxProcessor.verifySignature(any(), eq(RELAY))).thenReturn(true);
+        when(statusService.findExistingUris(any())).thenReturn(Set.of());
+        when(remoteObjectFetcher.fetch(noteId)).thenReturn(Optional.of(objectMapper.readTree(
+                "{\"id\":\"" + noteId + "\",\"type\":\"Note\",\"attributedTo\":\"" + AUTHOR + "\"}")));
+        when(accountService.findByActorUri(AUTHOR)).thenReturn(Optional.of(author));
+        when(createActivityHandler.toStatus(any(), eq(author))).thenReturn(status(noteId));
+
+        worker.ingestRelayed();
+
+        ArgumentCaptor<List<Status>> saved = ArgumentCaptor.forClass(List.class);
+        verify(statusService).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Status::getUri).containsExactly(noteId);
+        verify(jobService).markSuccess(List.of(job));
+        verify(accountService, never()).findByActorUri(RELAY);
+        verifyNoInteractions(announceActivityHandler);
+    }
+
+    @Test
+    @DisplayName("Does not accept a relay's signature on anything but its Announce of an object id")
+    void rejectsRelaySignedCreate() throws Exception {
+        properties.setRequireSignatures(true);
+        Job job = relayedJob("Create", AUTHOR,
+                "{\"id\":\"https://remote.example/notes/1\",\"type\":\"Note\"}", RELAY + "#main-key");
+        when(relayRegistry.isRelayUrl(RELAY + "#main-key")).thenReturn(true);
+
+        worker.ingestRelayed();
+
+        verify(jobService).markSuccess(job);
+        verify(inboxProcessor, never()).verifySignature(any(), anyString());
+        verifyNoInteractions(createActivityHandler, remoteObjectFetcher);
+        verify(accountService, never()).findByActorUri(anyString());
+    }
+
+    @Test
+    @DisplayName("Verifies a relayed activity signed by its own actor against that actor")
+    void verifiesActorSignedActivity() throws Exception {
+        properties.setRequireSignatures(true);
+        Job job = relayedJob("Create", AUTHOR,
+                "{\"id\":\"https://remote.example/notes/1\",\"type\":\"Note\"}", AUTHOR + "#main-key");
+        when(relayRegistry.isRelayUrl(AUTHOR + "#main-key")).thenReturn(false);
+        when(inboxProcessor.verifySignature(any(), eq(AUTHOR))).thenReturn(false);
+
+        worker.ingestRelayed();
+
+        verify(jobService).markSuccess(job);
+        verifyNoInteractions(createActivityHandler);
+    }
+}
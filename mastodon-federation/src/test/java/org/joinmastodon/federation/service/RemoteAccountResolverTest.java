@@ -0,0 +1,167 @@
+package org.joinmastodon.federation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joinmastodon.activitypub.model.Actor;
+import org.joinmastodon.core.entity.Account;
+import org.joinmastodon.core.service.AccountService;
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RemoteAccountResolver coalescing and negative caching.
+ */
+@ExtendWith(MockitoExtension.class)
+class RemoteAccountResolverTest {
+    private static final String ACTOR = "https://remote.example/users/bob";
+    private static final String JRD = """
+            {"subject": "acct:bob@remote.example",
+             "links": [{"rel": "self", "type": "application/activity+json", "href": "%s"}]}
+            """.formatted(ACTOR);
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private RemoteActorService remoteActorService;
+
+    private RemoteAccountResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        FederationProperties properties = new FederationProperties();
+        properties.setDomain("example.com");
+        properties.setResolverRequestsPerSecond(1000);
+        resolver = new RemoteAccountResolver(httpClient, new ObjectMapper(), accountService, remoteActorService, properties);
+        lenient().when(accountService.findByAcct(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Resolves through WebFinger and the actor document")
+    void resolvesRemoteAccount() throws Exception {
+        Account bob = new Account();
+        stubWebFinger(200, JRD);
+        Actor actor = actor(ACTOR, "bob");
+        when(remoteActorService.fetchActor(ACTOR)).thenReturn(Optional.of(actor));
+        when(remoteActorService.upsertActor(actor)).thenReturn(bob);
+
+        assertThat(resolver.resolve("@bob@Remote.Example")).contains(bob);
+    }
+
+    @Test
+    @DisplayName("Rejects an actor whose own handle differs from the one looked up")
+    void rejectsActorOfAnotherHandle() throws Exception {
+        stubWebFinger(200, JRD);
+        when(remoteActorService.fetchActor(ACTOR)).thenReturn(Optional.of(actor(ACTOR, "mallory")));
+
+        assertThat(resolver.resolve("bob@remote.example")).isEmpty();
+        verify(remoteActorService, never()).upsertActor(any(Actor.class));
+    }
+
+    @Test
+    @DisplayName("Rejects a WebFinger link to an actor on another server")
+    void rejectsActorOnAnotherServer() throws Exception {
+        String elsewhere = "https://other.example/users/bob";
+        stubWebFinger(200, JRD.replace(ACTOR, elsewhere));
+        when(remoteActorService.fetchActor(elsewhere)).thenReturn(Optional.of(actor(elsewhere, "bob")));
+
+        assertThat(resolver.resolve("bob@remote.example")).isEmpty();
+        verify(remoteActorService, never()).upsertActor(any(Actor.class));
+    }
+
+    @Test
+    @DisplayName("Remembers accounts the remote server reports as missing")
+    void cachesMissingAccounts() throws Exception {
+        stubWebFinger(404, "");
+
+        assertThat(resolver.resolve("ghost@remote.example")).isEmpty();
+        assertThat(resolver.resolve("ghost@remote.example")).isEmpty();
+
+        verify(httpClient, times(1)).send(any(HttpRequest.class), any());
+        verifyNoInteractions(remoteActorService);
+    }
+
+    @Test
+    @DisplayName("Concurrent lookups of the same account share one request")
+    void coalescesConcurrentLookups() throws Exception {
+        Account bob = new Account();
+        CountDownLatch release = new CountDownLatch(1);
+        HttpResponse<Object> response = response(200, JRD);
+        when(httpClient.send(any(HttpRequest.class), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+        Actor actor = actor(ACTOR, "bob");
+        when(remoteActorService.fetchActor(ACTOR)).thenReturn(Optional.of(actor));
+        when(remoteActorService.upsertActor(actor)).thenReturn(bob);
+
+        Thread first = Thread.ofVirtual().start(() -> resolver.resolve("bob@remote.example"));
+        Thread.sleep(100);
+        Thread second = Thread.ofVirtual().start(() -> resolver.resolve("bob@remote.example"));
+        Thread.sleep(100);
+        release.countDown();
+        first.join();
+        second.join();
+
+        verify(httpClient, times(1)).send(any(HttpRequest.class), any());
+    }
+
+    @Test
+    @DisplayName("Resolves local handles without network access and skips malformed ones")
+    void bulkResolution() {
+        Account alice = new Account();
+        when(accountService.findLocalAccountByUsernameIgnoreCase("Alice")).thenReturn(Optional.of(alice));
+
+        Map<String, Account> resolved = resolver.resolveAll(List.of("@Alice@example.com", "not a handle"));
+
+        assertThat(resolved).containsOnlyKeys("@Alice@example.com");
+        verifyNoInteractions(httpClient);
+    }
+
+    private static Actor actor(String id, String preferredUsername) {
+        Actor actor = new Actor();
+        actor.setId(id);
+        actor.setPreferredUsername(preferredUsername);
+        return actor;
+    }
+
+    private void stubWebFinger(int status, String body) throws Exception {
+        HttpResponse<Object> response = response(status, body);
+        when(httpClient.send(any(HttpRequest.class), any())).thenReturn(response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<Object> response(int status, String body) {
+        HttpResponse<Object> response = mock(HttpResponse.class);
+        lenient().when(response.statusCode()).thenReturn(status);
+        lenient().when(response.body()).thenReturn(body);
+        return response;
+    }
+}
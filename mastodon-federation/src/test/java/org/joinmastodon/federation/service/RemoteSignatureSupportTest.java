@@ -0,0 +1,53 @@
+package org.joinmastodon.federation.service;
+
+import org.joinmastodon.federation.config.FederationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for RemoteSignatureSupport.
+ */
+class RemoteSignatureSupportTest {
+    private static final String ED25519 = "sig1=(\"@method\" \"@target-uri\" \"content-digest\");alg=\"ed25519\"";
+
+    private RemoteSignatureSupport support;
+
+    @BeforeEach
+    void setUp() {
+        support = new RemoteSignatureSupport(new FederationProperties());
+    }
+
+    @Test
+    @DisplayName("Assumes RSA until a host advertises Ed25519")
+    void defaultsToRsa() {
+        assertThat(support.supportsEd25519("remote.example")).isFalse();
+        assertThat(support.supportsEd25519(null)).isFalse();
+
+        assertThat(support.record("Remote.Example", ED25519)).isTrue();
+
+        assertThat(support.supportsEd25519("remote.example")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Reports a change only when what is known about the host changes")
+    void reportsChanges() {
+        assertThat(support.record("remote.example", ED25519)).isTrue();
+        assertThat(support.record("remote.example", ED25519)).isFalse();
+        assertThat(support.record("remote.example", null)).isFalse();
+        assertThat(support.supportsEd25519("remote.example")).isTrue();
+
+        assertThat(support.record("remote.example", "sig1=();alg=\"rsa-v1_5-sha256\"")).isTrue();
+        assertThat(support.supportsEd25519("remote.example")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Matches the Ed25519 algorithm regardless of case and spacing")
+    void parsesAcceptSignature() {
+        assertThat(RemoteSignatureSupport.acceptsEd25519("sig1=(\"@method\"); ALG = \"Ed25519\"")).isTrue();
+        assertThat(RemoteSignatureSupport.acceptsEd25519("sig1=();alg=\"rsa-pss-sha512\"")).isFalse();
+        assertThat(RemoteSignatureSupport.acceptsEd25519(null)).isFalse();
+    }
+}
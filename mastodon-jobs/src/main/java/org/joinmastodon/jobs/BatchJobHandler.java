@@ -0,0 +1,27 @@
+package org.joinmastodon.jobs;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Runs jobs that each hold many items of a {@link JobBatch}. {@link JobWorkerRuntime} calls
+ * {@link #handleItems} instead of {@link #handle}; items it reports as failed are retried on
+ * their own, the rest count towards the batch's progress.
+ */
+public interface BatchJobHandler extends JobHandler<BatchPayload> {
+
+    /**
+     * Process the items of one job. Throwing fails every item of the attempt.
+     *
+     * @return the items that failed and should be retried, empty if all succeeded
+     */
+    Collection<String> handleItems(List<String> items, Job job) throws Exception;
+
+    @Override
+    default void handle(BatchPayload payload, Job job) throws Exception {
+        Collection<String> failed = handleItems(payload.items(), job);
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(failed.size() + " of " + payload.items().size() + " items failed");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.joinmastodon.jobs;
+
+import java.util.List;
+
+/**
+ * Payload of a job holding a slice of a {@link JobBatch}. When some items fail, the job is
+ * retried with only those items.
+ *
+ * @param batchId the batch to report progress to, or null for a job outside any batch
+ * @param items item ids, e.g. account ids or inbox URLs
+ */
+public record BatchPayload(Long batchId, List<String> items) {
+}
@@ -0,0 +1,404 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * {@link JobService} on the {@code jobs} table. Claims skip rows other workers hold locked,
+ * so the queues can be shared by any number of nodes. Jobs that run out of attempts are
+ * moved to {@code jobs_dead}.
+ */
+@Service
+@ConditionalOnProperty(name = "mastodon.jobs.backend", havingValue = "database", matchIfMissing = true)
+public class DatabaseJobService implements JobService {
+    private static final int REQUEUE_BATCH_SIZE = 500;
+
+    private final JobRepository jobRepository;
+    private final DeadJobRepository deadJobRepository;
+    private final JobBulkInserter jobBulkInserter;
+    private final JobDatabase jobDatabase;
+    private final JobNotifier jobNotifier;
+
+    public DatabaseJobService(JobRepository jobRepository,
+                              DeadJobRepository deadJobRepository,
+                              JobBulkInserter jobBulkInserter,
+                              JobDatabase jobDatabase,
+                              JobNotifier jobNotifier) {
+        this.jobRepository = jobRepository;
+        this.deadJobRepository = deadJobRepository;
+        this.jobBulkInserter = jobBulkInserter;
+        this.jobDatabase = jobDatabase;
+        this.jobNotifier = jobNotifier;
+    }
+
+    @Override
+    @Transactional
+    public Job enqueue(String queue, String payload, Instant runAt) {
+        return enqueue(queue, payload, JobOptions.at(runAt))
+                .orElseThrow(() -> new IllegalStateException("Job without unique key was not inserted"));
+    }
+
+    @Override
+    @Transactional
+    public Optional<Job> enqueue(String queue, String payload, JobOptions options) {
+        Instant now = Instant.now();
+        Instant runAt = options.runAt() == null ? now : options.runAt();
+        int maxAttempts = options.maxAttempts() == null ? Job.DEFAULT_MAX_ATTEMPTS : options.maxAttempts();
+        Instant fairAt = fairAt(queue, options, runAt);
+        Job saved;
+        if (options.uniqueKey() == null) {
+            Job job = new Job();
+            job.setQueue(queue);
+            job.setPayload(payload);
+            job.setRunAt(runAt);
+            job.setPriority(options.priority());
+            job.setFairnessKey(options.fairnessKey());
+            job.setFairAt(fairAt);
+            job.setMaxAttempts(maxAttempts);
+            saved = jobRepository.save(job);
+        } else {
+            List<Job> inserted = jobDatabase.isPostgres()
+                    ? jobRepository.insertUnique(queue, payload, runAt, options.priority(),
+                            options.uniqueKey(), options.fairnessKey(), fairAt, maxAttempts, now)
+                    : jobRepository.insertUniqueFinalTable(queue, payload, runAt, options.priority(),
+                            options.uniqueKey(), options.fairnessKey(), fairAt, maxAttempts, now);
+            if (inserted.isEmpty()) {
+                return Optional.empty();
+            }
+            saved = inserted.get(0);
+        }
+        if (!runAt.isAfter(now)) {
+            jobNotifier.jobEnqueued(queue);
+        }
+        return Optional.of(saved);
+    }
+
+    /**
+     * Inserts a few hundred jobs per statement through {@link JobBulkInserter}.
+     */
+    @Override
+    @Transactional
+    public int enqueueAll(String queue, List<String> payloads, JobOptions options) {
+        if (options.uniqueKey() != null) {
+            throw new IllegalArgumentException("Jobs enqueued together cannot share a unique key");
+        }
+        if (payloads.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        Instant runAt = options.runAt() == null ? now : options.runAt();
+        int maxAttempts = options.maxAttempts() == null ? Job.DEFAULT_MAX_ATTEMPTS : options.maxAttempts();
+        JobOptions resolved = options.withRunAt(runAt)
+                .withMaxAttempts(maxAttempts)
+                .withFairnessInterval(fairnessInterval(options));
+        int inserted = jobBulkInserter.insert(queue, payloads, resolved, fairAt(queue, resolved, runAt), now);
+        if (!runAt.isAfter(now)) {
+            jobNotifier.jobEnqueued(queue);
+        }
+        return inserted;
+    }
+
+    /**
+     * Where a new job goes in claim order. Without a fairness key that is its run time. With
+     * one it is a fairness interval after the key's last unclaimed job, if that is later, so
+     * a key with a backlog gets one turn per interval while other keys' jobs go in between.
+     * Two jobs of a key enqueued at the same moment may share a position.
+     */
+    private Instant fairAt(String queue, JobOptions options, Instant runAt) {
+        if (options.fairnessKey() == null) {
+            return runAt;
+        }
+        Instant last = jobRepository.findLastFairAt(queue, options.fairnessKey());
+        if (last == null) {
+            return runAt;
+        }
+        Instant next = last.plus(fairnessInterval(options));
+        return next.isAfter(runAt) ? next : runAt;
+    }
+
+    private static Duration fairnessInterval(JobOptions options) {
+        return options.fairnessInterval() == null ? Job.DEFAULT_FAIRNESS_INTERVAL : options.fairnessInterval();
+    }
+
+    /**
+     * The claim is one {@code UPDATE ... RETURNING} statement, whatever the batch size; on H2
+     * the same update is read back through {@code FINAL TABLE}.
+     */
+    @Override
+    @Transactional
+    public List<Job> claimNextJobs(String queue, String workerId, int limit, Duration lockTimeout) {
+        Instant now = Instant.now();
+        Instant staleBefore = now.minus(lockTimeout == null ? Duration.ofMinutes(5) : lockTimeout);
+        jobRepository.releaseStaleLocks(queue, staleBefore);
+        List<Job> jobs = new ArrayList<>(jobDatabase.isPostgres()
+                ? jobRepository.claimNextJobs(queue, workerId, now, limit)
+                : jobRepository.claimNextJobsFinalTable(queue, workerId, now, limit));
+        // RETURNING does not keep the order of the inner select
+        jobs.sort(Job.CLAIM_ORDER);
+        return jobs;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countPendingJobs(String queue) {
+        return jobRepository.countPendingByQueue(queue);
+    }
+
+    /**
+     * Counts come from queries that stay within the ready and locked indexes unless
+     * {@code includeFailed} is set. Failed jobs are those in {@code jobs_dead} plus any
+     * exhausted job not moved there yet.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<JobQueueStats> queueStats(boolean includeFailed) {
+        Instant now = Instant.now();
+        Map<String, long[]> counts = new TreeMap<>();
+        Map<String, Instant> oldestReady = new HashMap<>();
+        for (Object[] row : jobRepository.countUnlockedByQueue(now)) {
+            long[] queueCounts = counts.computeIfAbsent((String) row[0], key -> new long[4]);
+            queueCounts[0] = toLong(row[1]);
+            queueCounts[1] = toLong(row[2]);
+            if (row[3] != null) {
+                oldestReady.put((String) row[0], (Instant) row[3]);
+            }
+        }
+        for (Object[] row : jobRepository.countLockedByQueue()) {
+            counts.computeIfAbsent((String) row[0], key -> new long[4])[2] = toLong(row[1]);
+        }
+        if (includeFailed) {
+            for (Object[] row : jobRepository.countExhaustedByQueue()) {
+                counts.computeIfAbsent((String) row[0], key -> new long[4])[3] = toLong(row[1]);
+            }
+            for (Object[] row : deadJobRepository.countByQueue()) {
+                counts.computeIfAbsent((String) row[0], key -> new long[4])[3] += toLong(row[1]);
+            }
+        }
+        List<JobQueueStats> stats = new ArrayList<>(counts.size());
+        counts.forEach((queue, c) -> stats.add(new JobQueueStats(queue, c[0], c[1], c[2],
+                includeFailed ? c[3] : -1, oldestReady.get(queue))));
+        return stats;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Job> findJob(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Job> findJobs(String queue, JobState state, Long maxId, int limit) {
+        return jobRepository.findJobs(queue, state != null ? state.name() : null, maxId, Instant.now(),
+                PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional
+    public Job reschedule(Job job, Instant runAt) {
+        Instant now = Instant.now();
+        job.setRunAt(runAt == null ? now : runAt);
+        job.setFairAt(job.getRunAt());
+        job.setAttempts(0);
+        job.setLockedAt(null);
+        job.setLockedBy(null);
+        Job saved = jobRepository.save(job);
+        if (!saved.getRunAt().isAfter(now)) {
+            jobNotifier.jobEnqueued(saved.getQueue());
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void delete(Job job) {
+        jobRepository.delete(job);
+    }
+
+    @Override
+    @Transactional
+    public int purge(String queue, JobState state) {
+        if (state == JobState.RUNNING) {
+            throw new IllegalArgumentException("Running jobs cannot be purged");
+        }
+        return jobRepository.deleteByQueueAndState(queue, state.name(), Instant.now());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<DeadJob> findDeadJob(Long id) {
+        return deadJobRepository.findById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DeadJob> findDeadJobs(String queue, Long maxId, int limit) {
+        return deadJobRepository.findDeadJobs(queue, maxId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional
+    public Optional<Job> requeue(DeadJob dead) {
+        Optional<Job> job = enqueue(dead.getQueue(), dead.getPayload(),
+                new JobOptions(null, dead.getPriority(), dead.getUniqueKey(), dead.getMaxAttempts(),
+                        dead.getFairnessKey(), null));
+        if (job.isPresent()) {
+            deadJobRepository.delete(dead);
+        }
+        return job;
+    }
+
+    @Override
+    @Transactional
+    public int requeueDead(String queue) {
+        int requeued = 0;
+        Long maxId = null;
+        while (true) {
+            List<DeadJob> batch = deadJobRepository.findDeadJobs(queue, maxId,
+                    PageRequest.of(0, REQUEUE_BATCH_SIZE));
+            for (DeadJob dead : batch) {
+                if (requeue(dead).isPresent()) {
+                    requeued++;
+                }
+            }
+            if (batch.size() < REQUEUE_BATCH_SIZE) {
+                return requeued;
+            }
+            maxId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    @Override
+    @Transactional
+    public void deleteDead(DeadJob dead) {
+        deadJobRepository.delete(dead);
+    }
+
+    @Override
+    @Transactional
+    public int purgeDead(String queue) {
+        return deadJobRepository.deleteByQueue(queue);
+    }
+
+    @Override
+    @Transactional
+    public void markSuccess(Job job) {
+        markSuccess(List.of(job));
+    }
+
+    /**
+     * Deletes the jobs in one statement.
+     */
+    @Override
+    @Transactional
+    public void markSuccess(Collection<Job> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        jobRepository.deleteAllByIdInBatch(ids(jobs));
+    }
+
+    /**
+     * Reschedules the retried jobs in one statement and moves exhausted ones to
+     * {@code jobs_dead}.
+     */
+    @Override
+    @Transactional
+    public void markFailure(Collection<Job> jobs, String error, Duration backoff) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<Job> retried = new ArrayList<>(jobs.size());
+        List<Job> exhausted = new ArrayList<>();
+        for (Job job : jobs) {
+            (isExhausted(job) ? exhausted : retried).add(job);
+        }
+        bury(exhausted, error, now);
+        if (retried.isEmpty()) {
+            return;
+        }
+        Instant runAt = now.plus(backoff == null ? Duration.ofSeconds(30) : backoff);
+        jobRepository.markFailed(ids(retried), error, runAt, now);
+        for (Job job : retried) {
+            job.setLastError(error);
+            job.setLockedAt(null);
+            job.setLockedBy(null);
+            job.setRunAt(runAt);
+            if (job.getFairAt() == null || job.getFairAt().isBefore(runAt)) {
+                job.setFairAt(runAt);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public Job markFailure(Job job, String error, Duration backoff) {
+        job.setLastError(error);
+        job.setLockedAt(null);
+        job.setLockedBy(null);
+        if (isExhausted(job)) {
+            bury(List.of(job), error, Instant.now());
+            return job;
+        }
+        Duration delay = backoff == null ? Duration.ofSeconds(30) : backoff;
+        job.setRunAt(Instant.now().plus(delay));
+        if (job.getFairAt() == null || job.getFairAt().isBefore(job.getRunAt())) {
+            job.setFairAt(job.getRunAt());
+        }
+        return jobRepository.save(job);
+    }
+
+    @Override
+    @Transactional
+    public Job postpone(Job job, String reason, Duration delay) {
+        job.setLastError(reason);
+        job.setLockedAt(null);
+        job.setLockedBy(null);
+        job.setAttempts(Math.max(0, job.getAttempts() - 1));
+        job.setRunAt(Instant.now().plus(delay));
+        if (job.getFairAt() == null || job.getFairAt().isBefore(job.getRunAt())) {
+            job.setFairAt(job.getRunAt());
+        }
+        return jobRepository.save(job);
+    }
+
+    private void bury(List<Job> jobs, String error, Instant now) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        List<DeadJob> dead = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            dead.add(DeadJob.of(job, error, now));
+        }
+        deadJobRepository.saveAll(dead);
+        jobRepository.deleteAllByIdInBatch(ids(jobs));
+    }
+
+    private static boolean isExhausted(Job job) {
+        return job.getAttempts() >= job.getMaxAttempts();
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static List<Long> ids(Collection<Job> jobs) {
+        List<Long> ids = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            ids.add(job.getId());
+        }
+        return ids;
+    }
+}
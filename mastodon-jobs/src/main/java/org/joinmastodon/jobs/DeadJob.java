@@ -0,0 +1,152 @@
+package org.joinmastodon.jobs;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * A job that failed its last attempt, moved out of {@code jobs} so the queue table only
+ * holds live work. Keeps the id the job had while it was queued.
+ */
+@Entity
+@Table(name = "jobs_dead")
+public class DeadJob {
+    @Id
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String queue;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Column(name = "unique_key", columnDefinition = "TEXT")
+    private String uniqueKey;
+
+    @Column(name = "fairness_key", columnDefinition = "TEXT")
+    private String fairnessKey;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "max_attempts", nullable = false)
+    private int maxAttempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "failed_at", nullable = false, updatable = false)
+    private Instant failedAt;
+
+    public static DeadJob of(Job job, String error, Instant failedAt) {
+        DeadJob dead = new DeadJob();
+        dead.setId(job.getId());
+        dead.setQueue(job.getQueue());
+        dead.setPayload(job.getPayload());
+        dead.setPriority(job.getPriority());
+        dead.setUniqueKey(job.getUniqueKey());
+        dead.setFairnessKey(job.getFairnessKey());
+        dead.setAttempts(job.getAttempts());
+        dead.setMaxAttempts(job.getMaxAttempts());
+        dead.setLastError(error);
+        dead.setCreatedAt(job.getCreatedAt() != null ? job.getCreatedAt() : failedAt);
+        dead.setFailedAt(failedAt);
+        return dead;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    public void setQueue(String queue) {
+        this.queue = queue;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public String getUniqueKey() {
+        return uniqueKey;
+    }
+
+    public void setUniqueKey(String uniqueKey) {
+        this.uniqueKey = uniqueKey;
+    }
+
+    public String getFairnessKey() {
+        return fairnessKey;
+    }
+
+    public void setFairnessKey(String fairnessKey) {
+        this.fairnessKey = fairnessKey;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(Instant failedAt) {
+        this.failedAt = failedAt;
+    }
+}
@@ -0,0 +1,57 @@
+package org.joinmastodon.jobs;
+
+import org.joinmastodon.partitions.DailyPartitionMaintainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Archives failed jobs. Moves exhausted jobs still left in {@code jobs} to
+ * {@code jobs_dead}, creates its daily partitions a few days ahead and drops whole
+ * partitions once they are older than {@code mastodon.jobs.dead.retention-days}.
+ * Does nothing when the table is not partitioned (e.g. on H2).
+ */
+@Service
+@ConditionalOnProperty(name = "mastodon.jobs.backend", havingValue = "database", matchIfMissing = true)
+public class DeadJobMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(DeadJobMaintenance.class);
+    private static final String TABLE = "jobs_dead";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DailyPartitionMaintainer partitions;
+
+    public DeadJobMaintenance(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${mastodon.jobs.dead.retention-days:30}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = new DailyPartitionMaintainer(jdbcTemplate, transactionManager, TABLE, "failed_at",
+                retentionDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${mastodon.jobs.dead.maintenance-cron:0 30 3 * * *}")
+    public void maintain() {
+        if (!partitions.isPartitioned()) {
+            return;
+        }
+        // Partitions first, so the moved jobs land in the partition of today
+        partitions.createPartitions();
+        try {
+            int moved = jdbcTemplate.update(DeadJobRepository.MOVE_EXHAUSTED_SQL);
+            if (moved > 0) {
+                log.info("Moved {} exhausted jobs to {}", moved, TABLE);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not move exhausted jobs to {}: {}", TABLE, e.getMessage());
+        }
+        partitions.dropExpiredPartitions();
+    }
+}
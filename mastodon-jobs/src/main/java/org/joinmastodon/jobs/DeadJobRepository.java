@@ -0,0 +1,42 @@
+package org.joinmastodon.jobs;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface DeadJobRepository extends JpaRepository<DeadJob, Long> {
+    /**
+     * Move jobs that ran out of attempts without being failed through {@link JobService}, e.g.
+     * because their worker died on the last attempt and the lock was released later.
+     */
+    String MOVE_EXHAUSTED_SQL = """
+            with moved as (
+                delete from jobs
+                where locked_at is null and attempts >= max_attempts
+                returning id, queue, payload, priority, unique_key, fairness_key, attempts, max_attempts, last_error,
+                          created_at)
+            insert into jobs_dead (id, queue, payload, priority, unique_key, fairness_key, attempts, max_attempts,
+                                   last_error, created_at, failed_at)
+            select id, queue, payload, priority, unique_key, fairness_key, attempts, max_attempts, last_error,
+                   created_at, now()
+            from moved
+            """;
+
+    @Query("select d.queue, count(d) from DeadJob d group by d.queue")
+    List<Object[]> countByQueue();
+
+    @Query("""
+            select d from DeadJob d
+            where (:queue is null or d.queue = :queue)
+              and (:maxId is null or d.id < :maxId)
+            order by d.id desc
+            """)
+    List<DeadJob> findDeadJobs(@Param("queue") String queue, @Param("maxId") Long maxId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from DeadJob d where d.queue = :queue")
+    int deleteByQueue(@Param("queue") String queue);
+}
@@ -0,0 +1,813 @@
+package org.joinmastodon.jobs;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link JobService} that keeps every job in this process, indexed per queue in claim order,
+ * so claiming and finishing jobs costs no database round trip and takes no row lock. Each
+ * change is written to a {@link JobLog} before it is applied, and the log is replayed on
+ * startup; with {@code mastodon.jobs.memory.log-file} left empty nothing survives a restart.
+ * Only one process may use a log file, so this backend suits single-node deployments and
+ * tests.
+ * <p>
+ * Recurring jobs and batches still keep their state in the database.
+ */
+@Service
+@ConditionalOnProperty(name = "mastodon.jobs.backend", havingValue = "memory")
+public class InMemoryJobService implements JobService {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryJobService.class);
+    private static final int MIN_ENTRIES_TO_COMPACT = 10_000;
+    private static final Duration DEFAULT_LOCK_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(30);
+    private static final Comparator<Job> RUN_ORDER = Comparator.comparing(Job::getRunAt)
+            .thenComparing(Job::getId);
+    private static final Comparator<Job> FAIR_ORDER = Comparator.comparing(Job::getFairAt)
+            .thenComparing(Job::getId);
+
+    private final JobSignals signals;
+    private final int deadRetentionDays;
+    private final JobLog jobLog;
+    private final NavigableMap<Long, Job> jobs = new TreeMap<>();
+    private final NavigableMap<Long, DeadJob> deadJobs = new TreeMap<>();
+    private final Map<String, QueueIndex> queues = new TreeMap<>();
+    private long nextId = 1;
+    // Transactional changes in the log but not yet applied in memory; compaction waits for them
+    private int loggedUnapplied;
+
+    public InMemoryJobService(JobSignals signals,
+                              @Value("${mastodon.jobs.memory.log-file:data/jobs.log}") String logFile,
+                              @Value("${mastodon.jobs.memory.fsync:true}") boolean fsync,
+                              @Value("${mastodon.jobs.dead.retention-days:30}") int deadRetentionDays) {
+        this.signals = signals;
+        this.deadRetentionDays = deadRetentionDays;
+        this.jobLog = logFile == null || logFile.isBlank()
+                ? null
+                : JobLog.open(Path.of(logFile), fsync, this::replay);
+        recover();
+    }
+
+    @Override
+    public Job enqueue(String queue, String payload, Instant runAt) {
+        return enqueue(queue, payload, JobOptions.at(runAt))
+                .orElseThrow(() -> new IllegalStateException("Job without unique key was not inserted"));
+    }
+
+    @Override
+    public synchronized Optional<Job> enqueue(String queue, String payload, JobOptions options) {
+        return insert(queue, payload, options, null);
+    }
+
+    @Override
+    public synchronized int enqueueAll(String queue, List<String> payloads, JobOptions options) {
+        if (options.uniqueKey() != null) {
+            throw new IllegalArgumentException("Jobs enqueued together cannot share a unique key");
+        }
+        if (payloads.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        Instant runAt = options.runAt() == null ? now : options.runAt();
+        Duration interval = fairnessInterval(options);
+        Instant fairAt = fairAt(queue, options, runAt);
+        List<JobLog.Entry> change = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            change.add(new JobLog.PutJob(newJob(queue, payload, options, runAt, fairAt, now)));
+            if (options.fairnessKey() != null) {
+                fairAt = fairAt.plus(interval);
+            }
+        }
+        commitWithTransaction(change, List.of());
+        return payloads.size();
+    }
+
+    /**
+     * Claims come straight off the queue's ready set, so they cost the same however many
+     * jobs are waiting. Jobs whose lock timed out are unlocked first, or made dead jobs if
+     * that was their last attempt, since no maintenance task sweeps them up later.
+     */
+    @Override
+    public synchronized List<Job> claimNextJobs(String queue, String workerId, int limit, Duration lockTimeout) {
+        QueueIndex index = queues.get(queue);
+        if (index == null) {
+            return List.of();
+        }
+        Instant now = Instant.now();
+        Instant staleBefore = now.minus(lockTimeout == null ? DEFAULT_LOCK_TIMEOUT : lockTimeout);
+        List<JobLog.Entry> change = new ArrayList<>();
+        for (Job running : index.running.values()) {
+            if (running.getLockedAt().isBefore(staleBefore)) {
+                release(running, now, change);
+            }
+        }
+        apply(change);
+        index.promote(now);
+        List<JobLog.Entry> claim = new ArrayList<>(Math.min(limit, index.ready.size()));
+        List<Job> claimed = new ArrayList<>(claim.size());
+        for (Job job : index.ready) {
+            if (claimed.size() >= limit) {
+                break;
+            }
+            Job locked = copy(job);
+            locked.setAttempts(job.getAttempts() + 1);
+            locked.setLockedAt(now);
+            locked.setLockedBy(workerId);
+            locked.setUpdatedAt(now);
+            claim.add(new JobLog.PutJob(locked));
+            claimed.add(locked);
+        }
+        apply(claim);
+        return copies(claimed);
+    }
+
+    @Override
+    public synchronized long countPendingJobs(String queue) {
+        QueueIndex index = queues.get(queue);
+        if (index == null) {
+            return 0;
+        }
+        long running = index.running.values().stream()
+                .filter(job -> job.getAttempts() < job.getMaxAttempts())
+                .count();
+        return index.ready.size() + index.scheduled.size() + running;
+    }
+
+    /**
+     * Failed jobs are the dead jobs, since exhausted jobs never stay among the others.
+     */
+    @Override
+    public synchronized List<JobQueueStats> queueStats(boolean includeFailed) {
+        Instant now = Instant.now();
+        Map<String, Long> failed = new TreeMap<>();
+        if (includeFailed) {
+            for (DeadJob dead : deadJobs.values()) {
+                failed.merge(dead.getQueue(), 1L, Long::sum);
+            }
+        }
+        Set<String> names = new TreeSet<>(failed.keySet());
+        queues.forEach((name, index) -> {
+            if (!index.isEmpty()) {
+                names.add(name);
+            }
+        });
+        List<JobQueueStats> stats = new ArrayList<>(names.size());
+        for (String name : names) {
+            QueueIndex index = queue(name);
+            index.promote(now);
+            Instant oldestReadyAt = null;
+            for (Job job : index.ready) {
+                if (oldestReadyAt == null || job.getRunAt().isBefore(oldestReadyAt)) {
+                    oldestReadyAt = job.getRunAt();
+                }
+            }
+            stats.add(new JobQueueStats(name, index.ready.size(), index.scheduled.size(),
+                    index.running.size(), includeFailed ? failed.getOrDefault(name, 0L) : -1, oldestReadyAt));
+        }
+        return stats;
+    }
+
+    @Override
+    public synchronized Optional<Job> findJob(Long id) {
+        return Optional.ofNullable(jobs.get(id)).map(InMemoryJobService::copy);
+    }
+
+    @Override
+    public synchronized List<Job> findJobs(String queue, JobState state, Long maxId, int limit) {
+        Instant now = Instant.now();
+        List<Job> found = new ArrayList<>(Math.min(limit, jobs.size()));
+        NavigableMap<Long, Job> candidates = maxId == null ? jobs : jobs.headMap(maxId, false);
+        for (Job job : candidates.descendingMap().values()) {
+            if (found.size() >= limit) {
+                break;
+            }
+            if ((queue == null || queue.equals(job.getQueue()))
+                    && (state == null || state == JobState.of(job, now))) {
+                found.add(copy(job));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized Job reschedule(Job job, Instant runAt) {
+        if (!jobs.containsKey(job.getId())) {
+            throw new IllegalArgumentException("Job " + job.getId() + " no longer exists");
+        }
+        Instant now = Instant.now();
+        Job rescheduled = copy(job);
+        rescheduled.setRunAt(runAt == null ? now : runAt);
+        rescheduled.setFairAt(rescheduled.getRunAt());
+        rescheduled.setAttempts(0);
+        rescheduled.setLockedAt(null);
+        rescheduled.setLockedBy(null);
+        rescheduled.setUpdatedAt(now);
+        apply(List.of(new JobLog.PutJob(rescheduled)));
+        if (!rescheduled.getRunAt().isAfter(now)) {
+            signals.signal(rescheduled.getQueue());
+        }
+        return copy(rescheduled);
+    }
+
+    @Override
+    public synchronized void delete(Job job) {
+        if (jobs.containsKey(job.getId())) {
+            apply(List.of(new JobLog.RemoveJob(job.getId())));
+        }
+    }
+
+    @Override
+    public synchronized int purge(String queue, JobState state) {
+        if (state == JobState.RUNNING) {
+            throw new IllegalArgumentException("Running jobs cannot be purged");
+        }
+        QueueIndex index = queues.get(queue);
+        if (index == null) {
+            return 0;
+        }
+        index.promote(Instant.now());
+        Set<Job> purged = switch (state) {
+            case READY -> index.ready;
+            case SCHEDULED -> index.scheduled;
+            default -> Set.of();
+        };
+        List<JobLog.Entry> change = new ArrayList<>(purged.size());
+        for (Job job : purged) {
+            change.add(new JobLog.RemoveJob(job.getId()));
+        }
+        apply(change);
+        return change.size();
+    }
+
+    @Override
+    public synchronized Optional<DeadJob> findDeadJob(Long id) {
+        return Optional.ofNullable(deadJobs.get(id)).map(InMemoryJobService::copy);
+    }
+
+    @Override
+    public synchronized List<DeadJob> findDeadJobs(String queue, Long maxId, int limit) {
+        List<DeadJob> found = new ArrayList<>(Math.min(limit, deadJobs.size()));
+        NavigableMap<Long, DeadJob> candidates = maxId == null ? deadJobs : deadJobs.headMap(maxId, false);
+        for (DeadJob dead : candidates.descendingMap().values()) {
+            if (found.size() >= limit) {
+                break;
+            }
+            if (queue == null || queue.equals(dead.getQueue())) {
+                found.add(copy(dead));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized Optional<Job> requeue(DeadJob dead) {
+        return insert(dead.getQueue(), dead.getPayload(),
+                new JobOptions(null, dead.getPriority(), dead.getUniqueKey(), dead.getMaxAttempts(),
+                        dead.getFairnessKey(), null),
+                dead.getId());
+    }
+
+    @Override
+    public synchronized int requeueDead(String queue) {
+        int requeued = 0;
+        for (DeadJob dead : new ArrayList<>(deadJobs.values())) {
+            if (dead.getQueue().equals(queue) && requeue(dead).isPresent()) {
+                requeued++;
+            }
+        }
+        return requeued;
+    }
+
+    @Override
+    public synchronized void deleteDead(DeadJob dead) {
+        if (deadJobs.containsKey(dead.getId())) {
+            apply(List.of(new JobLog.RemoveDead(dead.getId())));
+        }
+    }
+
+    @Override
+    public synchronized int purgeDead(String queue) {
+        List<JobLog.Entry> change = new ArrayList<>();
+        for (DeadJob dead : deadJobs.values()) {
+            if (dead.getQueue().equals(queue)) {
+                change.add(new JobLog.RemoveDead(dead.getId()));
+            }
+        }
+        apply(change);
+        return change.size();
+    }
+
+    @Override
+    public void markSuccess(Job job) {
+        markSuccess(List.of(job));
+    }
+
+    /**
+     * Jobs deleted while they ran are skipped.
+     */
+    @Override
+    public synchronized void markSuccess(Collection<Job> finished) {
+        List<JobLog.Entry> change = new ArrayList<>(finished.size());
+        for (Job job : finished) {
+            if (jobs.containsKey(job.getId())) {
+                change.add(new JobLog.RemoveJob(job.getId()));
+            }
+        }
+        apply(change);
+    }
+
+    @Override
+    public synchronized void markFailure(Collection<Job> failed, String error, Duration backoff) {
+        Instant now = Instant.now();
+        Instant runAt = now.plus(backoff == null ? DEFAULT_BACKOFF : backoff);
+        List<JobLog.Entry> change = new ArrayList<>(failed.size());
+        for (Job job : failed) {
+            Job current = jobs.get(job.getId());
+            if (current != null) {
+                retry(copy(current), error, runAt, now, change);
+            }
+            if (job.getAttempts() >= job.getMaxAttempts()) {
+                continue;
+            }
+            job.setLastError(error);
+            job.setLockedAt(null);
+            job.setLockedBy(null);
+            job.setRunAt(runAt);
+            if (job.getFairAt() == null || job.getFairAt().isBefore(runAt)) {
+                job.setFairAt(runAt);
+            }
+        }
+        apply(change);
+    }
+
+    /**
+     * A job deleted while it ran stays deleted.
+     */
+    @Override
+    public synchronized Job markFailure(Job job, String error, Duration backoff) {
+        Instant now = Instant.now();
+        Job failed = copy(job);
+        List<JobLog.Entry> change = new ArrayList<>(2);
+        retry(failed, error, now.plus(backoff == null ? DEFAULT_BACKOFF : backoff), now, change);
+        if (jobs.containsKey(job.getId())) {
+            apply(change);
+        }
+        return copy(failed);
+    }
+
+    @Override
+    public synchronized Job postpone(Job job, String reason, Duration delay) {
+        Instant now = Instant.now();
+        Job postponed = copy(job);
+        postponed.setAttempts(Math.max(0, postponed.getAttempts() - 1));
+        List<JobLog.Entry> change = new ArrayList<>(1);
+        retry(postponed, reason, now.plus(delay), now, change);
+        if (jobs.containsKey(job.getId())) {
+            apply(change);
+        }
+        return copy(postponed);
+    }
+
+    /**
+     * Drop dead jobs older than {@code mastodon.jobs.dead.retention-days}, as the database
+     * backend does by dropping old partitions of {@code jobs_dead}.
+     */
+    @Scheduled(cron = "${mastodon.jobs.dead.maintenance-cron:0 30 3 * * *}")
+    public synchronized void pruneDeadJobs() {
+        if (deadRetentionDays <= 0) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(deadRetentionDays, ChronoUnit.DAYS);
+        List<JobLog.Entry> change = new ArrayList<>();
+        for (DeadJob dead : deadJobs.values()) {
+            if (dead.getFailedAt().isBefore(cutoff)) {
+                change.add(new JobLog.RemoveDead(dead.getId()));
+            }
+        }
+        apply(change);
+        if (!change.isEmpty()) {
+            log.info("Dropped {} dead jobs older than {} days", change.size(), deadRetentionDays);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (jobLog != null) {
+            jobLog.close();
+        }
+    }
+
+    /**
+     * @param requeuedId the dead job this replaces, removed along with inserting it, or null
+     */
+    private Optional<Job> insert(String queue, String payload, JobOptions options, Long requeuedId) {
+        QueueIndex index = queue(queue);
+        if (options.uniqueKey() != null && index.uniqueKeys.containsKey(options.uniqueKey())) {
+            return Optional.empty();
+        }
+        Instant now = Instant.now();
+        Instant runAt = options.runAt() == null ? now : options.runAt();
+        Job job = newJob(queue, payload, options, runAt, fairAt(queue, options, runAt), now);
+        List<JobLog.Entry> change = new ArrayList<>(2);
+        change.add(new JobLog.PutJob(job));
+        if (requeuedId != null && deadJobs.containsKey(requeuedId)) {
+            change.add(new JobLog.RemoveDead(requeuedId));
+        }
+        List<String> reserved = List.of();
+        if (options.uniqueKey() != null) {
+            index.uniqueKeys.put(options.uniqueKey(), job.getId());
+            reserved = List.of(options.uniqueKey());
+        }
+        commitWithTransaction(change, reserved);
+        return Optional.of(copy(job));
+    }
+
+    private Job newJob(String queue, String payload, JobOptions options, Instant runAt, Instant fairAt,
+                       Instant now) {
+        Job job = new Job();
+        job.setId(nextId++);
+        job.setQueue(queue);
+        job.setPayload(payload);
+        job.setRunAt(runAt);
+        job.setPriority(options.priority());
+        job.setUniqueKey(options.uniqueKey());
+        job.setFairnessKey(options.fairnessKey());
+        job.setFairAt(fairAt);
+        job.setMaxAttempts(options.maxAttempts() == null ? Job.DEFAULT_MAX_ATTEMPTS : options.maxAttempts());
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        return job;
+    }
+
+    /**
+     * Claim position of a new job, placed as {@link DatabaseJobService} places it.
+     */
+    private Instant fairAt(String queue, JobOptions options, Instant runAt) {
+        if (options.fairnessKey() == null) {
+            return runAt;
+        }
+        QueueIndex index = queues.get(queue);
+        TreeSet<Job> keyed = index == null ? null : index.byFairnessKey.get(options.fairnessKey());
+        if (keyed == null) {
+            return runAt;
+        }
+        Instant next = keyed.last().getFairAt().plus(fairnessInterval(options));
+        return next.isAfter(runAt) ? next : runAt;
+    }
+
+    private static Duration fairnessInterval(JobOptions options) {
+        return options.fairnessInterval() == null ? Job.DEFAULT_FAIRNESS_INTERVAL : options.fairnessInterval();
+    }
+
+    /**
+     * Unlock a failed job for another attempt at {@code runAt}, or make it a dead job if it
+     * has none left.
+     */
+    private void retry(Job job, String error, Instant runAt, Instant now, List<JobLog.Entry> change) {
+        job.setLastError(error);
+        job.setLockedAt(null);
+        job.setLockedBy(null);
+        job.setUpdatedAt(now);
+        if (job.getAttempts() >= job.getMaxAttempts()) {
+            change.add(new JobLog.PutDead(DeadJob.of(job, error, now)));
+            change.add(new JobLog.RemoveJob(job.getId()));
+            return;
+        }
+        job.setRunAt(runAt);
+        if (job.getFairAt() == null || job.getFairAt().isBefore(runAt)) {
+            job.setFairAt(runAt);
+        }
+        change.add(new JobLog.PutJob(job));
+    }
+
+    /**
+     * Unlock a job whose worker is gone, keeping its run time and claim position.
+     */
+    private void release(Job running, Instant now, List<JobLog.Entry> change) {
+        Job released = copy(running);
+        released.setLockedAt(null);
+        released.setLockedBy(null);
+        released.setUpdatedAt(now);
+        if (released.getAttempts() >= released.getMaxAttempts()) {
+            change.add(new JobLog.PutDead(DeadJob.of(released, released.getLastError(), now)));
+            change.add(new JobLog.RemoveJob(released.getId()));
+        } else {
+            change.add(new JobLog.PutJob(released));
+        }
+    }
+
+    /**
+     * Log a change and apply it. Inside a transaction, as when enqueuing together with the
+     * rows a job refers to, the change is logged just before the transaction commits and
+     * applied once it has, so no worker sees the job before those rows. A failed write fails
+     * the transaction; should the transaction still fail after logging, the log gets the
+     * change undone. Unique keys are held for the transaction meanwhile, and the log is not
+     * compacted while a logged change is still missing from memory, since compaction rewrites
+     * the log from memory.
+     */
+    private void commitWithTransaction(List<JobLog.Entry> change, List<String> reservedKeys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        Map<Long, DeadJob> removedDead = new HashMap<>();
+        for (JobLog.Entry entry : change) {
+            if (entry instanceof JobLog.RemoveDead(long id)) {
+                removedDead.put(id, deadJobs.get(id));
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean logged;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                synchronized (InMemoryJobService.this) {
+                    if (jobLog != null) {
+                        jobLog.append(change);
+                    }
+                    logged = true;
+                    loggedUnapplied++;
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (InMemoryJobService.this) {
+                    if (logged) {
+                        loggedUnapplied--;
+                    }
+                    releaseKeys(change, reservedKeys);
+                    if (status == STATUS_COMMITTED) {
+                        applyLogged(change);
+                        if (!logged) {
+                            // Registered once the commit was under way, too late to fail it
+                            appendCommitted(change);
+                        }
+                    } else if (logged && jobLog != null) {
+                        jobLog.append(undo(change, removedDead));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Log a change that is already committed and applied. Failing here would only lose the
+     * change from memory as well, so a failed write is reported and the jobs are kept until
+     * the next compaction writes them out.
+     */
+    private void appendCommitted(List<JobLog.Entry> change) {
+        if (jobLog == null) {
+            return;
+        }
+        try {
+            jobLog.append(change);
+        } catch (UncheckedIOException ex) {
+            log.error("Committed job change is not in the job log until it is compacted: {}", ex.getMessage());
+        }
+    }
+
+    private void releaseKeys(List<JobLog.Entry> change, List<String> reservedKeys) {
+        if (reservedKeys.isEmpty()) {
+            return;
+        }
+        for (JobLog.Entry entry : change) {
+            if (entry instanceof JobLog.PutJob(Job job) && job.getUniqueKey() != null) {
+                queue(job.getQueue()).uniqueKeys.remove(job.getUniqueKey(), job.getId());
+            }
+        }
+    }
+
+    private static List<JobLog.Entry> undo(List<JobLog.Entry> change, Map<Long, DeadJob> removedDead) {
+        List<JobLog.Entry> undo = new ArrayList<>(change.size());
+        for (JobLog.Entry entry : change) {
+            if (entry instanceof JobLog.PutJob(Job job)) {
+                undo.add(new JobLog.RemoveJob(job.getId()));
+            } else if (entry instanceof JobLog.RemoveDead(long id) && removedDead.get(id) != null) {
+                undo.add(new JobLog.PutDead(removedDead.get(id)));
+            }
+        }
+        return undo;
+    }
+
+    private void apply(List<JobLog.Entry> change) {
+        if (change.isEmpty()) {
+            return;
+        }
+        if (jobLog != null) {
+            jobLog.append(change);
+        }
+        applyLogged(change);
+    }
+
+    /**
+     * Apply a change already in the log, waking the workers of queues that got a ready job.
+     */
+    private void applyLogged(List<JobLog.Entry> change) {
+        Instant now = Instant.now();
+        Set<String> woken = new LinkedHashSet<>();
+        for (JobLog.Entry entry : change) {
+            replay(entry);
+            if (entry instanceof JobLog.PutJob(Job job) && job.getLockedAt() == null
+                    && !job.getRunAt().isAfter(now)) {
+                woken.add(job.getQueue());
+            }
+        }
+        woken.forEach(signals::signal);
+        compactIfNeeded();
+    }
+
+    private void replay(JobLog.Entry entry) {
+        switch (entry) {
+            case JobLog.PutJob(Job job) -> {
+                unindex(jobs.get(job.getId()));
+                jobs.put(job.getId(), job);
+                queue(job.getQueue()).add(job, Instant.now());
+                nextId = Math.max(nextId, job.getId() + 1);
+            }
+            case JobLog.RemoveJob(long id) -> unindex(jobs.remove(id));
+            case JobLog.PutDead(DeadJob dead) -> {
+                deadJobs.put(dead.getId(), dead);
+                nextId = Math.max(nextId, dead.getId() + 1);
+            }
+            case JobLog.RemoveDead(long id) -> deadJobs.remove(id);
+        }
+    }
+
+    private void unindex(Job job) {
+        if (job != null) {
+            queues.get(job.getQueue()).remove(job);
+        }
+    }
+
+    /**
+     * Jobs that were running when the process stopped lost their worker with it, so they are
+     * unlocked right away rather than after their lock timeout.
+     */
+    private void recover() {
+        Instant now = Instant.now();
+        List<JobLog.Entry> change = new ArrayList<>();
+        for (QueueIndex index : queues.values()) {
+            for (Job running : index.running.values()) {
+                release(running, now, change);
+            }
+        }
+        if (!change.isEmpty()) {
+            log.info("Released {} jobs left running at the last shutdown", change.size());
+        }
+        apply(change);
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (jobLog != null && loggedUnapplied == 0 && jobLog.needsCompaction(jobs.size() + deadJobs.size(), MIN_ENTRIES_TO_COMPACT)) {
+            try {
+                jobLog.compact(jobs.values(), deadJobs.values());
+            } catch (UncheckedIOException ex) {
+                // The old log is still whole, so this only postpones the rewrite
+                log.warn("Job log compaction failed: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private QueueIndex queue(String queue) {
+        return queues.computeIfAbsent(queue, key -> new QueueIndex());
+    }
+
+    private static List<Job> copies(List<Job> jobs) {
+        List<Job> copies = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            copies.add(copy(job));
+        }
+        return copies;
+    }
+
+    /**
+     * Jobs are handed out as copies, so callers changing them cannot reorder the indexes.
+     */
+    private static Job copy(Job job) {
+        Job copy = new Job();
+        copy.setId(job.getId());
+        copy.setQueue(job.getQueue());
+        copy.setPayload(job.getPayload());
+        copy.setRunAt(job.getRunAt());
+        copy.setPriority(job.getPriority());
+        copy.setUniqueKey(job.getUniqueKey());
+        copy.setFairnessKey(job.getFairnessKey());
+        copy.setFairAt(job.getFairAt());
+        copy.setAttempts(job.getAttempts());
+        copy.setMaxAttempts(job.getMaxAttempts());
+        copy.setLastError(job.getLastError());
+        copy.setLockedAt(job.getLockedAt());
+        copy.setLockedBy(job.getLockedBy());
+        copy.setCreatedAt(job.getCreatedAt());
+        copy.setUpdatedAt(job.getUpdatedAt());
+        return copy;
+    }
+
+    private static DeadJob copy(DeadJob dead) {
+        DeadJob copy = new DeadJob();
+        copy.setId(dead.getId());
+        copy.setQueue(dead.getQueue());
+        copy.setPayload(dead.getPayload());
+        copy.setPriority(dead.getPriority());
+        copy.setUniqueKey(dead.getUniqueKey());
+        copy.setFairnessKey(dead.getFairnessKey());
+        copy.setAttempts(dead.getAttempts());
+        copy.setMaxAttempts(dead.getMaxAttempts());
+        copy.setLastError(dead.getLastError());
+        copy.setCreatedAt(dead.getCreatedAt());
+        copy.setFailedAt(dead.getFailedAt());
+        return copy;
+    }
+
+    /**
+     * The jobs of one queue. Unlocked jobs are either ready, in claim order, or scheduled, in
+     * run order until they come due; ready and scheduled jobs with a fairness key are also
+     * kept per key, to place the key's next job after its last one.
+     */
+    private static final class QueueIndex {
+        private final TreeSet<Job> ready = new TreeSet<>(Job.CLAIM_ORDER);
+        private final TreeSet<Job> scheduled = new TreeSet<>(RUN_ORDER);
+        private final Map<Long, Job> running = new TreeMap<>();
+        private final Map<String, Long> uniqueKeys = new HashMap<>();
+        private final Map<String, TreeSet<Job>> byFairnessKey = new HashMap<>();
+
+        private boolean isEmpty() {
+            return ready.isEmpty() && scheduled.isEmpty() && running.isEmpty();
+        }
+
+        private void add(Job job, Instant now) {
+            if (job.getUniqueKey() != null) {
+                uniqueKeys.put(job.getUniqueKey(), job.getId());
+            }
+            if (job.getLockedAt() != null) {
+                running.put(job.getId(), job);
+                return;
+            }
+            (job.getRunAt().isAfter(now) ? scheduled : ready).add(job);
+            if (job.getFairnessKey() != null) {
+                byFairnessKey.computeIfAbsent(job.getFairnessKey(), key -> new TreeSet<>(FAIR_ORDER)).add(job);
+            }
+        }
+
+        private void remove(Job job) {
+            if (job.getUniqueKey() != null) {
+                uniqueKeys.remove(job.getUniqueKey(), job.getId());
+            }
+            if (running.remove(job.getId()) != null) {
+                return;
+            }
+            if (!ready.remove(job)) {
+                scheduled.remove(job);
+            }
+            if (job.getFairnessKey() != null) {
+                TreeSet<Job> keyed = byFairnessKey.get(job.getFairnessKey());
+                keyed.remove(job);
+                if (keyed.isEmpty()) {
+                    byFairnessKey.remove(job.getFairnessKey());
+                }
+            }
+        }
+
+        /**
+         * Move scheduled jobs that have come due to the ready set.
+         */
+        private void promote(Instant now) {
+            Iterator<Job> due = scheduled.iterator();
+            while (due.hasNext()) {
+                Job job = due.next();
+                if (job.getRunAt().isAfter(now)) {
+                    return;
+                }
+                due.remove();
+                ready.add(job);
+            }
+        }
+    }
+}
@@ -8,11 +8,23 @@ import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
 
 @Entity
 @Table(name = "jobs")
 public class Job {
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    public static final Duration DEFAULT_FAIRNESS_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The order ready jobs are claimed in: highest priority first, then by claim position.
+     */
+    static final Comparator<Job> CLAIM_ORDER = Comparator.comparingInt(Job::getPriority).reversed()
+            .thenComparing(Job::getFairAt)
+            .thenComparing(Job::getId);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,11 +38,27 @@ public class Job {
     @Column(name = "run_at", nullable = false)
     private Instant runAt;
 
+    @Column(nullable = false)
+    private int priority = 0;
+
+    @Column(name = "unique_key", columnDefinition = "TEXT")
+    private String uniqueKey;
+
+    @Column(name = "fairness_key", columnDefinition = "TEXT")
+    private String fairnessKey;
+
+    /**
+     * Position in claim order within a priority: the run time, or for a job with a fairness
+     * key, possibly later so that the key's jobs are spread out among the rest of the queue.
+     */
+    @Column(name = "fair_at", nullable = false)
+    private Instant fairAt;
+
     @Column(nullable = false)
     private int attempts = 0;
 
     @Column(name = "max_attempts", nullable = false)
-    private int maxAttempts = 5;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
 
     @Column(name = "last_error", columnDefinition = "TEXT")
     private String lastError;
@@ -59,6 +87,9 @@ public class Job {
         if (runAt == null) {
             runAt = now;
         }
+        if (fairAt == null) {
+            fairAt = runAt;
+        }
     }
 
     @PreUpdate
@@ -98,6 +129,38 @@ public class Job {
         this.runAt = runAt;
     }
 
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public String getUniqueKey() {
+        return uniqueKey;
+    }
+
+    public void setUniqueKey(String uniqueKey) {
+        this.uniqueKey = uniqueKey;
+    }
+
+    public String getFairnessKey() {
+        return fairnessKey;
+    }
+
+    public void setFairnessKey(String fairnessKey) {
+        this.fairnessKey = fairnessKey;
+    }
+
+    public Instant getFairAt() {
+        return fairAt;
+    }
+
+    public void setFairAt(Instant fairAt) {
+        this.fairAt = fairAt;
+    }
+
     public int getAttempts() {
         return attempts;
     }
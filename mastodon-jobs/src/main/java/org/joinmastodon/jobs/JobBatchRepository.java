@@ -0,0 +1,30 @@
+package org.joinmastodon.jobs;
+
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface JobBatchRepository extends JpaRepository<JobBatch, Long> {
+
+    /**
+     * Add to a batch's counters in place, so concurrent jobs of the batch never overwrite each
+     * other, and mark it finished once every item is accounted for.
+     */
+    @Modifying
+    @Query(value = """
+            update job_batches
+            set succeeded = succeeded + :succeeded,
+                failed = failed + :failed,
+                updated_at = :now,
+                finished_at = case
+                    when finished_at is null and succeeded + failed + :succeeded + :failed >= total then :now
+                    else finished_at end
+            where id = :id
+            """, nativeQuery = true)
+    int recordProgress(@Param("id") Long id,
+                       @Param("succeeded") int succeeded,
+                       @Param("failed") int failed,
+                       @Param("now") Instant now);
+}
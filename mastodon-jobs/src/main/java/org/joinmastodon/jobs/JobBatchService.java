@@ -0,0 +1,104 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Fans a large set of items out over jobs of {@code chunkSize} items each and tracks the
+ * batch's progress as those jobs finish.
+ */
+@Service
+public class JobBatchService {
+    private final JobBatchRepository jobBatchRepository;
+    private final JobService jobService;
+    private final JobClient jobClient;
+
+    public JobBatchService(JobBatchRepository jobBatchRepository, JobService jobService, JobClient jobClient) {
+        this.jobBatchRepository = jobBatchRepository;
+        this.jobService = jobService;
+        this.jobClient = jobClient;
+    }
+
+    /**
+     * Create a batch and enqueue its jobs in one transaction.
+     *
+     * @param type a type whose queue has a {@link BatchJobHandler}
+     * @param chunkSize most items per job
+     */
+    @Transactional
+    public JobBatch enqueue(JobType<BatchPayload> type, List<String> items, int chunkSize, JobOptions options) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        JobBatch batch = new JobBatch();
+        batch.setQueue(type.queue());
+        batch.setTotal(items.size());
+        if (items.isEmpty()) {
+            batch.setFinishedAt(Instant.now());
+        }
+        batch = jobBatchRepository.save(batch);
+        List<BatchPayload> payloads = new ArrayList<>(items.size() / chunkSize + 1);
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            payloads.add(new BatchPayload(batch.getId(),
+                    List.copyOf(items.subList(from, Math.min(from + chunkSize, items.size())))));
+        }
+        jobClient.enqueueAll(type, payloads, options);
+        return batch;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<JobBatch> find(Long id) {
+        return jobBatchRepository.findById(id);
+    }
+
+    /**
+     * Record the outcome of one attempt at a batch job. Succeeded items count towards the
+     * batch; a job with failed items is retried with just those, or moved to the dead jobs
+     * holding just those once it is out of attempts.
+     *
+     * @param failedItems the items that failed, ignored unless they are among the job's items
+     */
+    @Transactional
+    public void recordOutcome(Job job, BatchPayload payload, Collection<String> failedItems, String error,
+                              Duration backoff) {
+        List<String> failed = retained(payload.items(), failedItems);
+        int succeeded = payload.items().size() - failed.size();
+        int exhausted = 0;
+        if (failed.isEmpty()) {
+            jobService.markSuccess(job);
+        } else {
+            if (job.getAttempts() >= job.getMaxAttempts()) {
+                exhausted = failed.size();
+            }
+            if (failed.size() < payload.items().size()) {
+                job.setPayload(jobClient.encode(new BatchPayload(payload.batchId(), failed)));
+            }
+            jobService.markFailure(job, error, backoff);
+        }
+        if (payload.batchId() != null && (succeeded > 0 || exhausted > 0)) {
+            jobBatchRepository.recordProgress(payload.batchId(), succeeded, exhausted, Instant.now());
+        }
+    }
+
+    private static List<String> retained(List<String> items, Collection<String> failedItems) {
+        if (failedItems.isEmpty()) {
+            return List.of();
+        }
+        Set<String> failed = new HashSet<>(failedItems);
+        List<String> retained = new ArrayList<>(failed.size());
+        for (String item : items) {
+            if (failed.contains(item)) {
+                retained.add(item);
+            }
+        }
+        return retained;
+    }
+}
@@ -0,0 +1,92 @@
+package org.joinmastodon.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.stereotype.Service;
+
+/**
+ * Enqueues and decodes typed jobs. Payloads are encoded as described on {@link JobType}.
+ */
+@Service
+public class JobClient {
+    private final JobService jobService;
+    private final ObjectMapper objectMapper;
+
+    public JobClient(JobService jobService, ObjectMapper objectMapper) {
+        this.jobService = jobService;
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> Job enqueue(JobType<T> type, T payload) {
+        return enqueue(type, payload, JobOptions.DEFAULT)
+                .orElseThrow(() -> new IllegalStateException("Job without unique key was not inserted"));
+    }
+
+    public <T> Job enqueue(JobType<T> type, T payload, Instant runAt) {
+        return enqueue(type, payload, JobOptions.at(runAt))
+                .orElseThrow(() -> new IllegalStateException("Job without unique key was not inserted"));
+    }
+
+    /**
+     * Enqueue a job. The type's retry policy sets the attempt limit and the type sets the
+     * fairness interval, unless the options do.
+     *
+     * @return the job, or empty if an unfinished job with the same unique key already exists
+     */
+    public <T> Optional<Job> enqueue(JobType<T> type, T payload, JobOptions options) {
+        return jobService.enqueue(type.queue(), encode(payload), resolve(type, options));
+    }
+
+    /**
+     * Enqueue many jobs of one type in one transaction; see {@link JobService#enqueueAll}.
+     *
+     * @return the number of jobs enqueued
+     */
+    public <T> int enqueueAll(JobType<T> type, Collection<? extends T> payloads, JobOptions options) {
+        JobOptions resolved = resolve(type, options);
+        List<String> encoded = new ArrayList<>(payloads.size());
+        for (T payload : payloads) {
+            encoded.add(encode(payload));
+        }
+        return jobService.enqueueAll(type.queue(), encoded, resolved);
+    }
+
+    public <T> T decode(JobType<T> type, Job job) {
+        if (type.payloadType() == String.class) {
+            return type.payloadType().cast(job.getPayload());
+        }
+        try {
+            return objectMapper.readValue(job.getPayload(), type.payloadType());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed payload for job " + job.getId() + ": "
+                    + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    private static JobOptions resolve(JobType<?> type, JobOptions options) {
+        JobOptions resolved = options;
+        if (resolved.maxAttempts() == null) {
+            resolved = resolved.withMaxAttempts(type.retryPolicy().maxAttempts());
+        }
+        if (resolved.fairnessInterval() == null) {
+            resolved = resolved.withFairnessInterval(type.fairnessInterval());
+        }
+        return resolved;
+    }
+
+    String encode(Object payload) {
+        if (payload == null || payload instanceof String) {
+            return (String) payload;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Job payload cannot be serialized", ex);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.joinmastodon.jobs;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which database the job tables live in, for the few statements that differ between
+ * PostgreSQL and the embedded H2 database.
+ */
+@Component
+public class JobDatabase {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public JobDatabase(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package org.joinmastodon.jobs;
+
+/**
+ * Runs the jobs of one queue. Every handler bean gets its own worker pool from
+ * {@link JobWorkerRuntime}: jobs are claimed in batches, run on virtual threads up to the
+ * queue's concurrency, deleted when {@link #handle} returns and retried according to the
+ * type's {@link RetryPolicy} when it throws.
+ *
+ * @param <T> the payload type
+ */
+public interface JobHandler<T> {
+
+    JobType<T> type();
+
+    /**
+     * Run one job.
+     *
+     * @param payload the decoded payload
+     * @param job the claimed row, e.g. for its attempt count
+     * @throws Exception to fail this attempt
+     */
+    void handle(T payload, Job job) throws Exception;
+
+    /**
+     * Defaults for the queue's workers; each value can be overridden with
+     * {@code mastodon.jobs.queues.<queue>.*}.
+     */
+    default JobQueueSettings settings() {
+        return JobQueueSettings.DEFAULT;
+    }
+}
@@ -0,0 +1,376 @@
+package org.joinmastodon.jobs;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead log of {@link InMemoryJobService}. Every change is appended as a frame of
+ * entries before it is applied in memory, so replaying the file rebuilds the jobs after a
+ * restart. A frame is its length, a CRC32C of its body and the body; a frame cut short by a
+ * crash fails its check and is dropped on replay together with everything after it, so each
+ * change is kept whole or not at all. Once the file holds many more entries than there are
+ * jobs, it is rewritten with just the current jobs.
+ */
+final class JobLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(JobLog.class);
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+    private static final int ENTRIES_PER_SNAPSHOT_FRAME = 1_000;
+    private static final byte PUT_JOB = 1;
+    private static final byte REMOVE_JOB = 2;
+    private static final byte PUT_DEAD = 3;
+    private static final byte REMOVE_DEAD = 4;
+    // PUT_DEAD followed by the fairness key; PUT_DEAD is still read from older logs
+    private static final byte PUT_DEAD_WITH_FAIRNESS = 5;
+
+    sealed interface Entry {
+    }
+
+    record PutJob(Job job) implements Entry {
+    }
+
+    record RemoveJob(long id) implements Entry {
+    }
+
+    record PutDead(DeadJob dead) implements Entry {
+    }
+
+    record RemoveDead(long id) implements Entry {
+    }
+
+    private final Path path;
+    private final boolean fsync;
+    private FileChannel channel;
+    private long entries;
+
+    private JobLog(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Open the log, creating it if needed, and pass every entry it holds to {@code replay}.
+     */
+    static JobLog open(Path path, boolean fsync, Consumer<Entry> replay) {
+        JobLog jobLog = new JobLog(path, fsync);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            long valid = Files.exists(path) ? jobLog.replay(replay) : 0;
+            jobLog.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (jobLog.channel.size() > valid) {
+                log.warn("Dropping {} bytes of incomplete changes at the end of job log {}",
+                        jobLog.channel.size() - valid, path);
+                jobLog.channel.truncate(valid);
+            }
+            jobLog.channel.position(valid);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open job log " + path, ex);
+        }
+        return jobLog;
+    }
+
+    /**
+     * Append one change. It is on disk, and synced if so configured, when this returns. If it
+     * fails, the log is cut back to where the change started, so a later change is not
+     * appended behind part of a frame and lost with it on replay.
+     */
+    void append(List<Entry> change) {
+        if (change.isEmpty()) {
+            return;
+        }
+        long start = -1;
+        try {
+            start = channel.position();
+            writeFrame(channel, change);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            UncheckedIOException failure = new UncheckedIOException("Cannot write job log " + path, ex);
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException truncateEx) {
+                    failure.addSuppressed(truncateEx);
+                }
+            }
+            throw failure;
+        }
+        entries += change.size();
+    }
+
+    /**
+     * Whether the log holds so many more entries than {@code live} that rewriting it is worth it.
+     */
+    boolean needsCompaction(int live, int minimumEntries) {
+        return entries > minimumEntries && entries > 4L * live;
+    }
+
+    /**
+     * Replace the log with one holding just the given jobs. The new file is written and synced
+     * beside the old one and then moved over it, so a crash leaves one or the other intact. If
+     * the move fails, appending goes on to the old log.
+     */
+    void compact(Collection<Job> jobs, Collection<DeadJob> deadJobs) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        List<Entry> snapshot = new ArrayList<>(jobs.size() + deadJobs.size());
+        jobs.forEach(job -> snapshot.add(new PutJob(job)));
+        deadJobs.forEach(dead -> snapshot.add(new PutDead(dead)));
+        try {
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (int from = 0; from < snapshot.size(); from += ENTRIES_PER_SNAPSHOT_FRAME) {
+                    writeFrame(out, snapshot.subList(from, Math.min(from + ENTRIES_PER_SNAPSHOT_FRAME,
+                            snapshot.size())));
+                }
+                out.force(true);
+            }
+            channel.close();
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot compact job log " + path, ex);
+        }
+        entries = snapshot.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return the length of the log up to the end of its last whole frame
+     */
+    private long replay(Consumer<Entry> replay) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] body = readFrame(in);
+                if (body == null) {
+                    return valid;
+                }
+                DataInputStream entryIn = new DataInputStream(new ByteArrayInputStream(body));
+                while (entryIn.available() > 0) {
+                    replay.accept(readEntry(entryIn));
+                    entries++;
+                }
+                valid += HEADER_BYTES + body.length;
+            }
+        }
+    }
+
+    /**
+     * @return the body of the next frame, or null at the end of the log or at a frame that is
+     *         incomplete or fails its check
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        int checksum;
+        try {
+            length = in.readInt();
+            checksum = in.readInt();
+        } catch (EOFException ex) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_FRAME_BYTES) {
+            return null;
+        }
+        byte[] body = in.readNBytes(length);
+        if (body.length < length || checksum(body) != checksum) {
+            return null;
+        }
+        return body;
+    }
+
+    private static void writeFrame(FileChannel out, List<Entry> change) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * change.size());
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeLong(0);
+        for (Entry entry : change) {
+            writeEntry(body, entry);
+        }
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        int length = frame.remaining() - HEADER_BYTES;
+        frame.putInt(0, length);
+        frame.putInt(4, checksum(frame.array(), HEADER_BYTES, length));
+        while (frame.hasRemaining()) {
+            out.write(frame);
+        }
+    }
+
+    private static int checksum(byte[] body) {
+        return checksum(body, 0, body.length);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        switch (entry) {
+            case PutJob(Job job) -> {
+                out.writeByte(PUT_JOB);
+                out.writeLong(job.getId());
+                writeString(out, job.getQueue());
+                writeString(out, job.getPayload());
+                writeInstant(out, job.getRunAt());
+                out.writeInt(job.getPriority());
+                writeString(out, job.getUniqueKey());
+                writeString(out, job.getFairnessKey());
+                writeInstant(out, job.getFairAt());
+                out.writeInt(job.getAttempts());
+                out.writeInt(job.getMaxAttempts());
+                writeString(out, job.getLastError());
+                writeInstant(out, job.getLockedAt());
+                writeString(out, job.getLockedBy());
+                writeInstant(out, job.getCreatedAt());
+                writeInstant(out, job.getUpdatedAt());
+            }
+            case RemoveJob(long id) -> {
+                out.writeByte(REMOVE_JOB);
+                out.writeLong(id);
+            }
+            case PutDead(DeadJob dead) -> {
+                out.writeByte(PUT_DEAD_WITH_FAIRNESS);
+                out.writeLong(dead.getId());
+                writeString(out, dead.getQueue());
+                writeString(out, dead.getPayload());
+                out.writeInt(dead.getPriority());
+                writeString(out, dead.getUniqueKey());
+                out.writeInt(dead.getAttempts());
+                out.writeInt(dead.getMaxAttempts());
+                writeString(out, dead.getLastError());
+                writeInstant(out, dead.getCreatedAt());
+                writeInstant(out, dead.getFailedAt());
+                writeString(out, dead.getFairnessKey());
+            }
+            case RemoveDead(long id) -> {
+                out.writeByte(REMOVE_DEAD);
+                out.writeLong(id);
+            }
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case PUT_JOB -> {
+                Job job = new Job();
+                job.setId(in.readLong());
+                job.setQueue(readString(in));
+                job.setPayload(readString(in));
+                job.setRunAt(readInstant(in));
+                job.setPriority(in.readInt());
+                job.setUniqueKey(readString(in));
+                job.setFairnessKey(readString(in));
+                job.setFairAt(readInstant(in));
+                job.setAttempts(in.readInt());
+                job.setMaxAttempts(in.readInt());
+                job.setLastError(readString(in));
+                job.setLockedAt(readInstant(in));
+                job.setLockedBy(readString(in));
+                job.setCreatedAt(readInstant(in));
+                job.setUpdatedAt(readInstant(in));
+                return new PutJob(job);
+            }
+            case REMOVE_JOB -> {
+                return new RemoveJob(in.readLong());
+            }
+            case PUT_DEAD, PUT_DEAD_WITH_FAIRNESS -> {
+                DeadJob dead = new DeadJob();
+                dead.setId(in.readLong());
+                dead.setQueue(readString(in));
+                dead.setPayload(readString(in));
+                dead.setPriority(in.readInt());
+                dead.setUniqueKey(readString(in));
+                dead.setAttempts(in.readInt());
+                dead.setMaxAttempts(in.readInt());
+                dead.setLastError(readString(in));
+                dead.setCreatedAt(readInstant(in));
+                dead.setFailedAt(readInstant(in));
+                if (type == PUT_DEAD_WITH_FAIRNESS) {
+                    dead.setFairnessKey(readString(in));
+                }
+                return new PutDead(dead);
+            }
+            case REMOVE_DEAD -> {
+                return new RemoveDead(in.readLong());
+            }
+            default -> throw new IOException("Unknown job log entry type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(readFully(in, length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,118 @@
+package org.joinmastodon.jobs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes job queue metrics, tagged by queue.
+ * <ul>
+ *   <li>{@code jobs.ready}, {@code jobs.scheduled}, {@code jobs.running} and
+ *       {@code jobs.oldest.ready.age} are gauges over counts sampled every
+ *       {@code mastodon.jobs.metrics.sample-interval-ms}; every node reports the same
+ *       cluster-wide values.</li>
+ *   <li>{@code jobs.completed} times each job from claim to finish, tagged with its outcome,
+ *       and {@code jobs.exhausted} counts jobs that failed their last attempt. These cover
+ *       this node's {@link JobHandler}s.</li>
+ * </ul>
+ */
+@Component
+public class JobMetrics {
+    private static final Logger log = LoggerFactory.getLogger(JobMetrics.class);
+
+    private final JobService jobService;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, JobQueueStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> exhausted = new ConcurrentHashMap<>();
+
+    public JobMetrics(JobService jobService, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jobService = jobService;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mastodon.jobs.metrics.sample-interval-ms:15000}")
+    public void sample() {
+        List<JobQueueStats> current;
+        try {
+            current = jobService.queueStats(false);
+        } catch (RuntimeException ex) {
+            log.debug("Failed to sample job queue depths: {}", ex.getMessage());
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        for (JobQueueStats queueStats : current) {
+            seen.add(queueStats.queue());
+            if (stats.put(queueStats.queue(), queueStats) == null) {
+                registerGauges(queueStats.queue());
+            }
+        }
+        // Queues that emptied keep reporting, as zero
+        for (String queue : stats.keySet()) {
+            if (!seen.contains(queue)) {
+                stats.put(queue, JobQueueStats.empty(queue));
+            }
+        }
+    }
+
+    /**
+     * Record a job finished by this node.
+     */
+    public void recordCompletion(String queue, Job job, boolean success) {
+        if (job.getLockedAt() != null) {
+            Duration elapsed = Duration.between(job.getLockedAt(), Instant.now());
+            timer(queue, success ? "success" : "failure").record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+        }
+        if (!success && job.getAttempts() >= job.getMaxAttempts()) {
+            exhausted.computeIfAbsent(queue, key -> Counter.builder("jobs.exhausted")
+                    .description("Jobs that failed their last attempt")
+                    .tag("queue", key)
+                    .register(meterRegistry)).increment();
+        }
+    }
+
+    private Timer timer(String queue, String outcome) {
+        return timers.computeIfAbsent(queue + '\n' + outcome, key -> Timer.builder("jobs.completed")
+                .description("Time from claiming a job to finishing it")
+                .tag("queue", queue)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private void registerGauges(String queue) {
+        gauge("jobs.ready", "Jobs waiting for a worker", queue, JobQueueStats::ready);
+        gauge("jobs.scheduled", "Jobs waiting for their run time", queue, JobQueueStats::scheduled);
+        gauge("jobs.running", "Jobs claimed by a worker", queue, JobQueueStats::running);
+        Gauge.builder("jobs.oldest.ready.age", this,
+                        metrics -> metrics.stats.getOrDefault(queue, JobQueueStats.empty(queue))
+                                .oldestReadyAge(Instant.now()).toMillis() / 1000.0)
+                .description("How long the oldest ready job has been waiting")
+                .tag("queue", queue)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private void gauge(String name, String description, String queue, ToDoubleFunction<JobQueueStats> value) {
+        Gauge.builder(name, this,
+                        metrics -> value.applyAsDouble(metrics.stats.getOrDefault(queue, JobQueueStats.empty(queue))))
+                .description(description)
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+}
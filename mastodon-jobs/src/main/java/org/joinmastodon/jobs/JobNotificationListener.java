@@ -0,0 +1,105 @@
+package org.joinmastodon.jobs;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one database connection that {@code LISTEN}s on {@link JobNotifier#CHANNEL} and turns
+ * each notification into a {@link JobSignals} wake-up for the queue it names, so workers on
+ * every node start on new jobs within milliseconds instead of at their next poll. Does nothing
+ * on databases other than PostgreSQL.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.jobs.notify.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(name = "mastodon.jobs.backend", havingValue = "database", matchIfMissing = true)
+public class JobNotificationListener {
+    private static final Logger log = LoggerFactory.getLogger(JobNotificationListener.class);
+    private static final int RECEIVE_TIMEOUT_MS = 5_000;
+
+    private final DataSource dataSource;
+    private final JobSignals signals;
+    private final Duration reconnectDelay;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public JobNotificationListener(DataSource dataSource,
+                                   JobSignals signals,
+                                   @Value("${mastodon.jobs.notify.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        this.dataSource = dataSource;
+        this.signals = signals;
+        this.reconnectDelay = Duration.ofMillis(reconnectDelayMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("job-notification-listener").daemon(true).start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread current = thread;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                    log.info("Job notifications need PostgreSQL; workers rely on polling");
+                    return;
+                }
+                listen(connection);
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Job notification listener lost its connection, reconnecting in {}: {}",
+                        reconnectDelay, ex.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + JobNotifier.CHANNEL);
+        }
+        // Anything enqueued while we were not listening has not been announced
+        signals.signalAll();
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+            if (notifications == null) {
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                signals.signal(notification.getParameter());
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.joinmastodon.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tells workers that a queue has new jobs. On PostgreSQL this issues {@code pg_notify} on
+ * {@link #CHANNEL} inside the enqueuing transaction, which the database delivers to every
+ * node's {@link JobNotificationListener} once the transaction commits. Workers on this node
+ * are also woken directly after commit, which is all that happens on other databases.
+ */
+@Component
+public class JobNotifier {
+    public static final String CHANNEL = "mastodon_jobs";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobDatabase jobDatabase;
+    private final JobSignals signals;
+    private final boolean notifyEnabled;
+
+    public JobNotifier(JdbcTemplate jdbcTemplate,
+                       JobDatabase jobDatabase,
+                       JobSignals signals,
+                       @Value("${mastodon.jobs.notify.enabled:true}") boolean notifyEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobDatabase = jobDatabase;
+        this.signals = signals;
+        this.notifyEnabled = notifyEnabled;
+    }
+
+    /**
+     * Announce a new job on a queue. Within a transaction the announcement only takes effect
+     * if the transaction commits.
+     */
+    public void jobEnqueued(String queue) {
+        if (notifyEnabled && jobDatabase.isPostgres()) {
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> { }, CHANNEL, queue);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    signals.signal(queue);
+                }
+            });
+        } else {
+            signals.signal(queue);
+        }
+    }
+}
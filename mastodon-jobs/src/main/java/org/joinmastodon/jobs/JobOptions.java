@@ -0,0 +1,51 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * How a single job is enqueued.
+ *
+ * @param runAt when the job becomes ready; null for now
+ * @param priority higher priorities are claimed first within a queue
+ * @param uniqueKey while an unfinished job of the queue has this key, enqueuing another is a
+ *                  no-op; null for no deduplication
+ * @param maxAttempts attempts before the job is given up; null for the default
+ * @param fairnessKey who the job is run on behalf of, such as an account id; jobs sharing a
+ *                    key take turns with the rest of the queue instead of running back to back.
+ *                    Null for none
+ * @param fairnessInterval how far apart in claim order jobs sharing a fairness key are placed;
+ *                         a shorter interval gives the key a larger share. Null for the default
+ */
+public record JobOptions(Instant runAt, int priority, String uniqueKey, Integer maxAttempts,
+                         String fairnessKey, Duration fairnessInterval) {
+    public static final JobOptions DEFAULT = new JobOptions(null, 0, null, null, null, null);
+
+    public static JobOptions at(Instant runAt) {
+        return DEFAULT.withRunAt(runAt);
+    }
+
+    public JobOptions withRunAt(Instant runAt) {
+        return new JobOptions(runAt, priority, uniqueKey, maxAttempts, fairnessKey, fairnessInterval);
+    }
+
+    public JobOptions withPriority(int priority) {
+        return new JobOptions(runAt, priority, uniqueKey, maxAttempts, fairnessKey, fairnessInterval);
+    }
+
+    public JobOptions withUniqueKey(String uniqueKey) {
+        return new JobOptions(runAt, priority, uniqueKey, maxAttempts, fairnessKey, fairnessInterval);
+    }
+
+    public JobOptions withMaxAttempts(Integer maxAttempts) {
+        return new JobOptions(runAt, priority, uniqueKey, maxAttempts, fairnessKey, fairnessInterval);
+    }
+
+    public JobOptions withFairnessKey(String fairnessKey) {
+        return new JobOptions(runAt, priority, uniqueKey, maxAttempts, fairnessKey, fairnessInterval);
+    }
+
+    public JobOptions withFairnessInterval(Duration fairnessInterval) {
+        return new JobOptions(runAt, priority, uniqueKey, maxAttempts, fairnessKey, fairnessInterval);
+    }
+}
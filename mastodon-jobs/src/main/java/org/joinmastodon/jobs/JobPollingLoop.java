@@ -0,0 +1,76 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a worker's poll on its own thread: polls again immediately while batches come back
+ * full, and otherwise sleeps until the queue is signalled or {@code fallbackPoll} passes.
+ * The fallback only matters for jobs scheduled in the future and for missed notifications,
+ * so it can be long.
+ */
+public final class JobPollingLoop {
+    private static final Logger log = LoggerFactory.getLogger(JobPollingLoop.class);
+
+    private final String queue;
+    private final JobSignals signals;
+    private final Duration fallbackPoll;
+    private final BooleanSupplier poll;
+    private volatile boolean running = true;
+    private final Thread thread;
+
+    private JobPollingLoop(String name, String queue, JobSignals signals, Duration fallbackPoll,
+                           BooleanSupplier poll) {
+        this.queue = queue;
+        this.signals = signals;
+        this.fallbackPoll = fallbackPoll;
+        this.poll = poll;
+        this.thread = Thread.ofPlatform().name(name).daemon(true).unstarted(this::run);
+    }
+
+    /**
+     * Start a loop.
+     *
+     * @param name the thread name
+     * @param queue the queue whose signals wake the loop
+     * @param signals the wake-up source
+     * @param fallbackPoll the longest time to sleep without a signal
+     * @param poll claims and processes one batch; returns true if more work is likely waiting
+     * @return the running loop
+     */
+    public static JobPollingLoop start(String name, String queue, JobSignals signals, Duration fallbackPoll,
+                                       BooleanSupplier poll) {
+        JobPollingLoop loop = new JobPollingLoop(name, queue, signals, fallbackPoll, poll);
+        loop.thread.start();
+        return loop;
+    }
+
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long token = signals.token(queue);
+            boolean more;
+            try {
+                more = poll.getAsBoolean();
+            } catch (RuntimeException ex) {
+                log.warn("Polling queue {} failed: {}", queue, ex.getMessage());
+                more = false;
+            }
+            if (more) {
+                continue;
+            }
+            try {
+                signals.await(queue, token, fallbackPoll);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
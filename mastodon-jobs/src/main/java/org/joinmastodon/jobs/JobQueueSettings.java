@@ -0,0 +1,35 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+
+/**
+ * How a queue's workers run on each node.
+ *
+ * @param concurrency jobs of the queue running at once on this node
+ * @param batchSize most jobs claimed per query
+ * @param pollInterval longest sleep without a wake-up signal
+ * @param lockTimeout how long a claimed job may run before other workers may claim it again
+ */
+public record JobQueueSettings(int concurrency, int batchSize, Duration pollInterval, Duration lockTimeout) {
+    public static final JobQueueSettings DEFAULT =
+            new JobQueueSettings(4, 10, Duration.ofSeconds(30), Duration.ofMinutes(5));
+
+    public JobQueueSettings {
+        concurrency = Math.max(1, concurrency);
+        batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Apply the values set in {@code mastodon.jobs.queues.<queue>}.
+     */
+    JobQueueSettings withOverrides(JobsProperties.Queue overrides) {
+        if (overrides == null) {
+            return this;
+        }
+        return new JobQueueSettings(
+                overrides.getConcurrency() != null ? overrides.getConcurrency() : concurrency,
+                overrides.getBatchSize() != null ? overrides.getBatchSize() : batchSize,
+                overrides.getPollInterval() != null ? overrides.getPollInterval() : pollInterval,
+                overrides.getLockTimeout() != null ? overrides.getLockTimeout() : lockTimeout);
+    }
+}
@@ -0,0 +1,28 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Job counts of one queue.
+ *
+ * @param failed jobs out of attempts, or -1 when not counted
+ * @param oldestReadyAt run time of the longest-waiting ready job, or null when none is ready
+ */
+public record JobQueueStats(String queue, long ready, long scheduled, long running, long failed,
+                            Instant oldestReadyAt) {
+
+    public static JobQueueStats empty(String queue) {
+        return new JobQueueStats(queue, 0, 0, 0, 0, null);
+    }
+
+    /**
+     * How long the oldest ready job has been waiting, zero when none is ready.
+     */
+    public Duration oldestReadyAge(Instant now) {
+        if (oldestReadyAt == null || oldestReadyAt.isAfter(now)) {
+            return Duration.ZERO;
+        }
+        return Duration.between(oldestReadyAt, now);
+    }
+}
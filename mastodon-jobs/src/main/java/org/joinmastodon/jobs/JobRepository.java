@@ -1,25 +1,241 @@
 package org.joinmastodon.jobs;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface JobRepository extends JpaRepository<Job, Long> {
-    @Query(value = """
-            select * from jobs
-            where queue = :queue
-              and run_at <= :now
-              and (locked_at is null or locked_at < :staleBefore)
-              and attempts < max_attempts
-            order by run_at asc
-            limit :limit
-            for update skip locked
-            """, nativeQuery = true)
+    /**
+     * Lock up to {@code :limit} ready jobs of a queue for one worker and return them, in a single
+     * statement. The inner select only reads unlocked jobs, so it is served by the partial index
+     * {@code idx_jobs_ready}; rows other workers are claiming at the same moment are skipped.
+     * Jobs are taken in {@code fair_at} order, which is the run time unless a fairness key
+     * pushed the job back.
+     */
+    String CLAIM_SQL = """
+            update jobs
+            set locked_at = :now,
+                locked_by = :workerId,
+                attempts = attempts + 1,
+                updated_at = :now
+            where id in (
+                select id from jobs
+                where queue = :queue
+                  and run_at <= :now
+                  and locked_at is null
+                  and attempts < max_attempts
+                order by priority desc, fair_at asc
+                limit :limit
+                for update skip locked)
+            returning *
+            """;
+
+    /**
+     * {@link #CLAIM_SQL} for H2, which has no {@code RETURNING} and reads the updated rows
+     * from a data change delta table instead.
+     */
+    String CLAIM_FINAL_TABLE_SQL = """
+            select * from final table (
+                update jobs
+                set locked_at = :now,
+                    locked_by = :workerId,
+                    attempts = attempts + 1,
+                    updated_at = :now
+                where id in (
+                    select id from jobs
+                    where queue = :queue
+                      and run_at <= :now
+                      and locked_at is null
+                      and attempts < max_attempts
+                    order by priority desc, fair_at asc
+                    limit :limit
+                    for update skip locked))
+            """;
+
+    /**
+     * Insert a job unless the queue already holds an unfinished job with the same unique key,
+     * in which case nothing is inserted and no row is returned. Enforced by the partial unique
+     * index {@code idx_jobs_unique_key}, so concurrent enqueues cannot both succeed.
+     */
+    String INSERT_UNIQUE_SQL = """
+            insert into jobs (queue, payload, run_at, priority, unique_key, fairness_key, fair_at, attempts,
+                              max_attempts, created_at, updated_at)
+            values (:queue, :payload, :runAt, :priority, :uniqueKey, :fairnessKey, :fairAt, 0, :maxAttempts,
+                    :now, :now)
+            on conflict (queue, unique_key) where unique_key is not null and attempts < max_attempts
+            do nothing
+            returning *
+            """;
+
+    /**
+     * {@link #INSERT_UNIQUE_SQL} for H2, which has neither {@code ON CONFLICT} nor the partial
+     * unique index: the row is only inserted if no unfinished job holds the key, and read back
+     * through {@code FINAL TABLE}. Without the index two concurrent enqueues can both insert,
+     * which the single-node embedded database accepts.
+     */
+    String INSERT_UNIQUE_FINAL_TABLE_SQL = """
+            select * from final table (
+                insert into jobs (queue, payload, run_at, priority, unique_key, fairness_key, fair_at, attempts,
+                                  max_attempts, created_at, updated_at)
+                select :queue, :payload, :runAt, :priority, :uniqueKey, :fairnessKey, :fairAt, 0, :maxAttempts,
+                       :now, :now
+                from dual
+                where not exists (
+                    select 1 from jobs
+                    where queue = :queue
+                      and unique_key = :uniqueKey
+                      and attempts < max_attempts))
+            """;
+
+    /**
+     * Unlock jobs whose worker stopped before finishing them, so they can be claimed again.
+     */
+    String RELEASE_STALE_SQL = """
+            update jobs
+            set locked_at = null,
+                locked_by = null
+            where id in (
+                select id from jobs
+                where queue = :queue
+                  and locked_at < :staleBefore
+                for update skip locked)
+            """;
+
+    @Query(value = CLAIM_SQL, nativeQuery = true)
     List<Job> claimNextJobs(
             @Param("queue") String queue,
+            @Param("workerId") String workerId,
+            @Param("now") Instant now,
+            @Param("limit") int limit);
+
+    @Query(value = CLAIM_FINAL_TABLE_SQL, nativeQuery = true)
+    List<Job> claimNextJobsFinalTable(
+            @Param("queue") String queue,
+            @Param("workerId") String workerId,
             @Param("now") Instant now,
-            @Param("staleBefore") Instant staleBefore,
             @Param("limit") int limit);
+
+    @Query(value = INSERT_UNIQUE_SQL, nativeQuery = true)
+    List<Job> insertUnique(
+            @Param("queue") String queue,
+            @Param("payload") String payload,
+            @Param("runAt") Instant runAt,
+            @Param("priority") int priority,
+            @Param("uniqueKey") String uniqueKey,
+            @Param("fairnessKey") String fairnessKey,
+            @Param("fairAt") Instant fairAt,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("now") Instant now);
+
+    @Query(value = INSERT_UNIQUE_FINAL_TABLE_SQL, nativeQuery = true)
+    List<Job> insertUniqueFinalTable(
+            @Param("queue") String queue,
+            @Param("payload") String payload,
+            @Param("runAt") Instant runAt,
+            @Param("priority") int priority,
+            @Param("uniqueKey") String uniqueKey,
+            @Param("fairnessKey") String fairnessKey,
+            @Param("fairAt") Instant fairAt,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("now") Instant now);
+
+    @Modifying
+    @Query(value = RELEASE_STALE_SQL, nativeQuery = true)
+    int releaseStaleLocks(@Param("queue") String queue, @Param("staleBefore") Instant staleBefore);
+
+    @Modifying
+    @Query("""
+            update Job j
+            set j.lastError = :error,
+                j.lockedAt = null,
+                j.lockedBy = null,
+                j.runAt = :runAt,
+                j.fairAt = case when j.fairAt > :runAt then j.fairAt else :runAt end,
+                j.updatedAt = :now
+            where j.id in :ids
+            """)
+    int markFailed(
+            @Param("ids") Collection<Long> ids,
+            @Param("error") String error,
+            @Param("runAt") Instant runAt,
+            @Param("now") Instant now);
+
+    /**
+     * The claim position of the last unclaimed job of a queue with a fairness key, read from
+     * {@code idx_jobs_fairness}.
+     */
+    @Query("""
+            select max(j.fairAt) from Job j
+            where j.queue = :queue
+              and j.fairnessKey = :fairnessKey
+              and j.lockedAt is null
+              and j.attempts < j.maxAttempts
+            """)
+    Instant findLastFairAt(@Param("queue") String queue, @Param("fairnessKey") String fairnessKey);
+
+    @Query("select count(j) from Job j where j.queue = :queue and j.attempts < j.maxAttempts")
+    long countPendingByQueue(@Param("queue") String queue);
+
+    /**
+     * Ready and scheduled counts per queue, and the oldest ready run time. The filter is the
+     * predicate of {@code idx_jobs_ready} and {@code run_at} is included in it, so on PostgreSQL
+     * this can be an index-only scan of that index.
+     */
+    @Query("""
+            select j.queue,
+                   sum(case when j.runAt <= :now then 1 else 0 end),
+                   sum(case when j.runAt > :now then 1 else 0 end),
+                   min(case when j.runAt <= :now then j.runAt end)
+            from Job j
+            where j.lockedAt is null and j.attempts < j.maxAttempts
+            group by j.queue
+            """)
+    List<Object[]> countUnlockedByQueue(@Param("now") Instant now);
+
+    @Query("select j.queue, count(j) from Job j where j.lockedAt is not null group by j.queue")
+    List<Object[]> countLockedByQueue();
+
+    @Query("""
+            select j.queue, count(j) from Job j
+            where j.lockedAt is null and j.attempts >= j.maxAttempts
+            group by j.queue
+            """)
+    List<Object[]> countExhaustedByQueue();
+
+    /**
+     * Jobs newest first, optionally filtered by queue and by a {@link JobState} name.
+     */
+    @Query("""
+            select j from Job j
+            where (:queue is null or j.queue = :queue)
+              and (:maxId is null or j.id < :maxId)
+              and (:state is null
+                   or (:state = 'READY' and j.lockedAt is null and j.attempts < j.maxAttempts and j.runAt <= :now)
+                   or (:state = 'SCHEDULED' and j.lockedAt is null and j.attempts < j.maxAttempts and j.runAt > :now)
+                   or (:state = 'RUNNING' and j.lockedAt is not null)
+                   or (:state = 'FAILED' and j.lockedAt is null and j.attempts >= j.maxAttempts))
+            order by j.id desc
+            """)
+    List<Job> findJobs(
+            @Param("queue") String queue,
+            @Param("state") String state,
+            @Param("maxId") Long maxId,
+            @Param("now") Instant now,
+            Pageable pageable);
+
+    @Modifying
+    @Query("""
+            delete from Job j
+            where j.queue = :queue
+              and j.lockedAt is null
+              and ((:state = 'READY' and j.attempts < j.maxAttempts and j.runAt <= :now)
+                   or (:state = 'SCHEDULED' and j.attempts < j.maxAttempts and j.runAt > :now)
+                   or (:state = 'FAILED' and j.attempts >= j.maxAttempts))
+            """)
+    int deleteByQueueAndState(@Param("queue") String queue, @Param("state") String state, @Param("now") Instant now);
 }
@@ -2,53 +2,146 @@ package org.joinmastodon.jobs;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-@Service
-public class JobService {
-    private final JobRepository jobRepository;
-
-    public JobService(JobRepository jobRepository) {
-        this.jobRepository = jobRepository;
-    }
-
-    @Transactional
-    public Job enqueue(String queue, String payload, Instant runAt) {
-        Job job = new Job();
-        job.setQueue(queue);
-        job.setPayload(payload);
-        job.setRunAt(runAt == null ? Instant.now() : runAt);
-        return jobRepository.save(job);
-    }
-
-    @Transactional
-    public List<Job> claimNextJobs(String queue, String workerId, int limit, Duration lockTimeout) {
-        Instant now = Instant.now();
-        Instant staleBefore = now.minus(lockTimeout == null ? Duration.ofMinutes(5) : lockTimeout);
-        List<Job> jobs = jobRepository.claimNextJobs(queue, now, staleBefore, limit);
-        for (Job job : jobs) {
-            job.setLockedAt(now);
-            job.setLockedBy(workerId);
-            job.setAttempts(job.getAttempts() + 1);
-            jobRepository.save(job);
-        }
-        return jobs;
-    }
-
-    @Transactional
-    public void markSuccess(Job job) {
-        jobRepository.delete(job);
-    }
-
-    @Transactional
-    public Job markFailure(Job job, String error, Duration backoff) {
-        job.setLastError(error);
-        job.setLockedAt(null);
-        job.setLockedBy(null);
-        Duration delay = backoff == null ? Duration.ofSeconds(30) : backoff;
-        job.setRunAt(Instant.now().plus(delay));
-        return jobRepository.save(job);
-    }
+import java.util.Optional;
+
+/**
+ * Stores jobs and hands them to workers. {@code mastodon.jobs.backend} selects the
+ * implementation: {@link DatabaseJobService}, the default, keeps jobs in the {@code jobs}
+ * table shared by every node; {@link InMemoryJobService} keeps them in this process, backed
+ * by a log file, for single-node deployments and tests.
+ * <p>
+ * Jobs enqueued inside a transaction become visible, and wake workers, once it commits.
+ */
+public interface JobService {
+
+    /**
+     * Add a job to a queue. Jobs scheduled for later are picked up by their queue's
+     * fallback poll.
+     */
+    Job enqueue(String queue, String payload, Instant runAt);
+
+    /**
+     * Add a job to a queue with a priority, an attempt limit, a unique key or a fairness key.
+     *
+     * @return the job, or empty if the queue already holds an unfinished job with the same
+     *         unique key
+     */
+    Optional<Job> enqueue(String queue, String payload, JobOptions options);
+
+    /**
+     * Add many jobs to a queue at once, all sharing the same options. Workers are woken once
+     * for the whole lot. With a fairness key the jobs are spread out in claim order like jobs
+     * of that key enqueued one at a time.
+     *
+     * @return the number of jobs enqueued
+     * @throws IllegalArgumentException if the options carry a unique key
+     */
+    int enqueueAll(String queue, List<String> payloads, JobOptions options);
+
+    /**
+     * Lock up to {@code limit} ready jobs of a queue for a worker, highest priority first and
+     * by claim position within a priority, which is oldest first unless fairness keys spread
+     * jobs out. Jobs locked for longer than {@code lockTimeout} are treated as abandoned and
+     * become claimable again.
+     *
+     * @return the claimed jobs, in claim order, with their attempt counted
+     */
+    List<Job> claimNextJobs(String queue, String workerId, int limit, Duration lockTimeout);
+
+    /**
+     * @return the jobs of a queue that have attempts left, running or not
+     */
+    long countPendingJobs(String queue);
+
+    /**
+     * Ready, scheduled and running counts per queue. Failed jobs are counted, dead jobs
+     * included, only if {@code includeFailed} is set, since that may be much slower.
+     */
+    List<JobQueueStats> queueStats(boolean includeFailed);
+
+    Optional<Job> findJob(Long id);
+
+    /**
+     * Jobs newest first.
+     *
+     * @param queue only this queue, or null for all
+     * @param state only jobs in this state, or null for all
+     * @param maxId only jobs with a lower id, or null
+     */
+    List<Job> findJobs(String queue, JobState state, Long maxId, int limit);
+
+    /**
+     * Make a job ready again at {@code runAt} with a fresh set of attempts.
+     */
+    Job reschedule(Job job, Instant runAt);
+
+    void delete(Job job);
+
+    /**
+     * Delete every job of a queue in a state. Running jobs cannot be purged.
+     *
+     * @return the number of jobs deleted
+     */
+    int purge(String queue, JobState state);
+
+    Optional<DeadJob> findDeadJob(Long id);
+
+    /**
+     * Dead jobs newest first.
+     *
+     * @param queue only this queue, or null for all
+     * @param maxId only jobs with a lower id, or null
+     */
+    List<DeadJob> findDeadJobs(String queue, Long maxId, int limit);
+
+    /**
+     * Put a dead job back on its queue with a fresh set of attempts. The job gets a new id.
+     *
+     * @return the new job, or empty if the queue already holds an unfinished job with the
+     *         same unique key, in which case the dead job is kept
+     */
+    Optional<Job> requeue(DeadJob dead);
+
+    /**
+     * Requeue every dead job of a queue, skipping those whose unique key is taken.
+     *
+     * @return the number of jobs requeued
+     */
+    int requeueDead(String queue);
+
+    void deleteDead(DeadJob dead);
+
+    /**
+     * @return the number of dead jobs deleted
+     */
+    int purgeDead(String queue);
+
+    /**
+     * Remove a finished job.
+     */
+    void markSuccess(Job job);
+
+    void markSuccess(Collection<Job> jobs);
+
+    /**
+     * Unlock several failed jobs, recording the same error on each and scheduling them all
+     * for another attempt after {@code backoff}, keeping any later claim position a fairness
+     * key gave them. Jobs that just used their last attempt become dead jobs instead.
+     */
+    void markFailure(Collection<Job> jobs, String error, Duration backoff);
+
+    /**
+     * Record a failed attempt of a job, including any change to its payload, and schedule
+     * another after {@code backoff}, or make it a dead job if that was its last attempt.
+     */
+    Job markFailure(Job job, String error, Duration backoff);
+
+    /**
+     * Unlock a claimed job that cannot run yet, e.g. because it waits for something another
+     * job fetches, and schedule it again after {@code delay}. The claim is not counted as an
+     * attempt, so waiting never makes a job dead.
+     */
+    Job postpone(Job job, String reason, Duration delay);
 }
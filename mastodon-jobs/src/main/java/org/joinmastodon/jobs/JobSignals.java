@@ -0,0 +1,76 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process wake-ups for idle job workers. A worker takes a {@link #token} before it polls
+ * its queue and, when the poll comes back empty, waits with that token; a signal that
+ * arrives in between is not lost, because the wait returns at once when the queue has been
+ * signalled since the token was taken.
+ */
+@Component
+public class JobSignals {
+    private final Map<String, Signal> signals = new ConcurrentHashMap<>();
+
+    /**
+     * Current signal generation of a queue, to pass to {@link #await} after polling.
+     */
+    public long token(String queue) {
+        Signal signal = signal0(queue);
+        synchronized (signal) {
+            return signal.generation;
+        }
+    }
+
+    /**
+     * Wake every worker waiting on a queue.
+     */
+    public void signal(String queue) {
+        Signal signal = signal0(queue);
+        synchronized (signal) {
+            signal.generation++;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Wake every waiting worker, e.g. after notifications may have been missed.
+     */
+    public void signalAll() {
+        for (String queue : signals.keySet()) {
+            signal(queue);
+        }
+    }
+
+    /**
+     * Wait until the queue is signalled after {@code token} was taken, or the timeout passes.
+     *
+     * @return true if the queue was signalled, false on timeout
+     */
+    public boolean await(String queue, long token, Duration timeout) throws InterruptedException {
+        Signal signal = signal0(queue);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (signal) {
+            while (signal.generation == token) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+            }
+            return true;
+        }
+    }
+
+    private Signal signal0(String queue) {
+        return signals.computeIfAbsent(queue, key -> new Signal());
+    }
+
+    private static final class Signal {
+        private long generation;
+    }
+}
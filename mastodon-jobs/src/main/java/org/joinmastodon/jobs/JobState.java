@@ -0,0 +1,27 @@
+package org.joinmastodon.jobs;
+
+import java.time.Instant;
+
+/**
+ * Where a job is in its life cycle. Finished jobs are deleted, so they have no state.
+ */
+public enum JobState {
+    /** Waiting for a worker. */
+    READY,
+    /** Waiting for its run time, either first scheduled for later or backing off after a failure. */
+    SCHEDULED,
+    /** Claimed by a worker. */
+    RUNNING,
+    /** Out of attempts; kept until retried or purged. */
+    FAILED;
+
+    public static JobState of(Job job, Instant now) {
+        if (job.getLockedAt() != null) {
+            return RUNNING;
+        }
+        if (job.getAttempts() >= job.getMaxAttempts()) {
+            return FAILED;
+        }
+        return job.getRunAt().isAfter(now) ? SCHEDULED : READY;
+    }
+}
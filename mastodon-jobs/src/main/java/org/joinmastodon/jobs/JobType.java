@@ -0,0 +1,26 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+
+/**
+ * A kind of job: the queue it runs on, the type of its payload, how it is retried and how
+ * far apart jobs sharing a fairness key are placed. Producers enqueue through
+ * {@link JobClient} with the same constant the {@link JobHandler} declares, so both sides
+ * agree on the payload.
+ * <p>
+ * {@code String} payloads are stored as they are; any other type is stored as JSON.
+ */
+public record JobType<T>(String queue, Class<T> payloadType, RetryPolicy retryPolicy, Duration fairnessInterval) {
+
+    public static <T> JobType<T> of(String queue, Class<T> payloadType) {
+        return new JobType<>(queue, payloadType, RetryPolicy.DEFAULT, Job.DEFAULT_FAIRNESS_INTERVAL);
+    }
+
+    public JobType<T> withRetryPolicy(RetryPolicy retryPolicy) {
+        return new JobType<>(queue, payloadType, retryPolicy, fairnessInterval);
+    }
+
+    public JobType<T> withFairnessInterval(Duration fairnessInterval) {
+        return new JobType<>(queue, payloadType, retryPolicy, fairnessInterval);
+    }
+}
@@ -0,0 +1,221 @@
+package org.joinmastodon.jobs;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a worker pool for every {@link JobHandler} bean. Each pool has one polling thread
+ * that sleeps on {@link JobSignals} and claims only as many jobs as it has free slots, so a
+ * busy node leaves jobs for the others; claimed jobs run on virtual threads. Jobs of a
+ * {@link BatchJobHandler} are completed item by item through {@link JobBatchService}.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.jobs.workers.enabled", havingValue = "true", matchIfMissing = true)
+public class JobWorkerRuntime {
+    private static final Logger log = LoggerFactory.getLogger(JobWorkerRuntime.class);
+
+    private final ObjectProvider<JobHandler<?>> handlers;
+    private final JobService jobService;
+    private final JobClient jobClient;
+    private final JobBatchService jobBatchService;
+    private final JobSignals jobSignals;
+    private final JobMetrics jobMetrics;
+    private final JobsProperties properties;
+    private final List<QueueWorker<?>> workers = new ArrayList<>();
+
+    public JobWorkerRuntime(ObjectProvider<JobHandler<?>> handlers,
+                            JobService jobService,
+                            JobClient jobClient,
+                            JobBatchService jobBatchService,
+                            JobSignals jobSignals,
+                            JobMetrics jobMetrics,
+                            JobsProperties properties) {
+        this.handlers = handlers;
+        this.jobService = jobService;
+        this.jobClient = jobClient;
+        this.jobBatchService = jobBatchService;
+        this.jobSignals = jobSignals;
+        this.jobMetrics = jobMetrics;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        Set<String> queues = new HashSet<>();
+        for (JobHandler<?> handler : handlers.orderedStream().toList()) {
+            String queue = handler.type().queue();
+            if (!queues.add(queue)) {
+                throw new IllegalStateException("More than one handler for job queue " + queue);
+            }
+            JobsProperties.Queue overrides = properties.getQueues().get(queue);
+            if (overrides != null && !overrides.isEnabled()) {
+                log.info("Workers for job queue {} are disabled", queue);
+                continue;
+            }
+            QueueWorker<?> worker = new QueueWorker<>(handler, handler.settings().withOverrides(overrides));
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        workers.forEach(QueueWorker::stop);
+        workers.clear();
+    }
+
+    private final class QueueWorker<T> {
+        private final JobHandler<T> handler;
+        private final JobType<T> type;
+        private final JobQueueSettings settings;
+        private final Semaphore slots;
+        private final ExecutorService executor;
+        private final String workerId;
+        private JobPollingLoop loop;
+
+        QueueWorker(JobHandler<T> handler, JobQueueSettings settings) {
+            this.handler = handler;
+            this.type = handler.type();
+            this.settings = settings;
+            this.slots = new Semaphore(settings.concurrency());
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("job-" + type.queue() + "-", 0).factory());
+            this.workerId = type.queue() + "-" + UUID.randomUUID();
+        }
+
+        void start() {
+            loop = JobPollingLoop.start("job-poller-" + type.queue(), type.queue(), jobSignals,
+                    settings.pollInterval(), this::poll);
+        }
+
+        void stop() {
+            loop.stop();
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("Jobs of queue {} still running at shutdown", type.queue());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Wait for a free slot, then claim as many jobs as there are free slots.
+         *
+         * @return true if every requested job was claimed, so more are likely waiting
+         */
+        private boolean poll() {
+            try {
+                slots.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            int requested = 1;
+            while (requested < settings.batchSize() && slots.tryAcquire()) {
+                requested++;
+            }
+            List<Job> jobs;
+            try {
+                jobs = jobService.claimNextJobs(type.queue(), workerId, requested, settings.lockTimeout());
+            } catch (RuntimeException ex) {
+                slots.release(requested);
+                throw ex;
+            }
+            slots.release(requested - jobs.size());
+            for (Job job : jobs) {
+                executor.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            return jobs.size() == requested;
+        }
+
+        private void run(Job job) {
+            if (handler instanceof BatchJobHandler batchHandler) {
+                runBatch(batchHandler, job);
+                return;
+            }
+            try {
+                handler.handle(jobClient.decode(type, job), job);
+            } catch (Exception ex) {
+                log.warn("Job {} on queue {} failed (attempt {} of {}): {}", job.getId(), type.queue(),
+                        job.getAttempts(), job.getMaxAttempts(), ex.getMessage());
+                complete(job, ex);
+                return;
+            }
+            complete(job, null);
+        }
+
+        private void runBatch(BatchJobHandler batchHandler, Job job) {
+            BatchPayload payload;
+            Collection<String> failed;
+            String error = null;
+            try {
+                payload = jobClient.decode(batchHandler.type(), job);
+            } catch (RuntimeException ex) {
+                complete(job, ex);
+                return;
+            }
+            try {
+                failed = batchHandler.handleItems(payload.items(), job);
+            } catch (Exception ex) {
+                failed = payload.items();
+                error = message(ex);
+            }
+            if (!failed.isEmpty()) {
+                if (error == null) {
+                    error = failed.size() + " of " + payload.items().size() + " items failed";
+                }
+                log.warn("Job {} on queue {} failed (attempt {} of {}): {}", job.getId(), type.queue(),
+                        job.getAttempts(), job.getMaxAttempts(), error);
+            }
+            jobMetrics.recordCompletion(type.queue(), job, failed.isEmpty());
+            try {
+                jobBatchService.recordOutcome(job, payload, failed, error,
+                        type.retryPolicy().backoff(job.getAttempts()));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to record the outcome of job {}: {}", job.getId(), ex.getMessage());
+            }
+        }
+
+        private void complete(Job job, Exception failure) {
+            jobMetrics.recordCompletion(type.queue(), job, failure == null);
+            try {
+                if (failure == null) {
+                    jobService.markSuccess(job);
+                } else {
+                    jobService.markFailure(job, message(failure), type.retryPolicy().backoff(job.getAttempts()));
+                }
+            } catch (RuntimeException ex) {
+                // The lock times out and the job is claimed again
+                log.warn("Failed to record the outcome of job {}: {}", job.getId(), ex.getMessage());
+            }
+        }
+    }
+
+    private static String message(Exception failure) {
+        return failure.getMessage() != null ? failure.getMessage() : failure.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package org.joinmastodon.jobs;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(JobsProperties.class)
+public class JobsConfiguration {
+}
@@ -0,0 +1,35 @@
+package org.joinmastodon.jobs;
+
+import java.time.Instant;
+
+/**
+ * A job enqueued on a cron schedule. Every definition bean gets a row in
+ * {@code recurring_jobs}; whichever node claims a due run enqueues it, so each run is
+ * enqueued once however many nodes are up. The job then runs on the type's
+ * {@link JobHandler} like any other.
+ *
+ * @param <T> the payload type
+ */
+public interface RecurringJobDefinition<T> {
+
+    /**
+     * Stable name of the schedule, its key in {@code recurring_jobs}.
+     */
+    String name();
+
+    /**
+     * Spring cron expression, evaluated in UTC.
+     */
+    String cron();
+
+    JobType<T> type();
+
+    /**
+     * Payload of the run due at {@code scheduledAt}.
+     */
+    T payload(Instant scheduledAt);
+
+    default JobOptions options() {
+        return JobOptions.DEFAULT;
+    }
+}
@@ -0,0 +1,32 @@
+package org.joinmastodon.jobs;
+
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface RecurringJobRepository extends JpaRepository<RecurringJob, String> {
+
+    @Query("select r from RecurringJob r where r.enabled = true and r.nextRunAt <= :now order by r.nextRunAt")
+    List<RecurringJob> findDue(@Param("now") Instant now);
+
+    /**
+     * Move a schedule past the run it was read for. Only one node can match
+     * {@code expected}, so only that node enqueues the run.
+     *
+     * @return 1 if this node claimed the run, 0 if another node did
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update RecurringJob r
+            set r.nextRunAt = :next, r.lastRunAt = :now, r.lastRunBy = :node, r.updatedAt = :now
+            where r.name = :name and r.nextRunAt = :expected and r.enabled = true
+            """)
+    int claimRun(@Param("name") String name,
+                 @Param("expected") Instant expected,
+                 @Param("next") Instant next,
+                 @Param("now") Instant now,
+                 @Param("node") String node);
+}
@@ -0,0 +1,76 @@
+package org.joinmastodon.jobs;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers every {@link RecurringJobDefinition} bean and enqueues the runs that are due.
+ * Every node polls; the row claim in {@link RecurringJobService#fire} makes sure each run
+ * is enqueued once, without electing a leader.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.jobs.recurring.enabled", havingValue = "true", matchIfMissing = true)
+public class RecurringJobScheduler {
+    private static final Logger log = LoggerFactory.getLogger(RecurringJobScheduler.class);
+
+    private final ObjectProvider<RecurringJobDefinition<?>> definitionBeans;
+    private final RecurringJobService recurringJobService;
+    private final String node = ManagementFactory.getRuntimeMXBean().getName();
+    private volatile Map<String, RecurringJobDefinition<?>> definitions = Map.of();
+
+    public RecurringJobScheduler(ObjectProvider<RecurringJobDefinition<?>> definitionBeans,
+                                 RecurringJobService recurringJobService) {
+        this.definitionBeans = definitionBeans;
+        this.recurringJobService = recurringJobService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        Map<String, RecurringJobDefinition<?>> byName = new HashMap<>();
+        for (RecurringJobDefinition<?> definition : definitionBeans.orderedStream().toList()) {
+            if (byName.putIfAbsent(definition.name(), definition) != null) {
+                throw new IllegalStateException("More than one recurring job named " + definition.name());
+            }
+            try {
+                recurringJobService.register(definition);
+            } catch (DataAccessException ex) {
+                // Another node registered it at the same time
+                log.debug("Failed to register recurring job {}: {}", definition.name(), ex.getMessage());
+            }
+        }
+        definitions = Map.copyOf(byName);
+    }
+
+    @Scheduled(fixedDelayString = "${mastodon.jobs.recurring.poll-interval-ms:10000}")
+    public void enqueueDue() {
+        Map<String, RecurringJobDefinition<?>> current = definitions;
+        if (current.isEmpty()) {
+            return;
+        }
+        try {
+            for (RecurringJob schedule : recurringJobService.findDue(Instant.now())) {
+                RecurringJobDefinition<?> definition = current.get(schedule.getName());
+                if (definition == null) {
+                    // Registered by a node running other code
+                    continue;
+                }
+                if (recurringJobService.fire(definition, schedule, node)) {
+                    log.debug("Enqueued recurring job {} due at {}", schedule.getName(), schedule.getNextRunAt());
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to enqueue recurring jobs: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.joinmastodon.jobs;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stores recurring job schedules and enqueues their due runs, once per run across the
+ * cluster: a node first moves the schedule's {@code next_run_at} forward with a
+ * compare-and-set on the value it read, and only enqueues if that update matched.
+ */
+@Service
+public class RecurringJobService {
+    private final RecurringJobRepository recurringJobRepository;
+    private final JobClient jobClient;
+
+    public RecurringJobService(RecurringJobRepository recurringJobRepository, JobClient jobClient) {
+        this.recurringJobRepository = recurringJobRepository;
+        this.jobClient = jobClient;
+    }
+
+    /**
+     * Create the schedule of a definition, or update its cron expression and queue if they
+     * changed. An updated schedule next runs at its new cron time; disabled schedules stay
+     * disabled.
+     */
+    @Transactional
+    public RecurringJob register(RecurringJobDefinition<?> definition) {
+        Instant now = Instant.now();
+        RecurringJob schedule = recurringJobRepository.findById(definition.name()).orElse(null);
+        if (schedule == null) {
+            schedule = new RecurringJob();
+            schedule.setName(definition.name());
+        } else if (schedule.getCron().equals(definition.cron())
+                && schedule.getQueue().equals(definition.type().queue())) {
+            return schedule;
+        }
+        schedule.setCron(definition.cron());
+        schedule.setQueue(definition.type().queue());
+        schedule.setNextRunAt(nextRun(definition.cron(), now));
+        return recurringJobRepository.save(schedule);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RecurringJob> findDue(Instant now) {
+        return recurringJobRepository.findDue(now);
+    }
+
+    /**
+     * Claim the run of {@code schedule} that was due at its {@code nextRunAt} and enqueue it.
+     * Runs missed while no node was up are collapsed into this one.
+     *
+     * @return false if another node claimed the run first
+     */
+    @Transactional
+    public <T> boolean fire(RecurringJobDefinition<T> definition, RecurringJob schedule, String node) {
+        Instant now = Instant.now();
+        Instant scheduledAt = schedule.getNextRunAt();
+        Instant next = nextRun(schedule.getCron(), now);
+        if (recurringJobRepository.claimRun(schedule.getName(), scheduledAt, next, now, node) == 0) {
+            return false;
+        }
+        jobClient.enqueue(definition.type(), definition.payload(scheduledAt), definition.options());
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public List<RecurringJob> findAll() {
+        return recurringJobRepository.findAll(Sort.by("name"));
+    }
+
+    /**
+     * Enable or disable a schedule. A re-enabled schedule skips the runs it missed.
+     */
+    @Transactional
+    public Optional<RecurringJob> setEnabled(String name, boolean enabled) {
+        return recurringJobRepository.findById(name).map(schedule -> {
+            if (enabled && !schedule.isEnabled()) {
+                schedule.setNextRunAt(nextRun(schedule.getCron(), Instant.now()));
+            }
+            schedule.setEnabled(enabled);
+            return recurringJobRepository.save(schedule);
+        });
+    }
+
+    /**
+     * Make a schedule due now; the next scheduler tick on any node enqueues it.
+     */
+    @Transactional
+    public Optional<RecurringJob> runNow(String name) {
+        return recurringJobRepository.findById(name).map(schedule -> {
+            schedule.setNextRunAt(Instant.now());
+            return recurringJobRepository.save(schedule);
+        });
+    }
+
+    /**
+     * First time after {@code after} matching {@code cron}, evaluated in UTC.
+     *
+     * @throws IllegalArgumentException if the expression is malformed or never matches
+     */
+    static Instant nextRun(String cron, Instant after) {
+        ZonedDateTime next = CronExpression.parse(cron).next(after.atZone(ZoneOffset.UTC));
+        if (next == null) {
+            throw new IllegalArgumentException("Cron expression never matches: " + cron);
+        }
+        return next.toInstant();
+    }
+}
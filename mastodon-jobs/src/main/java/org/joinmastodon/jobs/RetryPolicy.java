@@ -0,0 +1,50 @@
+package org.joinmastodon.jobs;
+
+import java.time.Duration;
+
+/**
+ * How often a failed job is retried and how long to wait between attempts. The delay
+ * starts at {@code initialBackoff} and is multiplied by {@code multiplier} after every
+ * failed attempt, up to {@code maxBackoff}.
+ */
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, double multiplier) {
+    /**
+     * Five attempts, waiting 2s, 4s, 8s and 16s in between.
+     */
+    public static final RetryPolicy DEFAULT = exponential(Job.DEFAULT_MAX_ATTEMPTS, Duration.ofSeconds(2),
+            Duration.ofMinutes(5));
+
+    public RetryPolicy {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+    }
+
+    public static RetryPolicy exponential(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, 2.0);
+    }
+
+    public static RetryPolicy fixed(int maxAttempts, Duration backoff) {
+        return new RetryPolicy(maxAttempts, backoff, backoff, 1.0);
+    }
+
+    /**
+     * Run a job once and never retry it.
+     */
+    public static RetryPolicy once() {
+        return fixed(1, Duration.ZERO);
+    }
+
+    /**
+     * Delay before the next attempt of a job that has failed {@code attempts} times.
+     */
+    public Duration backoff(int attempts) {
+        int exponent = Math.max(0, attempts - 1);
+        double millis = initialBackoff.toMillis() * Math.pow(multiplier, exponent);
+        long capped = (long) Math.min(millis, maxBackoff.toMillis());
+        return Duration.ofMillis(capped);
+    }
+}
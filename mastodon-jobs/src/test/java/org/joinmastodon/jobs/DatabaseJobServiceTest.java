@@ -0,0 +1,649 @@
+package org.joinmastodon.jobs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for DatabaseJobService.
+ * Tests job queue management and execution.
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseJobServiceTest {
+
+    @Mock
+    private JobRepository jobRepository;
+
+    @Mock
+    private DeadJobRepository deadJobRepository;
+
+    @Mock
+    private JobBulkInserter jobBulkInserter;
+
+    @Mock
+    private JobDatabase jobDatabase;
+
+    @Mock
+    private JobNotifier jobNotifier;
+
+    @InjectMocks
+    private DatabaseJobService jobService;
+
+    private Job testJob;
+
+    @BeforeEach
+    void setUp() {
+        testJob = new Job();
+        testJob.setId(1L);
+        testJob.setQueue("default");
+        testJob.setPayload("{\"task\": \"test\"}");
+        testJob.setRunAt(Instant.now());
+        testJob.setFairAt(testJob.getRunAt());
+        testJob.setAttempts(0);
+    }
+
+    @Nested
+    @DisplayName("Enqueue job")
+    class EnqueueTests {
+
+        @Test
+        @DisplayName("Enqueues job with immediate run time")
+        void enqueuesJobWithImmediateRunTime() {
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> {
+                Job job = inv.getArgument(0);
+                job.setId(1L);
+                return job;
+            });
+            
+            Job result = jobService.enqueue("default", "{\"task\": \"test\"}", (Instant) null);
+            
+            assertThat(result).isNotNull();
+            assertThat(result.getQueue()).isEqualTo("default");
+            assertThat(result.getPayload()).isEqualTo("{\"task\": \"test\"}");
+            assertThat(result.getRunAt()).isNotNull();
+            verify(jobRepository).save(any(Job.class));
+            verify(jobNotifier).jobEnqueued("default");
+        }
+
+        @Test
+        @DisplayName("Enqueues job with scheduled run time")
+        void enqueuesJobWithScheduledRunTime() {
+            Instant scheduledTime = Instant.now().plus(Duration.ofHours(1));
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> {
+                Job job = inv.getArgument(0);
+                job.setId(1L);
+                return job;
+            });
+            
+            Job result = jobService.enqueue("default", "{\"task\": \"test\"}", scheduledTime);
+            
+            assertThat(result.getRunAt()).isEqualTo(scheduledTime);
+            verify(jobNotifier, never()).jobEnqueued(any());
+        }
+
+        @Test
+        @DisplayName("Enqueues job to specific queue")
+        void enqueuesJobToSpecificQueue() {
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+            
+            Job result = jobService.enqueue("priority", "{\"task\": \"urgent\"}", (Instant) null);
+            
+            assertThat(result.getQueue()).isEqualTo("priority");
+        }
+
+        @Test
+        @DisplayName("Stores priority and attempt limit")
+        void storesPriorityAndAttemptLimit() {
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Optional<Job> result = jobService.enqueue("default", "{}",
+                    JobOptions.DEFAULT.withPriority(10).withMaxAttempts(2));
+
+            assertThat(result).isPresent();
+            assertThat(result.get().getPriority()).isEqualTo(10);
+            assertThat(result.get().getMaxAttempts()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Skips a job whose unique key is already pending")
+        void skipsDuplicateUniqueKey() {
+            when(jobDatabase.isPostgres()).thenReturn(true);
+            when(jobRepository.insertUnique(eq("default"), eq("{}"), any(Instant.class), eq(0), eq("key"), isNull(),
+                    any(Instant.class), eq(Job.DEFAULT_MAX_ATTEMPTS), any(Instant.class))).thenReturn(List.of());
+
+            Optional<Job> result = jobService.enqueue("default", "{}", JobOptions.DEFAULT.withUniqueKey("key"));
+
+            assertThat(result).isEmpty();
+            verify(jobRepository, never()).save(any(Job.class));
+            verify(jobNotifier, never()).jobEnqueued(any());
+        }
+
+        @Test
+        @DisplayName("Wakes workers when a unique job is inserted")
+        void insertsUniqueJob() {
+            when(jobDatabase.isPostgres()).thenReturn(true);
+            when(jobRepository.insertUnique(eq("default"), eq("{}"), any(Instant.class), eq(0), eq("key"), isNull(),
+                    any(Instant.class), eq(Job.DEFAULT_MAX_ATTEMPTS), any(Instant.class))).thenReturn(List.of(testJob));
+
+            Optional<Job> result = jobService.enqueue("default", "{}", JobOptions.DEFAULT.withUniqueKey("key"));
+
+            assertThat(result).contains(testJob);
+            verify(jobNotifier).jobEnqueued("default");
+        }
+
+        @Test
+        @DisplayName("Inserts a unique job through FINAL TABLE on H2")
+        void insertsUniqueJobThroughFinalTableOnH2() {
+            when(jobDatabase.isPostgres()).thenReturn(false);
+            when(jobRepository.insertUniqueFinalTable(eq("default"), eq("{}"), any(Instant.class), eq(0), eq("key"),
+                    isNull(), any(Instant.class), eq(Job.DEFAULT_MAX_ATTEMPTS), any(Instant.class)))
+                    .thenReturn(List.of(testJob));
+
+            Optional<Job> result = jobService.enqueue("default", "{}", JobOptions.DEFAULT.withUniqueKey("key"));
+
+            assertThat(result).contains(testJob);
+            verify(jobRepository, never()).insertUnique(any(), any(), any(), any(Integer.class), any(), any(), any(),
+                    any(Integer.class), any());
+        }
+
+        @Test
+        @DisplayName("Places a job without a fairness key at its run time")
+        void placesUnkeyedJobAtRunTime() {
+            Instant runAt = Instant.now().plusSeconds(60);
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Optional<Job> result = jobService.enqueue("default", "{}", JobOptions.at(runAt));
+
+            assertThat(result).get().extracting(Job::getFairAt).isEqualTo(runAt);
+            verify(jobRepository, never()).findLastFairAt(any(), any());
+        }
+
+        @Test
+        @DisplayName("Places a job one fairness interval after its key's backlog")
+        void placesKeyedJobAfterBacklog() {
+            Instant last = Instant.now().plusSeconds(600);
+            when(jobRepository.findLastFairAt("default", "account-1")).thenReturn(last);
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Optional<Job> result = jobService.enqueue("default", "{}", JobOptions.DEFAULT
+                    .withFairnessKey("account-1")
+                    .withFairnessInterval(Duration.ofSeconds(5)));
+
+            assertThat(result).get().satisfies(job -> {
+                assertThat(job.getFairnessKey()).isEqualTo("account-1");
+                assertThat(job.getFairAt()).isEqualTo(last.plusSeconds(5));
+                assertThat(job.getRunAt()).isBefore(last);
+            });
+            verify(jobNotifier).jobEnqueued("default");
+        }
+
+        @Test
+        @DisplayName("Places a job at its run time once its key's backlog has been reached")
+        void placesKeyedJobAtRunTimeWithoutBacklog() {
+            when(jobRepository.findLastFairAt("default", "account-1")).thenReturn(Instant.now().minusSeconds(600));
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Optional<Job> result = jobService.enqueue("default", "{}",
+                    JobOptions.DEFAULT.withFairnessKey("account-1"));
+
+            assertThat(result).get().satisfies(job -> assertThat(job.getFairAt()).isEqualTo(job.getRunAt()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Enqueue many jobs")
+    class EnqueueAllTests {
+
+        @Test
+        @DisplayName("Inserts all jobs together and wakes workers once")
+        void insertsTogether() {
+            when(jobBulkInserter.insert(eq("fanout"), eq(List.of("a", "b", "c")), any(JobOptions.class),
+                    any(Instant.class), any(Instant.class))).thenReturn(3);
+
+            int inserted = jobService.enqueueAll("fanout", List.of("a", "b", "c"),
+                    JobOptions.DEFAULT.withPriority(2).withMaxAttempts(3));
+
+            assertThat(inserted).isEqualTo(3);
+            ArgumentCaptor<JobOptions> options = ArgumentCaptor.forClass(JobOptions.class);
+            verify(jobBulkInserter).insert(eq("fanout"), any(), options.capture(), any(Instant.class),
+                    any(Instant.class));
+            assertThat(options.getValue().priority()).isEqualTo(2);
+            assertThat(options.getValue().maxAttempts()).isEqualTo(3);
+            assertThat(options.getValue().runAt()).isNotNull();
+            verify(jobNotifier).jobEnqueued("fanout");
+            verify(jobRepository, never()).save(any(Job.class));
+        }
+
+        @Test
+        @DisplayName("Starts a fairness key's jobs after its backlog")
+        void startsKeyedJobsAfterBacklog() {
+            Instant last = Instant.now().plusSeconds(600);
+            when(jobRepository.findLastFairAt("fanout", "account-1")).thenReturn(last);
+
+            jobService.enqueueAll("fanout", List.of("a", "b"), JobOptions.DEFAULT.withFairnessKey("account-1"));
+
+            ArgumentCaptor<JobOptions> options = ArgumentCaptor.forClass(JobOptions.class);
+            verify(jobBulkInserter).insert(eq("fanout"), eq(List.of("a", "b")), options.capture(),
+                    eq(last.plus(Job.DEFAULT_FAIRNESS_INTERVAL)), any(Instant.class));
+            assertThat(options.getValue().fairnessInterval()).isEqualTo(Job.DEFAULT_FAIRNESS_INTERVAL);
+        }
+
+        @Test
+        @DisplayName("Refuses a shared unique key")
+        void refusesUniqueKey() {
+            assertThatThrownBy(() -> jobService.enqueueAll("fanout", List.of("a"),
+                    JobOptions.DEFAULT.withUniqueKey("key")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Claim next jobs")
+    class ClaimNextJobsTests {
+
+        @BeforeEach
+        void onPostgres() {
+            when(jobDatabase.isPostgres()).thenReturn(true);
+        }
+
+        @Test
+        @DisplayName("Claims available jobs")
+        void claimsAvailableJobs() {
+            Job job1 = createJob(1L, "default");
+            Job job2 = createJob(2L, "default");
+            when(jobRepository.claimNextJobs(any(), any(), any(), any(Integer.class)))
+                    .thenReturn(List.of(job1, job2));
+            
+            List<Job> result = jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5));
+            
+            assertThat(result).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Returns higher priorities first")
+        void returnsHigherPrioritiesFirst() {
+            Job low = createJob(1L, "default");
+            Job high = createJob(2L, "default");
+            high.setPriority(5);
+            when(jobRepository.claimNextJobs(any(), any(), any(), any(Integer.class)))
+                    .thenReturn(List.of(low, high));
+
+            List<Job> result = jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5));
+
+            assertThat(result).containsExactly(high, low);
+        }
+
+        @Test
+        @DisplayName("Claims for the worker in a single statement")
+        void claimsInSingleStatement() {
+            when(jobRepository.claimNextJobs(any(), any(), any(), any(Integer.class)))
+                    .thenReturn(List.of(testJob));
+            
+            jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5));
+            
+            verify(jobRepository).claimNextJobs(eq("default"), eq("worker-1"), any(Instant.class), eq(10));
+            verify(jobRepository, never()).save(any(Job.class));
+        }
+
+        @Test
+        @DisplayName("Reads the claimed rows through FINAL TABLE on H2")
+        void claimsThroughFinalTableOnH2() {
+            when(jobDatabase.isPostgres()).thenReturn(false);
+            when(jobRepository.claimNextJobsFinalTable(eq("default"), eq("worker-1"), any(Instant.class), eq(10)))
+                    .thenReturn(List.of(testJob));
+
+            assertThat(jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5)))
+                    .containsExactly(testJob);
+            verify(jobRepository, never()).claimNextJobs(any(), any(), any(), any(Integer.class));
+        }
+
+        @Test
+        @DisplayName("Returns claimed jobs in claim order")
+        void returnsClaimedJobsInClaimOrder() {
+            Job later = createJob(1L, "default");
+            Job earlier = createJob(2L, "default");
+            earlier.setFairAt(later.getFairAt().minusSeconds(60));
+            when(jobRepository.claimNextJobs(any(), any(), any(), any(Integer.class)))
+                    .thenReturn(List.of(later, earlier));
+            
+            List<Job> result = jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5));
+            
+            assertThat(result).containsExactly(earlier, later);
+        }
+
+        @Test
+        @DisplayName("Returns empty list when no jobs available")
+        void returnsEmptyListWhenNoJobsAvailable() {
+            when(jobRepository.claimNextJobs(any(), any(), any(), any(Integer.class)))
+                    .thenReturn(List.of());
+            
+            List<Job> result = jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5));
+            
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Uses default lock timeout when not specified")
+        void usesDefaultLockTimeoutWhenNotSpecified() {
+            when(jobRepository.claimNextJobs(any(), any(), any(), any(Integer.class)))
+                    .thenReturn(List.of(testJob));
+            
+            jobService.claimNextJobs("default", "worker-1", 10, null);
+            
+            // Should use default 5 minute timeout
+            ArgumentCaptor<Instant> staleBefore = ArgumentCaptor.forClass(Instant.class);
+            verify(jobRepository).releaseStaleLocks(eq("default"), staleBefore.capture());
+            assertThat(staleBefore.getValue())
+                    .isBefore(Instant.now().minus(Duration.ofMinutes(4)))
+                    .isAfter(Instant.now().minus(Duration.ofMinutes(6)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Mark success")
+    class MarkSuccessTests {
+
+        @Test
+        @DisplayName("Deletes job on success")
+        void deletesJobOnSuccess() {
+            jobService.markSuccess(testJob);
+            
+            verify(jobRepository).deleteAllByIdInBatch(List.of(1L));
+        }
+
+        @Test
+        @DisplayName("Deletes several jobs in one batch")
+        void deletesSeveralJobsInOneBatch() {
+            jobService.markSuccess(List.of(createJob(1L, "default"), createJob(2L, "default")));
+            
+            verify(jobRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Mark failure")
+    class MarkFailureTests {
+
+        @Test
+        @DisplayName("Records error and clears lock")
+        void recordsErrorAndClearsLock() {
+            testJob.setLockedBy("worker-1");
+            testJob.setLockedAt(Instant.now());
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+            
+            Job result = jobService.markFailure(testJob, "Connection timeout", Duration.ofMinutes(1));
+            
+            assertThat(result.getLastError()).isEqualTo("Connection timeout");
+            assertThat(result.getLockedBy()).isNull();
+            assertThat(result.getLockedAt()).isNull();
+        }
+
+        @Test
+        @DisplayName("Postpones a job on its last attempt without burying it")
+        void postponesWithoutAttempt() {
+            testJob.setAttempts(5);
+            testJob.setMaxAttempts(5);
+            testJob.setLockedBy("worker-1");
+            testJob.setLockedAt(Instant.now());
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Job result = jobService.postpone(testJob, "Waiting", Duration.ofMinutes(1));
+
+            assertThat(result.getAttempts()).isEqualTo(4);
+            assertThat(result.getLockedAt()).isNull();
+            assertThat(result.getRunAt()).isAfter(Instant.now().plusSeconds(30));
+            verify(deadJobRepository, never()).saveAll(any());
+        }
+
+        @Test
+        @DisplayName("Schedules retry with backoff")
+        void schedulesRetryWithBackoff() {
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+            
+            Job result = jobService.markFailure(testJob, "Error", Duration.ofMinutes(5));
+            
+            assertThat(result.getRunAt()).isAfter(Instant.now().plus(Duration.ofMinutes(4)));
+            assertThat(result.getFairAt()).isEqualTo(result.getRunAt());
+        }
+
+        @Test
+        @DisplayName("Keeps a later claim position on retry")
+        void keepsLaterClaimPosition() {
+            Instant fairAt = Instant.now().plus(Duration.ofHours(1));
+            testJob.setFairAt(fairAt);
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Job result = jobService.markFailure(testJob, "Error", Duration.ofMinutes(5));
+
+            assertThat(result.getFairAt()).isEqualTo(fairAt);
+        }
+
+        @Test
+        @DisplayName("Uses default backoff when not specified")
+        void usesDefaultBackoffWhenNotSpecified() {
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+            
+            Job result = jobService.markFailure(testJob, "Error", null);
+            
+            // Default backoff is 30 seconds
+            assertThat(result.getRunAt()).isAfter(Instant.now().plus(Duration.ofSeconds(25)));
+            assertThat(result.getRunAt()).isBefore(Instant.now().plus(Duration.ofSeconds(35)));
+        }
+
+        @Test
+        @DisplayName("Fails several jobs in one statement")
+        void failsSeveralJobsInOneStatement() {
+            Job other = createJob(2L, "default");
+            other.setLockedBy("worker-1");
+            
+            jobService.markFailure(List.of(testJob, other), "Error", Duration.ofMinutes(1));
+            
+            verify(jobRepository).markFailed(eq(List.of(1L, 2L)), eq("Error"), any(Instant.class), any(Instant.class));
+            verify(jobRepository, never()).save(any(Job.class));
+            assertThat(other.getLockedBy()).isNull();
+            assertThat(other.getLastError()).isEqualTo("Error");
+        }
+
+        @Test
+        @DisplayName("Moves a job that used its last attempt to the dead jobs")
+        void movesExhaustedJobToDeadJobs() {
+            testJob.setAttempts(5);
+            testJob.setMaxAttempts(5);
+            testJob.setLockedBy("worker-1");
+
+            jobService.markFailure(testJob, "Gone", Duration.ofMinutes(1));
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<DeadJob>> captor = ArgumentCaptor.forClass(List.class);
+            verify(deadJobRepository).saveAll(captor.capture());
+            assertThat(captor.getValue()).singleElement().satisfies(dead -> {
+                assertThat(dead.getId()).isEqualTo(1L);
+                assertThat(dead.getQueue()).isEqualTo("default");
+                assertThat(dead.getLastError()).isEqualTo("Gone");
+                assertThat(dead.getAttempts()).isEqualTo(5);
+            });
+            verify(jobRepository).deleteAllByIdInBatch(List.of(1L));
+            verify(jobRepository, never()).save(any(Job.class));
+        }
+
+        @Test
+        @DisplayName("Retries the jobs of a batch that have attempts left")
+        void splitsBatchByRemainingAttempts() {
+            Job exhausted = createJob(2L, "default");
+            exhausted.setAttempts(5);
+            exhausted.setMaxAttempts(5);
+
+            jobService.markFailure(List.of(testJob, exhausted), "Error", Duration.ofMinutes(1));
+
+            verify(jobRepository).markFailed(eq(List.of(1L)), eq("Error"), any(Instant.class), any(Instant.class));
+            verify(jobRepository).deleteAllByIdInBatch(List.of(2L));
+            verify(deadJobRepository).saveAll(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Dead jobs")
+    class DeadJobTests {
+
+        @Test
+        @DisplayName("Requeues a dead job with a fresh set of attempts")
+        void requeuesDeadJob() {
+            testJob.setAttempts(5);
+            testJob.setMaxAttempts(5);
+            testJob.setPriority(3);
+            testJob.setFairnessKey("account-1");
+            DeadJob dead = DeadJob.of(testJob, "Gone", Instant.now());
+            when(jobRepository.save(any(Job.class))).thenAnswer(inv -> inv.getArgument(0));
+
+            Optional<Job> result = jobService.requeue(dead);
+
+            assertThat(result).get().satisfies(job -> {
+                assertThat(job.getId()).isNull();
+                assertThat(job.getQueue()).isEqualTo("default");
+                assertThat(job.getPriority()).isEqualTo(3);
+                assertThat(job.getAttempts()).isZero();
+                assertThat(job.getMaxAttempts()).isEqualTo(5);
+                assertThat(job.getFairnessKey()).isEqualTo("account-1");
+            });
+            verify(deadJobRepository).delete(dead);
+            verify(jobNotifier).jobEnqueued("default");
+        }
+
+        @Test
+        @DisplayName("Keeps a dead job whose unique key is pending again")
+        void keepsDeadJobOnUniqueConflict() {
+            testJob.setAttempts(5);
+            testJob.setMaxAttempts(5);
+            testJob.setUniqueKey("key");
+            DeadJob dead = DeadJob.of(testJob, "Gone", Instant.now());
+            when(jobDatabase.isPostgres()).thenReturn(true);
+            when(jobRepository.insertUnique(eq("default"), any(), any(), eq(0), eq("key"), any(), any(), eq(5), any()))
+                    .thenReturn(List.of());
+
+            assertThat(jobService.requeue(dead)).isEmpty();
+
+            verify(deadJobRepository, never()).delete(any(DeadJob.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Administration")
+    class AdministrationTests {
+
+        @Test
+        @DisplayName("Merges ready, running, failed and dead counts per queue")
+        void mergesQueueStats() {
+            Instant oldest = Instant.parse("2026-01-01T00:00:00Z");
+            when(jobRepository.countUnlockedByQueue(any(Instant.class)))
+                    .thenReturn(List.<Object[]>of(new Object[] {"media", 3L, 2L, oldest}));
+            when(jobRepository.countLockedByQueue())
+                    .thenReturn(List.<Object[]>of(new Object[] {"inbox", 4L}));
+            when(jobRepository.countExhaustedByQueue())
+                    .thenReturn(List.<Object[]>of(new Object[] {"media", 1L}));
+            when(deadJobRepository.countByQueue())
+                    .thenReturn(List.<Object[]>of(new Object[] {"media", 2L}, new Object[] {"push", 6L}));
+
+            List<JobQueueStats> stats = jobService.queueStats(true);
+
+            assertThat(stats).containsExactly(
+                    new JobQueueStats("inbox", 0, 0, 4, 0, null),
+                    new JobQueueStats("media", 3, 2, 0, 3, oldest),
+                    new JobQueueStats("push", 0, 0, 0, 6, null));
+        }
+
+        @Test
+        @DisplayName("Skips the failed count unless asked for it")
+        void skipsFailedCount() {
+            when(jobRepository.countUnlockedByQueue(any(Instant.class)))
+                    .thenReturn(List.<Object[]>of(new Object[] {"media", 1L, 0L, Instant.now()}));
+            when(jobRepository.countLockedByQueue()).thenReturn(List.of());
+
+            List<JobQueueStats> stats = jobService.queueStats(false);
+
+            assertThat(stats).singleElement().extracting(JobQueueStats::failed).isEqualTo(-1L);
+            verify(jobRepository, never()).countExhaustedByQueue();
+            verify(deadJobRepository, never()).countByQueue();
+        }
+
+        @Test
+        @DisplayName("Rescheduling gives a failed job a fresh set of attempts")
+        void rescheduleResetsAttempts() {
+            testJob.setAttempts(5);
+            testJob.setMaxAttempts(5);
+            when(jobRepository.save(testJob)).thenReturn(testJob);
+
+            Job result = jobService.reschedule(testJob, null);
+
+            assertThat(result.getAttempts()).isZero();
+            assertThat(JobState.of(result, Instant.now().plusSeconds(1))).isEqualTo(JobState.READY);
+            verify(jobNotifier).jobEnqueued("default");
+        }
+
+        @Test
+        @DisplayName("Refuses to purge running jobs")
+        void refusesToPurgeRunningJobs() {
+            assertThatThrownBy(() -> jobService.purge("default", JobState.RUNNING))
+                    .isInstanceOf(IllegalArgumentException.class);
+            verify(jobRepository, never()).deleteByQueueAndState(any(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Job entity tests")
+    class JobEntityTests {
+
+        @Test
+        @DisplayName("New job has zero attempts")
+        void newJobHasZeroAttempts() {
+            Job job = new Job();
+            
+            assertThat(job.getAttempts()).isEqualTo(0);
+        }
+
+        @Test
+        @DisplayName("Job can be locked")
+        void jobCanBeLocked() {
+            Job job = new Job();
+            Instant lockTime = Instant.now();
+            
+            job.setLockedAt(lockTime);
+            job.setLockedBy("worker-1");
+            
+            assertThat(job.getLockedAt()).isEqualTo(lockTime);
+            assertThat(job.getLockedBy()).isEqualTo("worker-1");
+        }
+    }
+
+    // Helper methods
+
+    private Job createJob(Long id, String queue) {
+        Job job = new Job();
+        job.setId(id);
+        job.setQueue(queue);
+        job.setPayload("{\"id\": " + id + "}");
+        job.setRunAt(Instant.now());
+        job.setFairAt(job.getRunAt());
+        job.setAttempts(0);
+        return job;
+    }
+}
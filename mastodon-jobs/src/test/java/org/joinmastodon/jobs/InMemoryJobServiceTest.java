@@ -0,0 +1,476 @@
+package org.joinmastodon.jobs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for InMemoryJobService.
+ */
+class InMemoryJobServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private Path logFile;
+    private JobSignals signals;
+    private InMemoryJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        logFile = dir.resolve("jobs.log");
+        signals = new JobSignals();
+        jobService = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        jobService.close();
+    }
+
+    private InMemoryJobService open() {
+        return new InMemoryJobService(signals, logFile.toString(), false, 30);
+    }
+
+    private InMemoryJobService restart() throws IOException {
+        jobService.close();
+        jobService = open();
+        return jobService;
+    }
+
+    private List<String> payloads(List<Job> jobs) {
+        return jobs.stream().map(Job::getPayload).toList();
+    }
+
+    @Nested
+    @DisplayName("Claim jobs")
+    class ClaimTests {
+
+        @Test
+        @DisplayName("Claims by priority, then oldest first, counting the attempt")
+        void claimsInClaimOrder() {
+            Instant now = Instant.now();
+            jobService.enqueue("default", "old", JobOptions.at(now.minusSeconds(10)));
+            jobService.enqueue("default", "new", JobOptions.at(now.minusSeconds(5)));
+            jobService.enqueue("default", "urgent", JobOptions.at(now).withPriority(10));
+
+            List<Job> claimed = jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5));
+
+            assertThat(payloads(claimed)).containsExactly("urgent", "old", "new");
+            assertThat(claimed).allSatisfy(job -> {
+                assertThat(job.getAttempts()).isEqualTo(1);
+                assertThat(job.getLockedBy()).isEqualTo("worker-1");
+                assertThat(job.getLockedAt()).isNotNull();
+            });
+            assertThat(jobService.claimNextJobs("default", "worker-2", 10, Duration.ofMinutes(5))).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Leaves scheduled jobs until they are due")
+        void leavesScheduledJobs() {
+            jobService.enqueue("default", "later", Instant.now().plusSeconds(60));
+
+            assertThat(jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5))).isEmpty();
+            assertThat(jobService.countPendingJobs("default")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Claims no more than the limit")
+        void respectsLimit() {
+            jobService.enqueueAll("default", List.of("a", "b", "c"), JobOptions.DEFAULT);
+
+            assertThat(jobService.claimNextJobs("default", "worker-1", 2, Duration.ofMinutes(5))).hasSize(2);
+            assertThat(jobService.claimNextJobs("default", "worker-1", 2, Duration.ofMinutes(5))).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Reclaims jobs whose lock timed out")
+        void reclaimsStaleJobs() throws InterruptedException {
+            jobService.enqueue("default", "stuck", (Instant) null);
+            jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5));
+            Thread.sleep(5);
+
+            List<Job> reclaimed = jobService.claimNextJobs("default", "worker-2", 1, Duration.ZERO);
+
+            assertThat(reclaimed).singleElement().satisfies(job -> {
+                assertThat(job.getLockedBy()).isEqualTo("worker-2");
+                assertThat(job.getAttempts()).isEqualTo(2);
+            });
+        }
+
+        @Test
+        @DisplayName("Spreads out the jobs of a busy fairness key")
+        void spreadsFairnessKey() {
+            Instant now = Instant.now();
+            JobOptions busy = JobOptions.at(now).withFairnessKey("busy").withFairnessInterval(Duration.ofSeconds(1));
+            jobService.enqueueAll("default", List.of("busy-1", "busy-2", "busy-3"), busy);
+            jobService.enqueue("default", "quiet", JobOptions.at(now).withFairnessKey("quiet"));
+
+            assertThat(payloads(jobService.claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5))))
+                    .containsExactly("busy-1", "quiet", "busy-2", "busy-3");
+        }
+
+        @Test
+        @DisplayName("Hands out copies that cannot reorder the queue")
+        void handsOutCopies() {
+            Job job = jobService.enqueue("default", "payload", (Instant) null);
+            job.setPriority(100);
+            job.setPayload("changed");
+
+            assertThat(jobService.findJob(job.getId())).get()
+                    .satisfies(found -> assertThat(found.getPayload()).isEqualTo("payload"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Unique keys")
+    class UniqueKeyTests {
+
+        @Test
+        @DisplayName("Skips a job whose unique key is held by an unfinished job")
+        void skipsDuplicate() {
+            JobOptions options = JobOptions.DEFAULT.withUniqueKey("status-1");
+
+            Optional<Job> first = jobService.enqueue("default", "a", options);
+            Optional<Job> second = jobService.enqueue("default", "b", options);
+
+            assertThat(first).isPresent();
+            assertThat(second).isEmpty();
+            assertThat(jobService.enqueue("other", "c", options)).isPresent();
+        }
+
+        @Test
+        @DisplayName("Frees the unique key once the job finishes")
+        void freesKeyOnSuccess() {
+            JobOptions options = JobOptions.DEFAULT.withUniqueKey("status-1");
+            jobService.enqueue("default", "a", options);
+            jobService.markSuccess(jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5)));
+
+            assertThat(jobService.enqueue("default", "b", options)).isPresent();
+        }
+
+        @Test
+        @DisplayName("Rejects a unique key for jobs enqueued together")
+        void rejectsUniqueKeyForBulk() {
+            assertThatThrownBy(() -> jobService.enqueueAll("default", List.of("a"),
+                    JobOptions.DEFAULT.withUniqueKey("key")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Failures")
+    class FailureTests {
+
+        @Test
+        @DisplayName("Schedules a failed job for another attempt")
+        void retriesFailedJob() {
+            jobService.enqueue("default", "payload", JobOptions.DEFAULT.withMaxAttempts(3));
+            Job claimed = jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5)).get(0);
+            claimed.setPayload("progress");
+
+            Job failed = jobService.markFailure(claimed, "boom", Duration.ofMinutes(1));
+
+            assertThat(failed.getLockedAt()).isNull();
+            assertThat(failed.getRunAt()).isAfter(Instant.now().plusSeconds(30));
+            assertThat(jobService.findJob(claimed.getId())).get().satisfies(job -> {
+                assertThat(job.getPayload()).isEqualTo("progress");
+                assertThat(job.getLastError()).isEqualTo("boom");
+                assertThat(JobState.of(job, Instant.now())).isEqualTo(JobState.SCHEDULED);
+            });
+        }
+
+        @Test
+        @DisplayName("Postpones a job without using up an attempt")
+        void postponesWithoutAttempt() {
+            jobService.enqueue("default", "payload", JobOptions.DEFAULT.withMaxAttempts(1));
+            Job claimed = jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5)).get(0);
+
+            Job postponed = jobService.postpone(claimed, "waiting", Duration.ofMinutes(1));
+
+            assertThat(postponed.getAttempts()).isZero();
+            assertThat(jobService.findDeadJobs("default", null, 10)).isEmpty();
+            assertThat(jobService.findJob(claimed.getId())).get().satisfies(job -> {
+                assertThat(job.getAttempts()).isZero();
+                assertThat(job.getLastError()).isEqualTo("waiting");
+                assertThat(JobState.of(job, Instant.now())).isEqualTo(JobState.SCHEDULED);
+            });
+        }
+
+        @Test
+        @DisplayName("Makes a job dead after its last attempt and requeues it")
+        void buriesAndRequeues() throws IOException {
+            jobService.enqueue("default", "payload", JobOptions.DEFAULT.withMaxAttempts(1).withFairnessKey("account-1"));
+            List<Job> claimed = jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5));
+
+            jobService.markFailure(claimed, "boom", Duration.ZERO);
+
+            assertThat(jobService.findJob(claimed.get(0).getId())).isEmpty();
+            List<DeadJob> dead = restart().findDeadJobs("default", null, 10);
+            assertThat(dead).singleElement().satisfies(job -> {
+                assertThat(job.getLastError()).isEqualTo("boom");
+                assertThat(job.getFairnessKey()).isEqualTo("account-1");
+            });
+            assertThat(jobService.queueStats(true)).singleElement()
+                    .satisfies(stats -> assertThat(stats.failed()).isEqualTo(1));
+
+            Optional<Job> requeued = jobService.requeue(dead.get(0));
+
+            assertThat(requeued).get().satisfies(job -> {
+                assertThat(job.getId()).isNotEqualTo(dead.get(0).getId());
+                assertThat(job.getAttempts()).isZero();
+                assertThat(job.getFairnessKey()).isEqualTo("account-1");
+            });
+            assertThat(jobService.findDeadJobs("default", null, 10)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Does not bring back a job deleted while it ran")
+        void ignoresDeletedJob() {
+            jobService.enqueue("default", "payload", (Instant) null);
+            Job claimed = jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5)).get(0);
+            jobService.delete(claimed);
+
+            jobService.markFailure(claimed, "boom", Duration.ZERO);
+
+            assertThat(jobService.findJob(claimed.getId())).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Admin operations")
+    class AdminTests {
+
+        @Test
+        @DisplayName("Finds jobs newest first by state")
+        void findsJobsByState() {
+            Job ready = jobService.enqueue("default", "ready", (Instant) null);
+            Job scheduled = jobService.enqueue("default", "scheduled", Instant.now().plusSeconds(60));
+            jobService.enqueue("other", "other", (Instant) null);
+
+            assertThat(jobService.findJobs("default", null, null, 10))
+                    .extracting(Job::getId).containsExactly(scheduled.getId(), ready.getId());
+            assertThat(jobService.findJobs(null, JobState.READY, null, 10)).hasSize(2);
+            assertThat(jobService.findJobs("default", null, scheduled.getId(), 10))
+                    .extracting(Job::getId).containsExactly(ready.getId());
+        }
+
+        @Test
+        @DisplayName("Purges jobs in a state")
+        void purgesByState() {
+            jobService.enqueueAll("default", List.of("a", "b"), JobOptions.DEFAULT);
+            jobService.enqueue("default", "later", Instant.now().plusSeconds(60));
+
+            assertThat(jobService.purge("default", JobState.READY)).isEqualTo(2);
+            assertThat(jobService.countPendingJobs("default")).isEqualTo(1);
+            assertThatThrownBy(() -> jobService.purge("default", JobState.RUNNING))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("Reschedules a job with fresh attempts")
+        void reschedules() {
+            jobService.enqueue("default", "payload", (Instant) null);
+            Job claimed = jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5)).get(0);
+
+            Job rescheduled = jobService.reschedule(claimed, null);
+
+            assertThat(rescheduled.getAttempts()).isZero();
+            assertThat(rescheduled.getLockedAt()).isNull();
+            assertThat(jobService.claimNextJobs("default", "worker-2", 1, Duration.ofMinutes(5))).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Counts jobs per queue")
+        void countsQueueStats() {
+            jobService.enqueueAll("default", List.of("a", "b", "c"), JobOptions.DEFAULT);
+            jobService.enqueue("default", "later", Instant.now().plusSeconds(60));
+            jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5));
+
+            assertThat(jobService.queueStats(false)).singleElement().satisfies(stats -> {
+                assertThat(stats.queue()).isEqualTo("default");
+                assertThat(stats.ready()).isEqualTo(2);
+                assertThat(stats.scheduled()).isEqualTo(1);
+                assertThat(stats.running()).isEqualTo(1);
+                assertThat(stats.failed()).isEqualTo(-1);
+                assertThat(stats.oldestReadyAt()).isNotNull();
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("Transactions")
+    class TransactionTests {
+
+        @AfterEach
+        void clearSynchronization() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        private List<TransactionSynchronization> enqueueInTransaction(String payload, JobOptions options) {
+            TransactionSynchronizationManager.initSynchronization();
+            jobService.enqueue("default", payload, options);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            return synchronizations;
+        }
+
+        @Test
+        @DisplayName("Makes a job enqueued in a transaction claimable once it commits")
+        void appliesOnCommit() {
+            long token = signals.token("default");
+            List<TransactionSynchronization> synchronizations = enqueueInTransaction("payload", JobOptions.DEFAULT);
+
+            assertThat(jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5))).isEmpty();
+
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            assertThat(signals.token("default")).isGreaterThan(token);
+            assertThat(jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5))).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Drops a job enqueued in a transaction that rolls back, also after restart")
+        void dropsOnRollback() throws IOException {
+            JobOptions options = JobOptions.DEFAULT.withUniqueKey("key");
+            List<TransactionSynchronization> synchronizations = enqueueInTransaction("payload", options);
+
+            assertThat(jobService.enqueue("default", "duplicate", options)).isEmpty();
+
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            assertThat(jobService.countPendingJobs("default")).isZero();
+            assertThat(restart().countPendingJobs("default")).isZero();
+            assertThat(jobService.enqueue("default", "retry", options)).isPresent();
+        }
+
+        @Test
+        @DisplayName("Fails the transaction when its change cannot be logged")
+        void failsCommitWhenLogFails() throws IOException {
+            JobOptions options = JobOptions.DEFAULT.withUniqueKey("key");
+            List<TransactionSynchronization> synchronizations = enqueueInTransaction("payload", options);
+            jobService.close();
+
+            assertThatThrownBy(() -> synchronizations.forEach(sync -> sync.beforeCommit(false)))
+                    .isInstanceOf(UncheckedIOException.class);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            assertThat(jobService.countPendingJobs("default")).isZero();
+            assertThat(restart().countPendingJobs("default")).isZero();
+            assertThat(jobService.enqueue("default", "retry", options)).isPresent();
+        }
+
+        @Test
+        @DisplayName("Keeps a logged change that is not applied yet through a compaction")
+        void keepsCommittingChangeThroughCompaction() throws IOException {
+            List<String> payloads = new ArrayList<>(Collections.nCopies(6_000, "payload"));
+            jobService.enqueueAll("default", payloads, JobOptions.DEFAULT);
+            List<Job> claimed = jobService.claimNextJobs("default", "worker-1", 6_000, Duration.ofMinutes(5));
+            List<TransactionSynchronization> synchronizations = enqueueInTransaction("committing",
+                    JobOptions.DEFAULT);
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+
+            // Enough finished jobs to trigger a compaction while the change is only in the log
+            jobService.markSuccess(claimed);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            assertThat(payloads(restart().claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5))))
+                    .containsExactly("committing");
+        }
+    }
+
+    @Nested
+    @DisplayName("Log")
+    class LogTests {
+
+        @Test
+        @DisplayName("Restores jobs after a restart, unlocking those that were running")
+        void restoresJobs() throws IOException {
+            jobService.enqueue("default", "ready", (Instant) null);
+            jobService.enqueue("default", "running", JobOptions.DEFAULT.withPriority(1));
+            jobService.enqueue("default", "later", Instant.now().plusSeconds(60));
+            jobService.enqueue("default", "unique", JobOptions.DEFAULT.withUniqueKey("key").withPriority(-1));
+            Job running = jobService.claimNextJobs("default", "worker-1", 1, Duration.ofMinutes(5)).get(0);
+
+            InMemoryJobService restarted = restart();
+
+            assertThat(restarted.countPendingJobs("default")).isEqualTo(4);
+            assertThat(restarted.enqueue("default", "duplicate", JobOptions.DEFAULT.withUniqueKey("key"))).isEmpty();
+            assertThat(restarted.findJob(running.getId())).get().satisfies(job -> {
+                assertThat(job.getLockedAt()).isNull();
+                assertThat(job.getAttempts()).isEqualTo(1);
+            });
+            assertThat(payloads(restarted.claimNextJobs("default", "worker-2", 10, Duration.ofMinutes(5))))
+                    .containsExactly("running", "ready", "unique");
+            assertThat(restarted.enqueue("default", "next", (Instant) null).getId()).isGreaterThan(running.getId());
+        }
+
+        @Test
+        @DisplayName("Drops a change cut short by a crash")
+        void dropsTornTail() throws IOException {
+            jobService.enqueue("default", "kept", (Instant) null);
+            jobService.close();
+            byte[] garbage = new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 5, 6};
+            Files.write(logFile, garbage, StandardOpenOption.APPEND);
+            long sizeWithGarbage = Files.size(logFile);
+
+            jobService = open();
+
+            assertThat(jobService.countPendingJobs("default")).isEqualTo(1);
+            assertThat(Files.size(logFile)).isEqualTo(sizeWithGarbage - garbage.length);
+            jobService.enqueue("default", "appended", (Instant) null);
+            assertThat(restart().countPendingJobs("default")).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Rewrites the log once it is mostly finished jobs")
+        void compacts() throws IOException {
+            List<String> payloads = new ArrayList<>(Collections.nCopies(6_000, "payload"));
+            jobService.enqueueAll("default", payloads, JobOptions.DEFAULT);
+            long sizeWithJobs = Files.size(logFile);
+            jobService.markSuccess(jobService.claimNextJobs("default", "worker-1", 6_000, Duration.ofMinutes(5)));
+            jobService.enqueue("default", "last", (Instant) null);
+
+            assertThat(Files.size(logFile)).isLessThan(sizeWithJobs / 100);
+            assertThat(payloads(restart().claimNextJobs("default", "worker-1", 10, Duration.ofMinutes(5))))
+                    .containsExactly("last");
+        }
+
+        @Test
+        @DisplayName("Keeps nothing without a log file")
+        void runsWithoutLog() throws IOException {
+            jobService.close();
+            jobService = new InMemoryJobService(signals, "", false, 30);
+            jobService.enqueue("default", "payload", (Instant) null);
+
+            assertThat(jobService.countPendingJobs("default")).isEqualTo(1);
+            jobService.close();
+            jobService = new InMemoryJobService(signals, "", false, 30);
+            assertThat(jobService.countPendingJobs("default")).isZero();
+        }
+    }
+}
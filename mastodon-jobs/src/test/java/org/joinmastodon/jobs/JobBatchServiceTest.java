@@ -0,0 +1,111 @@
+package org.joinmastodon.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for JobBatchService.
+ */
+@ExtendWith(MockitoExtension.class)
+class JobBatchServiceTest {
+    private static final JobType<BatchPayload> TYPE = JobType.of("fanout", BatchPayload.class);
+
+    @Mock
+    private JobBatchRepository jobBatchRepository;
+
+    @Mock
+    private JobService jobService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JobBatchService jobBatchService;
+
+    @BeforeEach
+    void setUp() {
+        jobBatchService = new JobBatchService(jobBatchRepository, jobService, new JobClient(jobService, objectMapper));
+    }
+
+    @Test
+    @DisplayName("Splits the items into jobs of at most chunkSize items")
+    void splitsItemsIntoChunks() throws Exception {
+        when(jobBatchRepository.save(any(JobBatch.class))).thenAnswer(inv -> {
+            JobBatch batch = inv.getArgument(0);
+            batch.setId(7L);
+            return batch;
+        });
+
+        JobBatch batch = jobBatchService.enqueue(TYPE, List.of("1", "2", "3", "4", "5"), 2, JobOptions.DEFAULT);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> payloads = ArgumentCaptor.forClass(List.class);
+        verify(jobService).enqueueAll(eq("fanout"), payloads.capture(), any(JobOptions.class));
+        assertThat(batch.getTotal()).isEqualTo(5);
+        assertThat(payloads.getValue()).hasSize(3);
+        assertThat(objectMapper.readValue(payloads.getValue().get(2), BatchPayload.class))
+                .isEqualTo(new BatchPayload(7L, List.of("5")));
+    }
+
+    @Test
+    @DisplayName("Retries only the failed items and counts the others as done")
+    void retriesOnlyFailedItems() throws Exception {
+        Job job = job(1, 5);
+        BatchPayload payload = new BatchPayload(7L, List.of("1", "2", "3"));
+
+        jobBatchService.recordOutcome(job, payload, List.of("2", "9"), "2 of 3 items failed", Duration.ofSeconds(5));
+
+        assertThat(objectMapper.readValue(job.getPayload(), BatchPayload.class))
+                .isEqualTo(new BatchPayload(7L, List.of("2")));
+        verify(jobService).markFailure(job, "2 of 3 items failed", Duration.ofSeconds(5));
+        verify(jobBatchRepository).recordProgress(eq(7L), eq(2), eq(0), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Counts the items of a job out of attempts as failed")
+    void countsExhaustedItemsAsFailed() {
+        Job job = job(5, 5);
+        BatchPayload payload = new BatchPayload(7L, List.of("1", "2"));
+
+        jobBatchService.recordOutcome(job, payload, List.of("1", "2"), "boom", Duration.ofSeconds(5));
+
+        verify(jobService).markFailure(job, "boom", Duration.ofSeconds(5));
+        verify(jobBatchRepository).recordProgress(eq(7L), eq(0), eq(2), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Deletes a job whose items all succeeded")
+    void completesSuccessfulJob() {
+        Job job = job(1, 5);
+
+        jobBatchService.recordOutcome(job, new BatchPayload(null, List.of("1")), List.of(), null, Duration.ZERO);
+
+        verify(jobService).markSuccess(job);
+        verify(jobBatchRepository, never()).recordProgress(anyLong(), anyInt(), anyInt(), any());
+    }
+
+    private static Job job(int attempts, int maxAttempts) {
+        Job job = new Job();
+        job.setId(1L);
+        job.setQueue("fanout");
+        job.setAttempts(attempts);
+        job.setMaxAttempts(maxAttempts);
+        return job;
+    }
+}
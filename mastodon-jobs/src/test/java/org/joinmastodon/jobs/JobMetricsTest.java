@@ -0,0 +1,89 @@
+package org.joinmastodon.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for JobMetrics.
+ */
+@ExtendWith(MockitoExtension.class)
+class JobMetricsTest {
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private JobMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        when(meterRegistryProvider.getIfAvailable(any())).thenReturn(registry);
+        metrics = new JobMetrics(jobService, meterRegistryProvider);
+    }
+
+    @Test
+    @DisplayName("Publishes sampled depths per queue")
+    void publishesDepths() {
+        Instant oldest = Instant.now().minus(Duration.ofMinutes(2));
+        when(jobService.queueStats(false)).thenReturn(List.of(
+                new JobQueueStats("media", 7, 3, 2, -1, oldest)));
+
+        metrics.sample();
+
+        assertThat(registry.get("jobs.ready").tag("queue", "media").gauge().value()).isEqualTo(7.0);
+        assertThat(registry.get("jobs.scheduled").tag("queue", "media").gauge().value()).isEqualTo(3.0);
+        assertThat(registry.get("jobs.running").tag("queue", "media").gauge().value()).isEqualTo(2.0);
+        assertThat(registry.get("jobs.oldest.ready.age").tag("queue", "media").gauge().value())
+                .isGreaterThanOrEqualTo(120.0);
+    }
+
+    @Test
+    @DisplayName("Reports zero once a queue empties")
+    void reportsZeroForEmptiedQueue() {
+        when(jobService.queueStats(false))
+                .thenReturn(List.of(new JobQueueStats("media", 7, 0, 0, -1, Instant.now())))
+                .thenReturn(List.of());
+
+        metrics.sample();
+        metrics.sample();
+
+        assertThat(registry.get("jobs.ready").tag("queue", "media").gauge().value()).isZero();
+        assertThat(registry.get("jobs.oldest.ready.age").tag("queue", "media").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Times jobs from claim to finish by outcome and counts exhausted jobs")
+    void recordsCompletions() {
+        Job job = new Job();
+        job.setLockedAt(Instant.now().minusSeconds(1));
+        job.setAttempts(5);
+        job.setMaxAttempts(5);
+
+        metrics.recordCompletion("media", job, true);
+        metrics.recordCompletion("media", job, false);
+
+        assertThat(registry.get("jobs.completed").tags("queue", "media", "outcome", "success").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("jobs.completed").tags("queue", "media", "outcome", "failure").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("jobs.exhausted").tag("queue", "media").counter().count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,102 @@
+package org.joinmastodon.jobs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the H2 variants of the native job statements against an embedded H2 database.
+ */
+@DisplayName("Job Repository H2 Statement Tests")
+class JobRepositoryH2Test {
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        jdbcTemplate.getJdbcTemplate().execute("""
+                create table jobs (
+                    id bigint generated by default as identity primary key,
+                    queue varchar(64) not null,
+                    payload text,
+                    run_at timestamp(6) with time zone not null,
+                    priority integer not null,
+                    unique_key text,
+                    fairness_key text,
+                    fair_at timestamp(6) with time zone not null,
+                    attempts integer not null,
+                    max_attempts integer not null,
+                    last_error text,
+                    locked_at timestamp(6) with time zone,
+                    locked_by varchar(64),
+                    created_at timestamp(6) with time zone not null,
+                    updated_at timestamp(6) with time zone not null)
+                """);
+        now = Instant.now();
+    }
+
+    @Test
+    @DisplayName("Inserts a unique job only while no unfinished job holds the key")
+    void insertsUniqueJobOnce() {
+        List<Map<String, Object>> first = insertUnique("key");
+        List<Map<String, Object>> duplicate = insertUnique("key");
+        List<Map<String, Object>> otherKey = insertUnique("other");
+
+        assertThat(first).singleElement().satisfies(row -> {
+            assertThat(row.get("UNIQUE_KEY")).isEqualTo("key");
+            assertThat(row.get("ID")).isNotNull();
+        });
+        assertThat(duplicate).isEmpty();
+        assertThat(otherKey).hasSize(1);
+
+        // A job that used up its attempts no longer holds the key
+        jdbcTemplate.getJdbcTemplate().update("update jobs set attempts = max_attempts where unique_key = 'key'");
+        assertThat(insertUnique("key")).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Claims ready jobs and returns the updated rows")
+    void claimsThroughFinalTable() {
+        insertUnique("a");
+        insertUnique("b");
+
+        List<Map<String, Object>> claimed = jdbcTemplate.queryForList(JobRepository.CLAIM_FINAL_TABLE_SQL,
+                new MapSqlParameterSource()
+                        .addValue("queue", "default")
+                        .addValue("workerId", "worker-1")
+                        .addValue("now", Timestamp.from(now.plusSeconds(1)))
+                        .addValue("limit", 1));
+
+        assertThat(claimed).singleElement().satisfies(row -> {
+            assertThat(row.get("LOCKED_BY")).isEqualTo("worker-1");
+            assertThat(row.get("ATTEMPTS")).isEqualTo(1);
+        });
+    }
+
+    private List<Map<String, Object>> insertUnique(String uniqueKey) {
+        return jdbcTemplate.queryForList(JobRepository.INSERT_UNIQUE_FINAL_TABLE_SQL, new MapSqlParameterSource()
+                .addValue("queue", "default")
+                .addValue("payload", "{}")
+                .addValue("runAt", Timestamp.from(now))
+                .addValue("priority", 0)
+                .addValue("uniqueKey", uniqueKey)
+                .addValue("fairnessKey", null)
+                .addValue("fairAt", Timestamp.from(now))
+                .addValue("maxAttempts", Job.DEFAULT_MAX_ATTEMPTS)
+                .addValue("now", Timestamp.from(now)));
+    }
+}
@@ -0,0 +1,54 @@
+package org.joinmastodon.jobs;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for JobSignals.
+ */
+class JobSignalsTest {
+
+    private final JobSignals signals = new JobSignals();
+
+    @Test
+    @DisplayName("A signal sent after the token was taken is not lost")
+    void signalBeforeWaitIsNotLost() throws Exception {
+        long token = signals.token("media");
+        signals.signal("media");
+
+        assertThat(signals.await("media", token, Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Waiting times out without a signal")
+    void waitTimesOut() throws Exception {
+        long token = signals.token("media");
+        signals.signal("inbox");
+
+        assertThat(signals.await("media", token, Duration.ofMillis(20))).isFalse();
+    }
+
+    @Test
+    @DisplayName("A signal wakes a waiting worker")
+    void signalWakesWaiter() throws Exception {
+        long token = signals.token("media");
+        CompletableFuture<Boolean> woken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return signals.await("media", token, Duration.ofSeconds(30));
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        Thread.sleep(50);
+        signals.signal("media");
+
+        assertThat(woken.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
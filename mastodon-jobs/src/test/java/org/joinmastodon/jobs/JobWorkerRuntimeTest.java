@@ -0,0 +1,213 @@
+package org.joinmastodon.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for JobWorkerRuntime.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JobWorkerRuntimeTest {
+    private static final JobType<Payload> TYPE = JobType.of("test", Payload.class)
+            .withRetryPolicy(RetryPolicy.fixed(3, Duration.ofSeconds(7)));
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private ObjectProvider<JobHandler<?>> handlers;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @Mock
+    private JobBatchService jobBatchService;
+
+    private final JobSignals signals = new JobSignals();
+    private final JobsProperties properties = new JobsProperties();
+    private JobWorkerRuntime runtime;
+
+    @BeforeEach
+    void setUp() {
+        runtime = new JobWorkerRuntime(handlers, jobService, new JobClient(jobService, new ObjectMapper()),
+                jobBatchService, signals, jobMetrics, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runtime.stop();
+    }
+
+    @Test
+    @DisplayName("Decodes the payload and deletes the job once handled")
+    void handlesJob() {
+        List<Payload> handled = new ArrayList<>();
+        Job job = job(1L, "{\"value\":\"a\"}");
+        when(jobService.claimNextJobs(eq("test"), anyString(), anyInt(), any()))
+                .thenReturn(List.of(job), List.of());
+        register(new TestHandler(1, (payload, claimed) -> handled.add(payload)));
+
+        runtime.start();
+
+        verify(jobService, timeout(2000)).markSuccess(job);
+        assertThat(handled).containsExactly(new Payload("a"));
+        verify(jobMetrics).recordCompletion("test", job, true);
+    }
+
+    @Test
+    @DisplayName("Schedules a failed job according to the retry policy")
+    void retriesFailedJob() {
+        Job job = job(1L, "{\"value\":\"a\"}");
+        job.setAttempts(1);
+        when(jobService.claimNextJobs(eq("test"), anyString(), anyInt(), any()))
+                .thenReturn(List.of(job), List.of());
+        register(new TestHandler(1, (payload, claimed) -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        runtime.start();
+
+        verify(jobService, timeout(2000)).markFailure(job, "boom", Duration.ofSeconds(7));
+        verify(jobService, never()).markSuccess(any(Job.class));
+    }
+
+    @Test
+    @DisplayName("Reports the failed items of a batch job")
+    void reportsFailedBatchItems() {
+        Job job = job(1L, "{\"batchId\":9,\"items\":[\"a\",\"b\",\"c\"]}");
+        when(jobService.claimNextJobs(eq("test-batch"), anyString(), anyInt(), any()))
+                .thenReturn(List.of(job), List.of());
+        register(new TestBatchHandler(items -> List.of("b")));
+
+        runtime.start();
+
+        verify(jobBatchService, timeout(2000)).recordOutcome(job, new BatchPayload(9L, List.of("a", "b", "c")),
+                List.of("b"), "1 of 3 items failed", Duration.ofSeconds(7));
+        verify(jobMetrics).recordCompletion("test-batch", job, false);
+        verify(jobService, never()).markFailure(any(Job.class), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Never runs more jobs at once than the queue's concurrency")
+    void limitsConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+        AtomicInteger nextId = new AtomicInteger();
+        when(jobService.claimNextJobs(eq("test"), anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            int limit = invocation.getArgument(2);
+            return Stream.generate(() -> job((long) nextId.incrementAndGet(), "{\"value\":\"x\"}"))
+                    .limit(Math.min(limit, Math.max(0, 6 - nextId.get())))
+                    .toList();
+        });
+        register(new TestHandler(2, (payload, claimed) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            done.countDown();
+        }));
+
+        runtime.start();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Starts no workers for a disabled queue")
+    void skipsDisabledQueue() throws Exception {
+        JobsProperties.Queue queue = new JobsProperties.Queue();
+        queue.setEnabled(false);
+        properties.getQueues().put("test", queue);
+        register(new TestHandler(1, (payload, claimed) -> { }));
+
+        runtime.start();
+        Thread.sleep(100);
+
+        verify(jobService, never()).claimNextJobs(anyString(), anyString(), anyInt(), any());
+    }
+
+    private void register(JobHandler<?> handler) {
+        when(handlers.orderedStream()).thenReturn(Stream.of(handler));
+    }
+
+    private static Job job(Long id, String payload) {
+        Job job = new Job();
+        job.setId(id);
+        job.setQueue("test");
+        job.setPayload(payload);
+        return job;
+    }
+
+    record Payload(String value) {
+    }
+
+    interface Body {
+        void run(Payload payload, Job job) throws Exception;
+    }
+
+    record TestBatchHandler(Function<List<String>, Collection<String>> body) implements BatchJobHandler {
+        @Override
+        public JobType<BatchPayload> type() {
+            return JobType.of("test-batch", BatchPayload.class)
+                    .withRetryPolicy(RetryPolicy.fixed(3, Duration.ofSeconds(7)));
+        }
+
+        @Override
+        public Collection<String> handleItems(List<String> items, Job job) {
+            return body.apply(items);
+        }
+
+        @Override
+        public JobQueueSettings settings() {
+            return new JobQueueSettings(1, 10, Duration.ofMillis(50), Duration.ofMinutes(5));
+        }
+    }
+
+    record TestHandler(int concurrency, Body body) implements JobHandler<Payload> {
+        @Override
+        public JobType<Payload> type() {
+            return TYPE;
+        }
+
+        @Override
+        public void handle(Payload payload, Job job) throws Exception {
+            body.run(payload, job);
+        }
+
+        @Override
+        public JobQueueSettings settings() {
+            return new JobQueueSettings(concurrency, 10, Duration.ofMillis(50), Duration.ofMinutes(5));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.joinmastodon.jobs;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RecurringJobService.
+ */
+@ExtendWith(MockitoExtension.class)
+class RecurringJobServiceTest {
+    private static final JobType<String> TYPE = JobType.of("cleanup", String.class);
+
+    @Mock
+    private RecurringJobRepository recurringJobRepository;
+
+    @Mock
+    private JobClient jobClient;
+
+    @InjectMocks
+    private RecurringJobService recurringJobService;
+
+    @Test
+    @DisplayName("Registers a new schedule at its next cron time")
+    void registersNewSchedule() {
+        when(recurringJobRepository.findById("nightly")).thenReturn(Optional.empty());
+        when(recurringJobRepository.save(any(RecurringJob.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        RecurringJob schedule = recurringJobService.register(definition("0 0 3 * * *"));
+
+        assertThat(schedule.getQueue()).isEqualTo("cleanup");
+        assertThat(schedule.isEnabled()).isTrue();
+        assertThat(schedule.getNextRunAt()).isAfter(Instant.now());
+        assertThat(schedule.getNextRunAt().atZone(ZoneOffset.UTC).getHour()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Leaves an unchanged schedule alone")
+    void keepsUnchangedSchedule() {
+        RecurringJob existing = schedule("0 0 3 * * *", Instant.parse("2026-01-01T03:00:00Z"));
+        when(recurringJobRepository.findById("nightly")).thenReturn(Optional.of(existing));
+
+        recurringJobService.register(definition("0 0 3 * * *"));
+
+        assertThat(existing.getNextRunAt()).isEqualTo(Instant.parse("2026-01-01T03:00:00Z"));
+        verify(recurringJobRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Enqueues a due run only when this node claims it")
+    void enqueuesOnlyClaimedRuns() {
+        Instant due = Instant.parse("2026-01-01T03:00:00Z");
+        RecurringJob schedule = schedule("0 0 3 * * *", due);
+        when(recurringJobRepository.claimRun(eq("nightly"), eq(due), any(), any(), eq("node-1")))
+                .thenReturn(1, 0);
+
+        assertThat(recurringJobService.fire(definition("0 0 3 * * *"), schedule, "node-1")).isTrue();
+        assertThat(recurringJobService.fire(definition("0 0 3 * * *"), schedule, "node-1")).isFalse();
+
+        verify(jobClient).enqueue(TYPE, "run " + due, JobOptions.DEFAULT);
+    }
+
+    @Test
+    @DisplayName("Rejects cron expressions that never match")
+    void rejectsCronThatNeverMatches() {
+        assertThatThrownBy(() -> RecurringJobService.nextRun("0 0 0 30 2 *", Instant.now()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static RecurringJob schedule(String cron, Instant nextRunAt) {
+        RecurringJob schedule = new RecurringJob();
+        schedule.setName("nightly");
+        schedule.setCron(cron);
+        schedule.setQueue("cleanup");
+        schedule.setNextRunAt(nextRunAt);
+        return schedule;
+    }
+
+    private static RecurringJobDefinition<String> definition(String cron) {
+        return new RecurringJobDefinition<>() {
+            @Override
+            public String name() {
+                return "nightly";
+            }
+
+            @Override
+            public String cron() {
+                return cron;
+            }
+
+            @Override
+            public JobType<String> type() {
+                return TYPE;
+            }
+
+            @Override
+            public String payload(Instant scheduledAt) {
+                return "run " + scheduledAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package org.joinmastodon.jobs;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for RetryPolicy.
+ */
+class RetryPolicyTest {
+
+    @Test
+    @DisplayName("Exponential backoff doubles up to the maximum")
+    void exponentialBackoffIsCapped() {
+        RetryPolicy policy = RetryPolicy.exponential(10, Duration.ofSeconds(2), Duration.ofSeconds(20));
+
+        assertThat(policy.backoff(1)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(policy.backoff(2)).isEqualTo(Duration.ofSeconds(4));
+        assertThat(policy.backoff(4)).isEqualTo(Duration.ofSeconds(16));
+        assertThat(policy.backoff(5)).isEqualTo(Duration.ofSeconds(20));
+        assertThat(policy.backoff(60)).isEqualTo(Duration.ofSeconds(20));
+    }
+
+    @Test
+    @DisplayName("Fixed backoff never changes")
+    void fixedBackoff() {
+        RetryPolicy policy = RetryPolicy.fixed(3, Duration.ofMinutes(1));
+
+        assertThat(policy.backoff(1)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(policy.backoff(3)).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("Rejects policies without attempts")
+    void rejectsZeroAttempts() {
+        assertThatThrownBy(() -> RetryPolicy.fixed(0, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
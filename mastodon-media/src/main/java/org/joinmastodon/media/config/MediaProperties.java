@@ -29,7 +29,11 @@ public class MediaProperties {
     private int cleanupBatchSize = 100;
     private Duration processingLockTimeout = Duration.ofMinutes(5);
     private int processingBatchSize = 5;
-    private Duration processingPollInterval = Duration.ofSeconds(5);
+    private Duration processingPollInterval = Duration.ofSeconds(60);
+    private DataSize remoteCacheMaxSize = DataSize.ofGigabytes(10);
+    private DataSize remoteMaxSize = DataSize.ofMegabytes(40);
+    private int remoteFetchConcurrency = 8;
+    private Duration remoteFetchTimeout = Duration.ofSeconds(30);
 
     public DataSize getMaxUploadSize() {
         return maxUploadSize;
@@ -142,4 +146,36 @@ public class MediaProperties {
     public void setProcessingPollInterval(Duration processingPollInterval) {
         this.processingPollInterval = processingPollInterval;
     }
+
+    public DataSize getRemoteCacheMaxSize() {
+        return remoteCacheMaxSize;
+    }
+
+    public void setRemoteCacheMaxSize(DataSize remoteCacheMaxSize) {
+        this.remoteCacheMaxSize = remoteCacheMaxSize;
+    }
+
+    public DataSize getRemoteMaxSize() {
+        return remoteMaxSize;
+    }
+
+    public void setRemoteMaxSize(DataSize remoteMaxSize) {
+        this.remoteMaxSize = remoteMaxSize;
+    }
+
+    public int getRemoteFetchConcurrency() {
+        return remoteFetchConcurrency;
+    }
+
+    public void setRemoteFetchConcurrency(int remoteFetchConcurrency) {
+        this.remoteFetchConcurrency = remoteFetchConcurrency;
+    }
+
+    public Duration getRemoteFetchTimeout() {
+        return remoteFetchTimeout;
+    }
+
+    public void setRemoteFetchTimeout(Duration remoteFetchTimeout) {
+        this.remoteFetchTimeout = remoteFetchTimeout;
+    }
 }
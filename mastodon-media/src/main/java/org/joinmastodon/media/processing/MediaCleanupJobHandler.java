@@ -0,0 +1,46 @@
+package org.joinmastodon.media.processing;
+
+import java.io.IOException;
+import java.time.Duration;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobHandler;
+import org.joinmastodon.jobs.JobQueueSettings;
+import org.joinmastodon.jobs.JobType;
+import org.joinmastodon.media.config.MediaProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the orphaned media cleanup enqueued by {@link MediaCleanupScheduler}, one at a time.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.media.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class MediaCleanupJobHandler implements JobHandler<MediaCleanupPayload> {
+    private final MediaCleanupService mediaCleanupService;
+    private final MediaProperties properties;
+    private final Duration pollInterval;
+
+    public MediaCleanupJobHandler(MediaCleanupService mediaCleanupService,
+                                  MediaProperties properties,
+                                  @Value("${mastodon.media.cleanup.poll-interval-ms:600000}") long pollIntervalMs) {
+        this.mediaCleanupService = mediaCleanupService;
+        this.properties = properties;
+        this.pollInterval = Duration.ofMillis(pollIntervalMs);
+    }
+
+    @Override
+    public JobType<MediaCleanupPayload> type() {
+        return MediaJobQueues.CLEANUP_JOB;
+    }
+
+    @Override
+    public void handle(MediaCleanupPayload payload, Job job) throws IOException {
+        mediaCleanupService.cleanupOrphaned();
+    }
+
+    @Override
+    public JobQueueSettings settings() {
+        return new JobQueueSettings(1, 1, pollInterval, properties.getProcessingLockTimeout());
+    }
+}
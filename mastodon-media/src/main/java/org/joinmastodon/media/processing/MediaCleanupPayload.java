@@ -0,0 +1,6 @@
+package org.joinmastodon.media.processing;
+
+import java.time.Instant;
+
+public record MediaCleanupPayload(Instant scheduledAt) {
+}
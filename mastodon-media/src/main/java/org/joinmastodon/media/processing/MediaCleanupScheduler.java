@@ -1,32 +1,50 @@
 package org.joinmastodon.media.processing;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.Instant;
-import java.util.Map;
-import org.joinmastodon.jobs.JobService;
+import org.joinmastodon.jobs.JobOptions;
+import org.joinmastodon.jobs.JobType;
+import org.joinmastodon.jobs.RecurringJobDefinition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Enqueues the orphaned media cleanup once per cron run across the cluster, unless the
+ * previous cleanup is still pending.
+ */
 @Component
 @ConditionalOnProperty(name = "mastodon.media.scheduling.enabled", havingValue = "true", matchIfMissing = true)
-public class MediaCleanupScheduler {
-    private final JobService jobService;
-    private final ObjectMapper objectMapper;
+public class MediaCleanupScheduler implements RecurringJobDefinition<MediaCleanupPayload> {
+    private static final String CLEANUP_KEY = "orphaned-media";
 
-    public MediaCleanupScheduler(JobService jobService, ObjectMapper objectMapper) {
-        this.jobService = jobService;
-        this.objectMapper = objectMapper;
+    private final String cron;
+
+    public MediaCleanupScheduler(@Value("${mastodon.media.cleanup.cron:0 0 3 * * *}") String cron) {
+        this.cron = cron;
+    }
+
+    @Override
+    public String name() {
+        return "media-cleanup";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public JobType<MediaCleanupPayload> type() {
+        return MediaJobQueues.CLEANUP_JOB;
+    }
+
+    @Override
+    public MediaCleanupPayload payload(Instant scheduledAt) {
+        return new MediaCleanupPayload(scheduledAt);
     }
 
-    @Scheduled(cron = "${mastodon.media.cleanup.cron:0 0 3 * * *}")
-    public void enqueueCleanup() {
-        String payload = "{}";
-        try {
-            payload = objectMapper.writeValueAsString(Map.of("scheduledAt", Instant.now().toString()));
-        } catch (JsonProcessingException ignored) {
-        }
-        jobService.enqueue(MediaJobQueues.MEDIA_CLEANUP, payload, Instant.now());
+    @Override
+    public JobOptions options() {
+        return JobOptions.DEFAULT.withUniqueKey(CLEANUP_KEY);
     }
 }
@@ -10,7 +10,8 @@ import java.util.Map;
 import java.util.UUID;
 import org.joinmastodon.core.entity.MediaAttachment;
 import org.joinmastodon.core.service.MediaAttachmentService;
-import org.joinmastodon.jobs.JobService;
+import org.joinmastodon.jobs.JobClient;
+import org.joinmastodon.jobs.JobOptions;
 import org.joinmastodon.media.config.MediaProperties;
 import org.joinmastodon.media.scanning.AvScanner;
 import org.joinmastodon.media.scanning.AvScannerException;
@@ -25,7 +26,7 @@ public class MediaIngestionService {
     private final MediaProcessingService mediaProcessingService;
     private final MediaProperties properties;
     private final ObjectMapper objectMapper;
-    private final JobService jobService;
+    private final JobClient jobClient;
     private final AvScanner avScanner;
 
     public MediaIngestionService(MediaStorage mediaStorage,
@@ -33,14 +34,14 @@ public class MediaIngestionService {
                                  MediaProcessingService mediaProcessingService,
                                  MediaProperties properties,
                                  ObjectMapper objectMapper,
-                                 JobService jobService,
+                                 JobClient jobClient,
                                  AvScanner avScanner) {
         this.mediaStorage = mediaStorage;
         this.mediaAttachmentService = mediaAttachmentService;
         this.mediaProcessingService = mediaProcessingService;
         this.properties = properties;
         this.objectMapper = objectMapper;
-        this.jobService = jobService;
+        this.jobClient = jobClient;
         this.avScanner = avScanner;
     }
 
@@ -88,22 +89,17 @@ public class MediaIngestionService {
         MediaAttachment saved = mediaAttachmentService.save(attachment);
 
         if (saved.isProcessing()) {
-            enqueueProcessing(saved.getId());
+            enqueueProcessing(saved);
         } else {
             mediaProcessingService.process(saved.getId());
         }
         return saved;
     }
 
-    private void enqueueProcessing(Long mediaId) {
-        MediaJobPayload payload = new MediaJobPayload(mediaId);
-        try {
-            String json = objectMapper.writeValueAsString(payload);
-            jobService.enqueue(MediaJobQueues.MEDIA_PROCESSING, json, Instant.now());
-        } catch (JsonProcessingException ex) {
-            jobService.enqueue(MediaJobQueues.MEDIA_PROCESSING,
-                    "{\"mediaId\":" + mediaId + "}", Instant.now());
-        }
+    private void enqueueProcessing(MediaAttachment attachment) {
+        // One account uploading a lot of video takes turns with everyone else's uploads
+        jobClient.enqueue(MediaJobQueues.PROCESSING_JOB, new MediaJobPayload(attachment.getId()),
+                JobOptions.DEFAULT.withFairnessKey(String.valueOf(attachment.getAccountId())));
     }
 
     private String buildMeta(boolean processing) throws JsonProcessingException {
@@ -1,9 +1,21 @@
 package org.joinmastodon.media.processing;
 
+import java.time.Duration;
+import org.joinmastodon.jobs.JobType;
+
 public final class MediaJobQueues {
     public static final String MEDIA_PROCESSING = "media-processing";
     public static final String MEDIA_CLEANUP = "media-cleanup";
 
+    /**
+     * Keyed by account; an account's backlog gets one turn roughly every few seconds while
+     * other accounts have uploads waiting.
+     */
+    public static final JobType<MediaJobPayload> PROCESSING_JOB =
+            JobType.of(MEDIA_PROCESSING, MediaJobPayload.class).withFairnessInterval(Duration.ofSeconds(5));
+    public static final JobType<MediaCleanupPayload> CLEANUP_JOB =
+            JobType.of(MEDIA_CLEANUP, MediaCleanupPayload.class);
+
     private MediaJobQueues() {
     }
 }
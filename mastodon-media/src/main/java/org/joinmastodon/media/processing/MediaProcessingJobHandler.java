@@ -0,0 +1,47 @@
+package org.joinmastodon.media.processing;
+
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobHandler;
+import org.joinmastodon.jobs.JobQueueSettings;
+import org.joinmastodon.jobs.JobType;
+import org.joinmastodon.media.config.MediaProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Processes uploaded media. Claims up to {@code mastodon.media.processing-batch-size} uploads
+ * at a time and falls back to polling every {@code mastodon.media.processing-poll-interval}.
+ */
+@Component
+@ConditionalOnProperty(name = "mastodon.media.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class MediaProcessingJobHandler implements JobHandler<MediaJobPayload> {
+    private final MediaProcessingService mediaProcessingService;
+    private final MediaProperties properties;
+
+    public MediaProcessingJobHandler(MediaProcessingService mediaProcessingService, MediaProperties properties) {
+        this.mediaProcessingService = mediaProcessingService;
+        this.properties = properties;
+    }
+
+    @Override
+    public JobType<MediaJobPayload> type() {
+        return MediaJobQueues.PROCESSING_JOB;
+    }
+
+    @Override
+    public void handle(MediaJobPayload payload, Job job) {
+        if (payload.mediaId() == null) {
+            throw new IllegalStateException("Missing mediaId");
+        }
+        mediaProcessingService.process(payload.mediaId());
+    }
+
+    @Override
+    public JobQueueSettings settings() {
+        return new JobQueueSettings(
+                JobQueueSettings.DEFAULT.concurrency(),
+                properties.getProcessingBatchSize(),
+                properties.getProcessingPollInterval(),
+                properties.getProcessingLockTimeout());
+    }
+}
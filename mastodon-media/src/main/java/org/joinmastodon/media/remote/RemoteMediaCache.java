@@ -0,0 +1,418 @@
+package org.joinmastodon.media.remote;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.joinmastodon.core.entity.MediaAttachment;
+import org.joinmastodon.core.service.MediaAttachmentService;
+import org.joinmastodon.media.config.MediaProperties;
+import org.joinmastodon.media.processing.MediaKind;
+import org.joinmastodon.media.processing.MediaProcessingService;
+import org.joinmastodon.media.storage.MediaStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lazily downloads remote attachments the first time they are viewed and keeps them in
+ * {@link MediaStorage}, evicting the least recently viewed files once the cache exceeds
+ * {@code mastodon.media.remote-cache-max-size}.
+ * <p>
+ * Concurrent requests for the same attachment share one download, and at most
+ * {@code remote-fetch-concurrency} downloads run at a time. Downloads only go to hosts that
+ * resolve to public addresses, redirects are followed here so every hop is checked, and the
+ * body is streamed into storage and cut off at {@code remote-max-size}.
+ * <p>
+ * The size limit is kept per node: each node counts the files cached when it started and
+ * the ones it downloaded since, so with several nodes sharing storage the cache can grow to
+ * that many times the limit.
+ */
+@Service
+public class RemoteMediaCache {
+    private static final Logger log = LoggerFactory.getLogger(RemoteMediaCache.class);
+    private static final int MAX_REDIRECTS = 5;
+
+    private final MediaStorage mediaStorage;
+    private final MediaAttachmentService mediaAttachmentService;
+    private final MediaProcessingService mediaProcessingService;
+    private final MediaProperties properties;
+    private final HttpClient httpClient;
+    private final HostResolver hostResolver;
+    private final Semaphore downloads;
+    private final Map<Long, CompletableFuture<MediaAttachment>> inFlight = new ConcurrentHashMap<>();
+
+    // Access-ordered attachment id -> cached bytes; guarded by itself
+    private final LinkedHashMap<Long, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    @Autowired
+    public RemoteMediaCache(MediaStorage mediaStorage,
+                            MediaAttachmentService mediaAttachmentService,
+                            MediaProcessingService mediaProcessingService,
+                            MediaProperties properties) {
+        this(mediaStorage, mediaAttachmentService, mediaProcessingService, properties,
+                HttpClient.newBuilder()
+                        .followRedirects(HttpClient.Redirect.NEVER)
+                        .connectTimeout(properties.getRemoteFetchTimeout())
+                        .build(),
+                InetAddress::getAllByName);
+    }
+
+    RemoteMediaCache(MediaStorage mediaStorage,
+                     MediaAttachmentService mediaAttachmentService,
+                     MediaProcessingService mediaProcessingService,
+                     MediaProperties properties,
+                     HttpClient httpClient,
+                     HostResolver hostResolver) {
+        this.mediaStorage = mediaStorage;
+        this.mediaAttachmentService = mediaAttachmentService;
+        this.mediaProcessingService = mediaProcessingService;
+        this.properties = properties;
+        this.httpClient = httpClient;
+        this.hostResolver = hostResolver;
+        this.downloads = new Semaphore(Math.max(1, properties.getRemoteFetchConcurrency()));
+    }
+
+    /**
+     * Rebuild the eviction order from the files already cached, oldest first.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCachedEntries() {
+        List<MediaAttachment> cached = mediaAttachmentService.findCachedRemote();
+        synchronized (entries) {
+            for (MediaAttachment attachment : cached) {
+                long size = attachment.getFileSize() != null ? attachment.getFileSize() : 0L;
+                Long previous = entries.put(attachment.getId(), size);
+                totalBytes += size - (previous != null ? previous : 0L);
+            }
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Return the file of a remote attachment, downloading it first if it is not cached.
+     *
+     * @param attachmentId the attachment id
+     * @param preview whether to return the thumbnail instead of the original, when one exists
+     * @return the media, or empty if the attachment does not exist or is not remote
+     * @throws IOException if the remote file cannot be fetched
+     */
+    public Optional<CachedMedia> fetch(Long attachmentId, boolean preview) throws IOException {
+        Optional<MediaAttachment> found = mediaAttachmentService.findById(attachmentId);
+        if (found.isEmpty() || found.get().getRemoteUrl() == null) {
+            return Optional.empty();
+        }
+        MediaAttachment attachment = found.get();
+        if (attachment.getStorageKey() == null) {
+            return Optional.of(load(download(attachment), preview));
+        }
+        touch(attachment.getId());
+        try {
+            return Optional.of(load(attachment, preview));
+        } catch (NoSuchFileException ex) {
+            // Evicted after the row was read; fetch it again like any other miss
+            attachment.setStorageKey(null);
+            attachment.setPreviewKey(null);
+            return Optional.of(load(download(attachment), preview));
+        }
+    }
+
+    /**
+     * Total bytes of remote media currently cached.
+     */
+    public long cachedBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private CachedMedia load(MediaAttachment attachment, boolean preview) throws IOException {
+        if (preview && attachment.getPreviewKey() != null) {
+            return new CachedMedia(mediaStorage.load(attachment.getPreviewKey()), "image/jpeg");
+        }
+        return new CachedMedia(mediaStorage.load(attachment.getStorageKey()), attachment.getContentType());
+    }
+
+    private MediaAttachment download(MediaAttachment attachment) throws IOException {
+        CompletableFuture<MediaAttachment> created = new CompletableFuture<>();
+        CompletableFuture<MediaAttachment> existing = inFlight.putIfAbsent(attachment.getId(), created);
+        if (existing == null) {
+            try {
+                created.complete(fetchAndStore(attachment));
+            } catch (Exception ex) {
+                created.completeExceptionally(ex);
+            } finally {
+                inFlight.remove(attachment.getId(), created);
+            }
+            existing = created;
+        }
+        try {
+            return existing.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to fetch remote media", ex.getCause());
+        }
+    }
+
+    private MediaAttachment fetchAndStore(MediaAttachment attachment) throws IOException, InterruptedException {
+        URI uri = URI.create(attachment.getRemoteUrl());
+        long maxBytes = properties.getRemoteMaxSize().toBytes();
+
+        long timeoutMillis = properties.getRemoteFetchTimeout().toMillis();
+        if (!downloads.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new IOException("Too many remote media downloads in progress");
+        }
+        String storageKey = "remote/" + attachment.getId();
+        long size;
+        String contentType;
+        try {
+            HttpResponse<InputStream> response = send(uri);
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("Remote media returned HTTP " + response.statusCode());
+                }
+                contentType = response.headers().firstValue("Content-Type")
+                        .map(value -> value.split(";")[0].trim())
+                        .orElse(attachment.getContentType());
+                if (MediaKind.fromContentType(contentType) == MediaKind.UNKNOWN) {
+                    throw new IOException("Unsupported remote media type: " + contentType);
+                }
+                if (response.headers().firstValueAsLong("Content-Length").orElse(-1L) > maxBytes) {
+                    throw new IOException("Remote media exceeds " + maxBytes + " bytes");
+                }
+                size = mediaStorage.saveStream(storageKey, new LimitedInputStream(body, maxBytes));
+            } catch (IOException ex) {
+                mediaStorage.delete(storageKey);
+                throw ex;
+            }
+        } finally {
+            downloads.release();
+        }
+
+        // Processing points the URLs at storage; the proxy URLs stay the public ones
+        String url = attachment.getUrl();
+        String previewUrl = attachment.getPreviewUrl();
+        attachment.setStorageKey(storageKey);
+        attachment.setContentType(contentType);
+        attachment.setFileSize(size);
+        try {
+            mediaProcessingService.processAttachment(attachment);
+        } catch (Exception ex) {
+            deleteFiles(attachment);
+            throw new IOException("Failed to process remote media " + attachment.getId(), ex);
+        }
+        attachment.setUrl(url);
+        attachment.setPreviewUrl(previewUrl);
+        MediaAttachment saved = mediaAttachmentService.save(attachment);
+
+        record(saved.getId(), size + storedSize(saved.getPreviewKey()));
+        evictOverflow();
+        return saved;
+    }
+
+    /**
+     * GET a URL, following redirects by hand so that every hop has to pass {@link #checkTarget}.
+     */
+    private HttpResponse<InputStream> send(URI uri) throws IOException, InterruptedException {
+        URI target = uri;
+        for (int hop = 0; ; hop++) {
+            checkTarget(target);
+            HttpRequest request = HttpRequest.newBuilder(target)
+                    .timeout(properties.getRemoteFetchTimeout())
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (!isRedirect(response.statusCode())) {
+                return response;
+            }
+            response.body().close();
+            Optional<String> location = response.headers().firstValue("Location");
+            if (location.isEmpty()) {
+                throw new IOException("Remote media redirect without a location: " + target);
+            }
+            if (hop >= MAX_REDIRECTS) {
+                throw new IOException("Too many redirects fetching remote media: " + uri);
+            }
+            try {
+                target = target.resolve(location.get());
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid remote media redirect: " + location.get(), ex);
+            }
+        }
+    }
+
+    private void checkTarget(URI uri) throws IOException {
+        if (!"https".equalsIgnoreCase(uri.getScheme()) && !"http".equalsIgnoreCase(uri.getScheme())
+                || uri.getHost() == null) {
+            throw new IOException("Unsupported remote media URL: " + uri);
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = hostResolver.resolve(uri.getHost());
+        } catch (UnknownHostException ex) {
+            throw new IOException("Unknown remote media host: " + uri.getHost(), ex);
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new IOException("Remote media host " + uri.getHost() + " resolves to non-public address "
+                        + address.getHostAddress());
+            }
+        }
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet6Address) {
+            // fc00::/7 unique local addresses
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        // 100.64.0.0/10 carrier-grade NAT and 0.0.0.0/8
+        return !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64) && bytes[0] != 0;
+    }
+
+    private long storedSize(String key) {
+        if (key == null) {
+            return 0L;
+        }
+        try {
+            return Files.size(mediaStorage.resolvePath(key));
+        } catch (IOException | UnsupportedOperationException ex) {
+            return 0L;
+        }
+    }
+
+    private void touch(Long attachmentId) {
+        synchronized (entries) {
+            entries.get(attachmentId);
+        }
+    }
+
+    private void record(Long attachmentId, long size) {
+        synchronized (entries) {
+            Long previous = entries.put(attachmentId, size);
+            totalBytes += size - (previous != null ? previous : 0L);
+        }
+    }
+
+    private void evictOverflow() {
+        long maxBytes = properties.getRemoteCacheMaxSize().toBytes();
+        List<Long> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<Long, Long>> iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<Long, Long> eldest = iterator.next();
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        // File and row updates happen outside the lock
+        for (Long attachmentId : evicted) {
+            mediaAttachmentService.findById(attachmentId).ifPresent(attachment -> {
+                try {
+                    deleteFiles(attachment);
+                    mediaAttachmentService.save(attachment);
+                } catch (IOException ex) {
+                    log.warn("Failed to evict cached remote media {}: {}", attachmentId, ex.getMessage());
+                }
+            });
+        }
+    }
+
+    private void deleteFiles(MediaAttachment attachment) throws IOException {
+        if (attachment.getStorageKey() != null) {
+            mediaStorage.delete(attachment.getStorageKey());
+        }
+        if (attachment.getPreviewKey() != null) {
+            mediaStorage.delete(attachment.getPreviewKey());
+        }
+        attachment.setStorageKey(null);
+        attachment.setPreviewKey(null);
+    }
+
+    /**
+     * Looks up the addresses of a host; swapped out in tests.
+     */
+    @FunctionalInterface
+    interface HostResolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    /**
+     * Fails the read once more than {@code maxBytes} have come through, so an oversized body is
+     * never fully downloaded.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            count += n;
+            if (count > maxBytes) {
+                throw new IOException("Remote media exceeds " + maxBytes + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Bytes of a cached remote file and the content type to serve it with.
+     */
+    public record CachedMedia(byte[] data, String contentType) {
+    }
+}
@@ -1,10 +1,12 @@
 package org.joinmastodon.media.storage;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 public class LocalFileSystemMediaStorage implements MediaStorage {
     private final Path basePath;
@@ -23,6 +25,18 @@ public class LocalFileSystemMediaStorage implements MediaStorage {
         return key;
     }
 
+    @Override
+    public long saveStream(String key, InputStream data) throws IOException {
+        Path target = resolvePath(key);
+        Files.createDirectories(target.getParent());
+        try {
+            return Files.copy(data, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            Files.deleteIfExists(target);
+            throw ex;
+        }
+    }
+
     @Override
     public byte[] load(String key) throws IOException {
         return Files.readAllBytes(resolvePath(key));
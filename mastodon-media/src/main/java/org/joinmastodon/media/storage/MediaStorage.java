@@ -1,11 +1,22 @@
 package org.joinmastodon.media.storage;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 
 public interface MediaStorage {
     String save(String key, byte[] data) throws IOException;
 
+    /**
+     * Save the contents of a stream, returning the number of bytes written. Implementations
+     * that can should write it through without buffering the whole stream in memory.
+     */
+    default long saveStream(String key, InputStream data) throws IOException {
+        byte[] bytes = data.readAllBytes();
+        save(key, bytes);
+        return bytes.length;
+    }
+
     byte[] load(String key) throws IOException;
 
     boolean delete(String key) throws IOException;
@@ -0,0 +1,264 @@
+package org.joinmastodon.media.remote;
+
+import org.joinmastodon.core.entity.MediaAttachment;
+import org.joinmastodon.core.service.MediaAttachmentService;
+import org.joinmastodon.media.config.MediaProperties;
+import org.joinmastodon.media.processing.MediaProcessingService;
+import org.joinmastodon.media.storage.LocalFileSystemMediaStorage;
+import org.joinmastodon.media.storage.MediaStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link RemoteMediaCache}.
+ */
+@ExtendWith(MockitoExtension.class)
+class RemoteMediaCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private MediaAttachmentService mediaAttachmentService;
+
+    @Mock
+    private MediaProcessingService mediaProcessingService;
+
+    @Mock
+    private HttpClient httpClient;
+
+    private MediaStorage mediaStorage;
+    private MediaProperties properties;
+    private RemoteMediaCache cache;
+
+    @BeforeEach
+    void setUp() {
+        mediaStorage = new LocalFileSystemMediaStorage(tempDir.toString(), "https://example.com/media");
+        properties = new MediaProperties();
+        cache = new RemoteMediaCache(mediaStorage, mediaAttachmentService, mediaProcessingService,
+                properties, httpClient, host -> new InetAddress[] {
+                        InetAddress.getByName(host.startsWith("internal.") ? "10.0.0.5" : "203.0.113.10")});
+    }
+
+    @Test
+    @DisplayName("Downloads on first view and serves later views from storage")
+    void downloadsOnFirstViewOnly() throws Exception {
+        MediaAttachment attachment = remoteAttachment(1L);
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(attachment));
+        when(mediaAttachmentService.save(any())).then(returnsFirstArg());
+        respondWith(new byte[] {1, 2, 3}, "image/png");
+
+        Optional<RemoteMediaCache.CachedMedia> first = cache.fetch(1L, false);
+        Optional<RemoteMediaCache.CachedMedia> second = cache.fetch(1L, false);
+
+        assertThat(first).isPresent();
+        assertThat(first.get().data()).containsExactly(1, 2, 3);
+        assertThat(first.get().contentType()).isEqualTo("image/png");
+        assertThat(second.get().data()).containsExactly(1, 2, 3);
+        assertThat(attachment.getStorageKey()).isEqualTo("remote/1");
+        assertThat(attachment.getUrl()).isEqualTo("https://local.example/media_proxy/1/original");
+        assertThat(cache.cachedBytes()).isEqualTo(3);
+        verify(httpClient, times(1)).send(any(), any());
+        verify(mediaProcessingService).processAttachment(attachment);
+    }
+
+    @Test
+    @DisplayName("Evicts the least recently viewed file once the size limit is exceeded")
+    void evictsLeastRecentlyViewed() throws Exception {
+        properties.setRemoteCacheMaxSize(DataSize.ofBytes(10));
+        MediaAttachment older = remoteAttachment(1L);
+        MediaAttachment newer = remoteAttachment(2L);
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(older));
+        when(mediaAttachmentService.findById(2L)).thenReturn(Optional.of(newer));
+        when(mediaAttachmentService.save(any())).then(returnsFirstArg());
+        respondWith(new byte[6], "image/png");
+
+        cache.fetch(1L, false);
+        Path olderFile = mediaStorage.resolvePath("remote/1");
+        assertThat(olderFile).exists();
+
+        cache.fetch(2L, false);
+
+        assertThat(olderFile).doesNotExist();
+        assertThat(older.getStorageKey()).isNull();
+        assertThat(newer.getStorageKey()).isEqualTo("remote/2");
+        assertThat(cache.cachedBytes()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Downloads again when the cached file was evicted after the lookup")
+    void downloadsAgainWhenFileWasEvicted() throws Exception {
+        MediaAttachment attachment = remoteAttachment(1L);
+        // The row still names the file another fetch has just evicted
+        attachment.setStorageKey("remote/1");
+        attachment.setFileSize(3L);
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(attachment));
+        when(mediaAttachmentService.save(any())).then(returnsFirstArg());
+        respondWith(new byte[] {1, 2, 3}, "image/png");
+
+        Optional<RemoteMediaCache.CachedMedia> media = cache.fetch(1L, false);
+
+        assertThat(media).hasValueSatisfying(found -> assertThat(found.data()).containsExactly(1, 2, 3));
+        assertThat(mediaStorage.resolvePath("remote/1")).exists();
+        assertThat(cache.cachedBytes()).isEqualTo(3);
+        verify(httpClient, times(1)).send(any(), any());
+    }
+
+    @Test
+    @DisplayName("Rebuilds the eviction order from files cached before a restart")
+    void rebuildsFromCachedAttachments() throws Exception {
+        properties.setRemoteCacheMaxSize(DataSize.ofBytes(5));
+        MediaAttachment cached = remoteAttachment(1L);
+        cached.setStorageKey("remote/1");
+        cached.setFileSize(8L);
+        mediaStorage.save("remote/1", new byte[8]);
+        when(mediaAttachmentService.findCachedRemote()).thenReturn(List.of(cached));
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(cached));
+
+        cache.loadCachedEntries();
+
+        assertThat(Files.exists(mediaStorage.resolvePath("remote/1"))).isFalse();
+        assertThat(cached.getStorageKey()).isNull();
+        assertThat(cache.cachedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Ignores attachments that are not remote")
+    void ignoresLocalAttachments() throws Exception {
+        MediaAttachment local = new MediaAttachment();
+        local.setId(3L);
+        when(mediaAttachmentService.findById(3L)).thenReturn(Optional.of(local));
+
+        assertThat(cache.fetch(3L, false)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Rejects remote files larger than the configured limit")
+    void rejectsOversizedFiles() throws Exception {
+        properties.setRemoteMaxSize(DataSize.ofBytes(2));
+        MediaAttachment attachment = remoteAttachment(1L);
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(attachment));
+        respondWith(new byte[] {1, 2, 3}, "image/png");
+
+        assertThatThrownBy(() -> cache.fetch(1L, false)).isInstanceOf(IOException.class);
+        assertThat(attachment.getStorageKey()).isNull();
+    }
+
+    @Test
+    @DisplayName("Refuses hosts that resolve to private addresses")
+    void refusesPrivateHosts() throws Exception {
+        MediaAttachment attachment = remoteAttachment(1L);
+        attachment.setRemoteUrl("https://internal.example/files/1.png");
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(attachment));
+
+        assertThatThrownBy(() -> cache.fetch(1L, false)).isInstanceOf(IOException.class)
+                .hasMessageContaining("non-public");
+        verify(httpClient, never()).send(any(), any());
+    }
+
+    @Test
+    @DisplayName("Checks every redirect hop before following it")
+    void refusesRedirectToPrivateHost() throws Exception {
+        MediaAttachment attachment = remoteAttachment(1L);
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(attachment));
+        redirect("https://remote.example/files/1.png", "http://internal.example/latest/meta-data");
+
+        assertThatThrownBy(() -> cache.fetch(1L, false)).isInstanceOf(IOException.class)
+                .hasMessageContaining("non-public");
+        verify(httpClient, times(1)).send(any(), any());
+        assertThat(attachment.getStorageKey()).isNull();
+    }
+
+    @Test
+    @DisplayName("Follows redirects to public hosts")
+    void followsPublicRedirect() throws Exception {
+        MediaAttachment attachment = remoteAttachment(1L);
+        when(mediaAttachmentService.findById(1L)).thenReturn(Optional.of(attachment));
+        when(mediaAttachmentService.save(any(MediaAttachment.class))).then(returnsFirstArg());
+        respondWith(new byte[] {1, 2, 3}, "image/png");
+        redirect("https://remote.example/files/1.png", "/cdn/1.png");
+
+        Optional<RemoteMediaCache.CachedMedia> media = cache.fetch(1L, false);
+
+        assertThat(media).isPresent();
+        assertThat(media.get().data()).containsExactly(1, 2, 3);
+        verify(httpClient).send(argThat(request -> request != null
+                && request.uri().equals(URI.create("https://remote.example/cdn/1.png"))), any());
+    }
+
+    @Test
+    @DisplayName("Classifies loopback, link-local and private addresses as non-public")
+    void classifiesAddresses() throws Exception {
+        assertThat(RemoteMediaCache.isPublic(InetAddress.getByName("203.0.113.10"))).isTrue();
+        assertThat(RemoteMediaCache.isPublic(InetAddress.getByName("2001:db8::1"))).isTrue();
+        for (String address : List.of("127.0.0.1", "::1", "169.254.169.254", "fe80::1", "10.1.2.3",
+                "172.16.0.1", "192.168.1.1", "fd00::1", "100.64.0.1", "0.0.0.0")) {
+            assertThat(RemoteMediaCache.isPublic(InetAddress.getByName(address))).as(address).isFalse();
+        }
+    }
+
+    private static MediaAttachment remoteAttachment(Long id) {
+        MediaAttachment attachment = new MediaAttachment();
+        attachment.setId(id);
+        attachment.setAccountId(10L);
+        attachment.setType("image");
+        attachment.setRemoteUrl("https://remote.example/files/" + id + ".png");
+        attachment.setUrl("https://local.example/media_proxy/" + id + "/original");
+        attachment.setPreviewUrl("https://local.example/media_proxy/" + id + "/small");
+        return attachment;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respondWith(byte[] body, String contentType) throws Exception {
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(200);
+        when(response.headers()).thenReturn(HttpHeaders.of(
+                Map.of("Content-Type", List.of(contentType)), (name, value) -> true));
+        when(response.body()).thenAnswer(invocation -> new ByteArrayInputStream(body));
+        doReturn(response).when(httpClient).send(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void redirect(String from, String location) throws Exception {
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(302);
+        when(response.headers()).thenReturn(HttpHeaders.of(
+                Map.of("Location", List.of(location)), (name, value) -> true));
+        when(response.body()).thenReturn(InputStream.nullInputStream());
+        doReturn(response).when(httpClient).send(argThat((HttpRequest request) -> request != null
+                && request.uri().equals(URI.create(from))), any());
+    }
+}
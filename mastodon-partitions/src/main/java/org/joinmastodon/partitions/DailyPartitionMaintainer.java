@@ -0,0 +1,164 @@
+package org.joinmastodon.partitions;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the daily partitions of a table range-partitioned on a timestamp column, with
+ * partitions named {@code <table>_pYYYYMMDD} beside a {@code <table>_default} partition:
+ * creates partitions a few days ahead and drops whole partitions once they are older than
+ * the retention period. Tables that are not partitioned (e.g. on H2) are left alone.
+ */
+public class DailyPartitionMaintainer {
+    private static final Logger log = LoggerFactory.getLogger(DailyPartitionMaintainer.class);
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int DAYS_AHEAD = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String table;
+    private final String timeColumn;
+    private final String partitionPrefix;
+    private final String defaultPartition;
+    private final int retentionDays;
+
+    /**
+     * @param table the partitioned table
+     * @param timeColumn the column the table is partitioned on
+     * @param retentionDays days a partition is kept; 0 or less keeps them all
+     */
+    public DailyPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    String table,
+                                    String timeColumn,
+                                    int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.table = table;
+        this.timeColumn = timeColumn;
+        this.partitionPrefix = table + "_p";
+        this.defaultPartition = table + "_default";
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Create the partitions of today and the next few days, then drop the expired ones.
+     */
+    public void maintain() {
+        if (isPartitioned()) {
+            createPartitions();
+            dropExpiredPartitions();
+        }
+    }
+
+    /**
+     * @return whether the table is partitioned; false also if that cannot be checked
+     */
+    public boolean isPartitioned() {
+        try {
+            List<String> kinds = jdbcTemplate.queryForList(
+                    "SELECT relkind::text FROM pg_class WHERE relname = ?", String.class, table);
+            return kinds.contains("p");
+        } catch (DataAccessException e) {
+            log.warn("Could not check the partitions of {}: {}", table, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Create the partitions of today and the next few days that do not exist yet. Each one is
+     * handled on its own, so one failure does not hold up the rest.
+     */
+    public void createPartitions() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i <= DAYS_AHEAD; i++) {
+            try {
+                createPartition(today.plusDays(i));
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Could not create {} partition for {}: {}", table, today.plusDays(i), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop the partitions of days older than the retention period.
+     */
+    public void dropExpiredPartitions() {
+        if (retentionDays > 0) {
+            dropPartitionsBefore(LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays));
+        }
+    }
+
+    /**
+     * Create the partition of one day. Rows of that day that already landed in the default
+     * partition, e.g. before the partition was created, are moved into it; attaching a
+     * partition fails while the default one still holds rows in its range.
+     */
+    private void createPartition(LocalDate day) {
+        String name = partitionPrefix + SUFFIX.format(day);
+        if (!jdbcTemplate.queryForList("SELECT relname FROM pg_class WHERE relname = ?", String.class, name)
+                .isEmpty()) {
+            return;
+        }
+        String from = "'" + day + " 00:00:00+00'";
+        String to = "'" + day.plusDays(1) + " 00:00:00+00'";
+        transactionTemplate.executeWithoutResult(status -> {
+            // Attaching locks the default partition anyway; take the lock first so no row can
+            // land there between the move and the attach
+            jdbcTemplate.execute("LOCK TABLE " + defaultPartition + " IN ACCESS EXCLUSIVE MODE");
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + table
+                    + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition
+                    + " WHERE " + timeColumn + " >= " + from + " AND " + timeColumn + " < " + to + " RETURNING *)"
+                    + " INSERT INTO " + name + " SELECT * FROM moved");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + name
+                    + " FOR VALUES FROM (" + from + ") TO (" + to + ")");
+            if (moved > 0) {
+                log.info("Moved {} rows from {} into {}", moved, defaultPartition, name);
+            }
+        });
+    }
+
+    private void dropPartitionsBefore(LocalDate cutoff) {
+        List<String> partitions;
+        try {
+            partitions = jdbcTemplate.queryForList("""
+                    SELECT child.relname FROM pg_inherits
+                    JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+                    JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+                    WHERE parent.relname = ?
+                    """, String.class, table);
+        } catch (DataAccessException e) {
+            log.warn("Could not list {} partitions: {}", table, e.getMessage());
+            return;
+        }
+        for (String partition : partitions) {
+            if (!partition.startsWith(partitionPrefix)) {
+                continue;
+            }
+            LocalDate day;
+            try {
+                day = LocalDate.parse(partition.substring(partitionPrefix.length()), SUFFIX);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (day.isBefore(cutoff)) {
+                try {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                    log.info("Dropped {} partition {}", table, partition);
+                } catch (DataAccessException e) {
+                    log.warn("Could not drop {} partition {}: {}", table, partition, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.joinmastodon.core.service.BlockService;
 import org.joinmastodon.core.service.AccountService;
 import org.joinmastodon.core.service.FollowService;
 import org.joinmastodon.core.service.MuteService;
+import org.joinmastodon.core.service.SearchService;
 import org.joinmastodon.core.service.StatusService;
 import org.joinmastodon.core.service.StatusVisibilityService;
 import org.joinmastodon.core.service.UserDomainBlockService;
@@ -46,6 +47,7 @@ public class AccountController {
     private final BlockService blockService;
     private final MuteService muteService;
     private final UserDomainBlockService userDomainBlockService;
+    private final SearchService searchService;
 
     public AccountController(AccountService accountService,
                              StatusService statusService,
@@ -53,7 +55,8 @@ public class AccountController {
                              BlockService blockService,
                              MuteService muteService,
                              StatusVisibilityService statusVisibilityService,
-                             UserDomainBlockService userDomainBlockService) {
+                             UserDomainBlockService userDomainBlockService,
+                             SearchService searchService) {
         this.accountService = accountService;
         this.statusService = statusService;
         this.followService = followService;
@@ -61,6 +64,7 @@ public class AccountController {
         this.muteService = muteService;
         this.statusVisibilityService = statusVisibilityService;
         this.userDomainBlockService = userDomainBlockService;
+        this.searchService = searchService;
     }
 
     @GetMapping("/{id}")
@@ -122,9 +126,12 @@ public class AccountController {
     @GetMapping("/search")
     public List<AccountDto> searchAccounts(
             @RequestParam("q") String query,
-            @RequestParam(value = "limit", required = false) Integer limit) {
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "resolve", required = false) Boolean resolve) {
         int resolvedLimit = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
-        return accountService.searchByUsernameOrAcct(query).stream()
+        // Only signed-in users may make the server fetch unknown accounts
+        boolean resolveRemote = Boolean.TRUE.equals(resolve) && currentAccountOrNull() != null;
+        return searchService.searchAccounts(query, resolveRemote, PageRequest.of(0, resolvedLimit)).stream()
                 .limit(resolvedLimit)
                 .map(ApiMapper::toAccountDto)
                 .toList();
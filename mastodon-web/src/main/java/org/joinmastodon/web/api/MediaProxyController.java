@@ -0,0 +1,62 @@
+package org.joinmastodon.web.api;
+
+import java.io.IOException;
+import java.time.Duration;
+import org.joinmastodon.media.remote.RemoteMediaCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Serves remote attachments through the local remote media cache, fetching them from the
+ * origin server on first view.
+ */
+@RestController
+public class MediaProxyController {
+    private static final Logger log = LoggerFactory.getLogger(MediaProxyController.class);
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(7)).cachePublic();
+
+    private final RemoteMediaCache remoteMediaCache;
+
+    public MediaProxyController(RemoteMediaCache remoteMediaCache) {
+        this.remoteMediaCache = remoteMediaCache;
+    }
+
+    @GetMapping("/media_proxy/{id}/{variant}")
+    public ResponseEntity<byte[]> proxy(@PathVariable("id") String id,
+                                        @PathVariable("variant") String variant) {
+        if (!"original".equals(variant) && !"small".equals(variant)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Media not found");
+        }
+        Long mediaId;
+        try {
+            mediaId = Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Media not found");
+        }
+
+        RemoteMediaCache.CachedMedia media;
+        try {
+            media = remoteMediaCache.fetch(mediaId, "small".equals(variant))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Media not found"));
+        } catch (IOException ex) {
+            log.debug("Failed to fetch remote media {}: {}", mediaId, ex.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Remote media unavailable");
+        }
+
+        MediaType contentType = media.contentType() != null
+                ? MediaType.parseMediaType(media.contentType())
+                : MediaType.APPLICATION_OCTET_STREAM;
+        return ResponseEntity.ok()
+                .cacheControl(CACHE_CONTROL)
+                .contentType(contentType)
+                .body(media.data());
+    }
+}
@@ -37,8 +37,9 @@ public class SearchController {
             @RequestParam(value = "q") String query,
             @RequestParam(value = "type", required = false) String type,
             @RequestParam(value = "limit", required = false) Integer limit,
-            @RequestParam(value = "offset", required = false) Integer offset) {
-        return doSearch(query, type, limit, offset);
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @RequestParam(value = "resolve", required = false) Boolean resolve) {
+        return doSearch(query, type, limit, offset, Boolean.TRUE.equals(resolve));
     }
 
     @GetMapping(ApiVersion.V1 + "/search")
@@ -46,11 +47,12 @@ public class SearchController {
             @RequestParam(value = "q") String query,
             @RequestParam(value = "type", required = false) String type,
             @RequestParam(value = "limit", required = false) Integer limit,
-            @RequestParam(value = "offset", required = false) Integer offset) {
-        return doSearch(query, type, limit, offset);
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @RequestParam(value = "resolve", required = false) Boolean resolve) {
+        return doSearch(query, type, limit, offset, Boolean.TRUE.equals(resolve));
     }
 
-    private SearchResultsDto doSearch(String query, String type, Integer limit, Integer offset) {
+    private SearchResultsDto doSearch(String query, String type, Integer limit, Integer offset, boolean resolve) {
         int resolvedLimit = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
         Pageable pageable = PageRequest.of(offset != null ? offset / resolvedLimit : 0, resolvedLimit);
 
@@ -61,7 +63,8 @@ public class SearchController {
         org.joinmastodon.core.entity.Account viewer = currentAccountOrNull();
 
         if (type == null || type.equalsIgnoreCase("accounts")) {
-            accounts = searchService.searchAccounts(query, pageable).stream()
+            // Only signed-in users may make the server fetch unknown accounts
+            accounts = searchService.searchAccounts(query, resolve && viewer != null, pageable).stream()
                     .limit(resolvedLimit)
                     .map(ApiMapper::toAccountDto)
                     .toList();
@@ -140,9 +140,12 @@ public class StatusController {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Status not found");
         }
 
-        List<StatusDto> ancestors = buildAncestors(status, viewer);
-        List<StatusDto> descendants = statusService.findReplies(status.getId()).stream()
-                .filter(reply -> statusVisibilityService.canView(reply, viewer))
+        List<StatusDto> ancestors = statusVisibilityService
+                .filterVisible(statusService.findAncestors(status), viewer).stream()
+                .map(this::toStatusDtoWithStats)
+                .toList();
+        List<StatusDto> descendants = statusVisibilityService
+                .filterVisible(statusService.findDescendants(status), viewer).stream()
                 .map(this::toStatusDtoWithStats)
                 .toList();
         return new StatusContextDto(ancestors, descendants);
@@ -319,24 +322,6 @@ public class StatusController {
         return null;
     }
 
-    private List<StatusDto> buildAncestors(Status status, Account viewer) {
-        List<StatusDto> ancestors = new java.util.ArrayList<>();
-        Long parentId = status.getInReplyToId();
-        int guard = 0;
-        while (parentId != null && guard < 20) {
-            Status parent = statusService.findById(parentId).orElse(null);
-            if (parent == null) {
-                break;
-            }
-            if (statusVisibilityService.canView(parent, viewer)) {
-                ancestors.add(0, toStatusDtoWithStats(parent));
-            }
-            parentId = parent.getInReplyToId();
-            guard++;
-        }
-        return ancestors;
-    }
-
     private StatusDto toStatusDtoWithStats(Status status) {
         return toStatusDtoWithStats(status, false, false, false);
     }
@@ -1,6 +1,9 @@
 package org.joinmastodon.web.api;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.joinmastodon.core.entity.Account;
 import org.joinmastodon.core.entity.ListEntity;
 import org.joinmastodon.core.entity.Status;
@@ -103,11 +106,39 @@ public class TimelineController {
 
     @GetMapping("/conversations")
     public ResponseEntity<List<ConversationDto>> conversations(
-            @RequestParam(value = "limit", required = false) Integer limit) {
-        // Require authentication
-        requireAccount();
-        // Return empty list for now - conversations require complex tracking
-        return ResponseEntity.ok(List.of());
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "max_id", required = false) String maxId,
+            @RequestParam(value = "since_id", required = false) String sinceId) {
+        Account account = requireAccount();
+        List<Status> latest = statusService.findConversations(
+                account, parseOptionalId(maxId), parseOptionalId(sinceId), pageable(limit));
+        Map<Long, List<Account>> mentioned = statusService.findMentionedAccounts(
+                latest.stream().map(Status::getId).toList());
+
+        List<ConversationDto> body = new ArrayList<>(latest.size());
+        for (Status status : latest) {
+            Map<Long, Account> participants = new LinkedHashMap<>();
+            participants.put(status.getAccount().getId(), status.getAccount());
+            for (Account mentionedAccount : mentioned.getOrDefault(status.getId(), List.of())) {
+                participants.putIfAbsent(mentionedAccount.getId(), mentionedAccount);
+            }
+            participants.remove(account.getId());
+            Long threadId = status.getThreadRootId() != null ? status.getThreadRootId() : status.getId();
+            body.add(new ConversationDto(
+                    String.valueOf(threadId),
+                    participants.values().stream().map(ApiMapper::toAccountDto).toList(),
+                    false,
+                    ApiMapper.toStatusDto(status)));
+        }
+
+        List<Long> ids = latest.stream().map(Status::getId).toList();
+        int resolvedLimit = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+        String link = LinkHeaderBuilder.build(ApiVersion.V1 + "/conversations?limit=" + resolvedLimit,
+                PaginationUtil.nextMaxId(ids), PaginationUtil.prevSinceId(ids));
+        if (link == null) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.ok().header("Link", link).body(body);
     }
 
     private ResponseEntity<List<StatusDto>> timelineResponse(List<Status> statuses, String basePath, Integer limit) {
@@ -0,0 +1,338 @@
+package org.joinmastodon.web.api.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.joinmastodon.jobs.DeadJob;
+import org.joinmastodon.jobs.Job;
+import org.joinmastodon.jobs.JobQueueStats;
+import org.joinmastodon.jobs.JobService;
+import org.joinmastodon.jobs.JobState;
+import org.joinmastodon.jobs.RecurringJob;
+import org.joinmastodon.jobs.RecurringJobService;
+import org.joinmastodon.web.api.ApiVersion;
+import org.joinmastodon.web.api.LinkHeaderBuilder;
+import org.joinmastodon.web.api.dto.AdminDeadJobDto;
+import org.joinmastodon.web.api.dto.AdminJobDto;
+import org.joinmastodon.web.api.dto.AdminJobQueueDto;
+import org.joinmastodon.web.api.dto.AdminRecurringJobDto;
+import org.joinmastodon.web.auth.AdminOnly;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Inspect and repair background job queues. Running jobs can be looked at but not changed;
+ * their worker owns them until it finishes or its lock times out. Jobs that used their last
+ * attempt are listed under {@code /dead} and can be requeued from there.
+ */
+@RestController
+@RequestMapping(ApiVersion.V1 + "/admin/jobs")
+@AdminOnly
+public class AdminJobController {
+
+    private final JobService jobService;
+    private final RecurringJobService recurringJobService;
+
+    public AdminJobController(JobService jobService, RecurringJobService recurringJobService) {
+        this.jobService = jobService;
+        this.recurringJobService = recurringJobService;
+    }
+
+    @GetMapping("/queues")
+    public ResponseEntity<List<AdminJobQueueDto>> listQueues() {
+        Instant now = Instant.now();
+        return ResponseEntity.ok(jobService.queueStats(true).stream()
+                .map(stats -> toQueueDto(stats, now))
+                .toList());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<AdminJobDto>> listJobs(
+            @RequestParam(value = "queue", required = false) String queue,
+            @RequestParam(value = "state", required = false) String state,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "max_id", required = false) String maxId) {
+        int resolvedLimit = limit == null ? 40 : Math.min(Math.max(limit, 1), 200);
+        JobState jobState = state == null || state.isBlank() ? null : parseState(state);
+        Instant now = Instant.now();
+        List<Job> jobs = jobService.findJobs(blankToNull(queue), jobState,
+                maxId == null ? null : parseId(maxId), resolvedLimit);
+        List<AdminJobDto> body = jobs.stream().map(job -> toJobDto(job, now)).toList();
+
+        if (jobs.size() < resolvedLimit) {
+            return ResponseEntity.ok(body);
+        }
+        String basePath = pagePath("/admin/jobs", resolvedLimit, blankToNull(queue), jobState);
+        String link = LinkHeaderBuilder.build(basePath, jobs.get(jobs.size() - 1).getId(), null);
+        return ResponseEntity.ok().header("Link", link).body(body);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<AdminJobDto> getJob(@PathVariable("id") String id) {
+        return ResponseEntity.ok(toJobDto(findJob(id), Instant.now()));
+    }
+
+    /**
+     * Run a job as soon as possible, with a fresh set of attempts.
+     */
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<AdminJobDto> retryJob(@PathVariable("id") String id) {
+        return ResponseEntity.ok(reschedule(findIdleJob(id), null));
+    }
+
+    @PostMapping("/{id}/reschedule")
+    public ResponseEntity<AdminJobDto> rescheduleJob(@PathVariable("id") String id,
+                                                     @RequestBody RescheduleRequest request) {
+        if (request == null || request.runAt() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "run_at is required");
+        }
+        return ResponseEntity.ok(reschedule(findIdleJob(id), request.runAt()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteJob(@PathVariable("id") String id) {
+        jobService.delete(findIdleJob(id));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Delete every job of a queue in the given state: ready, scheduled or failed.
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Integer>> purgeJobs(
+            @RequestParam("queue") String queue,
+            @RequestParam("state") String state) {
+        JobState jobState = parseState(state);
+        if (jobState == JobState.RUNNING) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Running jobs cannot be purged");
+        }
+        return ResponseEntity.ok(Map.of("deleted", jobService.purge(queue, jobState)));
+    }
+
+    @GetMapping("/dead")
+    public ResponseEntity<List<AdminDeadJobDto>> listDeadJobs(
+            @RequestParam(value = "queue", required = false) String queue,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "max_id", required = false) String maxId) {
+        int resolvedLimit = limit == null ? 40 : Math.min(Math.max(limit, 1), 200);
+        List<DeadJob> jobs = jobService.findDeadJobs(blankToNull(queue),
+                maxId == null ? null : parseId(maxId), resolvedLimit);
+        List<AdminDeadJobDto> body = jobs.stream().map(this::toDeadJobDto).toList();
+
+        if (jobs.size() < resolvedLimit) {
+            return ResponseEntity.ok(body);
+        }
+        String basePath = pagePath("/admin/jobs/dead", resolvedLimit, blankToNull(queue), null);
+        String link = LinkHeaderBuilder.build(basePath, jobs.get(jobs.size() - 1).getId(), null);
+        return ResponseEntity.ok().header("Link", link).body(body);
+    }
+
+    @GetMapping("/dead/{id}")
+    public ResponseEntity<AdminDeadJobDto> getDeadJob(@PathVariable("id") String id) {
+        return ResponseEntity.ok(toDeadJobDto(findDeadJob(id)));
+    }
+
+    /**
+     * Put a dead job back on its queue. The requeued job gets a new id.
+     */
+    @PostMapping("/dead/{id}/requeue")
+    public ResponseEntity<AdminJobDto> requeueDeadJob(@PathVariable("id") String id) {
+        Job job = jobService.requeue(findDeadJob(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Another pending job has the same unique key"));
+        return ResponseEntity.ok(toJobDto(job, Instant.now()));
+    }
+
+    /**
+     * Requeue every dead job of a queue. Jobs whose unique key is pending again stay dead.
+     */
+    @PostMapping("/dead/requeue")
+    public ResponseEntity<Map<String, Integer>> requeueDeadJobs(@RequestParam("queue") String queue) {
+        return ResponseEntity.ok(Map.of("requeued", jobService.requeueDead(queue)));
+    }
+
+    @DeleteMapping("/dead/{id}")
+    public ResponseEntity<Void> deleteDeadJob(@PathVariable("id") String id) {
+        jobService.deleteDead(findDeadJob(id));
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/dead")
+    public ResponseEntity<Map<String, Integer>> purgeDeadJobs(@RequestParam("queue") String queue) {
+        return ResponseEntity.ok(Map.of("deleted", jobService.purgeDead(queue)));
+    }
+
+    @GetMapping("/recurring")
+    public ResponseEntity<List<AdminRecurringJobDto>> listRecurringJobs() {
+        return ResponseEntity.ok(recurringJobService.findAll().stream()
+                .map(this::toRecurringJobDto)
+                .toList());
+    }
+
+    @PostMapping("/recurring/{name}/enable")
+    public ResponseEntity<AdminRecurringJobDto> enableRecurringJob(@PathVariable("name") String name) {
+        return ResponseEntity.ok(toRecurringJobDto(recurringJobService.setEnabled(name, true)
+                .orElseThrow(this::recurringJobNotFound)));
+    }
+
+    @PostMapping("/recurring/{name}/disable")
+    public ResponseEntity<AdminRecurringJobDto> disableRecurringJob(@PathVariable("name") String name) {
+        return ResponseEntity.ok(toRecurringJobDto(recurringJobService.setEnabled(name, false)
+                .orElseThrow(this::recurringJobNotFound)));
+    }
+
+    /**
+     * Make a recurring job due now. One node enqueues it on its next scheduler tick.
+     */
+    @PostMapping("/recurring/{name}/run")
+    public ResponseEntity<AdminRecurringJobDto> runRecurringJob(@PathVariable("name") String name) {
+        return ResponseEntity.ok(toRecurringJobDto(recurringJobService.runNow(name)
+                .orElseThrow(this::recurringJobNotFound)));
+    }
+
+    private ResponseStatusException recurringJobNotFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Recurring job not found");
+    }
+
+    private DeadJob findDeadJob(String id) {
+        return jobService.findDeadJob(parseId(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found"));
+    }
+
+    private AdminJobDto reschedule(Job job, Instant runAt) {
+        try {
+            return toJobDto(jobService.reschedule(job, runAt), Instant.now());
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Another pending job has the same unique key");
+        }
+    }
+
+    private Job findIdleJob(String id) {
+        Job job = findJob(id);
+        if (JobState.of(job, Instant.now()) == JobState.RUNNING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Job is running");
+        }
+        return job;
+    }
+
+    private Job findJob(String id) {
+        return jobService.findJob(parseId(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found"));
+    }
+
+    private static JobState parseState(String state) {
+        try {
+            return JobState.valueOf(state.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "state must be one of ready, scheduled, running, failed");
+        }
+    }
+
+    private Long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid ID format");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * The path of a listing page with its filters; the queue name is expanded as a URI variable
+     * so characters such as {@code &} and {@code #} are encoded.
+     */
+    private static String pagePath(String path, int limit, String queue, JobState state) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromPath(ApiVersion.V1 + path)
+                .queryParam("limit", limit);
+        if (queue != null) {
+            builder.queryParam("queue", "{queue}");
+        }
+        if (state != null) {
+            builder.queryParam("state", state.name().toLowerCase(Locale.ROOT));
+        }
+        return builder.encode().buildAndExpand(Collections.singletonMap("queue", queue)).toUriString();
+    }
+
+    private AdminJobDto toJobDto(Job job, Instant now) {
+        return new AdminJobDto(
+                String.valueOf(job.getId()),
+                job.getQueue(),
+                JobState.of(job, now).name().toLowerCase(Locale.ROOT),
+                job.getPayload(),
+                job.getPriority(),
+                job.getUniqueKey(),
+                job.getFairnessKey(),
+                job.getAttempts(),
+                job.getMaxAttempts(),
+                job.getLastError(),
+                job.getRunAt(),
+                job.getFairAt(),
+                job.getLockedAt(),
+                job.getLockedBy(),
+                job.getCreatedAt(),
+                job.getUpdatedAt()
+        );
+    }
+
+    private AdminDeadJobDto toDeadJobDto(DeadJob job) {
+        return new AdminDeadJobDto(
+                String.valueOf(job.getId()),
+                job.getQueue(),
+                job.getPayload(),
+                job.getPriority(),
+                job.getUniqueKey(),
+                job.getFairnessKey(),
+                job.getAttempts(),
+                job.getMaxAttempts(),
+                job.getLastError(),
+                job.getCreatedAt(),
+                job.getFailedAt()
+        );
+    }
+
+    private AdminRecurringJobDto toRecurringJobDto(RecurringJob schedule) {
+        return new AdminRecurringJobDto(
+                schedule.getName(),
+                schedule.getCron(),
+                schedule.getQueue(),
+                schedule.isEnabled(),
+                schedule.getNextRunAt(),
+                schedule.getLastRunAt(),
+                schedule.getLastRunBy()
+        );
+    }
+
+    private AdminJobQueueDto toQueueDto(JobQueueStats stats, Instant now) {
+        return new AdminJobQueueDto(
+                stats.queue(),
+                stats.ready(),
+                stats.scheduled(),
+                stats.running(),
+                stats.failed(),
+                stats.oldestReadyAt(),
+                stats.oldestReadyAge(now).toSeconds()
+        );
+    }
+
+    // DTOs
+    public record RescheduleRequest(@JsonProperty("run_at") Instant runAt) {}
+}
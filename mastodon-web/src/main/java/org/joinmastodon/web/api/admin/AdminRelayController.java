@@ -0,0 +1,108 @@
+package org.joinmastodon.web.api.admin;
+
+import java.net.URI;
+import java.util.List;
+import org.joinmastodon.core.entity.Relay;
+import org.joinmastodon.core.service.RelayService;
+import org.joinmastodon.web.api.ApiVersion;
+import org.joinmastodon.web.auth.AdminOnly;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping(ApiVersion.V1 + "/admin/relays")
+@AdminOnly
+public class AdminRelayController {
+
+    private final RelayService relayService;
+
+    public AdminRelayController(RelayService relayService) {
+        this.relayService = relayService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<RelayDto>> listRelays() {
+        return ResponseEntity.ok(relayService.findAll().stream()
+                .map(this::toRelayDto)
+                .toList());
+    }
+
+    @PostMapping
+    public ResponseEntity<RelayDto> createRelay(@RequestBody RelayRequest request) {
+        if (request.inboxUrl() == null || request.inboxUrl().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Inbox URL is required");
+        }
+        if (!isHttpUrl(request.inboxUrl())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Inbox URL must be an http(s) URL");
+        }
+        Relay relay = relayService.create(request.inboxUrl().trim());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toRelayDto(relay));
+    }
+
+    @PostMapping("/{id}/enable")
+    public ResponseEntity<RelayDto> enableRelay(@PathVariable("id") String id) {
+        return ResponseEntity.ok(toRelayDto(relayService.enable(findRelay(id))));
+    }
+
+    @PostMapping("/{id}/disable")
+    public ResponseEntity<RelayDto> disableRelay(@PathVariable("id") String id) {
+        return ResponseEntity.ok(toRelayDto(relayService.disable(findRelay(id))));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRelay(@PathVariable("id") String id) {
+        relayService.delete(findRelay(id));
+        return ResponseEntity.noContent().build();
+    }
+
+    private Relay findRelay(String id) {
+        return relayService.findById(parseId(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Relay not found"));
+    }
+
+    private Long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid ID format");
+        }
+    }
+
+    private static boolean isHttpUrl(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            return uri.getHost() != null
+                    && ("https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private RelayDto toRelayDto(Relay relay) {
+        return new RelayDto(
+                String.valueOf(relay.getId()),
+                relay.getInboxUrl(),
+                relay.getState().name().toLowerCase(),
+                relay.getCreatedAt(),
+                relay.getUpdatedAt()
+        );
+    }
+
+    // DTOs
+    public record RelayRequest(String inboxUrl) {}
+
+    public record RelayDto(
+            String id,
+            String inboxUrl,
+            String state,
+            java.time.Instant createdAt,
+            java.time.Instant updatedAt) {}
+}
@@ -0,0 +1,18 @@
+package org.joinmastodon.web.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+
+public record AdminDeadJobDto(
+        @JsonProperty("id") String id,
+        @JsonProperty("queue") String queue,
+        @JsonProperty("payload") String payload,
+        @JsonProperty("priority") int priority,
+        @JsonProperty("unique_key") String uniqueKey,
+        @JsonProperty("fairness_key") String fairnessKey,
+        @JsonProperty("attempts") int attempts,
+        @JsonProperty("max_attempts") int maxAttempts,
+        @JsonProperty("last_error") String lastError,
+        @JsonProperty("created_at") Instant createdAt,
+        @JsonProperty("failed_at") Instant failedAt) {
+}
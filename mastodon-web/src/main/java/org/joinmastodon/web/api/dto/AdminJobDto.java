@@ -0,0 +1,23 @@
+package org.joinmastodon.web.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+
+public record AdminJobDto(
+        @JsonProperty("id") String id,
+        @JsonProperty("queue") String queue,
+        @JsonProperty("state") String state,
+        @JsonProperty("payload") String payload,
+        @JsonProperty("priority") int priority,
+        @JsonProperty("unique_key") String uniqueKey,
+        @JsonProperty("fairness_key") String fairnessKey,
+        @JsonProperty("attempts") int attempts,
+        @JsonProperty("max_attempts") int maxAttempts,
+        @JsonProperty("last_error") String lastError,
+        @JsonProperty("run_at") Instant runAt,
+        @JsonProperty("fair_at") Instant fairAt,
+        @JsonProperty("locked_at") Instant lockedAt,
+        @JsonProperty("locked_by") String lockedBy,
+        @JsonProperty("created_at") Instant createdAt,
+        @JsonProperty("updated_at") Instant updatedAt) {
+}
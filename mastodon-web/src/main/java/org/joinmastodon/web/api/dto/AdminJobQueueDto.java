@@ -0,0 +1,14 @@
+package org.joinmastodon.web.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+
+public record AdminJobQueueDto(
+        @JsonProperty("queue") String queue,
+        @JsonProperty("ready") long ready,
+        @JsonProperty("scheduled") long scheduled,
+        @JsonProperty("running") long running,
+        @JsonProperty("failed") long failed,
+        @JsonProperty("oldest_ready_at") Instant oldestReadyAt,
+        @JsonProperty("oldest_ready_age_seconds") long oldestReadyAgeSeconds) {
+}
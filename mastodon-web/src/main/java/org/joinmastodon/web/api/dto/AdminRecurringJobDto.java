@@ -0,0 +1,14 @@
+package org.joinmastodon.web.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+
+public record AdminRecurringJobDto(
+        @JsonProperty("name") String name,
+        @JsonProperty("cron") String cron,
+        @JsonProperty("queue") String queue,
+        @JsonProperty("enabled") boolean enabled,
+        @JsonProperty("next_run_at") Instant nextRunAt,
+        @JsonProperty("last_run_at") Instant lastRunAt,
+        @JsonProperty("last_run_by") String lastRunBy) {
+}
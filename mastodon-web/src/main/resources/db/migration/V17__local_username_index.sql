@@ -0,0 +1,4 @@
+-- Case-insensitive lookup of local usernames (WebFinger, mentions)
+CREATE INDEX IF NOT EXISTS idx_accounts_local_username_lower
+    ON accounts (LOWER(username))
+    WHERE local_account = TRUE;
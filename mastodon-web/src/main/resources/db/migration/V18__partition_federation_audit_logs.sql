@@ -0,0 +1,46 @@
+-- Partition federation audit logs by day so retention can drop whole partitions
+-- instead of deleting rows. Daily partitions are created ahead of time by
+-- FederationAuditRetention; rows outside any daily partition land in the default one.
+
+ALTER TABLE federation_audit_logs RENAME TO federation_audit_logs_legacy;
+
+DROP INDEX IF EXISTS idx_federation_audit_logs_created_at;
+DROP INDEX IF EXISTS idx_federation_audit_logs_direction;
+DROP INDEX IF EXISTS idx_federation_audit_logs_status;
+DROP INDEX IF EXISTS idx_federation_audit_logs_event_type;
+
+-- Keep the existing id sequence so ids stay unique across the migration
+CREATE TABLE federation_audit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('federation_audit_logs_id_seq'),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    direction VARCHAR(16) NOT NULL,
+    event_type VARCHAR(64),
+    actor_uri TEXT,
+    target_uri TEXT,
+    status VARCHAR(32),
+    error TEXT,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE federation_audit_logs_id_seq OWNED BY federation_audit_logs.id;
+
+CREATE TABLE federation_audit_logs_default PARTITION OF federation_audit_logs DEFAULT;
+
+INSERT INTO federation_audit_logs (id, created_at, direction, event_type, actor_uri, target_uri, status, error)
+SELECT id, created_at, direction, event_type, actor_uri, target_uri, status, error
+FROM federation_audit_logs_legacy;
+
+DROP TABLE federation_audit_logs_legacy;
+
+CREATE INDEX idx_federation_audit_logs_created_at ON federation_audit_logs(created_at);
+CREATE INDEX idx_federation_audit_logs_direction ON federation_audit_logs(direction);
+CREATE INDEX idx_federation_audit_logs_status ON federation_audit_logs(status);
+CREATE INDEX idx_federation_audit_logs_event_type ON federation_audit_logs(event_type);
+
+COMMENT ON TABLE federation_audit_logs IS 'Audit log for federation activities (incoming/outgoing), partitioned by day';
+COMMENT ON COLUMN federation_audit_logs.direction IS 'Direction of federation activity: inbound or outbound';
+COMMENT ON COLUMN federation_audit_logs.event_type IS 'Type of ActivityPub event (Create, Update, Delete, Follow, etc.)';
+COMMENT ON COLUMN federation_audit_logs.actor_uri IS 'URI of the actor that initiated the activity';
+COMMENT ON COLUMN federation_audit_logs.target_uri IS 'URI of the target object of the activity';
+COMMENT ON COLUMN federation_audit_logs.status IS 'Status of the federation activity: success, failed, pending';
+COMMENT ON COLUMN federation_audit_logs.error IS 'Error message if status is failed';
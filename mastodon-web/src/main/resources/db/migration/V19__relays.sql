@@ -0,0 +1,14 @@
+-- Relay subscriptions of the instance actor
+CREATE TABLE relays (
+    id BIGSERIAL PRIMARY KEY,
+    inbox_url TEXT NOT NULL UNIQUE,
+    follow_activity_id TEXT,
+    state VARCHAR(16) NOT NULL DEFAULT 'IDLE',
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE UNIQUE INDEX idx_relays_follow_activity_id ON relays(follow_activity_id);
+
+COMMENT ON TABLE relays IS 'ActivityPub relays the instance actor follows for federated timeline content';
+COMMENT ON COLUMN relays.state IS 'Subscription state: IDLE, PENDING, ACCEPTED or REJECTED';
@@ -0,0 +1,13 @@
+-- Per-account signing keys for outgoing federation requests
+CREATE TABLE account_keys (
+    id BIGSERIAL PRIMARY KEY,
+    account_id BIGINT NOT NULL REFERENCES accounts(id) ON DELETE CASCADE,
+    algorithm VARCHAR(16) NOT NULL,
+    public_key_pem TEXT NOT NULL,
+    private_key_pem TEXT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_account_keys_account_algorithm UNIQUE (account_id, algorithm)
+);
+
+COMMENT ON TABLE account_keys IS 'Signing key pairs of local accounts, one per algorithm';
+COMMENT ON COLUMN account_keys.algorithm IS 'RSA for draft-cavage signatures, ED25519 for RFC 9421 signatures';
@@ -0,0 +1,30 @@
+-- Materialized reply threads: each status stores its thread root and the path of ids from
+-- the root down to itself, each zero-padded to 19 digits and followed by '/'
+ALTER TABLE statuses ADD COLUMN thread_root_id BIGINT;
+ALTER TABLE statuses ADD COLUMN thread_path TEXT;
+
+WITH RECURSIVE threads AS (
+    SELECT s.id,
+           s.id AS root_id,
+           LPAD(s.id::TEXT, 19, '0') || '/' AS path
+    FROM statuses s
+    WHERE s.in_reply_to_id IS NULL
+       OR NOT EXISTS (SELECT 1 FROM statuses p WHERE p.id = s.in_reply_to_id)
+    UNION ALL
+    SELECT c.id,
+           t.root_id,
+           t.path || LPAD(c.id::TEXT, 19, '0') || '/'
+    FROM statuses c
+    JOIN threads t ON c.in_reply_to_id = t.id
+)
+UPDATE statuses s
+SET thread_root_id = t.root_id,
+    thread_path = t.path
+FROM threads t
+WHERE s.id = t.id;
+
+-- Descendants are a prefix match on thread_path within one thread
+CREATE INDEX idx_statuses_thread ON statuses (thread_root_id, thread_path text_pattern_ops);
+
+COMMENT ON COLUMN statuses.thread_root_id IS 'Id of the status that started the reply thread';
+COMMENT ON COLUMN statuses.thread_path IS 'Zero-padded ids from the thread root to this status, each followed by /';
@@ -0,0 +1,5 @@
+-- Claims only read unlocked jobs that still have attempts left. A partial index over exactly
+-- those rows keeps the claim an index range scan however many jobs are locked or exhausted.
+create index if not exists idx_jobs_ready
+    on jobs (queue, run_at)
+    where locked_at is null and attempts < max_attempts;
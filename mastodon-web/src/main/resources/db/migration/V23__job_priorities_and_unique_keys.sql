@@ -0,0 +1,14 @@
+alter table jobs add column if not exists priority integer not null default 0;
+alter table jobs add column if not exists unique_key text;
+
+-- Claims order by priority, then run_at, within a queue
+drop index if exists idx_jobs_ready;
+create index if not exists idx_jobs_ready
+    on jobs (queue, priority desc, run_at)
+    where locked_at is null and attempts < max_attempts;
+
+-- At most one unfinished job per unique key; finished jobs are deleted and exhausted ones
+-- fall out of the index, so the key can be enqueued again afterwards
+create unique index if not exists idx_jobs_unique_key
+    on jobs (queue, unique_key)
+    where unique_key is not null and attempts < max_attempts;
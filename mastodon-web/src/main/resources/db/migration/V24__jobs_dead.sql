@@ -0,0 +1,36 @@
+-- Jobs that failed their last attempt move here, so the jobs table and its indexes only
+-- hold live work. Partitioned by day so retention drops whole partitions; daily
+-- partitions are created ahead of time by DeadJobMaintenance and rows outside any daily
+-- partition land in the default one.
+CREATE TABLE jobs_dead (
+    id BIGINT NOT NULL,
+    queue VARCHAR(64) NOT NULL,
+    payload TEXT,
+    priority INTEGER NOT NULL DEFAULT 0,
+    unique_key TEXT,
+    attempts INTEGER NOT NULL,
+    max_attempts INTEGER NOT NULL,
+    last_error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    failed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, failed_at)
+) PARTITION BY RANGE (failed_at);
+
+CREATE TABLE jobs_dead_default PARTITION OF jobs_dead DEFAULT;
+
+CREATE INDEX idx_jobs_dead_queue ON jobs_dead (queue, id);
+
+-- Move the jobs that already ran out of attempts
+WITH moved AS (
+    DELETE FROM jobs
+    WHERE locked_at IS NULL AND attempts >= max_attempts
+    RETURNING id, queue, payload, priority, unique_key, attempts, max_attempts, last_error, created_at, updated_at
+)
+INSERT INTO jobs_dead (id, queue, payload, priority, unique_key, attempts, max_attempts, last_error,
+                       created_at, failed_at)
+SELECT id, queue, payload, priority, unique_key, attempts, max_attempts, last_error, created_at, updated_at
+FROM moved;
+
+COMMENT ON TABLE jobs_dead IS 'Jobs that exhausted their attempts, partitioned by day of failure';
+COMMENT ON COLUMN jobs_dead.id IS 'Id the job had in the jobs table';
+COMMENT ON COLUMN jobs_dead.last_error IS 'Error of the final attempt';
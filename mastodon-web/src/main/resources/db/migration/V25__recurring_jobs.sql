@@ -0,0 +1,19 @@
+-- Cron schedules shared by every node. A node enqueues a due run only after moving
+-- next_run_at forward from the value it read, so each run is enqueued once.
+CREATE TABLE recurring_jobs (
+    name VARCHAR(128) PRIMARY KEY,
+    cron VARCHAR(128) NOT NULL,
+    queue VARCHAR(64) NOT NULL,
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    next_run_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_run_at TIMESTAMP WITH TIME ZONE,
+    last_run_by VARCHAR(128),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_recurring_jobs_due ON recurring_jobs (next_run_at) WHERE enabled;
+
+COMMENT ON TABLE recurring_jobs IS 'Cron schedules of recurring jobs, claimed by one node per run';
+COMMENT ON COLUMN recurring_jobs.cron IS 'Spring cron expression, evaluated in UTC';
+COMMENT ON COLUMN recurring_jobs.last_run_by IS 'Node that enqueued the last run';
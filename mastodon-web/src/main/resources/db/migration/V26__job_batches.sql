@@ -0,0 +1,15 @@
+-- Progress of items fanned out over many jobs. Each job's payload holds its slice of the
+-- items and the batch id; the counters are bumped in place as those jobs finish.
+CREATE TABLE job_batches (
+    id BIGSERIAL PRIMARY KEY,
+    queue VARCHAR(64) NOT NULL,
+    total INTEGER NOT NULL,
+    succeeded INTEGER NOT NULL DEFAULT 0,
+    failed INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    finished_at TIMESTAMP WITH TIME ZONE
+);
+
+COMMENT ON TABLE job_batches IS 'Progress of items fanned out over many jobs';
+COMMENT ON COLUMN job_batches.failed IS 'Items whose job ran out of attempts';
@@ -0,0 +1,16 @@
+alter table jobs add column if not exists fairness_key text;
+alter table jobs add column if not exists fair_at timestamp with time zone;
+update jobs set fair_at = run_at where fair_at is null;
+alter table jobs alter column fair_at set not null;
+
+-- Claims order by priority, then fair_at, within a queue. fair_at is run_at unless a
+-- fairness key spread the job out behind the other jobs of its key.
+drop index if exists idx_jobs_ready;
+create index if not exists idx_jobs_ready
+    on jobs (queue, priority desc, fair_at)
+    where locked_at is null and attempts < max_attempts;
+
+-- Enqueuing a job with a fairness key looks up the last unclaimed job of that key
+create index if not exists idx_jobs_fairness
+    on jobs (queue, fairness_key, fair_at)
+    where fairness_key is not null and locked_at is null and attempts < max_attempts;
@@ -0,0 +1,8 @@
+-- V27 keyed idx_jobs_ready on fair_at and dropped run_at from it. Claims still filter on
+-- run_at and the queue statistics group ready and scheduled jobs by it, so carry it as an
+-- included column: both are answered from the index without visiting the table.
+drop index if exists idx_jobs_ready;
+create index if not exists idx_jobs_ready
+    on jobs (queue, priority desc, fair_at)
+    include (run_at)
+    where locked_at is null and attempts < max_attempts;
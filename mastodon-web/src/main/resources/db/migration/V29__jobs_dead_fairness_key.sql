@@ -0,0 +1,3 @@
+-- Dead jobs keep their fairness key, so a requeued job takes turns with the rest of its
+-- queue again instead of running back to back with the other jobs of its key.
+alter table jobs_dead add column if not exists fairness_key text;
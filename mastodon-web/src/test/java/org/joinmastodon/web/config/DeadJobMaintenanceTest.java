@@ -0,0 +1,99 @@
+package org.joinmastodon.web.config;
+
+import org.joinmastodon.jobs.DeadJobMaintenance;
+import org.joinmastodon.web.conformance.SharedPostgresContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Partition maintenance of {@code jobs_dead} against the migrated PostgreSQL schema.
+ */
+@DisplayName("Dead Job Maintenance Tests")
+class DeadJobMaintenanceTest {
+    private static final String TABLE = "jobs_dead";
+
+    private JdbcTemplate jdbcTemplate;
+    private DeadJobMaintenance maintenance;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        SharedPostgresContainer.startAndMigrate();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(SharedPostgresContainer.getJdbcUrl(),
+                SharedPostgresContainer.getUsername(), SharedPostgresContainer.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        maintenance = new DeadJobMaintenance(jdbcTemplate, new DataSourceTransactionManager(dataSource), 30);
+        today = LocalDate.now(ZoneOffset.UTC);
+
+        // Start from the state right after the migration: every dead job in the default partition
+        for (int i = -40; i <= 3; i++) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition(today.plusDays(i)));
+        }
+        jdbcTemplate.execute("TRUNCATE " + TABLE);
+        jdbcTemplate.execute("DELETE FROM jobs WHERE queue = 'dead-job-maintenance'");
+    }
+
+    @Test
+    @DisplayName("Moves dead jobs out of the default partition and is safe to run again")
+    void createsPartitionsForDaysThatAlreadyHaveRows() {
+        Instant now = Instant.now();
+        insertDead(1L, now);
+        insertDead(2L, now);
+        insertDead(3L, today.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+        insertExhaustedJob(now);
+        jdbcTemplate.execute("CREATE TABLE " + partition(today.minusDays(40)) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + today.minusDays(40) + " 00:00:00+00') TO ('"
+                + today.minusDays(39) + " 00:00:00+00')");
+
+        maintenance.maintain();
+        maintenance.maintain();
+
+        for (int i = 0; i <= 3; i++) {
+            assertThat(exists(partition(today.plusDays(i)))).isTrue();
+        }
+        assertThat(exists(partition(today.minusDays(40)))).isFalse();
+        assertThat(count(partition(today))).isEqualTo(3);
+        assertThat(count(partition(today.plusDays(1)))).isEqualTo(1);
+        assertThat(count(TABLE + "_default")).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM jobs WHERE queue = 'dead-job-maintenance'", Integer.class)).isZero();
+    }
+
+    private void insertDead(long id, Instant failedAt) {
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (id, queue, payload, attempts, max_attempts, created_at,"
+                        + " failed_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                id, "dead-job-maintenance", "{}", 5, 5, Timestamp.from(failedAt), Timestamp.from(failedAt));
+    }
+
+    private void insertExhaustedJob(Instant now) {
+        jdbcTemplate.update("INSERT INTO jobs (queue, payload, run_at, priority, fair_at, attempts, max_attempts,"
+                        + " created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                "dead-job-maintenance", "{}", Timestamp.from(now), 0, Timestamp.from(now), 5, 5,
+                Timestamp.from(now), Timestamp.from(now));
+    }
+
+    private boolean exists(String table) {
+        return !jdbcTemplate.queryForList("SELECT relname FROM pg_class WHERE relname = ?", String.class, table)
+                .isEmpty();
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+
+    private static String partition(LocalDate day) {
+        return TABLE + "_p" + DateTimeFormatter.BASIC_ISO_DATE.format(day);
+    }
+}
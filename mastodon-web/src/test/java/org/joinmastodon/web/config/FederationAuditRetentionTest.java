@@ -0,0 +1,88 @@
+package org.joinmastodon.web.config;
+
+import org.joinmastodon.core.service.FederationAuditRetention;
+import org.joinmastodon.web.conformance.SharedPostgresContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Partition maintenance of {@code federation_audit_logs} against the migrated PostgreSQL schema.
+ */
+@DisplayName("Federation Audit Retention Tests")
+class FederationAuditRetentionTest {
+    private static final String TABLE = "federation_audit_logs";
+
+    private JdbcTemplate jdbcTemplate;
+    private FederationAuditRetention retention;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        SharedPostgresContainer.startAndMigrate();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(SharedPostgresContainer.getJdbcUrl(),
+                SharedPostgresContainer.getUsername(), SharedPostgresContainer.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        retention = new FederationAuditRetention(jdbcTemplate, new DataSourceTransactionManager(dataSource), 30);
+        today = LocalDate.now(ZoneOffset.UTC);
+
+        // Start from the state right after the migration: every row in the default partition
+        for (int i = -40; i <= 3; i++) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition(today.plusDays(i)));
+        }
+        jdbcTemplate.execute("TRUNCATE " + TABLE);
+    }
+
+    @Test
+    @DisplayName("Moves rows out of the default partition and is safe to run again")
+    void createsPartitionsForDaysThatAlreadyHaveRows() {
+        Instant now = Instant.now();
+        insert(now);
+        insert(now);
+        insert(today.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+        jdbcTemplate.execute("CREATE TABLE " + partition(today.minusDays(40)) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + today.minusDays(40) + " 00:00:00+00') TO ('"
+                + today.minusDays(39) + " 00:00:00+00')");
+
+        retention.maintainPartitions();
+        retention.maintainPartitions();
+
+        for (int i = 0; i <= 3; i++) {
+            assertThat(exists(partition(today.plusDays(i)))).isTrue();
+        }
+        assertThat(exists(partition(today.minusDays(40)))).isFalse();
+        assertThat(count(partition(today))).isEqualTo(2);
+        assertThat(count(partition(today.plusDays(1)))).isEqualTo(1);
+        assertThat(count(TABLE + "_default")).isZero();
+        assertThat(count(TABLE)).isEqualTo(3);
+    }
+
+    private void insert(Instant createdAt) {
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (created_at, direction, event_type, status) VALUES (?, ?, ?, ?)",
+                Timestamp.from(createdAt), "inbound", "Create", "success");
+    }
+
+    private boolean exists(String table) {
+        return !jdbcTemplate.queryForList("SELECT relname FROM pg_class WHERE relname = ?", String.class, table)
+                .isEmpty();
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+
+    private static String partition(LocalDate day) {
+        return TABLE + "_p" + DateTimeFormatter.BASIC_ISO_DATE.format(day);
+    }
+}